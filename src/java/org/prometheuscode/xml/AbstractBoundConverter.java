@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.util.List;
+import java.util.Map;
+
+import org.prometheuscode.xml.treemodel.ICompositeTag;
+import org.prometheuscode.xml.treemodel.IXMLQName;
+
+/**
+ * Base class of converters generated by
+ * {@link org.prometheuscode.xml.annotation.BoundConverterProcessor}. It
+ * converts objects in both directions, tree model is written and read by
+ * streaming methods.
+ * 
+ * @author marta
+ * 
+ */
+public abstract class AbstractBoundConverter<T> extends AbstractStreamingMarshallerConverter<T> implements IStreamingUnmarshallerConverter {
+
+	/**
+	 * Converted objects of children are not used, bound fields have only
+	 * simple types.
+	 */
+	@Override
+	public Object convert(ICompositeTag tag, Map<IXMLQName, List<Object>> convertedObjs) {
+		return this.read(new TagElementReader(tag));
+	}
+
+
+
+	/**
+	 * Parse value of char field.
+	 * 
+	 * @param text
+	 *            text of tag or attribute value
+	 * @param name
+	 *            name of tag or attribute
+	 * @return first character of text
+	 * 
+	 * @throws XMLUnmarshallerException
+	 *             if text is empty.
+	 */
+	protected char parseChar(String text, IXMLQName name) {
+		if (text.length() == 0) {
+			throw new XMLUnmarshallerException("Value of: " + name.getLocalPart() + " bound to char field can not be empty");
+		}
+		return text.charAt(0);
+	}
+
+}
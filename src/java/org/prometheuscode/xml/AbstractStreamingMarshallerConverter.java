@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.util.Map;
+
+import org.prometheuscode.xml.treemodel.IXMLTag;
+
+/**
+ * Streaming converter which creates tree model by writing object to element
+ * writer building tags.
+ * 
+ * @author marta
+ * 
+ */
+public abstract class AbstractStreamingMarshallerConverter<T> implements IStreamingMarshallerConverter<T> {
+
+	/**
+	 * 
+	 * @throws XMLMarshallerException
+	 *             if written elements are not balanced.
+	 */
+	@Override
+	public IXMLTag convert(T objectToConvert, Map<String, IXMLTag> convertedObjects) {
+		TagBuildingElementWriter writer = new TagBuildingElementWriter(convertedObjects);
+		this.write(objectToConvert, writer);
+		return writer.getResult();
+	}
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.util.List;
+import java.util.Map;
+
+import org.prometheuscode.xml.treemodel.ICompositeTag;
+import org.prometheuscode.xml.treemodel.IXMLQName;
+
+/**
+ * Streaming converter which converts tree model by reading composite tag
+ * with element reader walking the tags.
+ * 
+ * @author marta
+ * 
+ */
+public abstract class AbstractStreamingUnmarshallerConverter implements IStreamingUnmarshallerConverter {
+
+	/**
+	 * Converted objects of children are not used, children are read by
+	 * {@link #read(IXMLElementReader)}.
+	 */
+	@Override
+	public Object convert(ICompositeTag tag, Map<IXMLQName, List<Object>> convertedObjs) {
+		return this.read(new TagElementReader(tag));
+	}
+
+}
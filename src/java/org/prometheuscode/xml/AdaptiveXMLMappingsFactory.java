@@ -19,7 +19,9 @@
 package org.prometheuscode.xml;
 
 /**
- * Factory for creating marshallers and unmarshallers.
+ * Factory for creating marshallers and unmarshallers. Backends chosen for
+ * marshaller or unmarshaller are described by its
+ * <code>getBackendDescription()</code>.
  * 
  * @author marta
  * 
@@ -37,6 +39,39 @@ public class AdaptiveXMLMappingsFactory {
 
 
 
+	/**
+	 * Create Adaptive marshaller writing XML by StaX writers of given
+	 * implementation.
+	 * 
+	 * @param implementation
+	 * @return
+	 */
+	public static IXMLAdaptiveMarshaller createAdaptiveMarshaller(StaXImplementation implementation) {
+		StaXConfiguration configuration = new StaXConfiguration();
+		configuration.setImplementation(implementation);
+		return createAdaptiveMarshaller(configuration, XMLWriterBackend.STAX);
+	}
+
+
+
+	/**
+	 * Create Adaptive marshaller with given StaX configuration and writer
+	 * backend.
+	 * 
+	 * @param configuration
+	 *            configuration of StaX writers, it can be shared
+	 * @param writerBackend
+	 * @return
+	 */
+	public static IXMLAdaptiveMarshaller createAdaptiveMarshaller(StaXConfiguration configuration, XMLWriterBackend writerBackend) {
+		IXMLAdaptiveMarshaller marshaller = new XMLStaXAdaptiveMarshaller();
+		marshaller.setStaXConfiguration(configuration);
+		marshaller.setWriterBackend(writerBackend);
+		return marshaller;
+	}
+
+
+
 	/**
 	 * Create Adaptive unmarshaller
 	 * 
@@ -46,4 +81,37 @@ public class AdaptiveXMLMappingsFactory {
 		return new XMLStaXAdaptiveUnmarshaller();
 	}
 
+
+
+	/**
+	 * Create Adaptive unmarshaller reading XML by StaX parsers of given
+	 * implementation.
+	 * 
+	 * @param implementation
+	 * @return
+	 */
+	public static IXMLAdaptiveUnmarshaller createAdaptiveUnmarshaller(StaXImplementation implementation) {
+		StaXConfiguration configuration = new StaXConfiguration();
+		configuration.setImplementation(implementation);
+		return createAdaptiveUnmarshaller(configuration, new StaXParserBackend());
+	}
+
+
+
+	/**
+	 * Create Adaptive unmarshaller with given StaX configuration and parser
+	 * backend.
+	 * 
+	 * @param configuration
+	 *            configuration of StaX parsers, it can be shared
+	 * @param parserBackend
+	 * @return
+	 */
+	public static IXMLAdaptiveUnmarshaller createAdaptiveUnmarshaller(StaXConfiguration configuration, IXMLParserBackend parserBackend) {
+		IXMLAdaptiveUnmarshaller unmarshaller = new XMLStaXAdaptiveUnmarshaller();
+		unmarshaller.setStaXConfiguration(configuration);
+		unmarshaller.setParserBackend(parserBackend);
+		return unmarshaller;
+	}
+
 }
@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.prometheuscode.xml.treemodel.ICompositeTag;
+import org.prometheuscode.xml.treemodel.IXMLQName;
+
+/**
+ * <p>
+ * Helper for unmarshaller which converts top most composite tags on executor
+ * given in {@link ConcurrentConversionConfig}.
+ * </p>
+ * 
+ * <p>
+ * Parsing thread submits complete tag trees and takes back finished
+ * conversions. Converted objects are always handed to the user handler by
+ * parsing thread, so handler does not have to be thread safe.
+ * </p>
+ * 
+ * <p>
+ * Every submitted tag tree is build from its own tags cache. The cache is
+ * given back to parsing thread for reuse when conversion is finished, so
+ * there are at most max in flight tags plus one caches.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+class ConcurrentConversion {
+
+	private ConcurrentConversionConfig config;
+
+	private ConverterDispatchTable converters;
+
+	private IUnmarshallerHandler handler;
+
+	/* conversions are put here by executor threads when they are done */
+	private BlockingQueue<TagConversion> finishedConversions = new LinkedBlockingQueue<TagConversion>();
+
+	/* finished conversions waiting for previous ones, if order is kept */
+	private Map<Long, TagConversion> waitingConversions = new HashMap<Long, TagConversion>();
+
+	private LinkedList<TagsCache> freeTagsCaches = new LinkedList<TagsCache>();
+
+	private int maxRetainedTags;
+
+	private long submittedNr = 0;
+
+	private long handledNr = 0;
+
+
+
+	ConcurrentConversion(ConcurrentConversionConfig config, ConverterDispatchTable converters, IUnmarshallerHandler handler, int maxRetainedTags) {
+		this.config = config;
+		this.converters = converters;
+		this.handler = handler;
+		this.maxRetainedTags = maxRetainedTags;
+	}
+
+
+
+	/**
+	 * Get tags cache for next top most tag. It waits for conversions to finish
+	 * if there is too many of them.
+	 * 
+	 * @return
+	 */
+	TagsCache acquireTagsCache() {
+		while (this.submittedNr - this.handledNr >= this.config.getMaxInFlightTags()) {
+			this.processFinishedConversion(this.takeFinishedConversion());
+		}
+
+		if (this.freeTagsCaches.isEmpty()) {
+			return new TagsCache(this.converters.getSymbolTable(), this.maxRetainedTags);
+		}
+		return this.freeTagsCaches.removeFirst();
+	}
+
+
+
+	/**
+	 * Submit tag tree to conversion. Tag tree must be build from given cache.
+	 * 
+	 * @param compositeTag
+	 * @param tagsCache
+	 */
+	void submit(ICompositeTag compositeTag, TagsCache tagsCache) {
+		final TagConversion conversion = new TagConversion(this.submittedNr, compositeTag, tagsCache);
+		this.submittedNr++;
+
+		this.config.getExecutor().execute(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					conversion.convertedObj = ConcurrentConversion.this.convertTagTree(conversion.compositeTag);
+				} catch (Throwable e) {
+					conversion.error = e;
+				} finally {
+					ConcurrentConversion.this.finishedConversions.add(conversion);
+				}
+			}
+		});
+
+		/* hand to the user what is already converted */
+		TagConversion finished = null;
+		while ((finished = this.finishedConversions.poll()) != null) {
+			this.processFinishedConversion(finished);
+		}
+	}
+
+
+
+	/**
+	 * Wait for all submitted conversions and hand converted objects to the
+	 * user.
+	 */
+	void finish() {
+		while (this.handledNr < this.submittedNr) {
+			this.processFinishedConversion(this.takeFinishedConversion());
+		}
+	}
+
+
+
+	/*
+	 * Class holds one top most tag conversion.
+	 */
+	private static class TagConversion {
+
+		private long sequenceNr;
+
+		private ICompositeTag compositeTag;
+
+		/* interned name is immutable, tag itself is reused after conversion */
+		private IXMLQName tagName;
+
+		private TagsCache tagsCache;
+
+		private Object convertedObj;
+
+		private Throwable error;
+
+
+
+		TagConversion(long sequenceNr, ICompositeTag compositeTag, TagsCache tagsCache) {
+			this.sequenceNr = sequenceNr;
+			this.compositeTag = compositeTag;
+			this.tagName = compositeTag.getName();
+			this.tagsCache = tagsCache;
+		}
+
+	}
+
+
+
+	/*
+	 * Converts tag tree the same way unmarshaller does it during parsing.
+	 * Children are converted first and their objects are given to the parent
+	 * converter only if parent has converter.
+	 */
+	private Object convertTagTree(ICompositeTag compositeTag) {
+		IUnmarshallerConverter converter = this.converters.get(compositeTag.getName());
+
+		Map<IXMLQName, List<Object>> convertedChildren = null;
+		for (ICompositeTag child : compositeTag.getAllCompositeTags()) {
+			Object convertedChild = this.convertTagTree(child);
+			if (convertedChild == null || converter == null) {
+				continue;
+			}
+
+			if (convertedChildren == null) {
+				convertedChildren = new HashMap<IXMLQName, List<Object>>();
+			}
+
+			List<Object> objs = convertedChildren.get(child.getName());
+			if (objs == null) {
+				objs = new ArrayList<Object>();
+				convertedChildren.put(child.getName(), objs);
+			}
+
+			objs.add(convertedChild);
+		}
+
+		if (converter == null) {
+			return null;
+		}
+		return converter.convert(compositeTag, convertedChildren);
+	}
+
+
+
+	/*
+	 * Wait for conversion to finish.
+	 */
+	private TagConversion takeFinishedConversion() {
+		try {
+			return this.finishedConversions.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new XMLUnmarshallerException("Interrupted while waiting for conversion", e);
+		}
+	}
+
+
+
+	/*
+	 * Reuse cache of finished conversion and hand converted objects to the
+	 * user in proper order.
+	 */
+	private void processFinishedConversion(TagConversion conversion) {
+		TagsCache tagsCache = conversion.tagsCache;
+		tagsCache.releaseAllTags();
+		this.freeTagsCaches.addLast(tagsCache);
+		conversion.compositeTag = null;
+		conversion.tagsCache = null;
+
+		if (!(this.config.isKeepDocumentOrder())) {
+			this.handleConversion(conversion);
+			return;
+		}
+
+		this.waitingConversions.put(conversion.sequenceNr, conversion);
+		TagConversion next = null;
+		while ((next = this.waitingConversions.remove(this.handledNr)) != null) {
+			this.handleConversion(next);
+		}
+	}
+
+
+
+	/*
+	 * Hand converted object to the user.
+	 */
+	private void handleConversion(TagConversion conversion) {
+		this.handledNr++;
+		if (conversion.error instanceof RuntimeException) {
+			throw (RuntimeException) conversion.error;
+		} else if (conversion.error instanceof Error) {
+			throw (Error) conversion.error;
+		} else if (conversion.error != null) {
+			throw new XMLUnmarshallerException(conversion.error);
+		}
+
+		this.handler.handle(conversion.tagName, conversion.convertedObj);
+	}
+
+}
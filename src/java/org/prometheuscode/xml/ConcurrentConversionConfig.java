@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.util.concurrent.Executor;
+
+/**
+ * <p>
+ * Configuration of concurrent conversion used during unmarshalling.
+ * </p>
+ * 
+ * <p>
+ * When it is set on unmarshaller, XML file is still parsed by calling thread,
+ * but every top most composite tag for which converter was registered is
+ * converted (with all its converted children) by given executor. Registered
+ * converters must be thread safe then.
+ * </p>
+ * 
+ * <p>
+ * Number of top most tags being converted, or converted but not yet handed
+ * to the user, is limited. If the limit is reached parsing waits for
+ * conversions to finish. Converted objects can be handed to the user in
+ * document order or in order of finished conversions.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+public class ConcurrentConversionConfig {
+
+	public final static int DEFAULT_MAX_IN_FLIGHT_TAGS = 64;
+
+	private Executor executor;
+
+	private int maxInFlightTags = DEFAULT_MAX_IN_FLIGHT_TAGS;
+
+	private boolean keepDocumentOrder = true;
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if executor is null.
+	 */
+	public ConcurrentConversionConfig(Executor executor) {
+		this.setExecutor(executor);
+	}
+
+
+
+	public Executor getExecutor() {
+		return this.executor;
+	}
+
+
+
+	/**
+	 * Set executor which runs conversions.
+	 * 
+	 * @param executor
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if executor is null.
+	 */
+	public void setExecutor(Executor executor) {
+		if (executor == null) {
+			throw new IllegalArgumentException("Executor can not be null");
+		}
+		this.executor = executor;
+	}
+
+
+
+	public int getMaxInFlightTags() {
+		return this.maxInFlightTags;
+	}
+
+
+
+	/**
+	 * Set max number of top most tags which are converted or wait to be handed
+	 * to the user.
+	 * 
+	 * @param maxInFlightTags
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if argument is not positive.
+	 */
+	public void setMaxInFlightTags(int maxInFlightTags) {
+		if (maxInFlightTags <= 0) {
+			throw new IllegalArgumentException("Max number of tags in flight must be positive: " + maxInFlightTags);
+		}
+		this.maxInFlightTags = maxInFlightTags;
+	}
+
+
+
+	public boolean isKeepDocumentOrder() {
+		return this.keepDocumentOrder;
+	}
+
+
+
+	/**
+	 * Should converted objects be handed to the user in document order? If
+	 * not, they are handed as soon as they are converted.
+	 * 
+	 * @param keepDocumentOrder
+	 */
+	public void setKeepDocumentOrder(boolean keepDocumentOrder) {
+		this.keepDocumentOrder = keepDocumentOrder;
+	}
+
+}
@@ -0,0 +1,853 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.net.JarURLConnection;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.annotation.Annotation;
+import javassist.bytecode.annotation.AnnotationMemberValue;
+import javassist.bytecode.annotation.MemberValue;
+import javassist.bytecode.annotation.StringMemberValue;
+
+import org.prometheuscode.xml.ConverterIndex.TagConverterEntry;
+import org.prometheuscode.xml.annotation.AnnotationException;
+import org.prometheuscode.xml.annotation.TagToJavaConverter;
+
+/**
+ * <p>
+ * Scanner of packages looking for classes annoted with
+ * {@link TagToJavaConverter}. Packages can be in class directories and in
+ * jars, every package location is scanned by separate task in parallel.
+ * Location with converters index listing the package is not scanned.
+ * Packages are found by class loader, jars of class path which have no
+ * directory entries are checked by names of their entries.
+ * </p>
+ * 
+ * <p>
+ * Class files are read by javassist bytecode reader, annotations are checked
+ * first, then superclasses and interfaces of annoted classes are read from
+ * their class files. Classes are neither loaded nor put to class pool. Class
+ * files which can not be parsed by javassist are skipped.
+ * </p>
+ * 
+ * <p>
+ * Scan results are cached with modification time of location, which is jar
+ * modification time or the latest modification time of package directory and
+ * its class files. Location is not scanned again until it is modified. Cache
+ * can be written to file, so it is used by next runs too.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+class ConverterClassScanner {
+
+	private final static String SCAN_ENTRY = "scan";
+
+	private final static String TAG_ENTRY = "tag";
+
+	private final static String SEPARATOR = "\t";
+
+	private final static Charset CACHE_CHARSET = Charset.forName("UTF-8");
+
+	private final static String CONVERTER_INTERFACE = IUnmarshallerConverter.class.getName();
+
+	private final static String STREAMING_CONVERTER_INTERFACE = IStreamingUnmarshallerConverter.class.getName();
+
+	private final static String STREAMING_CONVERTER_CLASS = AbstractStreamingUnmarshallerConverter.class.getName();
+
+	private final static String BOUND_CONVERTER_CLASS = AbstractBoundConverter.class.getName();
+
+	private final static String CONVERTER_ANNOTATION = TagToJavaConverter.class.getName();
+
+	private final static int CLASS_BUFFER_SIZE = 8 * 1024;
+
+	private ClassLoader loader;
+
+	private Path cacheFile;
+
+	private boolean cacheFileRead = false;
+
+	/* key is location of package */
+	private ConcurrentMap<String, LocationScan> scans = new ConcurrentHashMap<String, LocationScan>();
+
+	/* key is name of supertype of annoted class, value is true if it is converter */
+	private ConcurrentMap<String, Boolean> converterTypes = new ConcurrentHashMap<String, Boolean>();
+
+	/* key is path of jar, packages are found by its entries names */
+	private Map<String, JarPackages> jarsPackages = new HashMap<String, JarPackages>();
+
+
+
+	ConverterClassScanner(ClassLoader loader) {
+		this.loader = loader;
+	}
+
+
+
+	/* Public Methods ***^_^*** */
+
+	/**
+	 * Set file of persistent cache.
+	 * 
+	 * @param cacheFile
+	 *            file or null if scan results should be kept only in memory
+	 */
+	public synchronized void setCacheFile(Path cacheFile) {
+		this.cacheFile = cacheFile;
+		this.cacheFileRead = false;
+	}
+
+
+
+	public synchronized Path getCacheFile() {
+		return this.cacheFile;
+	}
+
+
+
+	/**
+	 * Find annoted converter classes of given packages.
+	 * 
+	 * @param packages
+	 * @return converter classes, ordered by package and location
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if package does not exist, has no classes or its location
+	 *             is neither directory nor jar.
+	 * @throws AnnotationException
+	 *             if class file could not be read
+	 */
+	public List<TagConverterEntry> scan(Set<String> packages) {
+		return this.scan(packages, new ConverterIndex());
+	}
+
+
+
+	/**
+	 * Find annoted converter classes of given packages. Package location
+	 * which has package in its converters index is not scanned, converters
+	 * are taken from index. Other locations of package are scanned.
+	 * 
+	 * @param packages
+	 * @param index
+	 *            converters index of class loader
+	 * @return converter classes, ordered by package and location
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if package does not exist, has no classes or its location
+	 *             is neither directory nor jar.
+	 * @throws AnnotationException
+	 *             if class file could not be read
+	 */
+	public synchronized List<TagConverterEntry> scan(Set<String> packages, ConverterIndex index) {
+
+		if (this.cacheFile != null && !this.cacheFileRead) {
+			this.readCacheFile();
+			this.cacheFileRead = true;
+		}
+
+		List<String> packageNames = new ArrayList<String>(packages);
+		List<List<LocationTask>> packagesTasks = new ArrayList<List<LocationTask>>();
+		List<LocationTask> allTasks = new ArrayList<LocationTask>();
+		for (String packageName : packageNames) {
+			List<LocationTask> packageTasks = this.createTasks(packageName, index);
+			packagesTasks.add(packageTasks);
+			allTasks.addAll(packageTasks);
+		}
+
+		List<LocationScan> results = this.runTasks(allTasks);
+
+		List<TagConverterEntry> converters = new ArrayList<TagConverterEntry>();
+		int resultNr = 0;
+		boolean changed = false;
+		for (int i = 0; i < packageNames.size(); i++) {
+			int classesNr = 0;
+			for (LocationTask task : packagesTasks.get(i)) {
+				LocationScan result = results.get(resultNr++);
+				classesNr += result.classesNr;
+				converters.addAll(result.converters);
+				changed |= task.scanned;
+			}
+			if (classesNr == 0) {
+				throw new IllegalArgumentException("Given package name: " + packageNames.get(i) + " has no classes");
+			}
+		}
+
+		if (changed && this.cacheFile != null) {
+			this.writeCacheFile();
+		}
+		return converters;
+	}
+
+
+
+	/* Private Methods ***^_^*** */
+
+	private List<LocationTask> createTasks(String packageName, ConverterIndex index) {
+
+		String packagePath = packageName.replace('.', '/');
+		List<LocationTask> tasks = new ArrayList<LocationTask>();
+		Set<String> roots = new HashSet<String>();
+		try {
+			Enumeration<URL> locations = this.loader.getResources(packagePath);
+			while (locations.hasMoreElements()) {
+				URL location = locations.nextElement();
+				String root = this.getRoot(location, packagePath);
+				roots.add(root);
+				if (root != null && index.isIndexed(root, packageName)) {
+					tasks.add(new LocationTask(index.getTagConverters(root, packageName)));
+				} else {
+					tasks.add(this.createTask(packageName, packagePath, location));
+				}
+			}
+
+			/* class loader does not find package in jar without directory entries */
+			for (File jar : this.getClassPathJars()) {
+				String root = "jar:" + jar.toURI() + "!/";
+				if (roots.contains(root) || !(this.getJarPackages(jar).contains(packagePath))) {
+					continue;
+				}
+				roots.add(root);
+				if (index.isIndexed(root, packageName)) {
+					tasks.add(new LocationTask(index.getTagConverters(root, packageName)));
+				} else {
+					tasks.add(new LocationTask(jar.getAbsolutePath() + "!/" + packagePath, null, jar, packagePath));
+				}
+			}
+		} catch (IOException e) {
+			throw new AnnotationException("Package: " + packageName + " could not be found", e);
+		}
+
+		if (tasks.isEmpty()) {
+			throw new IllegalArgumentException("Given package name: " + packageName + " does not exist");
+		}
+		return tasks;
+	}
+
+
+
+	private LocationTask createTask(String packageName, String packagePath, URL location) throws IOException {
+
+		if ("file".equals(location.getProtocol())) {
+			File dir = null;
+			try {
+				dir = new File(location.toURI());
+			} catch (URISyntaxException e) {
+				throw new IllegalArgumentException("Location: " + location + " of package: " + packageName + " is not correct", e);
+			}
+			if (!dir.isDirectory()) {
+				throw new IllegalArgumentException("List element: " + packageName + " is not correct package name");
+			}
+			return new LocationTask(dir.getAbsolutePath(), dir, null, packagePath);
+		}
+
+		if ("jar".equals(location.getProtocol())) {
+			JarURLConnection connection = (JarURLConnection) location.openConnection();
+			File jar = null;
+			try {
+				jar = new File(connection.getJarFileURL().toURI());
+			} catch (URISyntaxException e) {
+				throw new IllegalArgumentException("Location: " + location + " of package: " + packageName + " is not correct", e);
+			}
+			return new LocationTask(jar.getAbsolutePath() + "!/" + packagePath, null, jar, packagePath);
+		}
+
+		throw new IllegalArgumentException("Location: " + location + " of package: " + packageName + " can not be scanned");
+	}
+
+
+
+	/*
+	 * Jars of class loader and its parents, system class loader jars are
+	 * taken from class path.
+	 */
+	private List<File> getClassPathJars() {
+
+		List<URL> urls = new ArrayList<URL>();
+		for (ClassLoader current = this.loader; current != null; current = current.getParent()) {
+			if (current instanceof URLClassLoader) {
+				urls.addAll(Arrays.asList(((URLClassLoader) current).getURLs()));
+			} else if (current == ClassLoader.getSystemClassLoader()) {
+				for (String element : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+					if (!(element.isEmpty())) {
+						urls.add(this.toURL(new File(element)));
+					}
+				}
+			}
+		}
+
+		List<File> jars = new ArrayList<File>();
+		for (URL url : urls) {
+			if (!("file".equals(url.getProtocol()))) {
+				continue;
+			}
+			try {
+				File file = new File(url.toURI()).getAbsoluteFile();
+				if (file.isFile()) {
+					jars.add(file);
+				}
+			} catch (URISyntaxException e) {
+				/* not a jar which can be read */
+			} catch (IllegalArgumentException e) {
+				/* not a jar which can be read */
+			}
+		}
+		return jars;
+	}
+
+
+
+	private URL toURL(File file) {
+		try {
+			return file.toURI().toURL();
+		} catch (MalformedURLException e) {
+			throw new IllegalArgumentException("Class path element: " + file + " is not correct", e);
+		}
+	}
+
+
+
+	/*
+	 * Paths of packages having class files in jar, read from names of its
+	 * entries. Packages are read again only when jar is modified.
+	 */
+	private Set<String> getJarPackages(File jar) throws IOException {
+
+		String key = jar.getAbsolutePath();
+		long modificationTime = jar.lastModified();
+		JarPackages cached = this.jarsPackages.get(key);
+		if (cached != null && cached.modificationTime == modificationTime) {
+			return cached.packagePaths;
+		}
+
+		JarPackages jarPackages = new JarPackages(modificationTime);
+		JarFile jarFile = new JarFile(jar);
+		try {
+			Enumeration<JarEntry> entries = jarFile.entries();
+			while (entries.hasMoreElements()) {
+				String name = entries.nextElement().getName();
+				int slash = name.lastIndexOf('/');
+				if (name.endsWith(".class") && slash > 0) {
+					jarPackages.packagePaths.add(name.substring(0, slash));
+				}
+			}
+		} finally {
+			jarFile.close();
+		}
+		this.jarsPackages.put(key, jarPackages);
+		return jarPackages.packagePaths;
+	}
+
+
+
+	/*
+	 * URL of jar or class directory containing package location, null if
+	 * location does not end with package path.
+	 */
+	private String getRoot(URL location, String packagePath) {
+		String url = location.toString();
+		if (url.endsWith("/")) {
+			url = url.substring(0, url.length() - 1);
+		}
+		if (!(url.endsWith("/" + packagePath))) {
+			return null;
+		}
+		return url.substring(0, url.length() - packagePath.length());
+	}
+
+
+
+	/*
+	 * Tasks are run in parallel, results are returned in tasks order.
+	 */
+	private List<LocationScan> runTasks(List<LocationTask> tasks) {
+
+		int scansNr = 0;
+		for (LocationTask task : tasks) {
+			if (task.indexed == null) {
+				scansNr++;
+			}
+		}
+
+		List<LocationScan> results = new ArrayList<LocationScan>(tasks.size());
+		if (scansNr <= 1) {
+			for (LocationTask task : tasks) {
+				results.add(task.call());
+			}
+			return results;
+		}
+
+		int threadsNr = Math.min(scansNr, Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(threadsNr);
+		try {
+			List<Future<LocationScan>> futures = executor.invokeAll(tasks);
+			for (Future<LocationScan> future : futures) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AnnotationException("Scanning of packages was interrupted", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new AnnotationException("Packages could not be scanned", cause);
+		} finally {
+			executor.shutdownNow();
+		}
+		return results;
+	}
+
+
+
+	/*
+	 * Check class file without creating CtClass. Null is returned if class
+	 * is not annoted converter.
+	 */
+	private TagConverterEntry readConverter(InputStream classStream) throws IOException {
+
+		ClassFile classFile = this.readClassFile(classStream);
+		if (classFile == null) {
+			return null;
+		}
+
+		/* annotation is checked first, supertypes are read only for annoted classes */
+		AnnotationsAttribute annotations = (AnnotationsAttribute) classFile.getAttribute(AnnotationsAttribute.visibleTag);
+		if (annotations == null) {
+			return null;
+		}
+		Annotation annot = annotations.getAnnotation(CONVERTER_ANNOTATION);
+		if (annot == null) {
+			return null;
+		}
+
+		if (!(this.isConverter(classFile))) {
+			return null;
+		}
+
+		Annotation name = ((AnnotationMemberValue) annot.getMemberValue("value")).getValue();
+		return new TagConverterEntry(classFile.getName(), this.getStringMember(name, "namespaceURI"), this.getStringMember(name, "localPart"));
+	}
+
+
+
+	/*
+	 * Check if class implements converter interface, superclasses and
+	 * interfaces are read from class files of class loader.
+	 */
+	private boolean isConverter(ClassFile classFile) throws IOException {
+
+		List<String> supertypes = new ArrayList<String>();
+		supertypes.add(classFile.getSuperclass());
+		supertypes.addAll(Arrays.asList(classFile.getInterfaces()));
+		for (String supertype : supertypes) {
+			if (this.isConverter(supertype)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+
+	private boolean isConverter(String className) throws IOException {
+
+		/* converters of this library may not be visible for class loader */
+		if (CONVERTER_INTERFACE.equals(className) || STREAMING_CONVERTER_INTERFACE.equals(className) || STREAMING_CONVERTER_CLASS.equals(className) || BOUND_CONVERTER_CLASS.equals(className)) {
+			return true;
+		}
+		/* java classes do not implement converter interface */
+		if (className == null || className.startsWith("java.") || className.startsWith("javax.")) {
+			return false;
+		}
+
+		Boolean converter = this.converterTypes.get(className);
+		if (converter != null) {
+			return converter.booleanValue();
+		}
+
+		InputStream classStream = this.loader.getResourceAsStream(className.replace('.', '/') + ".class");
+		if (classStream == null) {
+			converter = Boolean.FALSE;
+		} else {
+			try {
+				ClassFile classFile = this.readClassFile(classStream);
+				converter = Boolean.valueOf(classFile != null && this.isConverter(classFile));
+			} finally {
+				classStream.close();
+			}
+		}
+		this.converterTypes.put(className, converter);
+		return converter.booleanValue();
+	}
+
+
+
+	/*
+	 * Read class file, bytes are read first so only errors of reading stream
+	 * are thrown. Null is returned if class file can not be parsed by
+	 * javassist, for ex. it has constants of newer class file version, such
+	 * class is skipped by scan.
+	 */
+	private ClassFile readClassFile(InputStream classStream) throws IOException {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[CLASS_BUFFER_SIZE];
+		int read = 0;
+		while ((read = classStream.read(buffer)) != -1) {
+			bytes.write(buffer, 0, read);
+		}
+
+		try {
+			return new ClassFile(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		} catch (IOException e) {
+			return null;
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+
+
+
+	private String getStringMember(Annotation annot, String memberName) {
+		MemberValue value = annot.getMemberValue(memberName);
+		if (!(value instanceof StringMemberValue)) {
+			throw new AnnotationException("Annotation: " + annot.getTypeName() + " does not have " + memberName);
+		}
+		return ((StringMemberValue) value).getValue();
+	}
+
+
+
+	private void readCacheFile() {
+
+		if (!Files.isRegularFile(this.cacheFile)) {
+			return;
+		}
+
+		BufferedReader reader = null;
+		try {
+			reader = Files.newBufferedReader(this.cacheFile, CACHE_CHARSET);
+			String line = null;
+			String key = null;
+			LocationScan scan = null;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split(SEPARATOR, -1);
+				if (fields[0].equals(SCAN_ENTRY) && fields.length == 4) {
+					key = fields[1];
+					scan = new LocationScan(Long.parseLong(fields[2]), Integer.parseInt(fields[3]));
+					this.scans.put(key, scan);
+				} else if (fields[0].equals(TAG_ENTRY) && fields.length == 4 && scan != null) {
+					scan.converters.add(new TagConverterEntry(fields[1], fields[2], fields[3]));
+				} else {
+					/* cache file is broken, everything is scanned again */
+					this.scans.clear();
+					return;
+				}
+			}
+		} catch (IOException e) {
+			this.scans.clear();
+		} catch (NumberFormatException e) {
+			this.scans.clear();
+		} finally {
+			this.close(reader);
+		}
+	}
+
+
+
+	/*
+	 * Cache is written to temporary file which replaces cache file, so
+	 * cache file read by other process is always complete.
+	 */
+	private void writeCacheFile() {
+
+		Path tmpFile = null;
+		Writer writer = null;
+		try {
+			Path dir = this.cacheFile.toAbsolutePath().getParent();
+			Files.createDirectories(dir);
+			tmpFile = Files.createTempFile(dir, this.cacheFile.getFileName().toString(), ".tmp");
+			writer = Files.newBufferedWriter(tmpFile, CACHE_CHARSET);
+			for (String key : this.scans.keySet()) {
+				LocationScan scan = this.scans.get(key);
+				writer.write(SCAN_ENTRY + SEPARATOR + key + SEPARATOR + scan.modificationTime + SEPARATOR + scan.classesNr + "\n");
+				for (TagConverterEntry converter : scan.converters) {
+					writer.write(TAG_ENTRY + SEPARATOR + converter.getClassName() + SEPARATOR + converter.getNamespaceURI() + SEPARATOR + converter.getLocalPart() + "\n");
+				}
+			}
+			writer.close();
+			writer = null;
+			Files.move(tmpFile, this.cacheFile, StandardCopyOption.REPLACE_EXISTING);
+			tmpFile = null;
+		} catch (IOException e) {
+			/* cache is only optimization, packages are scanned next time */
+		} finally {
+			this.close(writer);
+			if (tmpFile != null) {
+				try {
+					Files.deleteIfExists(tmpFile);
+				} catch (IOException e) {
+					/* nothing to do */
+				}
+			}
+		}
+	}
+
+
+
+	private void close(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				/* nothing to do */
+			}
+		}
+	}
+
+
+
+	/* Private Classes ***^_^*** */
+
+	/*
+	 * Result of scanning one package location.
+	 */
+	private static class LocationScan {
+
+		private long modificationTime;
+
+		private int classesNr;
+
+		private List<TagConverterEntry> converters = new ArrayList<TagConverterEntry>();
+
+
+
+		LocationScan(long modificationTime, int classesNr) {
+			this.modificationTime = modificationTime;
+			this.classesNr = classesNr;
+		}
+
+	}
+
+
+
+	/*
+	 * Packages of jar with modification time of jar.
+	 */
+	private static class JarPackages {
+
+		private long modificationTime;
+
+		private Set<String> packagePaths = new HashSet<String>();
+
+
+
+		JarPackages(long modificationTime) {
+			this.modificationTime = modificationTime;
+		}
+
+	}
+
+
+
+	/*
+	 * Scans package in directory or jar, unless location was not modified
+	 * since it was scanned last time.
+	 */
+	private class LocationTask implements Callable<LocationScan> {
+
+		private String key;
+
+		private File dir;
+
+		private File jar;
+
+		private String packagePath;
+
+		/* result taken from converters index, location is not scanned */
+		private LocationScan indexed;
+
+		/* true if location was scanned, not taken from cache */
+		private boolean scanned = false;
+
+
+
+		LocationTask(String key, File dir, File jar, String packagePath) {
+			this.key = key;
+			this.dir = dir;
+			this.jar = jar;
+			this.packagePath = packagePath;
+		}
+
+
+
+		LocationTask(List<TagConverterEntry> converters) {
+			/* package is indexed only when its classes were compiled */
+			this.indexed = new LocationScan(0, 1);
+			this.indexed.converters.addAll(converters);
+		}
+
+
+
+		@Override
+		public LocationScan call() {
+
+			if (this.indexed != null) {
+				return this.indexed;
+			}
+
+			File[] classFiles = null;
+			long modificationTime = 0;
+			if (this.dir != null) {
+				classFiles = this.dir.listFiles(new FilenameFilter() {
+
+					@Override
+					public boolean accept(File dir, String name) {
+						return name.endsWith(".class");
+					}
+				});
+				modificationTime = this.dir.lastModified();
+				for (File classFile : classFiles) {
+					modificationTime = Math.max(modificationTime, classFile.lastModified());
+				}
+			} else {
+				modificationTime = this.jar.lastModified();
+			}
+
+			LocationScan cached = ConverterClassScanner.this.scans.get(this.key);
+			if (cached != null && cached.modificationTime == modificationTime) {
+				return cached;
+			}
+
+			LocationScan scan = null;
+			try {
+				if (this.dir != null) {
+					scan = this.scanDirectory(classFiles, modificationTime);
+				} else {
+					scan = this.scanJar(modificationTime);
+				}
+			} catch (IOException e) {
+				throw new AnnotationException("Classes of location: " + this.key + " could not be read", e);
+			}
+
+			ConverterClassScanner.this.scans.put(this.key, scan);
+			this.scanned = true;
+			return scan;
+		}
+
+
+
+		private LocationScan scanDirectory(File[] classFiles, long modificationTime) throws IOException {
+
+			LocationScan scan = new LocationScan(modificationTime, classFiles.length);
+			for (File classFile : classFiles) {
+				InputStream classStream = new FileInputStream(classFile);
+				try {
+					this.addConverter(scan, classStream);
+				} finally {
+					classStream.close();
+				}
+			}
+			return scan;
+		}
+
+
+
+		private LocationScan scanJar(long modificationTime) throws IOException {
+
+			String prefix = this.packagePath + "/";
+			JarFile jarFile = new JarFile(this.jar);
+			try {
+				LocationScan scan = new LocationScan(modificationTime, 0);
+				Enumeration<JarEntry> entries = jarFile.entries();
+				while (entries.hasMoreElements()) {
+					JarEntry entry = entries.nextElement();
+					String name = entry.getName();
+					/* only classes of package, not of its subpackages */
+					if (!name.startsWith(prefix) || !name.endsWith(".class") || name.indexOf('/', prefix.length()) >= 0) {
+						continue;
+					}
+
+					scan.classesNr++;
+					InputStream classStream = jarFile.getInputStream(entry);
+					try {
+						this.addConverter(scan, classStream);
+					} finally {
+						classStream.close();
+					}
+				}
+				return scan;
+			} finally {
+				jarFile.close();
+			}
+		}
+
+
+
+		private void addConverter(LocationScan scan, InputStream classStream) throws IOException {
+			TagConverterEntry converter = ConverterClassScanner.this.readConverter(classStream);
+			if (converter != null) {
+				scan.converters.add(converter);
+			}
+		}
+
+	}
+
+}
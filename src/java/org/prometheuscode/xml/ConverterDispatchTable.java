@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.prometheuscode.xml.treemodel.IXMLQName;
+
+/**
+ * <p>
+ * Registered converters compiled into array indexed by ids of names from
+ * symbol table. Getting converter for interned name of the same symbol table
+ * is one array load, other names are looked up in map.
+ * </p>
+ * 
+ * <p>
+ * It is immutable, so it can be used by many threads.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+class ConverterDispatchTable {
+
+	private final IXMLQNameSymbolTable symbolTable;
+
+	/* converter per id of name, names interned later have bigger ids */
+	private final IUnmarshallerConverter[] convertersById;
+
+	private final Map<IXMLQName, IUnmarshallerConverter> converters;
+
+
+
+	/**
+	 * 
+	 * @param converters
+	 *            registered converters
+	 * @param symbolTable
+	 *            symbol table of parsed names, names of converters are
+	 *            interned in it
+	 */
+	ConverterDispatchTable(Map<IXMLQName, IUnmarshallerConverter> converters, IXMLQNameSymbolTable symbolTable) {
+		this.symbolTable = symbolTable;
+		this.converters = new HashMap<IXMLQName, IUnmarshallerConverter>(converters);
+
+		int maxId = -1;
+		for (IXMLQName name : converters.keySet()) {
+			maxId = Math.max(maxId, symbolTable.getId(symbolTable.getName(name)));
+		}
+
+		this.convertersById = new IUnmarshallerConverter[maxId + 1];
+		for (Map.Entry<IXMLQName, IUnmarshallerConverter> entry : converters.entrySet()) {
+			int id = symbolTable.getId(entry.getKey());
+			if (id >= 0) {
+				this.convertersById[id] = entry.getValue();
+			}
+		}
+	}
+
+
+
+	/**
+	 * Get converter for given name.
+	 * 
+	 * @param name
+	 * @return converter or null if there is no converter for the name
+	 */
+	IUnmarshallerConverter get(IXMLQName name) {
+		if (name instanceof InternedXMLQName) {
+			InternedXMLQName interned = (InternedXMLQName) name;
+			if (interned.getSymbolTable() == this.symbolTable && interned.getId() >= 0) {
+				int id = interned.getId();
+				return (id < this.convertersById.length) ? this.convertersById[id] : null;
+			}
+		}
+
+		return this.converters.get(name);
+	}
+
+
+
+	boolean containsKey(IXMLQName name) {
+		return this.get(name) != null;
+	}
+
+
+
+	/**
+	 * Get copy of registered converters.
+	 * 
+	 * @return
+	 */
+	Map<IXMLQName, IUnmarshallerConverter> getConverters() {
+		return new HashMap<IXMLQName, IUnmarshallerConverter>(this.converters);
+	}
+
+
+
+	IXMLQNameSymbolTable getSymbolTable() {
+		return this.symbolTable;
+	}
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.prometheuscode.xml.annotation.AnnotationException;
+import org.prometheuscode.xml.annotation.ConverterIndexProcessor;
+
+/**
+ * Converters index written by {@link ConverterIndexProcessor}. All indexes
+ * visible to class loader are read, every jar or class directory can have its
+ * own. Entries are kept by root of index, which is jar or class directory, so
+ * package location without index can be found and scanned.
+ * 
+ * @author marta
+ * 
+ */
+class ConverterIndex {
+
+	/* key is root URL of index, value are converters by indexed package */
+	private Map<String, Map<String, List<TagConverterEntry>>> roots = new HashMap<String, Map<String, List<TagConverterEntry>>>();
+
+
+
+	/* Public Methods ***^_^*** */
+
+	/**
+	 * Read all indexes visible to class loader.
+	 * 
+	 * @param loader
+	 * @return index, empty if there are no indexes
+	 * 
+	 * @throws AnnotationException
+	 *             if index could not be read
+	 */
+	public static ConverterIndex load(ClassLoader loader) {
+
+		ConverterIndex index = new ConverterIndex();
+		try {
+			Enumeration<URL> resources = loader.getResources(ConverterIndexProcessor.INDEX_RESOURCE);
+			while (resources.hasMoreElements()) {
+				index.read(resources.nextElement());
+			}
+		} catch (IOException e) {
+			throw new AnnotationException("Converters index could not be read", e);
+		}
+		return index;
+	}
+
+
+
+	/**
+	 * Check if classes of given package were indexed in given root.
+	 * 
+	 * @param root
+	 *            URL of jar or class directory, ending with slash
+	 * @param packageName
+	 * @return
+	 */
+	public boolean isIndexed(String root, String packageName) {
+		Map<String, List<TagConverterEntry>> packages = this.roots.get(root);
+		return packages != null && packages.containsKey(packageName);
+	}
+
+
+
+	/**
+	 * Get classes annoted with {@code @TagToJavaConverter} of given package
+	 * indexed in given root.
+	 * 
+	 * @param root
+	 *            URL of jar or class directory, ending with slash
+	 * @param packageName
+	 * @return list, empty if there are no such classes
+	 */
+	public List<TagConverterEntry> getTagConverters(String root, String packageName) {
+		Map<String, List<TagConverterEntry>> packages = this.roots.get(root);
+		if (packages == null || !(packages.containsKey(packageName))) {
+			return Collections.emptyList();
+		}
+		return packages.get(packageName);
+	}
+
+
+
+	/* Private Methods ***^_^*** */
+
+	private void read(URL resource) throws IOException {
+
+		String url = resource.toString();
+		String root = url.substring(0, url.length() - ConverterIndexProcessor.INDEX_RESOURCE.length());
+		Map<String, List<TagConverterEntry>> packages = this.roots.get(root);
+		if (packages == null) {
+			packages = new HashMap<String, List<TagConverterEntry>>();
+			this.roots.put(root, packages);
+		}
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openStream(), Charset.forName("UTF-8")));
+		try {
+			String line = null;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split(ConverterIndexProcessor.SEPARATOR, -1);
+				if (fields[0].equals(ConverterIndexProcessor.PACKAGE_ENTRY) && fields.length == 2) {
+					this.getPackageConverters(packages, fields[1]);
+				} else if (fields[0].equals(ConverterIndexProcessor.TAG_ENTRY) && fields.length == 5) {
+					this.getPackageConverters(packages, fields[1]).add(new TagConverterEntry(fields[2], fields[3], fields[4]));
+				}
+				/* convertable lines are not needed, marshaller reads annotation of class */
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+
+
+	private List<TagConverterEntry> getPackageConverters(Map<String, List<TagConverterEntry>> packages, String packageName) {
+		List<TagConverterEntry> converters = packages.get(packageName);
+		if (converters == null) {
+			converters = new ArrayList<TagConverterEntry>();
+			packages.put(packageName, converters);
+		}
+		return converters;
+	}
+
+
+
+	/* Private Classes ***^_^*** */
+
+	/*
+	 * Class annoted with TagToJavaConverter and name it was annoted with.
+	 */
+	static class TagConverterEntry {
+
+		private String className;
+
+		private String namespaceURI;
+
+		private String localPart;
+
+
+
+		TagConverterEntry(String className, String namespaceURI, String localPart) {
+			this.className = className;
+			this.namespaceURI = namespaceURI;
+			this.localPart = localPart;
+		}
+
+
+
+		public String getClassName() {
+			return this.className;
+		}
+
+
+
+		public String getNamespaceURI() {
+			return this.namespaceURI;
+		}
+
+
+
+		public String getLocalPart() {
+			return this.localPart;
+		}
+
+	}
+
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Creates input streams of files according to {@link FileReadStrategy}.
+ * 
+ * @author marta
+ * 
+ */
+class FileInputStreamFactory {
+
+	/* size of buffer of buffered stream */
+	final static int BUFFER_SIZE = 64 * 1024;
+
+	/* size of direct buffer */
+	final static int DIRECT_BUFFER_SIZE = 1024 * 1024;
+
+	/* size of one mapped part of file */
+	final static long MAPPED_REGION_SIZE = 256L * 1024 * 1024;
+
+
+
+	private FileInputStreamFactory() {
+	}
+
+
+
+	/**
+	 * Open stream of whole file.
+	 * 
+	 * @param path
+	 * @param strategy
+	 * @return
+	 * @throws IOException
+	 */
+	static InputStream open(Path path, FileReadStrategy strategy) throws IOException {
+		return open(path, strategy, 0, Long.MAX_VALUE);
+	}
+
+
+
+	/**
+	 * Open stream of bytes range of file.
+	 * 
+	 * @param path
+	 * @param strategy
+	 * @param start
+	 *            first byte of range
+	 * @param end
+	 *            byte after range, it can be bigger than file size
+	 * @return
+	 * @throws IOException
+	 */
+	static InputStream open(Path path, FileReadStrategy strategy, long start, long end) throws IOException {
+
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			long rangeEnd = Math.min(end, channel.size());
+
+			switch (strategy) {
+			case MAPPED:
+				return new MappedFileInputStream(channel, start, rangeEnd);
+			case DIRECT:
+				return new DirectBufferInputStream(channel, start, rangeEnd);
+			default:
+				channel.position(start);
+				InputStream in = new RangeInputStream(Channels.newInputStream(channel), rangeEnd - start);
+				return new BufferedInputStream(in, BUFFER_SIZE);
+			}
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		} catch (RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+
+
+	/*
+	 * Limits stream to given number of bytes.
+	 */
+	private static class RangeInputStream extends InputStream {
+
+		private InputStream in;
+
+		private long remaining;
+
+
+
+		RangeInputStream(InputStream in, long remaining) {
+			this.in = in;
+			this.remaining = remaining;
+		}
+
+
+
+		@Override
+		public int read() throws IOException {
+			if (this.remaining <= 0) {
+				return -1;
+			}
+
+			int result = this.in.read();
+			if (result != -1) {
+				this.remaining--;
+			}
+			return result;
+		}
+
+
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			if (length == 0) {
+				return 0;
+			}
+
+			if (this.remaining <= 0) {
+				return -1;
+			}
+
+			int read = this.in.read(bytes, offset, (int) Math.min(length, this.remaining));
+			if (read > 0) {
+				this.remaining -= read;
+			}
+			return read;
+		}
+
+
+
+		@Override
+		public void close() throws IOException {
+			this.in.close();
+		}
+
+	}
+
+
+
+	/*
+	 * Base of streams reading file from buffer.
+	 */
+	private static abstract class ChannelBufferInputStream extends InputStream {
+
+		protected FileChannel channel;
+
+		/* file position of next buffer */
+		protected long position;
+
+		protected long end;
+
+		protected ByteBuffer buffer;
+
+
+
+		ChannelBufferInputStream(FileChannel channel, long start, long end) {
+			this.channel = channel;
+			this.position = start;
+			this.end = end;
+		}
+
+
+
+		@Override
+		public int read() throws IOException {
+			if (!(this.fillBuffer())) {
+				return -1;
+			}
+			return this.buffer.get() & 0xff;
+		}
+
+
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			if (length == 0) {
+				return 0;
+			}
+
+			if (!(this.fillBuffer())) {
+				return -1;
+			}
+
+			int toCopy = Math.min(length, this.buffer.remaining());
+			this.buffer.get(bytes, offset, toCopy);
+			return toCopy;
+		}
+
+
+
+		@Override
+		public int available() throws IOException {
+			return (this.buffer == null) ? 0 : this.buffer.remaining();
+		}
+
+
+
+		@Override
+		public void close() throws IOException {
+			this.buffer = null;
+			this.channel.close();
+		}
+
+
+
+		/*
+		 * returns false if there is nothing more to read
+		 */
+		private boolean fillBuffer() throws IOException {
+			if (this.buffer != null && this.buffer.hasRemaining()) {
+				return true;
+			}
+
+			if (this.position >= this.end) {
+				return false;
+			}
+
+			this.nextBuffer();
+			return this.buffer.hasRemaining();
+		}
+
+
+
+		/*
+		 * Loads next part of file into buffer and moves position.
+		 */
+		protected abstract void nextBuffer() throws IOException;
+
+	}
+
+
+
+	/*
+	 * Maps file into memory part by part.
+	 */
+	private static class MappedFileInputStream extends ChannelBufferInputStream {
+
+		MappedFileInputStream(FileChannel channel, long start, long end) {
+			super(channel, start, end);
+		}
+
+
+
+		@Override
+		protected void nextBuffer() throws IOException {
+			long size = Math.min(MAPPED_REGION_SIZE, this.end - this.position);
+			MappedByteBuffer mapped = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position, size);
+			this.buffer = mapped;
+			this.position += size;
+		}
+
+	}
+
+
+
+	/*
+	 * Reads file by channel into big direct buffer.
+	 */
+	private static class DirectBufferInputStream extends ChannelBufferInputStream {
+
+		DirectBufferInputStream(FileChannel channel, long start, long end) {
+			super(channel, start, end);
+		}
+
+
+
+		@Override
+		protected void nextBuffer() throws IOException {
+			if (this.buffer == null) {
+				long size = Math.min(DIRECT_BUFFER_SIZE, Math.max(this.end - this.position, 1));
+				this.buffer = ByteBuffer.allocateDirect((int) size);
+			}
+
+			this.buffer.clear();
+			this.buffer.limit((int) Math.min(this.buffer.capacity(), this.end - this.position));
+
+			int read = this.channel.read(this.buffer, this.position);
+			if (read < 0) {
+				/* file is shorter than expected */
+				this.end = this.position;
+				read = 0;
+			}
+
+			this.position += read;
+			this.buffer.flip();
+		}
+
+	}
+
+}
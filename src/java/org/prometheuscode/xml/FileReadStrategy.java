@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+/**
+ * Strategy of reading XML files given by path.
+ * 
+ * @author marta
+ * 
+ */
+public enum FileReadStrategy {
+
+	/**
+	 * File is mapped into memory by parts. Good for big files, there is no
+	 * copying from kernel to user buffers.
+	 */
+	MAPPED,
+
+	/**
+	 * File is read by buffered stream.
+	 */
+	BUFFERED,
+
+	/**
+	 * File is read by channel into big direct buffer.
+	 */
+	DIRECT
+
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+/**
+ * <p>
+ * Policy of flushing XML writer during streaming marshal. Writer is flushed
+ * after given number of Collection elements or Map entries is written.
+ * </p>
+ * 
+ * <p>
+ * Policy with zero elements never flushes writer, output is flushed by
+ * writer buffers and when marshal ends.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+public final class FlushPolicy {
+
+	public final static FlushPolicy NEVER = new FlushPolicy(0);
+
+	public final static FlushPolicy EVERY_ELEMENT = new FlushPolicy(1);
+
+	private final int elementsNr;
+
+
+
+	private FlushPolicy(int elementsNr) {
+		this.elementsNr = elementsNr;
+	}
+
+
+
+	/* Public Methods ***^_^*** */
+
+	/**
+	 * Get policy flushing writer after given number of written elements.
+	 * 
+	 * @param elementsNr
+	 * @return
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if number of elements is negative.
+	 */
+	public static FlushPolicy everyElements(int elementsNr) {
+
+		if (elementsNr < 0) {
+			throw new IllegalArgumentException("Number of elements can not be negative");
+		}
+
+		switch (elementsNr) {
+		case 0:
+			return NEVER;
+		case 1:
+			return EVERY_ELEMENT;
+		default:
+			return new FlushPolicy(elementsNr);
+		}
+	}
+
+
+
+	/**
+	 * Check if writer should be flushed.
+	 * 
+	 * @param writtenElementsNr
+	 *            number of elements written since marshal started
+	 * @return
+	 */
+	public boolean shouldFlush(long writtenElementsNr) {
+		return this.elementsNr > 0 && writtenElementsNr % this.elementsNr == 0;
+	}
+
+
+
+	public int getElementsNr() {
+		return this.elementsNr;
+	}
+
+
+
+	@Override
+	public String toString() {
+		return "FlushPolicy[" + this.elementsNr + "]";
+	}
+
+}
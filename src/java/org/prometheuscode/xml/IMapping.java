@@ -110,6 +110,27 @@ public interface IMapping<T> {
 
 
 
+	/**
+	 * Get accessor of mapped method. Accessor is set by
+	 * {@link IXMLAdaptiveMarshaller#createMapping(Class)}, if mapping was
+	 * created by user and it has no accessor, marshaller uses accessor of
+	 * runtime class and mapping is not changed.
+	 * 
+	 * @return accessor or null if it was not set
+	 */
+	IMethodAccessor getMappedMethodAccessor();
+
+
+
+	/**
+	 * Set accessor of mapped method.
+	 * 
+	 * @param accessor
+	 */
+	void setMappedMethodAccessor(IMethodAccessor accessor);
+
+
+
 	/**
 	 * Get mapping for which this mapping is attached to.
 	 * 
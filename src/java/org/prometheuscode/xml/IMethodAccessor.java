@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+/**
+ * <p>
+ * Accessor of no-arg method which returns object mapped by {@link IMapping}.
+ * </p>
+ * 
+ * <p>
+ * Accessors created by marshaller call method directly, without reflection.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+public interface IMethodAccessor {
+
+	/**
+	 * Call method on given object.
+	 * 
+	 * @param target
+	 *            object which is instance of target class
+	 * @return object returned by method
+	 */
+	Object invoke(Object target);
+
+
+
+	/**
+	 * Get class having accessed method.
+	 * 
+	 * @return
+	 */
+	Class<?> getTargetClass();
+
+
+
+	/**
+	 * Get name of accessed method.
+	 * 
+	 * @return
+	 */
+	String getMethodName();
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+/**
+ * <p>
+ * Converter writing object directly to XML writer, without creating tree
+ * model. It is used by streaming marshal and by
+ * {@link IXMLAdaptiveMarshaller#marshalAll(Iterable, org.prometheuscode.xml.treemodel.IXMLQName, java.io.OutputStream)}
+ * . When tree model is needed, object is converted by
+ * {@link IMarshallerConverter#convert(Object, java.util.Map)}.
+ * </p>
+ * 
+ * <p>
+ * Streaming and classic converters can be mixed in one mapping. Objects
+ * returned by mapped methods are written by
+ * {@link IXMLElementWriter#writeChild(String)} at any place of written
+ * element.
+ * </p>
+ * 
+ * <p>
+ * Class implementing this interface must have no-arg constructor.
+ * {@link AbstractStreamingMarshallerConverter} implements tree model
+ * conversion by this method.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+public interface IStreamingMarshallerConverter<T> extends IMarshallerConverter<T> {
+
+	/**
+	 * Write object as one element.
+	 * 
+	 * @param objectToConvert
+	 * @param writer
+	 */
+	void write(T objectToConvert, IXMLElementWriter writer);
+}
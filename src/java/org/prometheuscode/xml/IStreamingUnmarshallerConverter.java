@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+/**
+ * <p>
+ * Converter reading element directly from XML parser, without creating tree
+ * model for the element. It is registered together with
+ * {@link IUnmarshallerConverter} converters. Converters registered for
+ * children of the element are not used, children are read by this converter.
+ * </p>
+ * 
+ * <p>
+ * When element is converted from tree model, for ex. by concurrent
+ * conversion, {@link IUnmarshallerConverter#convert} is used.
+ * {@link AbstractStreamingUnmarshallerConverter} implements it by this
+ * method.
+ * </p>
+ * 
+ * <p>
+ * Class implementing this interface must have no-arg constructor.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+public interface IStreamingUnmarshallerConverter extends IUnmarshallerConverter {
+
+	/**
+	 * Read element to user object.
+	 * 
+	 * @param reader
+	 *            cursor positioned at start of element
+	 * @return
+	 */
+	Object read(IXMLElementReader reader);
+}
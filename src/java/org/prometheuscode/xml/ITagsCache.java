@@ -51,19 +51,32 @@ public interface ITagsCache {
 
 
 	/**
-	 * Updates the number of simple tags which are free in cache per tag
-	 * qualified name.
+	 * Release all tags taken from cache since last release, so they can be
+	 * reused. Released tags must not be used any more.
 	 * 
 	 */
+	void releaseAllTags();
+
+
+
+	/**
+	 * Release simple tags taken from cache since last release, so they can be
+	 * reused.
+	 * 
+	 * @deprecated use {@link #releaseAllTags()}
+	 */
+	@Deprecated
 	void updateSimpleTagsFreeSlots();
 
 
 
 	/**
-	 * Updates the number of composite tags which are free in cache per tag
-	 * qualified name.
+	 * Release composite tags taken from cache since last release, so they can
+	 * be reused.
 	 * 
+	 * @deprecated use {@link #releaseAllTags()}
 	 */
+	@Deprecated
 	void updateCompositeTagsFreeSlots();
 
 }
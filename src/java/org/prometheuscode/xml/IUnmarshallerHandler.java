@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import org.prometheuscode.xml.treemodel.IXMLQName;
+
+/**
+ * <p>
+ * It is callback interface the client can implement to receive converted
+ * objects during unmarshalling as soon as they are ready.
+ * </p>
+ * <p>
+ * Handler is called only for the top most converted composite tags, that is
+ * composite tags for which there does not exist composite tag ancestor having
+ * registered converter. Converted objects are not kept by unmarshaller, so
+ * memory used does not depend on the number of tags in XML file.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+public interface IUnmarshallerHandler {
+
+	/**
+	 * Handle converted object.
+	 * 
+	 * @param tagName
+	 *            name of converted composite tag. It is immutable name from
+	 *            symbol table of unmarshaller.
+	 * @param convertedObj
+	 *            object returned by registered converter, it can be null.
+	 */
+	void handle(IXMLQName tagName, Object convertedObj);
+}
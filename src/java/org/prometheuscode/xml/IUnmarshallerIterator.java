@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * <p>
+ * Lazy iterator over top most converted objects of XML file.
+ * </p>
+ * <p>
+ * XML file is parsed only as far as it is needed to return next converted
+ * object. Iterator closes underlying parser and stream when end of document
+ * is reached. If user stops iterating before, iterator should be closed
+ * explicitly.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+public interface IUnmarshallerIterator extends Iterator<Object>, Closeable {
+
+	/**
+	 * Close underlying parser and stream. It can be called more than once.
+	 */
+	@Override
+	void close();
+}
@@ -19,7 +19,9 @@
 package org.prometheuscode.xml;
 
 import java.io.OutputStream;
+import java.util.Iterator;
 
+import org.prometheuscode.xml.treemodel.IXMLQName;
 import org.prometheuscode.xml.treemodel.IXMLRoot;
 import org.prometheuscode.xml.treemodel.IXMLTag;
 
@@ -42,7 +44,9 @@ public interface IXMLAdaptiveMarshaller {
 
 
 	/**
-	 * Marshall given object to input stream.
+	 * Marshall given object to input stream. Given object and its collections
+	 * and maps are not modified, they can be immutable and can be marshalled
+	 * by many threads at once.
 	 * 
 	 * 
 	 * @param objectToSave
@@ -52,6 +56,42 @@ public interface IXMLAdaptiveMarshaller {
 
 
 
+	/**
+	 * <p>
+	 * Marshall records to output stream. Records are children of wrapper
+	 * element, registered mapping is mapping of record.
+	 * </p>
+	 * 
+	 * <p>
+	 * Every record is converted and written before next record is taken, so
+	 * records can be read from database cursor or other source which does not
+	 * hold all of them. Records are not kept after they are written.
+	 * Collections and Maps of records are streamed as in streaming marshal,
+	 * writer is flushed according to flush policy, every record is counted as
+	 * one element.
+	 * </p>
+	 * 
+	 * @param records
+	 * @param wrapperName
+	 *            name of element containing records
+	 * @param out
+	 */
+	<T> void marshalAll(Iterable<T> records, IXMLQName wrapperName, OutputStream out);
+
+
+
+	/**
+	 * Marshall records taken from iterator to output stream. See
+	 * {@link #marshalAll(Iterable, IXMLQName, OutputStream)}.
+	 * 
+	 * @param records
+	 * @param wrapperName
+	 * @param out
+	 */
+	<T> void marshalAll(Iterator<T> records, IXMLQName wrapperName, OutputStream out);
+
+
+
 	/**
 	 * It uses registered mapping to convert given object to tree model.
 	 * 
@@ -72,7 +112,10 @@ public interface IXMLAdaptiveMarshaller {
 
 
 	/**
-	 * Create mapping for given class.
+	 * Create mapping for given class. Classes annoted with
+	 * {@link org.prometheuscode.xml.annotation.BoundTag} and without
+	 * {@link org.prometheuscode.xml.annotation.Convertable} get generated
+	 * converters.
 	 * 
 	 * 
 	 * @param rootClassName
@@ -89,4 +132,82 @@ public interface IXMLAdaptiveMarshaller {
 	 */
 	IMapping<?> getRegisteredMapping();
 
+
+
+	/**
+	 * Set configuration of StaX writer. Configuration can be shared by
+	 * marshallers, so they use the same writer factory.
+	 * 
+	 * @param configuration
+	 */
+	void setStaXConfiguration(StaXConfiguration configuration);
+
+
+
+	StaXConfiguration getStaXConfiguration();
+
+
+
+	/**
+	 * <p>
+	 * Set streaming marshal. Collections and Maps are converted while they
+	 * are written, every element is written as soon as it is converted and
+	 * then it is dropped. Memory used by marshal depends on depth of object
+	 * graph, not on number of elements.
+	 * </p>
+	 * 
+	 * <p>
+	 * Converters get placeholder tags of Collections and Maps, placeholders
+	 * have no children and they can be only added to tag of converted object.
+	 * Tree model returned by {@link #getTreeModelFromObject(Object)} is always
+	 * complete.
+	 * </p>
+	 * 
+	 * @param streaming
+	 */
+	void setStreaming(boolean streaming);
+
+
+
+	boolean isStreaming();
+
+
+
+	/**
+	 * Set policy of flushing writer during streaming marshal. Default policy
+	 * is {@link FlushPolicy#NEVER}.
+	 * 
+	 * @param flushPolicy
+	 */
+	void setFlushPolicy(FlushPolicy flushPolicy);
+
+
+
+	FlushPolicy getFlushPolicy();
+
+
+
+	/**
+	 * Set backend writing XML. Default backend is {@link XMLWriterBackend#STAX}.
+	 * {@link XMLWriterBackend#UTF8} backend writes the same XML faster, it
+	 * repairs namespaces as StaX configuration says.
+	 * 
+	 * @param backend
+	 */
+	void setWriterBackend(XMLWriterBackend backend);
+
+
+
+	XMLWriterBackend getWriterBackend();
+
+
+
+	/**
+	 * Get description of writer backend and StaX implementation used by
+	 * marshaller, for diagnostics.
+	 * 
+	 * @return
+	 */
+	String getBackendDescription();
+
 }
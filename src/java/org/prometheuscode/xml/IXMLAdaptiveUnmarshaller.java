@@ -18,9 +18,11 @@
 package org.prometheuscode.xml;
 
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import org.prometheuscode.xml.treemodel.IXMLQName;
 import org.prometheuscode.xml.treemodel.IXMLRoot;
@@ -48,6 +50,18 @@ public interface IXMLAdaptiveUnmarshaller {
 
 
 
+	/**
+	 * Convert given file to intermediate representation. File is read
+	 * according to file read strategy.
+	 * 
+	 * @param xmlPath
+	 *            path to XML file
+	 * @return IXMLRoot
+	 */
+	IXMLRoot getTreeModel(Path xmlPath);
+
+
+
 	/**
 	 * Convert given XML file to user objects.
 	 * 
@@ -64,7 +78,218 @@ public interface IXMLAdaptiveUnmarshaller {
 
 
 	/**
-	 * Register converters.
+	 * Convert given XML file to user objects. File is read according to file
+	 * read strategy.
+	 * 
+	 * @param xmlPath
+	 *            path to xml file
+	 * @return
+	 */
+	Map<IXMLQName, List<Object>> unmarshal(Path xmlPath);
+
+
+
+	/**
+	 * Convert given XML file to user objects and pass every top most converted
+	 * object to handler as soon as it is converted. Converted objects are not
+	 * collected.
+	 * 
+	 * @param xmlPath
+	 *            full path to xml file
+	 * @param handler
+	 *            receives converted objects
+	 */
+	void unmarshal(String xmlPath, IUnmarshallerHandler handler);
+
+
+
+	void unmarshal(InputStream fileStream, IUnmarshallerHandler handler);
+
+
+
+	void unmarshal(Path xmlPath, IUnmarshallerHandler handler);
+
+
+
+	/**
+	 * Get lazy iterator over converted objects of given XML file. XML file is
+	 * parsed only as far as next converted object is needed.
+	 * 
+	 * @param xmlPath
+	 *            full path to xml file
+	 * @return iterator which should be closed if not used to the end
+	 */
+	IUnmarshallerIterator unmarshalIterator(String xmlPath);
+
+
+
+	IUnmarshallerIterator unmarshalIterator(InputStream fileStream);
+
+
+
+	IUnmarshallerIterator unmarshalIterator(Path xmlPath);
+
+
+
+	/**
+	 * Set strategy of reading files given by path. Default strategy is
+	 * {@link FileReadStrategy#BUFFERED}.
+	 * 
+	 * @param strategy
+	 */
+	void setFileReadStrategy(FileReadStrategy strategy);
+
+
+
+	FileReadStrategy getFileReadStrategy();
+
+
+
+	/**
+	 * Convert given XML file to user objects by parsing its parts in parallel.
+	 * File is split into given number of byte ranges, every range starts with
+	 * the start tag of record. Records are children of root element, tags with
+	 * record name deeper in file are parsed as parts of their records. Every
+	 * part is parsed and converted by executor, converted objects are merged
+	 * in file order.
+	 * 
+	 * <p>
+	 * File must use ASCII compatible encoding (for ex. UTF-8) and entities
+	 * declared in DTD can not be used. Record starts are found by calling
+	 * thread, which follows depth of tags from root start tag to the start of
+	 * the last part, so it reads about (chunksNr - 1) / chunksNr of file
+	 * serially. Every part is given to executor as soon as its end is found,
+	 * so parts are parsed while the rest of file is scanned. Concurrent
+	 * conversion configuration is not used by this method.
+	 * </p>
+	 * 
+	 * @param xmlPath
+	 *            full path to xml file
+	 * @param recordTagName
+	 *            name of record tag, its prefix must be the same as in file
+	 * @param chunksNr
+	 *            number of parts of file
+	 * @param executor
+	 *            executor parsing parts of file
+	 * @return
+	 */
+	Map<IXMLQName, List<Object>> unmarshalInChunks(String xmlPath, IXMLQName recordTagName, int chunksNr, Executor executor);
+
+
+
+	Map<IXMLQName, List<Object>> unmarshalInChunks(Path xmlPath, IXMLQName recordTagName, int chunksNr, Executor executor);
+
+
+
+	/**
+	 * Set symbol table of names. Names of tags and attributes given to
+	 * converters are canonical immutable names from this table. Symbol table
+	 * can be shared by unmarshallers. Names of complete tree model are not
+	 * interned, so they can be changed.
+	 * 
+	 * @param symbolTable
+	 */
+	void setSymbolTable(IXMLQNameSymbolTable symbolTable);
+
+
+
+	IXMLQNameSymbolTable getSymbolTable();
+
+
+
+	/**
+	 * Set max number of tags kept by tags cache between top most converted
+	 * tags. Tags of the least used names are dropped when there is more of
+	 * them.
+	 * 
+	 * @param maxRetainedTags
+	 */
+	void setMaxRetainedTags(int maxRetainedTags);
+
+
+
+	int getMaxRetainedTags();
+
+
+
+	/**
+	 * Set if tags cache should be kept per thread, so it is reused by next
+	 * unmarshal calls of the same thread. It helps when many small files are
+	 * unmarshalled.
+	 * 
+	 * @param threadLocal
+	 */
+	void setThreadLocalTagsCache(boolean threadLocal);
+
+
+
+	boolean isThreadLocalTagsCache();
+
+
+
+	/**
+	 * Set configuration of StaX parser. Configuration can be shared by
+	 * unmarshallers, so they use the same parser factory.
+	 * 
+	 * @param configuration
+	 */
+	void setStaXConfiguration(StaXConfiguration configuration);
+
+
+
+	StaXConfiguration getStaXConfiguration();
+
+
+
+	/**
+	 * Set backend creating parsers. Default backend is
+	 * {@link StaXParserBackend}, {@link TokenizerParserBackend} reads UTF-8
+	 * documents by built-in tokenizer.
+	 * 
+	 * @param backend
+	 */
+	void setParserBackend(IXMLParserBackend backend);
+
+
+
+	IXMLParserBackend getParserBackend();
+
+
+
+	/**
+	 * Get description of parser backend and StaX implementation used by
+	 * unmarshaller, for diagnostics.
+	 * 
+	 * @return
+	 */
+	String getBackendDescription();
+
+
+
+	/**
+	 * Set configuration of concurrent conversion. When it is set top most
+	 * converted tags are converted by executor given in configuration, while
+	 * XML file is parsed by calling thread.
+	 * 
+	 * @param config
+	 *            configuration or null to convert tags by calling thread
+	 */
+	void setConcurrentConversion(ConcurrentConversionConfig config);
+
+
+
+	/**
+	 * Get configuration of concurrent conversion.
+	 * 
+	 * @return configuration or null if tags are converted by calling thread
+	 */
+	ConcurrentConversionConfig getConcurrentConversion();
+
+
+
+	/**
+	 * Register converters. Tree model is not created for tags of
+	 * {@link IStreamingUnmarshallerConverter} converters.
 	 * 
 	 * @param converters
 	 */
@@ -81,12 +306,36 @@ public interface IXMLAdaptiveUnmarshaller {
 	 * have no-arg constructor.
 	 * </p>
 	 * 
+	 * <p>
+	 * Packages compiled with
+	 * {@link org.prometheuscode.xml.annotation.ConverterIndexProcessor} are
+	 * read from converters index, other packages are scanned. Packages can be
+	 * in directories or jars, they are scanned in parallel. Scan results are
+	 * kept until package location is modified.
+	 * </p>
+	 * 
 	 * @param converters
 	 */
 	Map<IXMLQName, IUnmarshallerConverter> createMapping(Set<String> packageNames);
 
 
 
+	/**
+	 * Set file where scan results of packages are kept between runs. Packages
+	 * which were not modified since last run are not scanned again.
+	 * 
+	 * @param cacheFile
+	 *            file or null if scan results should be kept only by this
+	 *            unmarshaller
+	 */
+	void setScanCacheFile(Path cacheFile);
+
+
+
+	Path getScanCacheFile();
+
+
+
 	/**
 	 * Get registered converters.
 	 * 
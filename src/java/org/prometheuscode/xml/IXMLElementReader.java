@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import org.prometheuscode.xml.treemodel.IXMLQName;
+
+/**
+ * <p>
+ * Cursor over converted element and its children used by
+ * {@link IStreamingUnmarshallerConverter}. Cursor can not leave converted
+ * element.
+ * </p>
+ * 
+ * <p>
+ * At first current element is converted element, its depth is 0. Next
+ * elements are visited in document order. Attributes of current element can
+ * be read until its content is read.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+public interface IXMLElementReader {
+
+	/**
+	 * Get name of current element.
+	 * 
+	 * @return
+	 */
+	IXMLQName getName();
+
+
+
+	/**
+	 * Get depth of current element relative to converted element.
+	 * 
+	 * @return
+	 */
+	int getDepth();
+
+
+
+	int getAttributeCount();
+
+
+
+	IXMLQName getAttributeName(int index);
+
+
+
+	String getAttributeValue(int index);
+
+
+
+	/**
+	 * Get value of attribute with no namespace.
+	 * 
+	 * @param localPart
+	 * @return value or null if there is no such attribute
+	 */
+	String getAttributeValue(String localPart);
+
+
+
+	/**
+	 * Move to next element of converted element.
+	 * 
+	 * @return false if converted element is done
+	 */
+	boolean nextElement();
+
+
+
+	/**
+	 * Read text of current element. Element can not have children, after
+	 * that it is done.
+	 * 
+	 * @return
+	 */
+	String getElementText();
+
+
+
+	/**
+	 * Skip children of current element.
+	 */
+	void skipElement();
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import org.prometheuscode.xml.treemodel.IXMLQName;
+
+/**
+ * <p>
+ * Writer of XML elements used by {@link IStreamingMarshallerConverter}.
+ * </p>
+ * 
+ * <p>
+ * Elements must be balanced, attributes and namespaces must be written just
+ * after element is started. Element with text only is simple tag, element
+ * with children is composite tag, text of composite tag is written but it is
+ * not kept by tree model.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+public interface IXMLElementWriter {
+
+	/**
+	 * Start element with given name.
+	 * 
+	 * @param name
+	 */
+	void startElement(IXMLQName name);
+
+
+
+	/**
+	 * Start element with no namespace.
+	 * 
+	 * @param localPart
+	 */
+	void startElement(String localPart);
+
+
+
+	void writeNamespace(String prefix, String namespaceURI);
+
+
+
+	void writeAttribute(IXMLQName name, String value);
+
+
+
+	/**
+	 * Write attribute with no namespace.
+	 * 
+	 * @param localPart
+	 * @param value
+	 */
+	void writeAttribute(String localPart, String value);
+
+
+
+	void writeText(String text);
+
+
+
+	/**
+	 * End the last started element.
+	 */
+	void endElement();
+
+
+
+	/**
+	 * Write converted object returned by mapped method of converted object.
+	 * 
+	 * @param methodName
+	 *            name of mapped method
+	 */
+	void writeChild(String methodName);
+}
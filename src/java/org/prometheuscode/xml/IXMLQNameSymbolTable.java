@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import org.prometheuscode.xml.treemodel.IXMLQName;
+
+/**
+ * <p>
+ * Symbol table of qualified names used during unmarshalling. It maps
+ * qualified name to one canonical immutable {@link IXMLQName}, so repeated
+ * names do not create new objects.
+ * </p>
+ * 
+ * <p>
+ * Every namespace URI and local part pair has its own id, names with
+ * different prefixes have the same id. Ids are numbered from 0 and they are
+ * never reused, so they can be used as array indexes.
+ * </p>
+ * 
+ * <p>
+ * Implementation should be thread safe, so symbol table can be shared by
+ * unmarshallers.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+public interface IXMLQNameSymbolTable {
+
+	/**
+	 * Get canonical name, it is added to the table if it is not there yet.
+	 * 
+	 * @param namespaceURI
+	 *            namespace URI, null means no namespace
+	 * @param localPart
+	 * @param prefix
+	 *            prefix, null means no prefix
+	 * @return immutable name
+	 */
+	IXMLQName getName(String namespaceURI, String localPart, String prefix);
+
+
+
+	/**
+	 * Get canonical name equal to given one, it is added to the table if it is
+	 * not there yet.
+	 * 
+	 * @param name
+	 * @return immutable name
+	 */
+	IXMLQName getName(IXMLQName name);
+
+
+
+	/**
+	 * Get id of name.
+	 * 
+	 * @param name
+	 * @return id of name or -1 if name is not in the table
+	 */
+	int getId(IXMLQName name);
+
+
+
+	/**
+	 * Get number of ids given so far.
+	 * 
+	 * @return
+	 */
+	int size();
+
+}
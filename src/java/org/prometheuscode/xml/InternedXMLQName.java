@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import org.prometheuscode.xml.treemodel.IXMLQName;
+
+/**
+ * <p>
+ * Immutable canonical name created by {@link XMLQNameSymbolTable}. Setters
+ * throw <code>UnsupportedOperationException</code>.
+ * </p>
+ * 
+ * <p>
+ * <code>equals()</code> and <code>hashCode()</code> have the same semantics as
+ * in {@link org.prometheuscode.xml.treemodel.XMLQName}, so interned names can
+ * be used together with other names in maps.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+public final class InternedXMLQName implements IXMLQName {
+
+	private final String localPart;
+
+	private final String namespaceURI;
+
+	private final String prefix;
+
+	private final int id;
+
+	private final int hash;
+
+	/* table which has created this name */
+	private final XMLQNameSymbolTable symbolTable;
+
+
+
+	InternedXMLQName(String localPart, String namespaceURI, String prefix, int id, XMLQNameSymbolTable symbolTable) {
+		this.localPart = localPart;
+		this.namespaceURI = namespaceURI;
+		this.prefix = prefix;
+		this.id = id;
+		this.symbolTable = symbolTable;
+		this.hash = namespaceURI.hashCode() ^ localPart.hashCode();
+	}
+
+
+
+	/**
+	 * Get id given by symbol table.
+	 * 
+	 * @return id or -1 if name was created when symbol table was full
+	 */
+	public int getId() {
+		return this.id;
+	}
+
+
+
+	@Override
+	public String getLocalPart() {
+		return this.localPart;
+	}
+
+
+
+	@Override
+	public String getNamespaceURI() {
+		return this.namespaceURI;
+	}
+
+
+
+	@Override
+	public String getPrefix() {
+		return this.prefix;
+	}
+
+
+
+	/**
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             always.
+	 */
+	@Override
+	public void setLocalPart(String localPart) {
+		throw new UnsupportedOperationException("Interned name is immutable");
+	}
+
+
+
+	/**
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             always.
+	 */
+	@Override
+	public void setNamespaceURI(String namespaceURI) {
+		throw new UnsupportedOperationException("Interned name is immutable");
+	}
+
+
+
+	/**
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             always.
+	 */
+	@Override
+	public void setPrefix(String prefix) {
+		throw new UnsupportedOperationException("Interned name is immutable");
+	}
+
+
+
+	/**
+	 * Semantics is the same to the QName.equals()
+	 * 
+	 * @return boolean is object equal?
+	 * 
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+
+		if (obj instanceof InternedXMLQName) {
+			InternedXMLQName interned = (InternedXMLQName) obj;
+			if (interned.symbolTable == this.symbolTable && interned.id >= 0 && this.id >= 0) {
+				return interned.id == this.id;
+			}
+		}
+
+		if (!(obj instanceof IXMLQName)) {
+			return false;
+		}
+
+		IXMLQName qName = (IXMLQName) obj;
+
+		return (this.localPart.equals(qName.getLocalPart()) && this.namespaceURI.equals(qName.getNamespaceURI()));
+	}
+
+
+
+	/**
+	 * Semantics is the same to the QName.hashCode()
+	 * 
+	 * @return int hash
+	 * 
+	 */
+	@Override
+	public int hashCode() {
+		return this.hash;
+	}
+
+
+
+	@Override
+	public String toString() {
+		return this.prefix + "{" + this.namespaceURI + "}" + this.localPart;
+	}
+
+
+
+	XMLQNameSymbolTable getSymbolTable() {
+		return this.symbolTable;
+	}
+
+}
@@ -33,6 +33,8 @@ public class Mapping<T> implements IMapping<T> {
 
 	private String mappedMethodName = "";
 
+	private IMethodAccessor mappedMethodAccessor;
+
 	private MappingType type;
 
 	private IMapping<?> parent;
@@ -109,6 +111,20 @@ public class Mapping<T> implements IMapping<T> {
 
 
 
+	@Override
+	public IMethodAccessor getMappedMethodAccessor() {
+		return this.mappedMethodAccessor;
+	}
+
+
+
+	@Override
+	public void setMappedMethodAccessor(IMethodAccessor accessor) {
+		this.mappedMethodAccessor = accessor;
+	}
+
+
+
 	@Override
 	public IMapping<?> getParentMapping() {
 		return this.parent;
@@ -163,6 +179,11 @@ public class Mapping<T> implements IMapping<T> {
 
 		mapping.setParentMapping(this);
 		mapping.setMappedMethodName(methodName);
+		/* accessor of other method is not valid any more */
+		IMethodAccessor accessor = mapping.getMappedMethodAccessor();
+		if (accessor != null && !(accessor.getMethodName().equals(methodName))) {
+			mapping.setMappedMethodAccessor(null);
+		}
 
 		this.convertersForMethod.put(methodName, mapping);
 	}
@@ -178,6 +199,7 @@ public class Mapping<T> implements IMapping<T> {
 
 		IMapping<?> mapping = this.convertersForMethod.remove(methodName);
 		mapping.setMappedMethodName("");
+		mapping.setMappedMethodAccessor(null);
 		mapping.setParentMapping(null);
 		return mapping;
 	}
@@ -218,6 +240,7 @@ public class Mapping<T> implements IMapping<T> {
 		this.correctMappingTree(mapping);
 		/* method is propagated since it is mapping for the same method */
 		mapping.setMappedMethodName(this.mappedMethodName);
+		mapping.setMappedMethodAccessor(this.mappedMethodAccessor);
 		mapping.setParentMapping(this);
 		this.containerMapping = mapping;
 	}
@@ -241,6 +264,7 @@ public class Mapping<T> implements IMapping<T> {
 	public IMapping<T> copy() {
 		IMapping<T> newMapping = new Mapping<T>();
 		newMapping.setMappedMethodName(this.mappedMethodName);
+		newMapping.setMappedMethodAccessor(this.mappedMethodAccessor);
 		newMapping.setMappingType(this.type);
 
 		newMapping.setParentMapping(this.parent);
@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Mapping tree compiled to array of nodes. Every node has indices of its
+ * children nodes and converter of its mapping, so marshaller walks the plan
+ * without looking up mappings by names.
+ * </p>
+ * 
+ * <p>
+ * Plan is immutable, it can be used by many threads. Changes of mapping made
+ * after plan was compiled are not visible in plan.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+class MarshallingPlan {
+
+	public final static int NO_NODE = -1;
+
+	private Node[] nodes;
+
+
+
+	private MarshallingPlan(Node[] nodes) {
+		this.nodes = nodes;
+	}
+
+
+
+	/* Public Methods ***^_^*** */
+
+	/**
+	 * Compile given mapping tree. Mappings are put to array in breadth first
+	 * order, root mapping is the first node.
+	 * 
+	 * @param rootMapping
+	 * @return
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if mapping is null, some mapping has no type or container
+	 *             mapping has no value mapping.
+	 */
+	public static MarshallingPlan compile(IMapping<?> rootMapping) {
+
+		if (rootMapping == null) {
+			throw new IllegalArgumentException("Mapping can not be null");
+		}
+
+		List<IMapping<?>> mappings = new ArrayList<IMapping<?>>();
+		List<Integer> parents = new ArrayList<Integer>();
+		mappings.add(rootMapping);
+		parents.add(NO_NODE);
+
+		List<Node> nodes = new ArrayList<Node>();
+		for (int i = 0; i < mappings.size(); i++) {
+			IMapping<?> mapping = mappings.get(i);
+			MappingType type = mapping.getMappingType();
+			if (type == null) {
+				throw new IllegalArgumentException("Mapping type of method: " + mapping.getMappedMethodName() + " can not be null");
+			}
+
+			int[] children = null;
+			int containerNode = NO_NODE;
+			if (type.equals(MappingType.Object)) {
+				/* children nodes are put at the end of array */
+				Map<String, IMapping<?>> methodMappings = mapping.getMappings();
+				children = new int[methodMappings.size()];
+				int childNr = 0;
+				for (IMapping<?> methodMapping : methodMappings.values()) {
+					children[childNr++] = mappings.size();
+					mappings.add(methodMapping);
+					parents.add(i);
+				}
+			} else {
+				IMapping<?> valueMapping = mapping.getContainerMapping();
+				if (valueMapping == null) {
+					throw new IllegalArgumentException("Mapping of method: " + mapping.getMappedMethodName() + " is " + type + " and it has to have container mapping");
+				}
+				children = new int[0];
+				containerNode = mappings.size();
+				mappings.add(valueMapping);
+				parents.add(i);
+			}
+
+			nodes.add(new Node(i, parents.get(i), mapping, children, containerNode));
+		}
+
+		return new MarshallingPlan(nodes.toArray(new Node[nodes.size()]));
+	}
+
+
+
+	public Node getRoot() {
+		return this.nodes[0];
+	}
+
+
+
+	public Node getNode(int index) {
+		return this.nodes[index];
+	}
+
+
+
+	public int size() {
+		return this.nodes.length;
+	}
+
+
+
+	/**
+	 * Get node of mapped method of object node.
+	 * 
+	 * @param node
+	 * @param methodName
+	 * @return node or null if method is not mapped
+	 */
+	public Node getChild(Node node, String methodName) {
+		for (int i = 0; i < node.getChildrenCount(); i++) {
+			Node child = this.nodes[node.getChild(i)];
+			if (child.getMethodName().equals(methodName)) {
+				return child;
+			}
+		}
+		return null;
+	}
+
+
+
+	/* Private Classes ***^_^*** */
+
+	/**
+	 * Compiled mapping.
+	 */
+	static class Node {
+
+		private final int index;
+
+		private final int parent;
+
+		private final MappingType type;
+
+		private final IMapping<?> mapping;
+
+		private final IMarshallerConverter<Object> converter;
+
+		private final String methodName;
+
+		private final IMethodAccessor accessor;
+
+		private final int[] children;
+
+		private final int containerNode;
+
+
+
+		@SuppressWarnings("unchecked")
+		private Node(int index, int parent, IMapping<?> mapping, int[] children, int containerNode) {
+			this.index = index;
+			this.parent = parent;
+			this.type = mapping.getMappingType();
+			this.mapping = mapping;
+			this.converter = (IMarshallerConverter<Object>) mapping.getConverter();
+			this.methodName = mapping.getMappedMethodName();
+			this.accessor = mapping.getMappedMethodAccessor();
+			this.children = children;
+			this.containerNode = containerNode;
+		}
+
+
+
+		public int getIndex() {
+			return this.index;
+		}
+
+
+
+		/**
+		 * Get index of parent node.
+		 * 
+		 * @return index or {@link MarshallingPlan#NO_NODE} for root
+		 */
+		public int getParent() {
+			return this.parent;
+		}
+
+
+
+		public MappingType getType() {
+			return this.type;
+		}
+
+
+
+		/**
+		 * Get compiled mapping.
+		 * 
+		 * @return
+		 */
+		public IMapping<?> getMapping() {
+			return this.mapping;
+		}
+
+
+
+		public IMarshallerConverter<Object> getConverter() {
+			return this.converter;
+		}
+
+
+
+		public String getMethodName() {
+			return this.methodName;
+		}
+
+
+
+		/**
+		 * Get accessor of mapped method which mapping had when plan was
+		 * compiled.
+		 * 
+		 * @return accessor or null if mapping had no accessor
+		 */
+		public IMethodAccessor getAccessor() {
+			return this.accessor;
+		}
+
+
+
+		/**
+		 * Check if object is written by {@link IStreamingMarshallerConverter}
+		 * during streaming marshal.
+		 * 
+		 * @return
+		 */
+		public boolean isStreaming() {
+			return this.converter instanceof IStreamingMarshallerConverter;
+		}
+
+
+
+		/**
+		 * Get number of nodes of mapped methods of object.
+		 * 
+		 * @return
+		 */
+		public int getChildrenCount() {
+			return this.children.length;
+		}
+
+
+
+		public int getChild(int childNr) {
+			return this.children[childNr];
+		}
+
+
+
+		/**
+		 * Get index of node of Collection element or Map value.
+		 * 
+		 * @return index or {@link MarshallingPlan#NO_NODE} for object node
+		 */
+		public int getContainerNode() {
+			return this.containerNode;
+		}
+
+	}
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javassist.CannotCompileException;
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewMethod;
+import javassist.NotFoundException;
+
+/**
+ * <p>
+ * Creates {@link IMethodAccessor} for mapped methods.
+ * </p>
+ * 
+ * <p>
+ * Accessor class calling method directly is generated by javassist and
+ * defined by its own class loader, which delegates to class loader of method
+ * class. When method or its class is not public or accessor can not be
+ * generated, accessor using reflection is returned.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+class MethodAccessorFactory {
+
+	private final static String ACCESSOR_CLASS_NAME = MethodAccessorFactory.class.getPackage().getName() + ".GeneratedMethodAccessor";
+
+	private final static String INVOKE_ERROR = "Problems with IMapping, mapped method could not be no-arg method, or not public or accessing protected data";
+
+	private final static AtomicInteger accessorsNr = new AtomicInteger();
+
+
+
+	private MethodAccessorFactory() {
+	}
+
+
+
+	/* Public Methods ***^_^*** */
+
+	/**
+	 * Create accessor of given no-arg method.
+	 * 
+	 * @param method
+	 * @return
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if method is null or has arguments.
+	 */
+	public static IMethodAccessor create(Method method) {
+
+		if (method == null) {
+			throw new IllegalArgumentException("Method can not be null");
+		}
+
+		if (method.getParameterTypes().length != 0) {
+			throw new IllegalArgumentException("Method: " + method.getName() + " can not have arguments");
+		}
+
+		Class<?> targetClass = method.getDeclaringClass();
+		boolean accessible = Modifier.isPublic(method.getModifiers()) && Modifier.isPublic(targetClass.getModifiers());
+		if (!accessible || Modifier.isStatic(method.getModifiers()) || method.getReturnType().equals(void.class)) {
+			return new ReflectiveMethodAccessor(method);
+		}
+
+		try {
+			return generateAccessor(method);
+		} catch (NotFoundException e) {
+			return new ReflectiveMethodAccessor(method);
+		} catch (CannotCompileException e) {
+			return new ReflectiveMethodAccessor(method);
+		} catch (IOException e) {
+			return new ReflectiveMethodAccessor(method);
+		} catch (ReflectiveOperationException e) {
+			return new ReflectiveMethodAccessor(method);
+		} catch (LinkageError e) {
+			/* target class is not visible for generated class */
+			return new ReflectiveMethodAccessor(method);
+		}
+	}
+
+
+
+	/* Private Methods ***^_^*** */
+
+	private static IMethodAccessor generateAccessor(Method method) throws NotFoundException, CannotCompileException, IOException, ReflectiveOperationException {
+
+		Class<?> targetClass = method.getDeclaringClass();
+		String targetName = targetClass.getName();
+		String accessorName = ACCESSOR_CLASS_NAME + accessorsNr.incrementAndGet();
+
+		ClassPool pool = new ClassPool(true);
+		pool.insertClassPath(new ClassClassPath(IMethodAccessor.class));
+		pool.insertClassPath(new ClassClassPath(targetClass));
+
+		CtClass accessorClass = pool.makeClass(accessorName);
+		try {
+			accessorClass.addInterface(pool.get(IMethodAccessor.class.getName()));
+			/* $w boxes primitive values, exceptions of method are wrapped, errors are propagated */
+			accessorClass.addMethod(CtNewMethod.make("public Object invoke(Object target) { try { return ($w) ((" + targetName + ") target)." + method.getName() + "(); } catch (Exception e) { throw new "
+					+ XMLMarshallerException.class.getName() + "(\"" + INVOKE_ERROR + "\", e); } }", accessorClass));
+			accessorClass.addMethod(CtNewMethod.make("public Class getTargetClass() { return " + targetName + ".class; }", accessorClass));
+			accessorClass.addMethod(CtNewMethod.make("public String getMethodName() { return \"" + method.getName() + "\"; }", accessorClass));
+
+			byte[] bytecode = accessorClass.toBytecode();
+			AccessorClassLoader loader = new AccessorClassLoader(targetClass.getClassLoader());
+			Class<?> clazz = loader.define(accessorName, bytecode);
+			return (IMethodAccessor) clazz.getDeclaredConstructor().newInstance();
+		} finally {
+			accessorClass.detach();
+		}
+	}
+
+
+
+	/* Private Classes ***^_^*** */
+
+	/*
+	 * Loader of generated accessor class. Accessor interface and exception
+	 * are always taken from this library, other classes from loader of target
+	 * class.
+	 */
+	private static class AccessorClassLoader extends ClassLoader {
+
+		AccessorClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (name.equals(IMethodAccessor.class.getName())) {
+				return IMethodAccessor.class;
+			}
+			if (name.equals(XMLMarshallerException.class.getName())) {
+				return XMLMarshallerException.class;
+			}
+			return super.loadClass(name, resolve);
+		}
+
+
+
+		Class<?> define(String name, byte[] bytecode) {
+			return this.defineClass(name, bytecode, 0, bytecode.length);
+		}
+
+	}
+
+
+
+	/*
+	 * Accessor used when method can not be called by generated class.
+	 */
+	private static class ReflectiveMethodAccessor implements IMethodAccessor {
+
+		private Method method;
+
+
+
+		ReflectiveMethodAccessor(Method method) {
+			this.method = method;
+		}
+
+
+
+		@Override
+		public Object invoke(Object target) {
+			try {
+				return this.method.invoke(target, (Object[]) null);
+			} catch (Exception e) {
+				throw new XMLMarshallerException(INVOKE_ERROR, e);
+			}
+		}
+
+
+
+		@Override
+		public Class<?> getTargetClass() {
+			return this.method.getDeclaringClass();
+		}
+
+
+
+		@Override
+		public String getMethodName() {
+			return this.method.getName();
+		}
+
+	}
+
+}
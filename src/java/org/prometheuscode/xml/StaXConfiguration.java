@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+
+/**
+ * <p>
+ * Configuration of StaX parsers and writers used by marshallers and
+ * unmarshallers.
+ * </p>
+ * 
+ * <p>
+ * It holds factories which are created once, when they are needed first
+ * time, and shared by all users of this configuration. Changing a property
+ * makes new factories to be created, factories already in use are not
+ * changed. Factories must be thread safe after they are configured, as
+ * woodstox factories are.
+ * </p>
+ * 
+ * <p>
+ * Properties not supported by StaX implementation are not set. Woodstox
+ * specific properties are used only with woodstox.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+public class StaXConfiguration {
+
+	/* woodstox specific properties */
+
+	public final static String WSTX_LAZY_PARSING = "com.ctc.wstx.lazyParsing";
+
+	public final static String STAX2_INTERN_NAMES = "org.codehaus.stax2.internNames";
+
+	public final static String STAX2_INTERN_NS_URIS = "org.codehaus.stax2.internNsUris";
+
+	private StaXImplementation implementation = StaXImplementation.DEFAULT;
+
+	private boolean coalescing = false;
+
+	private boolean supportingDTD = true;
+
+	private boolean supportingExternalEntities = false;
+
+	private boolean lazyParsing = true;
+
+	private boolean internNames = true;
+
+	private boolean repairingNamespaces = true;
+
+	private XMLInputFactory inputFactory;
+
+	private XMLOutputFactory outputFactory;
+
+
+
+	public StaXConfiguration() {
+	}
+
+
+
+	/**
+	 * Create configuration for max throughput: DTD is not processed, parser
+	 * does not coalesce text and it parses lazily, names are interned.
+	 * 
+	 * @return
+	 */
+	public static StaXConfiguration maxThroughput() {
+		StaXConfiguration config = new StaXConfiguration();
+		config.setCoalescing(false);
+		config.setSupportingDTD(false);
+		config.setSupportingExternalEntities(false);
+		config.setLazyParsing(true);
+		config.setInternNames(true);
+		return config;
+	}
+
+
+
+	/**
+	 * Create strict configuration: DTD is processed but external entities are
+	 * not loaded, text is coalesced and parser reports errors as soon as it
+	 * reads them.
+	 * 
+	 * @return
+	 */
+	public static StaXConfiguration strict() {
+		StaXConfiguration config = new StaXConfiguration();
+		config.setCoalescing(true);
+		config.setSupportingDTD(true);
+		config.setSupportingExternalEntities(false);
+		config.setLazyParsing(false);
+		config.setInternNames(true);
+		return config;
+	}
+
+
+
+	/**
+	 * Get shared input factory.
+	 * 
+	 * @return
+	 */
+	public synchronized XMLInputFactory getInputFactory() {
+		if (this.inputFactory == null) {
+			XMLInputFactory factory = this.implementation.createInputFactory();
+			this.setPropertyIfSupported(factory, XMLInputFactory.IS_NAMESPACE_AWARE, true);
+			this.setPropertyIfSupported(factory, XMLInputFactory.IS_COALESCING, this.coalescing);
+			this.setPropertyIfSupported(factory, XMLInputFactory.SUPPORT_DTD, this.supportingDTD);
+			this.setPropertyIfSupported(factory, XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, this.supportingExternalEntities);
+			this.setPropertyIfSupported(factory, WSTX_LAZY_PARSING, this.lazyParsing);
+			this.setPropertyIfSupported(factory, STAX2_INTERN_NAMES, this.internNames);
+			this.setPropertyIfSupported(factory, STAX2_INTERN_NS_URIS, this.internNames);
+			this.inputFactory = factory;
+		}
+		return this.inputFactory;
+	}
+
+
+
+	/**
+	 * Get shared output factory.
+	 * 
+	 * @return
+	 */
+	public synchronized XMLOutputFactory getOutputFactory() {
+		if (this.outputFactory == null) {
+			XMLOutputFactory factory = this.implementation.createOutputFactory();
+			if (factory.isPropertySupported(XMLOutputFactory.IS_REPAIRING_NAMESPACES)) {
+				factory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, this.repairingNamespaces);
+			}
+			this.outputFactory = factory;
+		}
+		return this.outputFactory;
+	}
+
+
+
+	public synchronized StaXImplementation getImplementation() {
+		return this.implementation;
+	}
+
+
+
+	/**
+	 * Set StaX implementation creating factories. Default implementation is
+	 * {@link StaXImplementation#DEFAULT}.
+	 * 
+	 * @param implementation
+	 * @throws IllegalArgumentException
+	 *             argument is null.
+	 */
+	public synchronized void setImplementation(StaXImplementation implementation) {
+
+		if (implementation == null) {
+			throw new IllegalArgumentException("Implementation can't be null");
+		}
+
+		this.implementation = implementation;
+		this.inputFactory = null;
+		this.outputFactory = null;
+	}
+
+
+
+	public synchronized boolean isCoalescing() {
+		return this.coalescing;
+	}
+
+
+
+	/**
+	 * Should text be returned by parser as one event?
+	 * 
+	 * @param coalescing
+	 */
+	public synchronized void setCoalescing(boolean coalescing) {
+		this.coalescing = coalescing;
+		this.inputFactory = null;
+	}
+
+
+
+	public synchronized boolean isSupportingDTD() {
+		return this.supportingDTD;
+	}
+
+
+
+	/**
+	 * Should DTD be processed? If not entities declared in DTD can not be
+	 * used.
+	 * 
+	 * @param supportingDTD
+	 */
+	public synchronized void setSupportingDTD(boolean supportingDTD) {
+		this.supportingDTD = supportingDTD;
+		this.inputFactory = null;
+	}
+
+
+
+	public synchronized boolean isSupportingExternalEntities() {
+		return this.supportingExternalEntities;
+	}
+
+
+
+	/**
+	 * Should external entities be loaded? It is off by default.
+	 * 
+	 * @param supportingExternalEntities
+	 */
+	public synchronized void setSupportingExternalEntities(boolean supportingExternalEntities) {
+		this.supportingExternalEntities = supportingExternalEntities;
+		this.inputFactory = null;
+	}
+
+
+
+	public synchronized boolean isLazyParsing() {
+		return this.lazyParsing;
+	}
+
+
+
+	/**
+	 * Should parser read event content only when it is asked for? Errors can
+	 * be reported later then. It is used only with woodstox.
+	 * 
+	 * @param lazyParsing
+	 */
+	public synchronized void setLazyParsing(boolean lazyParsing) {
+		this.lazyParsing = lazyParsing;
+		this.inputFactory = null;
+	}
+
+
+
+	public synchronized boolean isInternNames() {
+		return this.internNames;
+	}
+
+
+
+	/**
+	 * Should parser intern names and namespace URIs? It is used only with
+	 * StaX2 implementations.
+	 * 
+	 * @param internNames
+	 */
+	public synchronized void setInternNames(boolean internNames) {
+		this.internNames = internNames;
+		this.inputFactory = null;
+	}
+
+
+
+	public synchronized boolean isRepairingNamespaces() {
+		return this.repairingNamespaces;
+	}
+
+
+
+	/**
+	 * Should writer declare namespaces of written tags? If not, tags must
+	 * have their namespaces declared.
+	 * 
+	 * @param repairingNamespaces
+	 */
+	public synchronized void setRepairingNamespaces(boolean repairingNamespaces) {
+		this.repairingNamespaces = repairingNamespaces;
+		this.outputFactory = null;
+	}
+
+
+
+	@Override
+	public synchronized String toString() {
+		return "StaXConfiguration[" + this.implementation + ", coalescing=" + this.coalescing + ", supportingDTD=" + this.supportingDTD + ", supportingExternalEntities=" + this.supportingExternalEntities + ", lazyParsing=" + this.lazyParsing + ", internNames=" + this.internNames + ", repairingNamespaces=" + this.repairingNamespaces + "]";
+	}
+
+
+
+	/*
+	 * Private Methods ***^_^***
+	 */
+
+	private void setPropertyIfSupported(XMLInputFactory factory, String name, boolean value) {
+		if (factory.isPropertySupported(name)) {
+			factory.setProperty(name, value);
+		}
+	}
+
+}
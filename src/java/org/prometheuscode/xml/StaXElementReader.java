@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.prometheuscode.xml.treemodel.IXMLQName;
+
+/**
+ * Element reader moving StaX parser. Names are interned in symbol table of
+ * unmarshal.
+ * 
+ * @author marta
+ * 
+ */
+class StaXElementReader implements IXMLElementReader {
+
+	private XMLStreamReader reader;
+
+	private IXMLQNameSymbolTable symbolTable;
+
+	private IXMLQName name;
+
+	private int depth = 0;
+
+	/* number of started and not ended elements */
+	private int openElements = 1;
+
+
+
+	/**
+	 * 
+	 * @param reader
+	 *            parser positioned at start of converted element
+	 * @param name
+	 *            name of converted element
+	 * @param symbolTable
+	 */
+	StaXElementReader(XMLStreamReader reader, IXMLQName name, IXMLQNameSymbolTable symbolTable) {
+		this.reader = reader;
+		this.name = name;
+		this.symbolTable = symbolTable;
+	}
+
+
+
+	/* Public Methods ***^_^*** */
+
+	@Override
+	public IXMLQName getName() {
+		return this.name;
+	}
+
+
+
+	@Override
+	public int getDepth() {
+		return this.depth;
+	}
+
+
+
+	@Override
+	public int getAttributeCount() {
+		this.checkStartElement();
+		return this.reader.getAttributeCount();
+	}
+
+
+
+	@Override
+	public IXMLQName getAttributeName(int index) {
+		this.checkStartElement();
+		if (this.reader instanceof XMLTokenizer) {
+			return ((XMLTokenizer) this.reader).getAttributeName(index, this.symbolTable);
+		}
+		return this.symbolTable.getName(this.nullToEmpty(this.reader.getAttributeNamespace(index)), this.reader.getAttributeLocalName(index), this.nullToEmpty(this.reader.getAttributePrefix(index)));
+	}
+
+
+
+	@Override
+	public String getAttributeValue(int index) {
+		this.checkStartElement();
+		return this.reader.getAttributeValue(index);
+	}
+
+
+
+	@Override
+	public String getAttributeValue(String localPart) {
+		this.checkStartElement();
+		int attrsNr = this.reader.getAttributeCount();
+		for (int i = 0; i < attrsNr; i++) {
+			if (this.reader.getAttributeLocalName(i).equals(localPart) && this.nullToEmpty(this.reader.getAttributeNamespace(i)).equals("")) {
+				return this.reader.getAttributeValue(i);
+			}
+		}
+		return null;
+	}
+
+
+
+	@Override
+	public boolean nextElement() {
+		if (this.openElements == 0) {
+			return false;
+		}
+
+		try {
+			while (this.reader.hasNext()) {
+				int event = this.reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					this.depth = this.openElements;
+					this.openElements++;
+					this.name = (this.reader instanceof XMLTokenizer) ? ((XMLTokenizer) this.reader).getName(this.symbolTable) : this.symbolTable.getName(this.nullToEmpty(this.reader.getNamespaceURI()), this.reader.getLocalName(), this.nullToEmpty(this.reader.getPrefix()));
+					return true;
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					this.openElements--;
+					if (this.openElements == 0) {
+						return false;
+					}
+				}
+			}
+		} catch (XMLStreamException e) {
+			throw new XMLUnmarshallerException(e);
+		}
+
+		throw new XMLUnmarshallerException("Unexpected end of document in element: " + this.name.getLocalPart());
+	}
+
+
+
+	/**
+	 * 
+	 * @throws XMLUnmarshallerException
+	 *             if current element has children or its content was read.
+	 */
+	@Override
+	public String getElementText() {
+		this.checkStartElement();
+		String text = null;
+		try {
+			text = this.reader.getElementText();
+		} catch (XMLStreamException e) {
+			throw new XMLUnmarshallerException("Element: " + this.name.getLocalPart() + " has children, it has no text", e);
+		}
+
+		this.openElements--;
+		return text;
+	}
+
+
+
+	@Override
+	public void skipElement() {
+		this.checkStartElement();
+		try {
+			this.skipToEnd(1);
+		} catch (XMLStreamException e) {
+			throw new XMLUnmarshallerException(e);
+		}
+	}
+
+
+
+	/**
+	 * Skip rest of converted element. Parser is positioned at end of converted
+	 * element.
+	 * 
+	 * @throws XMLStreamException
+	 */
+	public void finish() throws XMLStreamException {
+		this.skipToEnd(this.openElements);
+	}
+
+
+
+	/* Private Methods ***^_^*** */
+
+	private void skipToEnd(int elementsNr) throws XMLStreamException {
+		int toEnd = elementsNr;
+		while (toEnd > 0) {
+			int event = this.reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				toEnd++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				toEnd--;
+			}
+		}
+		this.openElements -= elementsNr;
+	}
+
+
+
+	/*
+	 * Attributes and content can be read only at start of current element.
+	 */
+	private void checkStartElement() {
+		if (!(this.reader.isStartElement())) {
+			throw new XMLUnmarshallerException("Content of element: " + this.name.getLocalPart() + " was already read");
+		}
+	}
+
+
+
+	private String nullToEmpty(String str) {
+		return (str == null) ? "" : str;
+	}
+
+}
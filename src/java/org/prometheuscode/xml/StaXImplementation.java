@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+
+/**
+ * StaX implementation creating factories of {@link StaXConfiguration}.
+ * Implementation other than {@link #DEFAULT} has to be on class path.
+ * 
+ * @author marta
+ * 
+ */
+public enum StaXImplementation {
+
+	/**
+	 * Implementation found by {@link XMLInputFactory#newInstance()} and
+	 * {@link XMLOutputFactory#newInstance()}.
+	 */
+	DEFAULT(null, null),
+
+	/**
+	 * Implementation built in JDK.
+	 */
+	SJSXP("com.sun.xml.internal.stream.XMLInputFactoryImpl", "com.sun.xml.internal.stream.XMLOutputFactoryImpl"),
+
+	/**
+	 * Woodstox, StaX2 implementation which supports all properties of
+	 * {@link StaXConfiguration}.
+	 */
+	WOODSTOX("com.ctc.wstx.stax.WstxInputFactory", "com.ctc.wstx.stax.WstxOutputFactory"),
+
+	/**
+	 * Aalto, non-validating StaX2 implementation without DTD support.
+	 */
+	AALTO("com.fasterxml.aalto.stax.InputFactoryImpl", "com.fasterxml.aalto.stax.OutputFactoryImpl");
+
+	private String inputFactoryClassName;
+
+	private String outputFactoryClassName;
+
+
+
+	private StaXImplementation(String inputFactoryClassName, String outputFactoryClassName) {
+		this.inputFactoryClassName = inputFactoryClassName;
+		this.outputFactoryClassName = outputFactoryClassName;
+	}
+
+
+
+	/* Public Methods ***^_^*** */
+
+	/**
+	 * Check if implementation can be used.
+	 * 
+	 * @return
+	 */
+	public boolean isAvailable() {
+		if (this.inputFactoryClassName == null || this.equals(SJSXP)) {
+			return true;
+		}
+
+		try {
+			Class.forName(this.inputFactoryClassName);
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+
+
+	/**
+	 * 
+	 * @return class name of input factory or null for default implementation
+	 */
+	public String getInputFactoryClassName() {
+		return this.inputFactoryClassName;
+	}
+
+
+
+	/**
+	 * 
+	 * @return class name of output factory or null for default implementation
+	 */
+	public String getOutputFactoryClassName() {
+		return this.outputFactoryClassName;
+	}
+
+
+
+	/**
+	 * Create new input factory of implementation.
+	 * 
+	 * @return
+	 * @throws FactoryConfigurationError
+	 *             if implementation is not available
+	 */
+	XMLInputFactory createInputFactory() {
+		if (this.inputFactoryClassName == null) {
+			return XMLInputFactory.newInstance();
+		}
+		return (XMLInputFactory) this.createFactory(XMLInputFactory.class, this.inputFactoryClassName);
+	}
+
+
+
+	/**
+	 * Create new output factory of implementation.
+	 * 
+	 * @return
+	 * @throws FactoryConfigurationError
+	 *             if implementation is not available
+	 */
+	XMLOutputFactory createOutputFactory() {
+		if (this.outputFactoryClassName == null) {
+			return XMLOutputFactory.newInstance();
+		}
+		return (XMLOutputFactory) this.createFactory(XMLOutputFactory.class, this.outputFactoryClassName);
+	}
+
+
+
+	/* Private Methods ***^_^*** */
+
+	private Object createFactory(Class<?> factoryType, String className) {
+		try {
+			if (this.equals(SJSXP)) {
+				/*
+				 * JDK implementation is not accessible by its class name since
+				 * java 9, it is created by newDefaultFactory() there
+				 */
+				try {
+					return factoryType.getMethod("newDefaultFactory").invoke(null);
+				} catch (NoSuchMethodException e) {
+					/* older java, class name is used */
+				}
+			}
+			return Class.forName(className).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new FactoryConfigurationError(e, "StaX implementation " + this + " is not available");
+		}
+	}
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.io.InputStream;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Backend creating StaX parsers by input factory of {@link StaXConfiguration}.
+ * It is default backend of unmarshallers.
+ * 
+ * @author marta
+ * 
+ */
+public class StaXParserBackend implements IXMLParserBackend {
+
+	/* Public Methods ***^_^*** */
+
+	@Override
+	public XMLStreamReader createReader(InputStream in, StaXConfiguration configuration) throws XMLStreamException {
+		return configuration.getInputFactory().createXMLStreamReader(in);
+	}
+
+
+
+	@Override
+	public String toString() {
+		return "StaXParserBackend";
+	}
+
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.prometheuscode.xml.treemodel.CompositeTag;
+import org.prometheuscode.xml.treemodel.ICompositeTag;
+import org.prometheuscode.xml.treemodel.ISimpleTag;
+import org.prometheuscode.xml.treemodel.IXMLQName;
+import org.prometheuscode.xml.treemodel.IXMLTag;
+import org.prometheuscode.xml.treemodel.SimpleTag;
+import org.prometheuscode.xml.treemodel.XMLQName;
+
+/**
+ * Element writer creating tree model. Element is created when it is ended,
+ * then it is known if it is simple or composite tag.
+ * 
+ * @author marta
+ * 
+ */
+class TagBuildingElementWriter implements IXMLElementWriter {
+
+	private Map<String, IXMLTag> convertedObjects;
+
+	private ArrayDeque<ElementBuilder> builders = new ArrayDeque<ElementBuilder>();
+
+	private IXMLTag result;
+
+
+
+	TagBuildingElementWriter(Map<String, IXMLTag> convertedObjects) {
+		this.convertedObjects = convertedObjects;
+	}
+
+
+
+	/* Public Methods ***^_^*** */
+
+	@Override
+	public void startElement(IXMLQName name) {
+		if (name == null) {
+			throw new IllegalArgumentException("Name can't be null");
+		}
+		this.checkNotDone();
+		this.builders.push(new ElementBuilder(new XMLQName(name)));
+	}
+
+
+
+	@Override
+	public void startElement(String localPart) {
+		this.startElement(new XMLQName(localPart, "", ""));
+	}
+
+
+
+	@Override
+	public void writeNamespace(String prefix, String namespaceURI) {
+		this.getCurrent().namespaces.put(prefix, namespaceURI);
+	}
+
+
+
+	@Override
+	public void writeAttribute(IXMLQName name, String value) {
+		if (name == null) {
+			throw new IllegalArgumentException("Name can't be null");
+		}
+		this.getCurrent().attributes.put(new XMLQName(name), value);
+	}
+
+
+
+	@Override
+	public void writeAttribute(String localPart, String value) {
+		this.writeAttribute(new XMLQName(localPart, "", ""), value);
+	}
+
+
+
+	@Override
+	public void writeText(String text) {
+		ElementBuilder current = this.getCurrent();
+		current.text.append(text);
+	}
+
+
+
+	@Override
+	public void endElement() {
+		IXMLTag tag = this.getCurrent().build();
+		this.builders.pop();
+		this.addTag(tag);
+	}
+
+
+
+	@Override
+	public void writeChild(String methodName) {
+		IXMLTag child = (this.convertedObjects != null) ? this.convertedObjects.get(methodName) : null;
+		if (child == null) {
+			throw new XMLMarshallerException("There is no converted object of method: " + methodName);
+		}
+		this.addTag(child);
+	}
+
+
+
+	/**
+	 * Get written element.
+	 * 
+	 * @return
+	 * 
+	 * @throws XMLMarshallerException
+	 *             if element was not written or it was not ended.
+	 */
+	public IXMLTag getResult() {
+		if (this.result == null || !(this.builders.isEmpty())) {
+			throw new XMLMarshallerException("Streaming converter has to write one balanced element");
+		}
+		return this.result;
+	}
+
+
+
+	/* Private Methods ***^_^*** */
+
+	private ElementBuilder getCurrent() {
+		ElementBuilder current = this.builders.peek();
+		if (current == null) {
+			throw new XMLMarshallerException("There is no started element");
+		}
+		return current;
+	}
+
+
+
+	private void addTag(IXMLTag tag) {
+		if (this.builders.isEmpty()) {
+			this.checkNotDone();
+			this.result = tag;
+		} else {
+			this.builders.peek().children.add(tag);
+		}
+	}
+
+
+
+	private void checkNotDone() {
+		if (this.result != null) {
+			throw new XMLMarshallerException("Streaming converter has to write one element");
+		}
+	}
+
+
+
+	/* Private Classes ***^_^*** */
+
+	private static class ElementBuilder {
+
+		private IXMLQName name;
+
+		private Map<IXMLQName, String> attributes = new HashMap<IXMLQName, String>();
+
+		private Map<String, String> namespaces = new HashMap<String, String>();
+
+		private StringBuilder text = new StringBuilder();
+
+		private List<IXMLTag> children = new ArrayList<IXMLTag>();
+
+
+
+		ElementBuilder(IXMLQName name) {
+			this.name = name;
+		}
+
+
+
+		IXMLTag build() {
+			IXMLTag tag = null;
+			if (this.children.isEmpty()) {
+				ISimpleTag simpleTag = new SimpleTag(this.name);
+				simpleTag.setValue(this.text.toString());
+				tag = simpleTag;
+			} else {
+				ICompositeTag compositeTag = new CompositeTag(this.name);
+				for (IXMLTag child : this.children) {
+					compositeTag.addTag(child);
+				}
+				tag = compositeTag;
+			}
+
+			if (!(this.attributes.isEmpty())) {
+				tag.setAttributes(this.attributes);
+			}
+			if (!(this.namespaces.isEmpty())) {
+				tag.setNamespaces(this.namespaces);
+			}
+			return tag;
+		}
+
+	}
+
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import org.prometheuscode.xml.treemodel.ICompositeTag;
+import org.prometheuscode.xml.treemodel.ISimpleTag;
+import org.prometheuscode.xml.treemodel.IXMLQName;
+import org.prometheuscode.xml.treemodel.IXMLTag;
+
+/**
+ * Element reader walking tree model of composite tag in document order.
+ * 
+ * @author marta
+ * 
+ */
+class TagElementReader implements IXMLElementReader {
+
+	/* composite tags with not visited children */
+	private ArrayDeque<Level> levels = new ArrayDeque<Level>();
+
+	private IXMLTag current;
+
+	/* true if content of current tag was read */
+	private boolean currentDone = false;
+
+	private boolean finished = false;
+
+	/* names of current tag attributes, array is reused for every tag */
+	private IXMLQName[] attributeNames = new IXMLQName[8];
+
+	/* -1 if names of current tag attributes were not read */
+	private int attributeNamesNr = -1;
+
+
+
+	TagElementReader(ICompositeTag tag) {
+		if (tag == null) {
+			throw new IllegalArgumentException("Tag can't be null");
+		}
+		this.current = tag;
+	}
+
+
+
+	/* Public Methods ***^_^*** */
+
+	@Override
+	public IXMLQName getName() {
+		return this.current.getName();
+	}
+
+
+
+	@Override
+	public int getDepth() {
+		return this.levels.size();
+	}
+
+
+
+	@Override
+	public int getAttributeCount() {
+		return this.current.getAttributeCount();
+	}
+
+
+
+	@Override
+	public IXMLQName getAttributeName(int index) {
+		this.readAttributeNames();
+		if (index < 0 || index >= this.attributeNamesNr) {
+			throw new IndexOutOfBoundsException("Attribute index: " + index + ", attributes: " + this.attributeNamesNr);
+		}
+		return this.attributeNames[index];
+	}
+
+
+
+	@Override
+	public String getAttributeValue(int index) {
+		return this.current.getAttribute(this.getAttributeName(index));
+	}
+
+
+
+	@Override
+	public String getAttributeValue(String localPart) {
+		if (this.current.getAttributeCount() == 0) {
+			return null;
+		}
+
+		this.readAttributeNames();
+		for (int i = 0; i < this.attributeNamesNr; i++) {
+			IXMLQName name = this.attributeNames[i];
+			if (name.getLocalPart().equals(localPart) && (name.getNamespaceURI() == null || name.getNamespaceURI().equals(""))) {
+				return this.current.getAttribute(name);
+			}
+		}
+		return null;
+	}
+
+
+
+	@Override
+	public boolean nextElement() {
+		if (this.finished) {
+			return false;
+		}
+
+		if (!(this.current.isSimpleTag()) && !(this.currentDone)) {
+			this.levels.push(new Level((ICompositeTag) this.current));
+		}
+
+		while (!(this.levels.isEmpty())) {
+			Level level = this.levels.peek();
+			if (level.nextChild < level.tag.getChildrenCount()) {
+				this.setCurrent(level.tag.getChild(level.nextChild++));
+				return true;
+			}
+			this.levels.pop();
+		}
+
+		this.finished = true;
+		return false;
+	}
+
+
+
+	/**
+	 * 
+	 * @throws XMLUnmarshallerException
+	 *             if current element has children or its content was read.
+	 */
+	@Override
+	public String getElementText() {
+		if (this.currentDone) {
+			throw new XMLUnmarshallerException("Content of element: " + this.current.getName().getLocalPart() + " was already read");
+		}
+
+		String text = "";
+		if (this.current.isSimpleTag()) {
+			text = ((ISimpleTag) this.current).getValue();
+		} else if (((ICompositeTag) this.current).getChildrenCount() > 0) {
+			throw new XMLUnmarshallerException("Element: " + this.current.getName().getLocalPart() + " has children, it has no text");
+		}
+
+		this.currentDone = true;
+		return text;
+	}
+
+
+
+	@Override
+	public void skipElement() {
+		this.currentDone = true;
+	}
+
+
+
+	/* Private Methods ***^_^*** */
+
+	private void setCurrent(IXMLTag tag) {
+		this.current = tag;
+		this.currentDone = false;
+		this.attributeNamesNr = -1;
+	}
+
+
+
+	/*
+	 * Copy names of current tag attributes to reused array, names are
+	 * indexed in order of tag attributes map.
+	 */
+	private void readAttributeNames() {
+		if (this.attributeNamesNr != -1) {
+			return;
+		}
+
+		int attributesNr = this.current.getAttributeCount();
+		if (attributesNr > this.attributeNames.length) {
+			this.attributeNames = Arrays.copyOf(this.attributeNames, Math.max(this.attributeNames.length * 2, attributesNr));
+		}
+
+		int i = 0;
+		if (attributesNr > 0) {
+			for (IXMLQName name : this.current.getAttributes().keySet()) {
+				this.attributeNames[i++] = name;
+			}
+		}
+		this.attributeNamesNr = i;
+	}
+
+
+
+	/* Private Classes ***^_^*** */
+
+	private static class Level {
+
+		private ICompositeTag tag;
+
+		private int nextChild = 0;
+
+
+
+		Level(ICompositeTag tag) {
+			this.tag = tag;
+		}
+
+	}
+
+}
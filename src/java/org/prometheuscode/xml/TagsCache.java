@@ -15,11 +15,12 @@
  * along with this program. If not, see <http://www.gnu.org/licenses/>.
  * 
  */
+
 package org.prometheuscode.xml;
 
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 
 import org.prometheuscode.xml.treemodel.ICompositeTag;
 import org.prometheuscode.xml.treemodel.ISimpleTag;
@@ -27,42 +28,91 @@ import org.prometheuscode.xml.treemodel.IXMLQName;
 import org.prometheuscode.xml.treemodel.IXMLTag;
 
 /**
+ * <p>
  * Implements {@link ITagsCache}.
+ * </p>
+ * 
+ * <p>
+ * Tags are kept in array pools per id of tag name from symbol table. Getting
+ * tag and releasing all tags take constant time per tag name used. Number of
+ * retained tags is limited, when there is too many of them tags of the least
+ * used names are dropped on release. Tags are not pooled if max number of
+ * retained tags is 0.
+ * </p>
+ * 
+ * <p>
+ * It is not thread safe.
+ * </p>
  * 
  * @author marta
  * 
  */
 public class TagsCache implements ITagsCache {
 
-	private Map<IXMLQName, LinkedList<IXMLTag>> simpleTagsCache = new HashMap<IXMLQName, LinkedList<IXMLTag>>();
+	public final static int DEFAULT_MAX_RETAINED_TAGS = 4096;
+
+	private IXMLQNameSymbolTable symbolTable;
+
+	private int maxRetainedTags;
 
-	private Map<IXMLQName, Integer> simpleTagsFreeSlots = new HashMap<IXMLQName, Integer>();
+	private int retainedTagsNr = 0;
 
-	private Map<IXMLQName, LinkedList<IXMLTag>> compositeTagsCache = new HashMap<IXMLQName, LinkedList<IXMLTag>>();
+	/* pools per name id */
+	private TagsPool[] simpleTagsPools = new TagsPool[16];
 
-	private Map<IXMLQName, Integer> compositeTagsFreeSlots = new HashMap<IXMLQName, Integer>();
+	private TagsPool[] compositeTagsPools = new TagsPool[16];
+
+	/* pools used since last release */
+	private TagsPool[] usedPools = new TagsPool[16];
+
+	private int usedPoolsNr = 0;
 
 	private IXMLTreeModelFactory treeModelFactory = new XMLTreeModelFactory();
 
 
 
 	public TagsCache() {
+		this(new XMLQNameSymbolTable(), DEFAULT_MAX_RETAINED_TAGS);
+	}
+
+
+
+	/**
+	 * 
+	 * @param symbolTable
+	 *            symbol table of tag names
+	 * @param maxRetainedTags
+	 *            max number of tags kept after release
+	 * @throws IllegalArgumentException
+	 *             if symbol table is null or max number of tags is negative.
+	 */
+	public TagsCache(IXMLQNameSymbolTable symbolTable, int maxRetainedTags) {
+
+		if (symbolTable == null) {
+			throw new IllegalArgumentException("Symbol table can't be null");
+		}
+
+		if (maxRetainedTags < 0) {
+			throw new IllegalArgumentException("Max number of retained tags can't be negative");
+		}
+
+		this.symbolTable = symbolTable;
+		this.maxRetainedTags = maxRetainedTags;
 	}
 
 
 
 	@Override
 	public ISimpleTag getSimpleTag(IXMLQName simpleTagName) {
-		IXMLTag returnTag = this.getTag(simpleTagName, this.simpleTagsCache, this.simpleTagsFreeSlots, true);
-
-		return ((ISimpleTag) returnTag);
+		ISimpleTag returnTag = (ISimpleTag) this.getTag(simpleTagName, true);
+		return returnTag;
 	}
 
 
 
 	@Override
 	public ICompositeTag getCompositeTag(IXMLQName composisteTagName) {
-		ICompositeTag returnTag = (ICompositeTag) this.getTag(composisteTagName, this.compositeTagsCache, this.compositeTagsFreeSlots, false);
+		ICompositeTag returnTag = (ICompositeTag) this.getTag(composisteTagName, false);
 		returnTag.removeAllTags();
 		return returnTag;
 	}
@@ -70,73 +120,300 @@ public class TagsCache implements ITagsCache {
 
 
 	@Override
+	public void releaseAllTags() {
+		for (int i = 0; i < this.usedPoolsNr; i++) {
+			this.usedPools[i].usedNr = 0;
+			this.usedPools[i] = null;
+		}
+		this.usedPoolsNr = 0;
+
+		if (this.retainedTagsNr > this.maxRetainedTags) {
+			this.evictRarelyUsedPools();
+		}
+	}
+
+
+
+	@Override
+	@Deprecated
 	public void updateSimpleTagsFreeSlots() {
-		this.updateCacheFreeSlots(this.simpleTagsCache, this.simpleTagsFreeSlots);
+		this.releaseTags(true);
 	}
 
 
 
 	@Override
+	@Deprecated
 	public void updateCompositeTagsFreeSlots() {
-		this.updateCacheFreeSlots(this.compositeTagsCache, this.compositeTagsFreeSlots);
+		this.releaseTags(false);
+	}
+
+
+
+	/**
+	 * Get symbol table of tag names.
+	 * 
+	 * @return
+	 */
+	public IXMLQNameSymbolTable getSymbolTable() {
+		return this.symbolTable;
+	}
+
+
+
+	/**
+	 * Get max number of tags kept after release.
+	 * 
+	 * @return
+	 */
+	public int getMaxRetainedTags() {
+		return this.maxRetainedTags;
+	}
+
+
+
+	/**
+	 * Get number of tags kept by cache.
+	 * 
+	 * @return
+	 */
+	public int getRetainedTagsNr() {
+		return this.retainedTagsNr;
+	}
+
+
+
+	/*
+	 * Private Classes ***^_^***
+	 */
+
+
+
+	/*
+	 * Tags with the same name, the first usedNr tags are in use.
+	 */
+	private static class TagsPool {
+
+		private final int id;
+
+		private final boolean simple;
+
+		private IXMLTag[] tags = new IXMLTag[4];
+
+		private int size = 0;
+
+		private int usedNr = 0;
+
+		/* number of times tags were taken, it is halved on eviction */
+		private long useCount = 0;
+
+
+
+		TagsPool(int id, boolean simple) {
+			this.id = id;
+			this.simple = simple;
+		}
+
+	}
+
+
+
+	/*
+	 * Orders pools from the least used.
+	 */
+	private static class UseCountComparator implements Comparator<TagsPool> {
+
+		@Override
+		public int compare(TagsPool first, TagsPool second) {
+			return (first.useCount < second.useCount) ? -1 : ((first.useCount == second.useCount) ? 0 : 1);
+		}
 
 	}
 
 
 
+	/*
+	 * Private Methods ***^_^***
+	 */
+
+
+
 	/*
 	 * Get tag for given name
 	 */
-	private IXMLTag getTag(IXMLQName tagName, Map<IXMLQName, LinkedList<IXMLTag>> tagsCache, Map<IXMLQName, Integer> tagsFreeSlots, boolean useSimpleTag) {
-		IXMLTag returnTag = null;
-		int currentFreeSlots = 0;
-		if (tagsFreeSlots.containsKey(tagName)) {
-			currentFreeSlots = tagsFreeSlots.get(tagName);
+	private IXMLTag getTag(IXMLQName tagName, boolean useSimpleTag) {
+		if (this.maxRetainedTags == 0) {
+			return this.createTag(tagName, useSimpleTag);
+		}
+
+		TagsPool pool = this.getPool(tagName, useSimpleTag);
+		if (pool == null) {
+			/* name is not kept by full symbol table */
+			return this.createTag(tagName, useSimpleTag);
+		}
+		pool.useCount++;
+
+		if (pool.usedNr == 0) {
+			this.addUsedPool(pool);
 		}
 
-		if (currentFreeSlots != 0) {
-			LinkedList<IXMLTag> tagsWithTheSameName = tagsCache.get(tagName);
-			returnTag = tagsWithTheSameName.removeFirst();
-			tagsWithTheSameName.addLast(returnTag);
-			currentFreeSlots--;
-			tagsFreeSlots.put(tagName, currentFreeSlots);
+		IXMLTag returnTag = null;
+		if (pool.usedNr < pool.size) {
+			returnTag = pool.tags[pool.usedNr];
+			this.resetTag(returnTag);
 		} else {
-			LinkedList<IXMLTag> tagsWithTheSameName = tagsCache.get(tagName);
-			if (tagsWithTheSameName == null) {
-				tagsWithTheSameName = new LinkedList<IXMLTag>();
-				tagsCache.put(tagName, tagsWithTheSameName);
+			returnTag = this.createTag(tagName, useSimpleTag);
+
+			if (pool.size == pool.tags.length) {
+				pool.tags = Arrays.copyOf(pool.tags, pool.size * 2);
 			}
+			pool.tags[pool.size] = returnTag;
+			pool.size++;
+			this.retainedTagsNr++;
+		}
 
+		pool.usedNr++;
+		return returnTag;
+	}
+
+
+
+	/*
+	 * Get pool of tags with given name, null if name has no id.
+	 */
+	private TagsPool getPool(IXMLQName tagName, boolean useSimpleTag) {
+		int id = this.symbolTable.getId(tagName);
+		if (id < 0) {
+			id = this.symbolTable.getId(this.symbolTable.getName(tagName));
+		}
+		if (id < 0) {
+			return null;
+		}
+
+		TagsPool[] pools = useSimpleTag ? this.simpleTagsPools : this.compositeTagsPools;
+		if (id >= pools.length) {
+			pools = Arrays.copyOf(pools, Math.max(pools.length * 2, id + 1));
 			if (useSimpleTag) {
-				returnTag = this.treeModelFactory.createSimpleTag();
+				this.simpleTagsPools = pools;
 			} else {
-				returnTag = this.treeModelFactory.createCompositeTag();
+				this.compositeTagsPools = pools;
 			}
+		}
+
+		TagsPool pool = pools[id];
+		if (pool == null) {
+			pool = new TagsPool(id, useSimpleTag);
+			pools[id] = pool;
+		}
+
+		return pool;
+	}
+
+
+
+	private void addUsedPool(TagsPool pool) {
+		if (this.usedPoolsNr == this.usedPools.length) {
+			this.usedPools = Arrays.copyOf(this.usedPools, this.usedPoolsNr * 2);
+		}
+		this.usedPools[this.usedPoolsNr] = pool;
+		this.usedPoolsNr++;
+	}
 
-			IXMLQName name = returnTag.getName();
-			name.setLocalPart(tagName.getLocalPart());
-			name.setNamespaceURI(tagName.getNamespaceURI());
-			name.setPrefix(tagName.getPrefix());
 
-			tagsWithTheSameName.add(returnTag);
+
+	private IXMLTag createTag(IXMLQName tagName, boolean useSimpleTag) {
+		IXMLTag tag = null;
+		if (useSimpleTag) {
+			tag = this.treeModelFactory.createSimpleTag();
+		} else {
+			tag = this.treeModelFactory.createCompositeTag();
 		}
 
-		return returnTag;
+		IXMLQName name = tag.getName();
+		name.setLocalPart(tagName.getLocalPart());
+		name.setNamespaceURI(tagName.getNamespaceURI());
+		name.setPrefix(tagName.getPrefix());
+
+		return tag;
+	}
+
+
+
+	/*
+	 * Reused tag should not have anything from previous use.
+	 */
+	private void resetTag(IXMLTag tag) {
+		tag.setParent(null);
+
+		if (tag.getAttributeCount() != 0) {
+			tag.setAttributes(Collections.<IXMLQName, String> emptyMap());
+		}
+
+		if (tag.getNamespaceCount() != 0) {
+			tag.setNamespaces(Collections.<String, String> emptyMap());
+		}
 	}
 
 
 
 	/*
-	 * update cache free slots
+	 * Release used pools of one kind, pools of other kind stay used.
 	 */
-	private void updateCacheFreeSlots(Map<IXMLQName, LinkedList<IXMLTag>> tagsCache, Map<IXMLQName, Integer> freeSlots) {
-		for (IXMLQName tagName : tagsCache.keySet()) {
-			LinkedList<IXMLTag> tagList = tagsCache.get(tagName);
-			if (tagList != null) {
-				int size = tagList.size();
-				freeSlots.put(tagName, size);
+	private void releaseTags(boolean simple) {
+		int keptNr = 0;
+		for (int i = 0; i < this.usedPoolsNr; i++) {
+			TagsPool pool = this.usedPools[i];
+			if (pool.simple == simple) {
+				pool.usedNr = 0;
+			} else {
+				this.usedPools[keptNr] = pool;
+				keptNr++;
 			}
+		}
+		Arrays.fill(this.usedPools, keptNr, this.usedPoolsNr, null);
+		this.usedPoolsNr = keptNr;
+
+		if (keptNr == 0 && this.retainedTagsNr > this.maxRetainedTags) {
+			this.evictRarelyUsedPools();
+		}
+	}
 
+
+
+	/*
+	 * Drop pools of the least used names until there is not too many retained
+	 * tags. Pools are sorted by use count once. Use counts are halved, so
+	 * names not used lately are evicted.
+	 */
+	private void evictRarelyUsedPools() {
+		TagsPool[] retainedPools = new TagsPool[this.simpleTagsPools.length + this.compositeTagsPools.length];
+		int retainedPoolsNr = 0;
+		for (TagsPool[] pools : new TagsPool[][] { this.simpleTagsPools, this.compositeTagsPools }) {
+			for (TagsPool pool : pools) {
+				if (pool != null && pool.size != 0) {
+					retainedPools[retainedPoolsNr] = pool;
+					retainedPoolsNr++;
+				}
+			}
+		}
+
+		Arrays.sort(retainedPools, 0, retainedPoolsNr, new UseCountComparator());
+		for (int i = 0; i < retainedPoolsNr && this.retainedTagsNr > this.maxRetainedTags; i++) {
+			TagsPool pool = retainedPools[i];
+			this.retainedTagsNr -= pool.size;
+			if (pool.simple) {
+				this.simpleTagsPools[pool.id] = null;
+			} else {
+				this.compositeTagsPools[pool.id] = null;
+			}
+		}
+
+		for (TagsPool[] pools : new TagsPool[][] { this.simpleTagsPools, this.compositeTagsPools }) {
+			for (TagsPool pool : pools) {
+				if (pool != null) {
+					pool.useCount = pool.useCount / 2;
+				}
+			}
 		}
 	}
 
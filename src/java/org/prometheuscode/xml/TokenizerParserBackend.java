@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.io.InputStream;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * <p>
+ * Backend creating built-in tokenizer of UTF-8 documents. Tokenizer reads
+ * bytes straight from buffer, names of tags and attributes are decoded once
+ * and they are taken from symbol table once per namespace, text is decoded
+ * into reused char buffer.
+ * </p>
+ * 
+ * <p>
+ * Documents which can not be read by tokenizer are read by fallback backend:
+ * documents with DTD, in other encoding than UTF-8 or with other XML version
+ * than 1.0. Coalescing of {@link StaXConfiguration} is used by tokenizer,
+ * other properties are used only by fallback backend.
+ * </p>
+ * 
+ * <p>
+ * Tokenizer checks well-formedness less strictly than StaX parser: name
+ * characters are checked only for the first ASCII character, so some
+ * documents rejected by StaX parser are read. Documents which are not
+ * trusted to be well-formed should be read by {@link StaXParserBackend}.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+public class TokenizerParserBackend implements IXMLParserBackend {
+
+	private IXMLParserBackend fallback;
+
+
+
+	/**
+	 * Create backend with {@link StaXParserBackend} as fallback backend.
+	 */
+	public TokenizerParserBackend() {
+		this(new StaXParserBackend());
+	}
+
+
+
+	/**
+	 * 
+	 * @param fallback
+	 *            backend reading documents which can not be read by tokenizer
+	 * @throws IllegalArgumentException
+	 *             argument is null.
+	 */
+	public TokenizerParserBackend(IXMLParserBackend fallback) {
+
+		if (fallback == null) {
+			throw new IllegalArgumentException("Fallback backend can't be null");
+		}
+
+		this.fallback = fallback;
+	}
+
+
+
+	/* Public Methods ***^_^*** */
+
+	@Override
+	public XMLStreamReader createReader(InputStream in, StaXConfiguration configuration) throws XMLStreamException {
+		XMLTokenizer tokenizer = new XMLTokenizer(in, configuration.isCoalescing());
+		if (tokenizer.readProlog()) {
+			return tokenizer;
+		}
+		return this.fallback.createReader(tokenizer.getUnreadInput(), configuration);
+	}
+
+
+
+	public IXMLParserBackend getFallback() {
+		return this.fallback;
+	}
+
+
+
+	@Override
+	public String toString() {
+		return "TokenizerParserBackend[fallback=" + this.fallback + "]";
+	}
+
+}
@@ -0,0 +1,1085 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * <p>
+ * XML writer encoding UTF-8 straight into byte buffer. Buffer and encoded
+ * names are kept per thread and reused by next writers of the same thread.
+ * ASCII chars which do not need escaping are copied into buffer by table
+ * lookup.
+ * </p>
+ * 
+ * <p>
+ * Output is the same as output of woodstox writer: text and attribute values
+ * are escaped by the same rules, empty elements are closed by "/>" and
+ * repaired namespaces are declared with the same prefixes. Structure of
+ * document is not validated.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+final class UTF8XMLStreamWriter implements XMLStreamWriter {
+
+	private final static Charset UTF8 = Charset.forName("UTF-8");
+
+	private final static int BUFFER_SIZE = 8192;
+
+	/* buffer is flushed when there is no place for longest char entity */
+	private final static int BUFFER_LIMIT = BUFFER_SIZE - 16;
+
+	private final static int MAX_CACHED_NAMES = 4096;
+
+	/*
+	 * woodstox writes short strings at once and long ones by chunks, '>' is
+	 * escaped differently then
+	 */
+	private final static int SHORT_TEXT_LENGTH = 12;
+
+	private final static int TEXT_CHUNK_LENGTH = 512;
+
+	/* chars from it on are written as char references */
+	private final static int FIRST_REFERENCED_CHAR = 0xFFFE;
+
+	private final static String GENERATED_PREFIX = "wstxns";
+
+	/* marks ASCII chars which can not be written */
+	private final static byte[] INVALID_CHAR = new byte[0];
+
+	/* replacements of ASCII chars in text, null if char is copied */
+	private final static byte[][] TEXT_ESCAPES = new byte[128][];
+
+	/* replacements of ASCII chars in attribute values */
+	private final static byte[][] ATTRIBUTE_ESCAPES = new byte[128][];
+
+	private final static byte[] GT_ENTITY = ascii("&gt;");
+
+	private final static byte[] XMLNS = ascii(" xmlns");
+
+	private final static ThreadLocal<Buffers> THREAD_BUFFERS = new ThreadLocal<Buffers>();
+
+	static {
+		for (int c = 0; c < 0x20; c++) {
+			TEXT_ESCAPES[c] = INVALID_CHAR;
+			ATTRIBUTE_ESCAPES[c] = INVALID_CHAR;
+		}
+		TEXT_ESCAPES['\t'] = null;
+		TEXT_ESCAPES['\n'] = null;
+		TEXT_ESCAPES['\r'] = ascii("&#xd;");
+		TEXT_ESCAPES['<'] = ascii("&lt;");
+		TEXT_ESCAPES['&'] = ascii("&amp;");
+		TEXT_ESCAPES['>'] = GT_ENTITY;
+
+		ATTRIBUTE_ESCAPES['\t'] = ascii("&#x9;");
+		ATTRIBUTE_ESCAPES['\n'] = ascii("&#xa;");
+		ATTRIBUTE_ESCAPES['\r'] = ascii("&#xd;");
+		ATTRIBUTE_ESCAPES['<'] = ascii("&lt;");
+		ATTRIBUTE_ESCAPES['&'] = ascii("&amp;");
+		ATTRIBUTE_ESCAPES['"'] = ascii("&quot;");
+	}
+
+	private OutputStream out;
+
+	private boolean repairingNamespaces;
+
+	private Buffers buffers;
+
+	private byte[] buffer;
+
+	private int position = 0;
+
+	/* names of open elements, prefix is null if element has no prefix */
+	private byte[][] elementPrefixes = new byte[16][];
+
+	private byte[][] elementLocalParts = new byte[16][];
+
+	/* number of namespace bindings before element */
+	private int[] scopeStarts = new int[16];
+
+	private int depth = 0;
+
+	private String[] boundPrefixes = new String[16];
+
+	private String[] boundURIs = new String[16];
+
+	private int bindingsNr = 0;
+
+	private int generatedPrefixesNr = 0;
+
+	private boolean startTagOpen = false;
+
+	private boolean emptyElement = false;
+
+	/* high surrogate ending last written text */
+	private char pendingSurrogate = 0;
+
+
+
+	/**
+	 * 
+	 * @param out
+	 *            stream which is not closed by writer
+	 * @param repairingNamespaces
+	 *            should writer declare namespaces of written names?
+	 */
+	UTF8XMLStreamWriter(OutputStream out, boolean repairingNamespaces) {
+		this.out = out;
+		this.repairingNamespaces = repairingNamespaces;
+
+		Buffers buffers = THREAD_BUFFERS.get();
+		if (buffers == null || buffers.inUse) {
+			/* writer can be created by converter while other one writes */
+			boolean first = (buffers == null);
+			buffers = new Buffers();
+			if (first) {
+				THREAD_BUFFERS.set(buffers);
+			}
+		}
+		buffers.inUse = true;
+		this.buffers = buffers;
+		this.buffer = buffers.bytes;
+	}
+
+
+
+	/* Public Methods ***^_^*** */
+
+	@Override
+	public void writeStartDocument() throws XMLStreamException {
+		this.writeStartDocument("UTF-8", "1.0");
+	}
+
+
+
+	@Override
+	public void writeStartDocument(String version) throws XMLStreamException {
+		this.writeStartDocument("UTF-8", version);
+	}
+
+
+
+	@Override
+	public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+		this.writeRaw("<?xml version='");
+		this.writeRaw((version != null) ? version : "1.0");
+		if (encoding != null) {
+			this.writeRaw("' encoding='");
+			this.writeRaw(encoding);
+		}
+		this.writeRaw("'?>");
+	}
+
+
+
+	@Override
+	public void writeStartElement(String localName) throws XMLStreamException {
+		this.closeStartTag();
+		this.pushElement(null, this.encodedName(localName));
+		this.startTagOpen = true;
+	}
+
+
+
+	@Override
+	public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+		this.closeStartTag();
+		String uri = this.nullToEmpty(namespaceURI);
+
+		String prefix = null;
+		if (uri.equals(this.nullToEmpty(this.getBinding("")))) {
+			prefix = "";
+		} else {
+			prefix = this.findPrefix(uri);
+		}
+
+		boolean declare = false;
+		if (prefix == null) {
+			if (!(this.repairingNamespaces)) {
+				throw new XMLStreamException("Unbound namespace URI '" + uri + "'");
+			}
+			prefix = this.generatePrefix();
+			declare = true;
+		}
+
+		this.startElement(prefix, localName, uri, declare);
+	}
+
+
+
+	@Override
+	public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+		this.closeStartTag();
+		String actualPrefix = this.nullToEmpty(prefix);
+		String uri = this.nullToEmpty(namespaceURI);
+
+		boolean declare = false;
+		if (this.repairingNamespaces) {
+			if (uri.length() == 0) {
+				/* element without namespace can not have prefix */
+				actualPrefix = "";
+				declare = (this.nullToEmpty(this.getBinding("")).length() != 0);
+			} else {
+				declare = !(uri.equals(this.getBinding(actualPrefix)));
+			}
+		}
+
+		this.startElement(actualPrefix, localName, uri, declare);
+	}
+
+
+
+	@Override
+	public void writeEmptyElement(String localName) throws XMLStreamException {
+		this.writeStartElement(localName);
+		this.emptyElement = true;
+	}
+
+
+
+	@Override
+	public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+		this.writeStartElement(namespaceURI, localName);
+		this.emptyElement = true;
+	}
+
+
+
+	@Override
+	public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+		this.writeStartElement(prefix, localName, namespaceURI);
+		this.emptyElement = true;
+	}
+
+
+
+	@Override
+	public void writeEndElement() throws XMLStreamException {
+		this.checkPendingSurrogate();
+		if (this.startTagOpen && !(this.emptyElement)) {
+			this.startTagOpen = false;
+			this.writeByte('/');
+			this.writeByte('>');
+			this.popElement();
+			return;
+		}
+
+		this.closeStartTag();
+		if (this.depth == 0) {
+			throw new XMLStreamException("No open element to end");
+		}
+
+		int element = this.depth - 1;
+		this.writeByte('<');
+		this.writeByte('/');
+		this.writeName(this.elementPrefixes[element], this.elementLocalParts[element]);
+		this.writeByte('>');
+		this.popElement();
+	}
+
+
+
+	@Override
+	public void writeEndDocument() throws XMLStreamException {
+		while (this.depth > 0 || this.startTagOpen) {
+			this.writeEndElement();
+		}
+	}
+
+
+
+	@Override
+	public void close() throws XMLStreamException {
+		if (this.buffers == null) {
+			return;
+		}
+
+		try {
+			this.writeEndDocument();
+			this.flushBuffer();
+		} finally {
+			this.buffers.inUse = false;
+			this.buffers = null;
+		}
+	}
+
+
+
+	@Override
+	public void flush() throws XMLStreamException {
+		this.flushBuffer();
+		try {
+			this.out.flush();
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+
+
+	@Override
+	public void writeAttribute(String localName, String value) throws XMLStreamException {
+		this.checkStartTagOpen();
+		this.writeAttributeValue(null, this.encodedName(localName), value);
+	}
+
+
+
+	@Override
+	public void writeAttribute(String prefix, String namespaceURI, String localName, String value) throws XMLStreamException {
+		this.checkStartTagOpen();
+		String actualPrefix = this.nullToEmpty(prefix);
+		String uri = this.nullToEmpty(namespaceURI);
+
+		if (this.repairingNamespaces) {
+			if (uri.length() == 0) {
+				actualPrefix = "";
+			} else if (actualPrefix.length() == 0 || !(uri.equals(this.getBinding(actualPrefix)))) {
+				actualPrefix = this.repairAttributePrefix(actualPrefix, uri);
+			}
+		}
+
+		byte[] prefixBytes = (actualPrefix.length() != 0) ? this.encodedName(actualPrefix) : null;
+		this.writeAttributeValue(prefixBytes, this.encodedName(localName), value);
+	}
+
+
+
+	@Override
+	public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+		String uri = this.nullToEmpty(namespaceURI);
+		String prefix = "";
+		if (uri.length() != 0) {
+			prefix = this.findPrefix(uri);
+			if (prefix == null) {
+				if (!(this.repairingNamespaces)) {
+					throw new XMLStreamException("Unbound namespace URI '" + uri + "'");
+				}
+				prefix = "";
+			}
+		}
+		this.writeAttribute(prefix, uri, localName, value);
+	}
+
+
+
+	@Override
+	public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+		if (prefix == null || prefix.length() == 0) {
+			this.writeDefaultNamespace(namespaceURI);
+			return;
+		}
+
+		this.checkStartTagOpen();
+		String uri = this.nullToEmpty(namespaceURI);
+		if (this.repairingNamespaces && this.getBinding(prefix) != null) {
+			/* bound prefixes are not declared again */
+			return;
+		}
+
+		this.declareNamespace(prefix, uri);
+	}
+
+
+
+	@Override
+	public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+		this.checkStartTagOpen();
+		if (this.repairingNamespaces) {
+			/* default namespace is declared by elements which need it */
+			return;
+		}
+
+		this.declareNamespace("", this.nullToEmpty(namespaceURI));
+	}
+
+
+
+	@Override
+	public void writeCharacters(String text) throws XMLStreamException {
+		this.closeStartTag();
+		int chunkLength = (text.length() < SHORT_TEXT_LENGTH) ? 0 : TEXT_CHUNK_LENGTH;
+		this.writeEscapedText(text, chunkLength);
+	}
+
+
+
+	@Override
+	public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+		this.closeStartTag();
+		this.writeEscapedText(new String(text, start, len), len);
+	}
+
+
+
+	@Override
+	public void writeComment(String data) throws XMLStreamException {
+		this.closeStartTag();
+		this.writeRaw("<!--");
+		this.writeRaw(data);
+		this.writeRaw("-->");
+	}
+
+
+
+	@Override
+	public void writeProcessingInstruction(String target) throws XMLStreamException {
+		this.writeProcessingInstruction(target, null);
+	}
+
+
+
+	@Override
+	public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+		this.closeStartTag();
+		this.writeRaw("<?");
+		this.writeRaw(target);
+		if (data != null) {
+			this.writeByte(' ');
+			this.writeRaw(data);
+		}
+		this.writeRaw("?>");
+	}
+
+
+
+	@Override
+	public void writeCData(String data) throws XMLStreamException {
+		this.closeStartTag();
+		this.writeRaw("<![CDATA[");
+		this.writeRaw(data);
+		this.writeRaw("]]>");
+	}
+
+
+
+	@Override
+	public void writeDTD(String dtd) throws XMLStreamException {
+		this.writeRaw(dtd);
+	}
+
+
+
+	@Override
+	public void writeEntityRef(String name) throws XMLStreamException {
+		this.closeStartTag();
+		this.writeByte('&');
+		this.writeRaw(name);
+		this.writeByte(';');
+	}
+
+
+
+	@Override
+	public String getPrefix(String uri) throws XMLStreamException {
+		return this.findPrefix(this.nullToEmpty(uri));
+	}
+
+
+
+	/**
+	 * Bind prefix in scope of current element without declaring it.
+	 * Repairing writer declares prefixes itself, so it is not bound then.
+	 */
+	@Override
+	public void setPrefix(String prefix, String uri) throws XMLStreamException {
+		if (!(this.repairingNamespaces)) {
+			this.addBinding(this.nullToEmpty(prefix), this.nullToEmpty(uri));
+		}
+	}
+
+
+
+	@Override
+	public void setDefaultNamespace(String uri) throws XMLStreamException {
+		this.setPrefix("", uri);
+	}
+
+
+
+	/**
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             always, root namespace context can not be set.
+	 */
+	@Override
+	public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+		throw new UnsupportedOperationException("Namespace context can't be set");
+	}
+
+
+
+	@Override
+	public NamespaceContext getNamespaceContext() {
+		return new BindingsContext();
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if property is not supported.
+	 */
+	@Override
+	public Object getProperty(String name) {
+		if (XMLOutputFactory.IS_REPAIRING_NAMESPACES.equals(name)) {
+			return Boolean.valueOf(this.repairingNamespaces);
+		}
+		throw new IllegalArgumentException("Property: " + name + " is not supported");
+	}
+
+
+
+	/* Private Methods ***^_^*** */
+
+	private static byte[] ascii(String text) {
+		return text.getBytes(UTF8);
+	}
+
+
+
+	private String nullToEmpty(String text) {
+		return (text != null) ? text : "";
+	}
+
+
+
+	/*
+	 * Get encoded name from cache of thread. Cache is cleared when it is
+	 * full, names of maps keys or generated prefixes can fill it.
+	 */
+	private byte[] encodedName(String name) {
+		Map<String, byte[]> names = this.buffers.names;
+		byte[] bytes = names.get(name);
+		if (bytes == null) {
+			bytes = name.getBytes(UTF8);
+			if (names.size() >= MAX_CACHED_NAMES) {
+				names.clear();
+			}
+			names.put(name, bytes);
+		}
+		return bytes;
+	}
+
+
+
+	private void startElement(String prefix, String localName, String uri, boolean declare) throws XMLStreamException {
+		byte[] prefixBytes = (prefix.length() != 0) ? this.encodedName(prefix) : null;
+		this.pushElement(prefixBytes, this.encodedName(localName));
+		this.startTagOpen = true;
+		if (declare) {
+			this.declareNamespace(prefix, uri);
+		}
+	}
+
+
+
+	private void pushElement(byte[] prefix, byte[] localPart) throws XMLStreamException {
+		if (this.depth == this.elementLocalParts.length) {
+			int length = this.depth * 2;
+			byte[][] prefixes = new byte[length][];
+			byte[][] localParts = new byte[length][];
+			int[] scopeStarts = new int[length];
+			System.arraycopy(this.elementPrefixes, 0, prefixes, 0, this.depth);
+			System.arraycopy(this.elementLocalParts, 0, localParts, 0, this.depth);
+			System.arraycopy(this.scopeStarts, 0, scopeStarts, 0, this.depth);
+			this.elementPrefixes = prefixes;
+			this.elementLocalParts = localParts;
+			this.scopeStarts = scopeStarts;
+		}
+
+		this.elementPrefixes[this.depth] = prefix;
+		this.elementLocalParts[this.depth] = localPart;
+		this.scopeStarts[this.depth] = this.bindingsNr;
+		this.depth++;
+
+		this.writeByte('<');
+		this.writeName(prefix, localPart);
+	}
+
+
+
+	private void popElement() {
+		this.depth--;
+		this.bindingsNr = this.scopeStarts[this.depth];
+	}
+
+
+
+	/*
+	 * Write '>' ending start tag, or "/>" if empty element was started.
+	 */
+	private void closeStartTag() throws XMLStreamException {
+		if (!(this.startTagOpen)) {
+			return;
+		}
+
+		this.startTagOpen = false;
+		if (this.emptyElement) {
+			this.emptyElement = false;
+			this.writeByte('/');
+			this.writeByte('>');
+			this.popElement();
+		} else {
+			this.writeByte('>');
+		}
+	}
+
+
+
+	private void checkStartTagOpen() throws XMLStreamException {
+		if (!(this.startTagOpen)) {
+			throw new XMLStreamException("Trying to write an attribute or namespace when there is no open start element");
+		}
+	}
+
+
+
+	/*
+	 * Get URI bound to prefix, null if prefix is not bound.
+	 */
+	private String getBinding(String prefix) {
+		for (int i = this.bindingsNr - 1; i >= 0; i--) {
+			if (this.boundPrefixes[i].equals(prefix)) {
+				return this.boundURIs[i];
+			}
+		}
+
+		if (prefix.equals(XMLConstants.XML_NS_PREFIX)) {
+			return XMLConstants.XML_NS_URI;
+		}
+		if (prefix.equals(XMLConstants.XMLNS_ATTRIBUTE)) {
+			return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+		}
+		return null;
+	}
+
+
+
+	/*
+	 * Find not default prefix bound to URI, null if there is no such prefix.
+	 */
+	private String findPrefix(String uri) {
+		for (int i = this.bindingsNr - 1; i >= 0; i--) {
+			String prefix = this.boundPrefixes[i];
+			if (prefix.length() != 0 && this.boundURIs[i].equals(uri) && uri.equals(this.getBinding(prefix))) {
+				return prefix;
+			}
+		}
+
+		if (uri.equals(XMLConstants.XML_NS_URI)) {
+			return XMLConstants.XML_NS_PREFIX;
+		}
+		return null;
+	}
+
+
+
+	private String generatePrefix() {
+		String prefix = null;
+		do {
+			prefix = GENERATED_PREFIX + (++this.generatedPrefixesNr);
+		} while (this.getBinding(prefix) != null);
+		return prefix;
+	}
+
+
+
+	/*
+	 * Prefix of attribute in namespace is used if it is not bound, otherwise
+	 * other prefix bound to namespace is used or a new one is generated.
+	 */
+	private String repairAttributePrefix(String prefix, String uri) throws XMLStreamException {
+		if (prefix.length() != 0 && this.getBinding(prefix) == null) {
+			this.declareNamespace(prefix, uri);
+			return prefix;
+		}
+
+		String boundPrefix = this.findPrefix(uri);
+		if (boundPrefix != null) {
+			return boundPrefix;
+		}
+
+		boundPrefix = this.generatePrefix();
+		this.declareNamespace(boundPrefix, uri);
+		return boundPrefix;
+	}
+
+
+
+	private void addBinding(String prefix, String uri) {
+		if (this.bindingsNr == this.boundPrefixes.length) {
+			int length = this.bindingsNr * 2;
+			String[] prefixes = new String[length];
+			String[] uris = new String[length];
+			System.arraycopy(this.boundPrefixes, 0, prefixes, 0, this.bindingsNr);
+			System.arraycopy(this.boundURIs, 0, uris, 0, this.bindingsNr);
+			this.boundPrefixes = prefixes;
+			this.boundURIs = uris;
+		}
+
+		this.boundPrefixes[this.bindingsNr] = prefix;
+		this.boundURIs[this.bindingsNr] = uri;
+		this.bindingsNr++;
+	}
+
+
+
+	private void declareNamespace(String prefix, String uri) throws XMLStreamException {
+		this.addBinding(prefix, uri);
+
+		this.writeBytes(XMLNS);
+		if (prefix.length() != 0) {
+			this.writeByte(':');
+			this.writeBytes(this.encodedName(prefix));
+		}
+		this.writeByte('=');
+		this.writeByte('"');
+		this.writeEscapedAttribute(uri);
+		this.writeByte('"');
+	}
+
+
+
+	private void writeAttributeValue(byte[] prefix, byte[] localPart, String value) throws XMLStreamException {
+		this.writeByte(' ');
+		this.writeName(prefix, localPart);
+		this.writeByte('=');
+		this.writeByte('"');
+		this.writeEscapedAttribute(value);
+		this.writeByte('"');
+	}
+
+
+
+	private void writeName(byte[] prefix, byte[] localPart) throws XMLStreamException {
+		if (prefix != null) {
+			this.writeBytes(prefix);
+			this.writeByte(':');
+		}
+		this.writeBytes(localPart);
+	}
+
+
+
+	/*
+	 * Write escaped text. '>' is escaped when it follows ']' or starts text.
+	 * Text written by chunks is divided into segments, which start every
+	 * chunk and after every escaped char, '>' starting segment is escaped.
+	 */
+	private void writeEscapedText(String text, int chunkLength) throws XMLStreamException {
+		int length = text.length();
+		int i = this.completeSurrogate(text, 0);
+
+		int segmentStart = 0;
+		int nextChunk = (chunkLength > 0) ? chunkLength : length;
+		byte[] buffer = this.buffer;
+		for (; i < length; i++) {
+			if (i == nextChunk) {
+				segmentStart = i;
+				nextChunk += chunkLength;
+			}
+			if (this.position > BUFFER_LIMIT) {
+				this.flushBuffer();
+			}
+
+			char c = text.charAt(i);
+			if (c < 0x80) {
+				byte[] escape = TEXT_ESCAPES[c];
+				if (escape == null) {
+					buffer[this.position++] = (byte) c;
+					continue;
+				}
+				if (escape == INVALID_CHAR) {
+					throw this.invalidChar(c);
+				}
+				if (escape == GT_ENTITY && i != segmentStart && text.charAt(i - 1) != ']') {
+					buffer[this.position++] = (byte) c;
+					continue;
+				}
+				this.writeBytes(escape);
+			} else if (Character.isHighSurrogate(c)) {
+				if (i + 1 == length) {
+					/* low surrogate starts next text */
+					this.pendingSurrogate = c;
+				} else {
+					this.writeSurrogatePair(c, text.charAt(++i));
+				}
+				continue;
+			} else if (!(this.writeNonASCII(c))) {
+				continue;
+			}
+
+			if (chunkLength > 0) {
+				segmentStart = i + 1;
+			}
+		}
+	}
+
+
+
+	private void writeEscapedAttribute(String value) throws XMLStreamException {
+		int length = value.length();
+		int i = this.completeSurrogate(value, 0);
+
+		byte[] buffer = this.buffer;
+		for (; i < length; i++) {
+			if (this.position > BUFFER_LIMIT) {
+				this.flushBuffer();
+			}
+
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				byte[] escape = ATTRIBUTE_ESCAPES[c];
+				if (escape == null) {
+					buffer[this.position++] = (byte) c;
+				} else if (escape == INVALID_CHAR) {
+					throw this.invalidChar(c);
+				} else {
+					this.writeBytes(escape);
+				}
+			} else if (Character.isHighSurrogate(c)) {
+				if (i + 1 == length) {
+					this.pendingSurrogate = c;
+				} else {
+					this.writeSurrogatePair(c, value.charAt(++i));
+				}
+			} else {
+				this.writeNonASCII(c);
+			}
+		}
+	}
+
+
+
+	/*
+	 * Write char of at least 0x80 which is not high surrogate. Returns true if
+	 * char was written as char reference.
+	 */
+	private boolean writeNonASCII(char c) throws XMLStreamException {
+		byte[] buffer = this.buffer;
+		if (c < 0x800) {
+			buffer[this.position++] = (byte) (0xC0 | (c >> 6));
+			buffer[this.position++] = (byte) (0x80 | (c & 0x3F));
+			return false;
+		}
+
+		if (Character.isLowSurrogate(c)) {
+			throw new XMLStreamException("Broken surrogate pair: second char 0x" + Integer.toHexString(c) + " without first one");
+		}
+
+		if (c >= FIRST_REFERENCED_CHAR) {
+			this.writeCharReference(c);
+			return true;
+		}
+
+		buffer[this.position++] = (byte) (0xE0 | (c >> 12));
+		buffer[this.position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+		buffer[this.position++] = (byte) (0x80 | (c & 0x3F));
+		return false;
+	}
+
+
+
+	private void writeSurrogatePair(char high, char low) throws XMLStreamException {
+		if (!(Character.isLowSurrogate(low))) {
+			throw new XMLStreamException("Broken surrogate pair: first char 0x" + Integer.toHexString(high) + ", second 0x" + Integer.toHexString(low));
+		}
+
+		int codePoint = Character.toCodePoint(high, low);
+		byte[] buffer = this.buffer;
+		buffer[this.position++] = (byte) (0xF0 | (codePoint >> 18));
+		buffer[this.position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+		buffer[this.position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+		buffer[this.position++] = (byte) (0x80 | (codePoint & 0x3F));
+	}
+
+
+
+	/*
+	 * Write pair of surrogate ending last text and surrogate starting given
+	 * one. Returns position of first not written char.
+	 */
+	private int completeSurrogate(String text, int i) throws XMLStreamException {
+		if (this.pendingSurrogate == 0) {
+			return i;
+		}
+
+		char high = this.pendingSurrogate;
+		this.pendingSurrogate = 0;
+		if (i == text.length()) {
+			this.pendingSurrogate = high;
+			return i;
+		}
+
+		if (this.position > BUFFER_LIMIT) {
+			this.flushBuffer();
+		}
+		this.writeSurrogatePair(high, text.charAt(i));
+		return i + 1;
+	}
+
+
+
+	private void checkPendingSurrogate() throws XMLStreamException {
+		if (this.pendingSurrogate != 0) {
+			throw new XMLStreamException("Broken surrogate pair: first char 0x" + Integer.toHexString(this.pendingSurrogate) + " without second one");
+		}
+	}
+
+
+
+	private void writeCharReference(int c) throws XMLStreamException {
+		this.writeRaw("&#x" + Integer.toHexString(c) + ";");
+	}
+
+
+
+	private XMLStreamException invalidChar(char c) {
+		return new XMLStreamException("Invalid white space character (0x" + Integer.toHexString(c) + ") in text to output");
+	}
+
+
+
+	private void writeRaw(String text) throws XMLStreamException {
+		this.writeBytes(text.getBytes(UTF8));
+	}
+
+
+
+	private void writeByte(char c) throws XMLStreamException {
+		if (this.position == this.buffer.length) {
+			this.flushBuffer();
+		}
+		this.buffer[this.position++] = (byte) c;
+	}
+
+
+
+	private void writeBytes(byte[] bytes) throws XMLStreamException {
+		if (bytes.length > this.buffer.length - this.position) {
+			this.flushBuffer();
+			if (bytes.length > this.buffer.length) {
+				try {
+					this.out.write(bytes);
+				} catch (IOException e) {
+					throw new XMLStreamException(e);
+				}
+				return;
+			}
+		}
+
+		System.arraycopy(bytes, 0, this.buffer, this.position, bytes.length);
+		this.position += bytes.length;
+	}
+
+
+
+	private void flushBuffer() throws XMLStreamException {
+		if (this.position == 0) {
+			return;
+		}
+
+		try {
+			this.out.write(this.buffer, 0, this.position);
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+		this.position = 0;
+	}
+
+
+
+	/* Private Classes ***^_^*** */
+
+	/*
+	 * Buffer and encoded names reused by writers of one thread.
+	 */
+	private static class Buffers {
+
+		private byte[] bytes = new byte[BUFFER_SIZE];
+
+		private Map<String, byte[]> names = new HashMap<String, byte[]>();
+
+		private boolean inUse = false;
+
+	}
+
+
+
+	/*
+	 * Namespace context of current element.
+	 */
+	private class BindingsContext implements NamespaceContext {
+
+		@Override
+		public String getNamespaceURI(String prefix) {
+			if (prefix == null) {
+				throw new IllegalArgumentException("Prefix can't be null");
+			}
+
+			String uri = UTF8XMLStreamWriter.this.getBinding(prefix);
+			return (uri != null) ? uri : XMLConstants.NULL_NS_URI;
+		}
+
+
+
+		@Override
+		public String getPrefix(String namespaceURI) {
+			if (namespaceURI == null) {
+				throw new IllegalArgumentException("Namespace URI can't be null");
+			}
+
+			if (namespaceURI.equals(UTF8XMLStreamWriter.this.nullToEmpty(UTF8XMLStreamWriter.this.getBinding("")))) {
+				return "";
+			}
+			return UTF8XMLStreamWriter.this.findPrefix(namespaceURI);
+		}
+
+
+
+		@Override
+		public Iterator<String> getPrefixes(String namespaceURI) {
+			List<String> prefixes = new ArrayList<String>();
+			String prefix = this.getPrefix(namespaceURI);
+			if (prefix != null) {
+				prefixes.add(prefix);
+			}
+			return prefixes.iterator();
+		}
+
+	}
+
+}
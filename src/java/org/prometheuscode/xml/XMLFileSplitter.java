@@ -0,0 +1,532 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+
+/**
+ * <p>
+ * Splits XML file into chunks which can be parsed independently.
+ * </p>
+ * 
+ * <p>
+ * XML file is split by bytes ranges, then every range is moved forward to the
+ * start tag of next record. Record is a child of root element with given
+ * name. Every chunk gets XML declaration and root start tag of the file, and
+ * root end tag if it is not the last one. So every chunk is well formed XML
+ * file with root and some of its records.
+ * </p>
+ * 
+ * <p>
+ * Records are found by one scan of file bytes which follows depth of tags.
+ * Tags with record name which are not children of root element stay inside
+ * their records, start tags in comments and CDATA sections are skipped. Every
+ * chunk is given to handler as soon as its end is found, so it can be parsed
+ * while the rest of file is scanned.
+ * </p>
+ * 
+ * <p>
+ * Limitations:
+ * <ul>
+ * <li>file must use ASCII compatible encoding, for ex. UTF-8,</li>
+ * <li>DTD is not copied to chunks, so entities declared in DTD can not be
+ * used.</li>
+ * </ul>
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+class XMLFileSplitter {
+
+	private final static Charset ASCII = Charset.forName("US-ASCII");
+
+	private File file;
+
+	private byte[] recordStartTag;
+
+
+
+	/**
+	 * 
+	 * @param file
+	 *            XML file to split
+	 * @param recordQualifiedName
+	 *            record tag name as it is written in file (with prefix if
+	 *            there is any)
+	 */
+	XMLFileSplitter(File file, String recordQualifiedName) {
+		this.file = file;
+		this.recordStartTag = ("<" + recordQualifiedName).getBytes(ASCII);
+	}
+
+
+
+	/**
+	 * Split file into chunks. There can be less chunks than requested if file
+	 * has not enough records.
+	 * 
+	 * @param chunksNr
+	 * @param handler
+	 *            handler getting chunks in file order
+	 * @throws IOException
+	 */
+	void split(int chunksNr, IChunkHandler handler) throws IOException {
+
+		RandomAccessFile input = new RandomAccessFile(this.file, "r");
+		try {
+			long fileLength = input.length();
+
+			ByteArrayOutputStream prolog = new ByteArrayOutputStream();
+			ByteArrayOutputStream rootStartTag = new ByteArrayOutputStream();
+			long rootStartTagEnd = this.readProlog(input, prolog, rootStartTag);
+
+			byte[] rootStartTagBytes = rootStartTag.toByteArray();
+			String rootName = this.getTagName(rootStartTagBytes);
+
+			byte[] prefix = concat(prolog.toByteArray(), rootStartTagBytes);
+			byte[] suffix = ("</" + rootName + ">").getBytes(ASCII);
+
+			/*
+			 * chunks starts, moved forward to the start of the record
+			 */
+			ChunksCreator creator = new ChunksCreator(prefix, suffix, fileLength, handler);
+			this.findRecordStarts(input, rootStartTagEnd, fileLength, chunksNr, creator);
+		} finally {
+			input.close();
+		}
+	}
+
+
+
+	/**
+	 * Handler of chunks found by splitter.
+	 * 
+	 * @author marta
+	 * 
+	 */
+	interface IChunkHandler {
+
+		/**
+		 * Called by splitting thread for every chunk, in file order.
+		 * 
+		 * @param chunk
+		 */
+		void chunkFound(FileChunk chunk);
+
+	}
+
+
+
+	/**
+	 * Part of file which is well formed XML file.
+	 * 
+	 * @author marta
+	 * 
+	 */
+	static class FileChunk {
+
+		private File file;
+
+		private byte[] prefix;
+
+		private long start;
+
+		private long end;
+
+		private byte[] suffix;
+
+
+
+		FileChunk(File file, byte[] prefix, long start, long end, byte[] suffix) {
+			this.file = file;
+			this.prefix = prefix;
+			this.start = start;
+			this.end = end;
+			this.suffix = suffix;
+		}
+
+
+
+		long getStart() {
+			return this.start;
+		}
+
+
+
+		long getEnd() {
+			return this.end;
+		}
+
+
+
+		/**
+		 * Open stream of this chunk. User should close it.
+		 * 
+		 * @param strategy
+		 *            strategy of reading chunk bytes
+		 * @return
+		 * @throws IOException
+		 */
+		InputStream openStream(FileReadStrategy strategy) throws IOException {
+			InputStream range = FileInputStreamFactory.open(this.file.toPath(), strategy, this.start, this.end);
+			InputStream withPrefix = new SequenceInputStream(new ByteArrayInputStream(this.prefix), range);
+			return new SequenceInputStream(withPrefix, new ByteArrayInputStream(this.suffix));
+		}
+
+	}
+
+
+
+	/*
+	 * Reads XML declaration, skips comments, processing instructions and DTD
+	 * and reads root start tag.
+	 * 
+	 * @return position just after root start tag
+	 */
+	private long readProlog(RandomAccessFile input, ByteArrayOutputStream xmlDeclaration, ByteArrayOutputStream rootStartTag) throws IOException {
+		input.seek(0);
+		PositionedReader reader = new PositionedReader(input);
+
+		int first = reader.read();
+		int second = reader.read();
+		if ((first == 0xfe && second == 0xff) || (first == 0xff && second == 0xfe) || first == 0 || second == 0) {
+			throw new IllegalArgumentException("Only ASCII compatible encoding of XML file can be split");
+		}
+		reader.reset(0);
+
+		int current = 0;
+		while ((current = reader.read()) != -1) {
+			if (current != '<') {
+				continue;
+			}
+
+			long tagStart = reader.getPosition() - 1;
+			int next = reader.read();
+			if (next == '?') {
+				this.skipTo(reader, "?>");
+				if (tagStart == 0 || (tagStart == 3 && first == 0xef)) {
+					/* XML declaration, keep it for encoding */
+					this.copy(input, 0, reader.getPosition(), xmlDeclaration);
+					input.seek(reader.getPosition());
+					reader.reset(reader.getPosition());
+				}
+			} else if (next == '!') {
+				if (reader.read() == '-' && reader.read() == '-') {
+					this.skipTo(reader, "-->");
+				} else {
+					this.skipDoctype(reader);
+				}
+			} else {
+				this.skipTag(reader, next);
+				long tagEnd = reader.getPosition();
+				this.copy(input, tagStart, tagEnd, rootStartTag);
+				return tagEnd;
+			}
+		}
+
+		throw new IllegalArgumentException("There is no root element in file: " + this.file);
+	}
+
+
+
+	/*
+	 * Find start of the first record at or after every range start. File is
+	 * read once from root start tag end, depth of tags is followed, so only
+	 * children of root element are records.
+	 * 
+	 * Chunk is created when start of next one is found. Start of range
+	 * without record is start of next record or file end.
+	 */
+	private void findRecordStarts(RandomAccessFile input, long from, long to, int chunksNr, ChunksCreator creator) throws IOException {
+		long chunkStart = from;
+
+		input.seek(from);
+		PositionedReader reader = new PositionedReader(input);
+		reader.reset(from);
+
+		byte[] pattern = this.recordStartTag;
+		int depth = 1;
+		int nextChunk = 1;
+		int current = 0;
+		while (nextChunk < chunksNr && depth > 0 && (current = reader.read()) != -1) {
+			if (current != '<') {
+				continue;
+			}
+
+			long tagStart = reader.getPosition() - 1;
+			current = reader.read();
+			if (current == '/') {
+				this.skipTag(reader, 0);
+				depth--;
+			} else if (current == '?') {
+				this.skipTo(reader, "?>");
+			} else if (current == '!') {
+				current = reader.read();
+				if (current == '-') {
+					this.skipTo(reader, "-->");
+				} else if (current == '[') {
+					this.skipTo(reader, "]]>");
+				} else {
+					this.skipTag(reader, current);
+				}
+			} else {
+				/* compare tag name with record name, '<' is matched already */
+				int matched = 1;
+				while (current != -1 && current != '>' && current != '/' && !(Character.isWhitespace(current))) {
+					matched = (matched < pattern.length && current == pattern[matched]) ? matched + 1 : pattern.length + 1;
+					current = reader.read();
+				}
+
+				if (depth == 1 && matched == pattern.length) {
+					while (nextChunk < chunksNr && tagStart >= (to / chunksNr) * nextChunk) {
+						creator.create(chunkStart, tagStart);
+						chunkStart = tagStart;
+						nextChunk++;
+					}
+				}
+
+				boolean empty = (current == '>') ? false : this.skipTag(reader, current);
+				if (!(empty)) {
+					depth++;
+				}
+			}
+		}
+
+		/* the rest of file */
+		creator.create(chunkStart, to);
+	}
+
+
+
+	/*
+	 * Skip bytes until given end is found.
+	 */
+	private void skipTo(PositionedReader reader, String end) throws IOException {
+		byte[] endBytes = end.getBytes(ASCII);
+		int matched = 0;
+		int current = 0;
+		while ((current = reader.read()) != -1) {
+			if (current == endBytes[matched]) {
+				matched++;
+				if (matched == endBytes.length) {
+					return;
+				}
+			} else {
+				matched = (current == endBytes[0]) ? 1 : 0;
+			}
+		}
+	}
+
+
+
+	/*
+	 * Skip DOCTYPE declaration with internal subset.
+	 */
+	private void skipDoctype(PositionedReader reader) throws IOException {
+		int depth = 0;
+		int quote = 0;
+		int current = 0;
+		while ((current = reader.read()) != -1) {
+			if (quote != 0) {
+				if (current == quote) {
+					quote = 0;
+				}
+			} else if (current == '"' || current == '\'') {
+				quote = current;
+			} else if (current == '[') {
+				depth++;
+			} else if (current == ']') {
+				depth--;
+			} else if (current == '>' && depth == 0) {
+				return;
+			}
+		}
+	}
+
+
+
+	/*
+	 * Skip tag, attributes values can have '>'. Previous is the last byte
+	 * read from tag.
+	 * 
+	 * Returns true if tag is empty, it ends with "/>".
+	 */
+	private boolean skipTag(PositionedReader reader, int previous) throws IOException {
+		int quote = 0;
+		int last = previous;
+		int current = 0;
+		while ((current = reader.read()) != -1) {
+			if (quote != 0) {
+				if (current == quote) {
+					quote = 0;
+				}
+			} else if (current == '"' || current == '\'') {
+				quote = current;
+			} else if (current == '>') {
+				return last == '/';
+			}
+			last = current;
+		}
+		return false;
+	}
+
+
+
+	/*
+	 * Get tag qualified name from start tag.
+	 */
+	private String getTagName(byte[] startTag) {
+		int end = 1;
+		while (end < startTag.length && startTag[end] != '>' && startTag[end] != '/' && !(Character.isWhitespace(startTag[end]))) {
+			end++;
+		}
+
+		if (startTag[startTag.length - 2] == '/') {
+			throw new IllegalArgumentException("Root element of file: " + this.file + " is empty");
+		}
+
+		return new String(startTag, 1, end - 1, ASCII);
+	}
+
+
+
+	/*
+	 * Copy range of file.
+	 */
+	private void copy(RandomAccessFile input, long from, long to, ByteArrayOutputStream out) throws IOException {
+		long position = input.getFilePointer();
+		byte[] bytes = new byte[(int) (to - from)];
+		input.seek(from);
+		input.readFully(bytes);
+		out.write(bytes);
+		input.seek(position);
+	}
+
+
+
+	private static byte[] concat(byte[] first, byte[] second) {
+		byte[] result = new byte[first.length + second.length];
+		System.arraycopy(first, 0, result, 0, first.length);
+		System.arraycopy(second, 0, result, first.length, second.length);
+		return result;
+	}
+
+
+
+	/*
+	 * Creates chunks of found ranges and gives them to handler.
+	 */
+	private class ChunksCreator {
+
+		private byte[] prefix;
+
+		private byte[] suffix;
+
+		private long fileLength;
+
+		private IChunkHandler handler;
+
+
+
+		ChunksCreator(byte[] prefix, byte[] suffix, long fileLength, IChunkHandler handler) {
+			this.prefix = prefix;
+			this.suffix = suffix;
+			this.fileLength = fileLength;
+			this.handler = handler;
+		}
+
+
+
+		void create(long start, long end) {
+			if (start >= end) {
+				return; /* there is no record in this range */
+			}
+
+			/* the last one has root end tag already */
+			byte[] chunkSuffix = (end < this.fileLength) ? this.suffix : new byte[0];
+			this.handler.chunkFound(new FileChunk(XMLFileSplitter.this.file, this.prefix, start, end, chunkSuffix));
+		}
+
+	}
+
+
+
+	/*
+	 * Buffered reader of file bytes which knows its position.
+	 */
+	private static class PositionedReader {
+
+		private RandomAccessFile input;
+
+		private byte[] buffer = new byte[FileInputStreamFactory.BUFFER_SIZE];
+
+		private int bufferPosition = 0;
+
+		private int bufferLength = 0;
+
+		/* file position of buffer start */
+		private long bufferStart = 0;
+
+
+
+		PositionedReader(RandomAccessFile input) throws IOException {
+			this.input = input;
+			this.bufferStart = input.getFilePointer();
+		}
+
+
+
+		int read() throws IOException {
+			if (this.bufferPosition >= this.bufferLength) {
+				this.bufferStart += this.bufferLength;
+				this.input.seek(this.bufferStart);
+				this.bufferLength = Math.max(this.input.read(this.buffer), 0);
+				this.bufferPosition = 0;
+				if (this.bufferLength == 0) {
+					return -1;
+				}
+			}
+			return this.buffer[this.bufferPosition++] & 0xff;
+		}
+
+
+
+		long getPosition() {
+			return this.bufferStart + this.bufferPosition;
+		}
+
+
+
+		void reset(long position) {
+			this.bufferStart = position;
+			this.bufferPosition = 0;
+			this.bufferLength = 0;
+		}
+
+	}
+
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.prometheuscode.xml.treemodel.IXMLQName;
+
+/**
+ * <p>
+ * Implements {@link IXMLQNameSymbolTable}.
+ * </p>
+ * 
+ * <p>
+ * Looking up a name which is already in the table does not lock and does not
+ * create objects. Adding name is synchronized.
+ * </p>
+ * 
+ * <p>
+ * Names are never removed, so number of names kept by table is limited. When
+ * table is full, new names are still immutable but they are not kept: name of
+ * new namespace URI and local part has id -1, name with new prefix has id of
+ * its namespace URI and local part. Names which are not kept are looked up in
+ * maps by converters dispatch and they are not pooled by tags cache.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+public class XMLQNameSymbolTable implements IXMLQNameSymbolTable {
+
+	/*
+	 * namespace URI -> local part -> names with different prefixes, arrays
+	 * are copied on write
+	 */
+	private ConcurrentMap<String, ConcurrentMap<String, InternedXMLQName[]>> names = new ConcurrentHashMap<String, ConcurrentMap<String, InternedXMLQName[]>>();
+
+	public final static int DEFAULT_MAX_NAMES = 65536;
+
+	private final int maxNames;
+
+	private volatile int idsNr = 0;
+
+	/*
+	 * names kept by table, names with different prefixes are counted. It is
+	 * written under lock and read without it to not lock when table is full
+	 */
+	private volatile int namesNr = 0;
+
+
+
+	public XMLQNameSymbolTable() {
+		this(DEFAULT_MAX_NAMES);
+	}
+
+
+
+	/**
+	 * 
+	 * @param maxNames
+	 *            max number of names kept by table, names with different
+	 *            prefixes are counted separately
+	 * @throws IllegalArgumentException
+	 *             if max number of names is negative.
+	 */
+	public XMLQNameSymbolTable(int maxNames) {
+
+		if (maxNames < 0) {
+			throw new IllegalArgumentException("Max number of names can't be negative");
+		}
+
+		this.maxNames = maxNames;
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if local part is null.
+	 */
+	@Override
+	public IXMLQName getName(String namespaceURI, String localPart, String prefix) {
+		return this.getInternedName(namespaceURI, localPart, prefix);
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if argument is null.
+	 */
+	@Override
+	public IXMLQName getName(IXMLQName name) {
+
+		if (name == null) {
+			throw new IllegalArgumentException("Name can't be null");
+		}
+
+		if (name instanceof InternedXMLQName && ((InternedXMLQName) name).getSymbolTable() == this) {
+			return name;
+		}
+
+		return this.getInternedName(name.getNamespaceURI(), name.getLocalPart(), name.getPrefix());
+	}
+
+
+
+	@Override
+	public int getId(IXMLQName name) {
+
+		if (name == null || name.getLocalPart() == null) {
+			return -1;
+		}
+
+		if (name instanceof InternedXMLQName && ((InternedXMLQName) name).getSymbolTable() == this) {
+			return ((InternedXMLQName) name).getId();
+		}
+
+		InternedXMLQName[] variants = this.getVariants(this.nullToEmpty(name.getNamespaceURI()), name.getLocalPart());
+		return (variants == null) ? -1 : variants[0].getId();
+	}
+
+
+
+	@Override
+	public int size() {
+		return this.idsNr;
+	}
+
+
+
+	/**
+	 * Get max number of names kept by table.
+	 * 
+	 * @return
+	 */
+	public int getMaxNames() {
+		return this.maxNames;
+	}
+
+
+
+	/*
+	 * Get interned name, it is the hot path of parsing.
+	 */
+	InternedXMLQName getInternedName(String namespaceURI, String localPart, String prefix) {
+
+		if (localPart == null) {
+			throw new IllegalArgumentException("Local part can't be null");
+		}
+
+		String ns = this.nullToEmpty(namespaceURI);
+		String pref = this.nullToEmpty(prefix);
+
+		InternedXMLQName[] variants = this.getVariants(ns, localPart);
+		if (variants != null) {
+			for (InternedXMLQName variant : variants) {
+				if (variant.getPrefix().equals(pref)) {
+					return variant;
+				}
+			}
+		}
+
+		/* full table is not changed, so it is not locked */
+		if (this.namesNr >= this.maxNames) {
+			return this.createNotKeptName(ns, localPart, pref, variants);
+		}
+
+		return this.addName(ns, localPart, pref);
+	}
+
+
+
+	private InternedXMLQName[] getVariants(String namespaceURI, String localPart) {
+		ConcurrentMap<String, InternedXMLQName[]> localParts = this.names.get(namespaceURI);
+		if (localParts == null) {
+			return null;
+		}
+
+		return localParts.get(localPart);
+	}
+
+
+
+	/*
+	 * Add name with new prefix or with new id. Name is not kept if table is
+	 * full.
+	 */
+	private synchronized InternedXMLQName addName(String namespaceURI, String localPart, String prefix) {
+
+		InternedXMLQName[] variants = this.getVariants(namespaceURI, localPart);
+		if (variants != null) {
+			/* it could be added by other thread */
+			for (InternedXMLQName variant : variants) {
+				if (variant.getPrefix().equals(prefix)) {
+					return variant;
+				}
+			}
+		}
+
+		/* table could be filled by other thread, namespace is not added then */
+		if (this.namesNr >= this.maxNames) {
+			return this.createNotKeptName(namespaceURI, localPart, prefix, variants);
+		}
+
+		ConcurrentMap<String, InternedXMLQName[]> localParts = this.names.get(namespaceURI);
+		if (localParts == null) {
+			localParts = new ConcurrentHashMap<String, InternedXMLQName[]>();
+			this.names.put(namespaceURI, localParts);
+		}
+
+		InternedXMLQName[] newVariants = null;
+		InternedXMLQName name = null;
+		if (variants == null) {
+			name = new InternedXMLQName(localPart, namespaceURI, prefix, this.idsNr, this);
+			newVariants = new InternedXMLQName[] { name };
+			this.idsNr++;
+		} else {
+			name = new InternedXMLQName(localPart, namespaceURI, prefix, variants[0].getId(), this);
+			newVariants = new InternedXMLQName[variants.length + 1];
+			System.arraycopy(variants, 0, newVariants, 0, variants.length);
+			newVariants[variants.length] = name;
+		}
+
+		localParts.put(localPart, newVariants);
+		this.namesNr++;
+		return name;
+	}
+
+
+
+	/*
+	 * Name not kept by full table has id of its namespace URI and local part
+	 * if they are kept, -1 otherwise.
+	 */
+	private InternedXMLQName createNotKeptName(String namespaceURI, String localPart, String prefix, InternedXMLQName[] variants) {
+		int id = (variants == null) ? -1 : variants[0].getId();
+		return new InternedXMLQName(localPart, namespaceURI, prefix, id, this);
+	}
+
+
+
+	private String nullToEmpty(String str) {
+		return (str == null) ? "" : str;
+	}
+
+}
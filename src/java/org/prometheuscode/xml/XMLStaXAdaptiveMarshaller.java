@@ -21,24 +21,30 @@ package org.prometheuscode.xml;
 import java.io.IOException;
 
 import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
 import org.prometheuscode.xml.annotation.AnnotationException;
+import org.prometheuscode.xml.annotation.BoundConverterProcessor;
+import org.prometheuscode.xml.annotation.BoundTag;
 import org.prometheuscode.xml.annotation.Convertable;
 import org.prometheuscode.xml.annotation.Dependee;
+import org.prometheuscode.xml.treemodel.CompositeTag;
 import org.prometheuscode.xml.treemodel.ICompositeTag;
 import org.prometheuscode.xml.treemodel.IOrder;
 import org.prometheuscode.xml.treemodel.ISimpleTag;
@@ -73,16 +79,35 @@ class XMLStaXAdaptiveMarshaller implements IXMLAdaptiveMarshaller {
 
 	public final static String MAP_TAG_VALUE_NAME = "value";
 
+	/*
+	 * name of tag taking place of object written by streaming converter
+	 */
+	private final static String STREAMED_TAG_NAME = "streamed";
+
 	/*
 	 * mapping to use during marshalling
 	 */
 	private IMapping<?> mapping;
 
+	/* registered mapping compiled when it is registered */
+	private MarshallingPlan plan;
+
 	private IXMLTreeModelFactory treeModelFactory = new XMLTreeModelFactory();
 
 	/* key is fully qualified class name, value is mapping for given class */
 	private Map<String, IMapping<?>> classesNamesToMappingsCache;
 
+	private StaXConfiguration staxConfiguration = new StaXConfiguration();
+
+	private boolean streaming = false;
+
+	private FlushPolicy flushPolicy = FlushPolicy.NEVER;
+
+	private XMLWriterBackend writerBackend = XMLWriterBackend.STAX;
+
+	/* accessors are generated once for method name of runtime class */
+	private ConcurrentMap<Class<?>, ConcurrentMap<String, IMethodAccessor>> methodAccessorsCache = new ConcurrentHashMap<Class<?>, ConcurrentMap<String, IMethodAccessor>>();
+
 
 
 	public XMLStaXAdaptiveMarshaller() {
@@ -117,12 +142,10 @@ class XMLStaXAdaptiveMarshaller implements IXMLAdaptiveMarshaller {
 		String encoding = (root.getEncoding() != null) ? root.getEncoding() : DEFAULT_ENCODING;
 		String version = (root.getVersion() != null) ? root.getVersion() : DEFAULT_VERSION;
 
-		XMLOutputFactory factory = XMLOutputFactory.newInstance();
-		factory.setProperty("javax.xml.stream.isRepairingNamespaces", new Boolean(true));
 		XMLStreamWriter writer = null;
 
 		try {
-			writer = factory.createXMLStreamWriter(out, encoding);
+			writer = this.createWriter(out, encoding);
 			this.writeTreeModel(writer, root.getXMLRoot(), encoding, version);
 		} catch (XMLStreamException e) {
 			throw new XMLMarshallerException(e);
@@ -160,13 +183,103 @@ class XMLStaXAdaptiveMarshaller implements IXMLAdaptiveMarshaller {
 
 		this.checkRegisteredMapping(objectToSave);
 
-		XMLOutputFactory factory = XMLOutputFactory.newInstance();
-		factory.setProperty("javax.xml.stream.isRepairingNamespaces", new Boolean(true));
 		XMLStreamWriter writer = null;
 		try {
-			writer = factory.createXMLStreamWriter(out, DEFAULT_ENCODING);
-			IXMLTag root = this.createTreeModelFromObject(objectToSave);
-			this.writeTreeModel(writer, root, DEFAULT_ENCODING, DEFAULT_VERSION);
+			writer = this.createWriter(out, DEFAULT_ENCODING);
+			MarshallingPlan plan = this.plan;
+			if (this.streaming) {
+				IXMLTag root = this.createTreeModelFromObject(plan, plan.getRoot(), objectToSave, true);
+				writer.writeStartDocument(DEFAULT_ENCODING, DEFAULT_VERSION);
+				this.writeStreamedTag(new StreamingContext(writer, plan, this.flushPolicy), root);
+				writer.writeEndDocument();
+			} else {
+				IXMLTag root = this.createTreeModelFromObject(plan, plan.getRoot(), objectToSave, false);
+				this.writeTreeModel(writer, root, DEFAULT_ENCODING, DEFAULT_VERSION);
+			}
+		} catch (XMLMarshallerException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new XMLMarshallerException(e);
+		} finally {
+			if (writer != null) {
+				try {
+					writer.close();
+					out.close();
+				} catch (XMLStreamException e) {
+					e.printStackTrace();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             when parameters are null, wrapper name is empty or mapping
+	 *             was not registered.
+	 * 
+	 * @throws XMLMarshallerException
+	 *             if error occured during saving records.
+	 */
+	@Override
+	public <T> void marshalAll(Iterable<T> records, IXMLQName wrapperName, OutputStream out) {
+		if (records == null) {
+			throw new IllegalArgumentException("Arguments can't be null");
+		}
+
+		this.marshalAll(records.iterator(), wrapperName, out);
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             when parameters are null, wrapper name is empty or mapping
+	 *             was not registered.
+	 * 
+	 * @throws XMLMarshallerException
+	 *             if error occured during saving records.
+	 */
+	@Override
+	public <T> void marshalAll(Iterator<T> records, IXMLQName wrapperName, OutputStream out) {
+		if (records == null || wrapperName == null || out == null) {
+			throw new IllegalArgumentException("Arguments can't be null");
+		}
+
+		if (wrapperName.getLocalPart() == null || wrapperName.getLocalPart().equals("")) {
+			throw new IllegalArgumentException("Wrapper element must be specified with non-empty name");
+		}
+
+		this.checkRegisteredMapping(null);
+
+		/* plan and flush policy are taken once for all records */
+		MarshallingPlan plan = this.plan;
+		FlushPolicy flushPolicy = this.flushPolicy;
+
+		XMLStreamWriter writer = null;
+		try {
+			writer = this.createWriter(out, DEFAULT_ENCODING);
+			writer.writeStartDocument(DEFAULT_ENCODING, DEFAULT_VERSION);
+			writer.writeStartElement(wrapperName.getPrefix(), wrapperName.getLocalPart(), wrapperName.getNamespaceURI());
+
+			StreamingContext context = new StreamingContext(writer, plan, flushPolicy);
+			while (records.hasNext()) {
+				/* record is not referenced after it is written */
+				IXMLTag recordTag = this.createTreeModelFromObject(plan, plan.getRoot(), this.nextRecord(records), true);
+				this.writeStreamedTag(context, recordTag);
+				this.countWrittenElement(context);
+			}
+
+			writer.writeEndElement();
+			writer.writeEndDocument();
+		} catch (XMLMarshallerException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new XMLMarshallerException(e);
 		} finally {
@@ -202,7 +315,8 @@ class XMLStaXAdaptiveMarshaller implements IXMLAdaptiveMarshaller {
 		}
 
 		this.checkRegisteredMapping(obj);
-		return this.createTreeModelFromObject(obj);
+		MarshallingPlan plan = this.plan;
+		return this.createTreeModelFromObject(plan, plan.getRoot(), obj, false);
 	}
 
 
@@ -210,7 +324,8 @@ class XMLStaXAdaptiveMarshaller implements IXMLAdaptiveMarshaller {
 	/**
 	 * 
 	 * @throws IllegalArgumentException
-	 *             when parameters are null.
+	 *             when parameters are null, some mapping has no type or
+	 *             container mapping has no value mapping.
 	 */
 	@Override
 	public void registerMapping(IMapping<?> mapping) {
@@ -218,6 +333,7 @@ class XMLStaXAdaptiveMarshaller implements IXMLAdaptiveMarshaller {
 			throw new IllegalArgumentException("Mapping can not be null");
 		}
 
+		this.plan = MarshallingPlan.compile(mapping);
 		this.mapping = mapping;
 	}
 
@@ -311,6 +427,99 @@ class XMLStaXAdaptiveMarshaller implements IXMLAdaptiveMarshaller {
 
 
 
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             argument is null.
+	 */
+	@Override
+	public void setStaXConfiguration(StaXConfiguration configuration) {
+
+		if (configuration == null) {
+			throw new IllegalArgumentException("Configuration can't be null");
+		}
+
+		this.staxConfiguration = configuration;
+	}
+
+
+
+	@Override
+	public StaXConfiguration getStaXConfiguration() {
+		return this.staxConfiguration;
+	}
+
+
+
+	@Override
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
+
+
+	@Override
+	public boolean isStreaming() {
+		return this.streaming;
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             argument is null.
+	 */
+	@Override
+	public void setFlushPolicy(FlushPolicy flushPolicy) {
+
+		if (flushPolicy == null) {
+			throw new IllegalArgumentException("Flush policy can't be null");
+		}
+
+		this.flushPolicy = flushPolicy;
+	}
+
+
+
+	@Override
+	public FlushPolicy getFlushPolicy() {
+		return this.flushPolicy;
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             argument is null.
+	 */
+	@Override
+	public void setWriterBackend(XMLWriterBackend backend) {
+
+		if (backend == null) {
+			throw new IllegalArgumentException("Writer backend can't be null");
+		}
+
+		this.writerBackend = backend;
+	}
+
+
+
+	@Override
+	public XMLWriterBackend getWriterBackend() {
+		return this.writerBackend;
+	}
+
+
+
+	@Override
+	public String getBackendDescription() {
+		return "writer: " + this.writerBackend + ", StaX: " + this.staxConfiguration.getImplementation() + " (" + this.staxConfiguration.getOutputFactory().getClass().getName() + ")";
+	}
+
+
+
 	/*
 	 * Private Methods ***^_^***
 	 */
@@ -342,11 +551,15 @@ class XMLStaXAdaptiveMarshaller implements IXMLAdaptiveMarshaller {
 
 	/*
 	 * This helper function search class file for converter having Annotation
-	 * which specifies converter class.
+	 * which specifies converter class. Class without converter annotation can
+	 * have converter generated from its binding annotations.
 	 */
 	private IMarshallerConverter<?> getConverterFromClass(Class<?> clazzToProcess, Class<Convertable> convertableAnnotation) {
 
 		Convertable classAnnotation = clazzToProcess.getAnnotation(convertableAnnotation);
+		if (classAnnotation == null) {
+			return this.getBoundConverter(clazzToProcess);
+		}
 
 		IMarshallerConverter<?> converter = null;
 		try {
@@ -362,6 +575,34 @@ class XMLStaXAdaptiveMarshaller implements IXMLAdaptiveMarshaller {
 
 
 
+	/*
+	 * Create converter generated for class annoted with BoundTag.
+	 */
+	private IMarshallerConverter<?> getBoundConverter(Class<?> clazzToProcess) {
+
+		if (clazzToProcess.getAnnotation(BoundTag.class) == null) {
+			throw new AnnotationException("Class: " + clazzToProcess.getCanonicalName() + " has no Convertable or BoundTag annotation");
+		}
+
+		String converterName = BoundConverterProcessor.getConverterName(clazzToProcess.getName());
+		try {
+			Class<?> converterClass = Class.forName(converterName, true, clazzToProcess.getClassLoader());
+			return (IMarshallerConverter<?>) converterClass.getDeclaredConstructor().newInstance();
+		} catch (ClassNotFoundException e) {
+			throw new AnnotationException("Generated converter: " + converterName + " was not found, class has to be compiled with BoundConverterProcessor", e);
+		} catch (NoSuchMethodException e) {
+			throw new AnnotationException("Generated converter: " + converterName + " has no constructor without arguments", e);
+		} catch (InvocationTargetException e) {
+			throw new AnnotationException("Generated converter: " + converterName + " could not be created", e.getCause());
+		} catch (InstantiationException e) {
+			throw new AnnotationException("Generated converter: " + converterName + " could not be created", e);
+		} catch (IllegalAccessException e) {
+			throw new AnnotationException("Generated converter: " + converterName + " could not be created", e);
+		}
+	}
+
+
+
 	/*
 	 * Creates IMapping for object returned by given method. Returned array has
 	 * class for mapping and mapping also : 
@@ -387,6 +628,7 @@ class XMLStaXAdaptiveMarshaller implements IXMLAdaptiveMarshaller {
 
 		String methodName = testMethod.getName();
 		dependeeMapping.setMappedMethodName(methodName);
+		dependeeMapping.setMappedMethodAccessor(this.getMethodAccessor(testMethod.getDeclaringClass(), methodName));
 		dependeeMapping.setParentMapping(parentMapping);
 		if (newCreated[0] == false) {
 			parentMapping.addMapping(methodName, dependeeMapping);
@@ -446,275 +688,314 @@ class XMLStaXAdaptiveMarshaller implements IXMLAdaptiveMarshaller {
 	/*
 	 * Get tree model from given Object.
 	 * 
-	 * It handles only primitives types or types with toString() method. It does
-	 * not handle cycle in graph it could by timer but it is not precise or it
-	 * could use some extra method or some "check" in this method.
+	 * It walks marshalling plan with stack of frames, every frame is an object
+	 * or container being converted. User objects and containers are only
+	 * read, so the same objects can be converted by many threads at once. It
+	 * handles only primitives types or types with toString() method. It does
+	 * not handle cycle in graph.
+	 * 
+	 * If tags are deferred, Collections, Maps and objects of streaming
+	 * converters are not converted, their place in tree model is taken by
+	 * placeholder tags which are converted while tree model is written.
 	 */
-	private IXMLTag createTreeModelFromObject(Object objectToConvert) {
-		/*
-		 * Temporary saved mapping for a class. Elements of it will be removed.
-		 * First key is class name plus current mapping path in a tree made from
-		 * methods labels, second key is method name.
-		 */
-		Map<String, Map<String, IMapping<?>>> savedMappingsForClass = new HashMap<String, Map<String, IMapping<?>>>();
+	private IXMLTag createTreeModelFromObject(MarshallingPlan plan, MarshallingPlan.Node rootNode, Object objectToConvert, boolean deferTags) {
 
-		/*
-		 * It holds all converted tags class depends on. First key is class name
-		 * plus current mapping path in a tree made from methods labels, second
-		 * key is method name.
-		 */
-		Map<String, Map<String, IXMLTag>> tmpConvertedChildrenObjs = new HashMap<String, Map<String, IXMLTag>>();
-
-		/* mapping to use for converting an objects */
-		IMapping<?> currentMapping = this.mapping;
+		if (deferTags && this.isDeferred(rootNode)) {
+			return this.createDeferredTag(rootNode, objectToConvert, null);
+		}
 
-		/*
-		 * List of objects currently processed. Current object is part of
-		 * "dependencies" of previous object in a list.
-		 */
-		LinkedList<Object> parentsList = new LinkedList<Object>();
-		parentsList.addFirst(objectToConvert);
-
-		IXMLTag[] result = new IXMLTag[1];
-		/* key to use for above maps class name current mapping path */
-		String currentKey = "";
-		Object currentObjectToConvert = null;
-		while (!(parentsList.isEmpty())) {
-			currentObjectToConvert = parentsList.getFirst();
-			currentKey = this.getMappingKey(currentMapping, currentObjectToConvert);
-
-			if (!currentMapping.getMappingType().equals(MappingType.Object)) {
-				boolean wasPushed = this.pushNewObjectFromContainer(currentObjectToConvert, currentMapping, parentsList, tmpConvertedChildrenObjs);
-				if (wasPushed) {
-					currentMapping = currentMapping.getContainerMapping();
+		ArrayDeque<Frame> stack = new ArrayDeque<Frame>();
+		stack.push(this.createFrame(rootNode, objectToConvert, null));
+
+		IXMLTag result = null;
+		while (!(stack.isEmpty())) {
+			Frame frame = stack.peek();
+			MarshallingPlan.Node node = frame.node;
+
+			IXMLTag tag = null;
+			if (node.getType().equals(MappingType.Object)) {
+				/* convert dependent objects first */
+				if (frame.nextChild < node.getChildrenCount()) {
+					MarshallingPlan.Node childNode = plan.getNode(node.getChild(frame.nextChild++));
+					Object child = this.getObjectFromMethod(frame.object, childNode);
+					this.checkIfObjectIsNull(child, childNode.getMethodName(), frame.object);
+					if (deferTags && this.isDeferred(childNode)) {
+						frame.convertedChildren.put(childNode.getMethodName(), this.createDeferredTag(childNode, child, frame.object));
+					} else {
+						stack.push(this.createFrame(childNode, child, null));
+					}
 					continue;
-				} else { /* was not push because container was empty */
-					this.handleEmptyContainer(currentObjectToConvert, currentMapping, parentsList, tmpConvertedChildrenObjs, result);
-					currentMapping = currentMapping.getParentMapping();
+				}
+				tag = this.convertObjectToTag(frame.object, node.getConverter(), frame.convertedChildren);
+			} else {
+				if (frame.iterator.hasNext()) {
+					this.pushNextFromContainer(plan, frame, stack);
 					continue;
 				}
+				tag = frame.wrapper;
 			}
 
-			/* here we have MappingType.Object */
-			Map<String, IMapping<?>> methodMappings = savedMappingsForClass.get(currentKey);
-			if (methodMappings == null) {
-				methodMappings = currentMapping.getMappings(); /* it is a copy */
-				savedMappingsForClass.put(currentKey, methodMappings);
+			/* frame is done, pass its tag to parent frame */
+			stack.pop();
+			if (stack.isEmpty()) {
+				result = tag;
+				break;
 			}
 
-			/*
-			 * if all dependent objects are done convert current object else get
-			 * new object to convert
-			 */
-			if (!(methodMappings.isEmpty())) {
-				currentMapping = this.pushNewObjectToConvert(currentObjectToConvert, methodMappings, parentsList);
-			} else {
-				Map<String, IXMLTag> convertedChildren = tmpConvertedChildrenObjs.get(currentKey);
-				/* remove current value so it can be reused */
-				savedMappingsForClass.put(currentKey, null);
-				tmpConvertedChildrenObjs.put(currentKey, null);
-
-				IXMLTag tag = this.convertObjectToTag(currentObjectToConvert, currentMapping, convertedChildren);
-
-				/* Object was converted so it is done */
-				parentsList.removeFirst();
-				if (parentsList.isEmpty()) {
-					/* this was last conversion so end */
-					result[0] = tag;
-					break;
-				}
-
-				String primitiveKey = "";
-				if (currentMapping.getParentMapping().getMappingType().equals(MappingType.Map)) {
-					/* remove also a key */
-					primitiveKey = parentsList.removeFirst().toString();
-				}
-				Object parentObject = parentsList.getFirst();
-				this.updateParentsConvertedChildren(tmpConvertedChildrenObjs, parentObject, currentMapping, primitiveKey, tag);
-				currentMapping = currentMapping.getParentMapping();
+			Frame parent = stack.peek();
+			switch (parent.node.getType()) {
+			case Object:
+				parent.convertedChildren.put(node.getMethodName(), tag);
+				break;
+			case Collection:
+				parent.wrapper.addTag(tag);
+				break;
+			case Map:
+				parent.wrapper.addTag(this.createMapEntry(frame.mapKey, tag));
+				break;
 			}
+		}
 
-		} /* end outer while loop */
-
-		return result[0];
+		return result;
 	}
 
 
 
 	/*
-	 * Helper method to form method key for temporary maps
+	 * Create frame for object or container. Containers are wrapped by tag
+	 * named by container type.
 	 */
-	private String getMappingKey(IMapping<?> mapping, Object objectToConvert) {
-		return (this.getMappingTreeLabelsPath(mapping) + objectToConvert.getClass().getCanonicalName());
+	private Frame createFrame(MarshallingPlan.Node node, Object object, String mapKey) {
+
+		Frame frame = new Frame(node, object, mapKey);
+		try {
+			switch (node.getType()) {
+			case Object:
+				if (node.getChildrenCount() > 0) {
+					frame.convertedChildren = new HashMap<String, IXMLTag>();
+				}
+				break;
+			case Collection:
+				frame.iterator = ((Collection<?>) object).iterator();
+				frame.wrapper = this.createWrapperTag(LIST_TAG_NAME);
+				break;
+			case Map:
+				frame.iterator = ((Map<?, ?>) object).entrySet().iterator();
+				frame.wrapper = this.createWrapperTag(MAP_TAG_NAME);
+				break;
+			}
+		} catch (ClassCastException e) {
+			throw new XMLMarshallerException("Object returned by method: " + node.getMethodName() + " is: " + object.getClass().getCanonicalName() + " but its mapping type is: " + node.getType(), e);
+		}
+
+		return frame;
 	}
 
 
 
 	/*
-	 * It pushes new object on parents "pipe line" also it returns current
-	 * mapping for objects returend by registered methods.
+	 * Push next element of Collection or next value of Map. Containers are
+	 * not modified, position in container is kept by frame iterator.
 	 */
-	private IMapping<?> pushNewObjectToConvert(Object objectToConvert, Map<String, IMapping<?>> methodMappings, LinkedList<Object> parentsList) {
-		Iterator<String> iter = methodMappings.keySet().iterator();
-		IMapping<?> mapping = null;
-		while (iter.hasNext()) {
-			String methodName = iter.next();
-			Object obj = this.getObjectFromMethod(objectToConvert, methodName);
-			/* object can not be null because there wont be anything to convert */
-			this.checkIfObjectIsNull(obj, parentsList, methodName);
+	private void pushNextFromContainer(MarshallingPlan plan, Frame frame, ArrayDeque<Frame> stack) {
 
-			mapping = methodMappings.get(methodName);
-			iter.remove();
-			parentsList.addFirst(obj);
-			break;
+		MarshallingPlan.Node valueNode = plan.getNode(frame.node.getContainerNode());
+		Object value = null;
+		String mapKey = null;
+		if (frame.node.getType().equals(MappingType.Map)) {
+			Map.Entry<?, ?> entry = (Map.Entry<?, ?>) frame.iterator.next();
+			value = entry.getValue();
+			mapKey = entry.getKey().toString();
+		} else {
+			value = frame.iterator.next();
 		}
 
-		return mapping;
+		this.checkIfObjectIsNull(value, frame.node.getMethodName(), this.getNearestObject(stack));
+		stack.push(this.createFrame(valueNode, value, mapKey));
 	}
 
 
 
 	/*
-	 * Check if object being converted is null.
+	 * Get the nearest object being converted, containers are skipped.
 	 */
-	private void checkIfObjectIsNull(Object obj, List<Object> parentsList, String methodName) {
-		if (obj == null) {
-			Class<?> parentClass = this.getObjectParentFromList(parentsList, mapping).getClass();
-			throw new XMLMarshallerException("Object returned by method: " + methodName + " in class: " + parentClass.getCanonicalName() + " or cointained in returned Collection or Map can not be null." + "User can not convert *null* objects");
+	private Object getNearestObject(ArrayDeque<Frame> stack) {
+		for (Frame frame : stack) {
+			if (frame.node.getType().equals(MappingType.Object)) {
+				return frame.object;
+			}
 		}
+		return null;
+	}
+
 
+
+	/*
+	 * Check if node is converted while it is written.
+	 */
+	private boolean isDeferred(MarshallingPlan.Node node) {
+		return !(node.getType().equals(MappingType.Object)) || node.isStreaming();
 	}
 
 
 
 	/*
-	 * Get current object parent from parent list
+	 * Create tag taking place of deferred object or container.
 	 */
-	private Object getObjectParentFromList(List<Object> parentsList, IMapping<?> mapping) {
+	private IXMLTag createDeferredTag(MarshallingPlan.Node node, Object object, Object owner) {
 
-		Object parent = null;
-		IMapping<?> currentMapping = mapping;
-		for (Object object : parentsList) {
-			if (currentMapping.getMappingType().equals(MappingType.Object)) {
-				parent = object;
-			}
-			currentMapping = mapping.getParentMapping();
+		if (!(node.getType().equals(MappingType.Object))) {
+			return this.createContainerPlaceholder(node, object, owner);
 		}
 
-		return parent;
+		IXMLQName name = this.treeModelFactory.createXMLQName();
+		name.setLocalPart(STREAMED_TAG_NAME);
+		return new StreamedObjectPlaceholder(name, node, object);
 	}
 
 
 
 	/*
-	 * Get Object from given method. It must be no arg and public.
+	 * Create tag taking place of Collection or Map which is converted while it
+	 * is written.
 	 */
-	private Object getObjectFromMethod(Object currentObject, String methodName) {
-		Method method = null;
-		try {
-			method = currentObject.getClass().getMethod(methodName, (Class<?>[]) null);
-		} catch (NoSuchMethodException ex) {
-			throw new XMLMarshallerException("Method with name: " + methodName + " and no arguments does not exist in class: " + currentObject.getClass().getCanonicalName());
-		}
+	private ContainerPlaceholder createContainerPlaceholder(MarshallingPlan.Node node, Object container, Object owner) {
 
-		Object obj = null;
-		try {
-			obj = method.invoke(currentObject, (Object[]) null);
-		} catch (Exception e) {
-			throw new XMLMarshallerException("Problems with IMapping, mapped method could" + " not be no-arg method, or not public or accessing protected data", e);
+		boolean isCollection = node.getType().equals(MappingType.Collection);
+		if ((isCollection && !(container instanceof Collection)) || (!isCollection && !(container instanceof Map))) {
+			throw new XMLMarshallerException("Object returned by method: " + node.getMethodName() + " is: " + container.getClass().getCanonicalName() + " but its mapping type is: " + node.getType());
 		}
 
-		return obj;
+		IXMLQName name = this.treeModelFactory.createXMLQName();
+		name.setLocalPart(isCollection ? LIST_TAG_NAME : MAP_TAG_NAME);
+		return new ContainerPlaceholder(name, node, container, owner);
 	}
 
 
 
 	/*
-	 * Convert given Object having its mapping and partally converted children
-	 * to IXMLTag
+	 * Convert next element of deferred container. Map value is put to map
+	 * entry tag.
 	 */
-	private IXMLTag convertObjectToTag(Object objectToConvert, IMapping<?> mapping, Map<String, IXMLTag> convertedChildren) {
-		IMarshallerConverter<Object> converter = (IMarshallerConverter<Object>) mapping.getConverter();
-		if (converter == null) {
-			throw new XMLMarshallerException("Converter in mapping for object type: " + objectToConvert.getClass().getCanonicalName() + "can not be null");
+	private IXMLTag convertNextElement(MarshallingPlan plan, ContainerPlaceholder placeholder, Iterator<?> iterator) {
+
+		MarshallingPlan.Node node = placeholder.node;
+		MarshallingPlan.Node valueNode = plan.getNode(node.getContainerNode());
+		Object value = null;
+		String mapKey = null;
+		if (node.getType().equals(MappingType.Map)) {
+			Map.Entry<?, ?> entry = (Map.Entry<?, ?>) iterator.next();
+			value = entry.getValue();
+			mapKey = entry.getKey().toString();
+		} else {
+			value = iterator.next();
 		}
+
+		this.checkIfObjectIsNull(value, node.getMethodName(), placeholder.owner);
 		IXMLTag tag = null;
-		try {
-			tag = converter.convert(objectToConvert, convertedChildren);
-		} catch (ClassCastException e) {
-			throw new XMLMarshallerException("Object type: " + objectToConvert.getClass().getCanonicalName() + " and registered converter: " + converter.getClass().getCanonicalName() + " are not compatible." + "It might be the case that converter on Convertable annotation has is inappropriate or if mapping" + "was given by user *manually*, converter in mapping is inappropriate. Also it might be internal converter error", e);
+		if (this.isDeferred(valueNode)) {
+			tag = this.createDeferredTag(valueNode, value, placeholder.owner);
+		} else {
+			tag = this.createTreeModelFromObject(plan, valueNode, value, true);
 		}
 
+		if (mapKey != null) {
+			tag = this.createMapEntry(mapKey, tag);
+		}
 		return tag;
 	}
 
 
 
+	private Object nextRecord(Iterator<?> records) {
+		Object record = records.next();
+		if (record == null) {
+			throw new XMLMarshallerException("Records can not be null. User can not convert *null* objects");
+		}
+		return record;
+	}
+
+
+
 	/*
-	 * Update temporary converted children map
+	 * Check if object being converted is null.
 	 */
-	private void updateParentsConvertedChildren(Map<String, Map<String, IXMLTag>> convertedChildren, Object parentObject, IMapping<?> mapping, String mapsKey, IXMLTag tag) {
-		String parentKey = this.getMappingKey(mapping.getParentMapping(), parentObject);
-		String methodName = mapping.getMappedMethodName();
-		/*
-		 * Init parent entry in a map if does not exist
-		 */
-		Map<String, IXMLTag> convertedTagsForParent = convertedChildren.get(parentKey);
-		if (convertedTagsForParent == null) {
-			convertedTagsForParent = new HashMap<String, IXMLTag>();
-			convertedChildren.put(parentKey, convertedTagsForParent);
+	private void checkIfObjectIsNull(Object obj, String methodName, Object parent) {
+		if (obj == null) {
+			String parentClass = (parent != null) ? parent.getClass().getCanonicalName() : "";
+			throw new XMLMarshallerException("Object returned by method: " + methodName + " in class: " + parentClass + " or cointained in returned Collection or Map can not be null." + "User can not convert *null* objects");
 		}
 
-		MappingType parentType = mapping.getParentMapping().getMappingType();
-		if (!convertedTagsForParent.containsKey(methodName) && (parentType.equals(MappingType.Collection) || parentType.equals(MappingType.Map))) {
-			String wrapperTagName = "";
-			switch (parentType) {
-			case Collection:
-				wrapperTagName = LIST_TAG_NAME;
-				break;
-			case Map:
-				wrapperTagName = MAP_TAG_NAME;
-				break;
-			}
+	}
+
 
-			/* create tag for this container mapping */
-			ICompositeTag wrapper = this.createWrapperTag(wrapperTagName);
-			convertedTagsForParent.put(methodName, wrapper);
+
+	/*
+	 * Get Object from mapped method. It must be no arg and public. Accessor
+	 * bound to mapping when plan was compiled is used if object is its target,
+	 * otherwise accessor of runtime class is taken from cache. Mapping is not
+	 * changed, many threads can marshal with the same plan.
+	 */
+	private Object getObjectFromMethod(Object currentObject, MarshallingPlan.Node node) {
+
+		IMethodAccessor accessor = node.getAccessor();
+		if (accessor == null || !(accessor.getTargetClass().isInstance(currentObject))) {
+			accessor = this.getMethodAccessor(currentObject.getClass(), node.getMethodName());
 		}
 
-		/*
-		 * add entry to a map or object to a list or simply object method
-		 * returns type
-		 */
-		switch (parentType) {
-		case Map:
-			tag = this.createMapEntry(mapsKey, tag);
-		case Collection:
-			ICompositeTag containerTag = (ICompositeTag) convertedTagsForParent.get(methodName);
-			containerTag.addTag(tag);
-			break;
-		case Object:
-			convertedTagsForParent.put(methodName, tag);
-			break;
+		/* accessor wraps exceptions of method */
+		return accessor.invoke(currentObject);
+	}
+
+
+
+	private IMethodAccessor getMethodAccessor(Class<?> clazz, String methodName) {
+		ConcurrentMap<String, IMethodAccessor> classAccessors = this.methodAccessorsCache.get(clazz);
+		if (classAccessors == null) {
+			classAccessors = new ConcurrentHashMap<String, IMethodAccessor>();
+			ConcurrentMap<String, IMethodAccessor> previous = this.methodAccessorsCache.putIfAbsent(clazz, classAccessors);
+			if (previous != null) {
+				classAccessors = previous;
+			}
 		}
 
+		IMethodAccessor accessor = classAccessors.get(methodName);
+		if (accessor == null) {
+			Method method = null;
+			try {
+				method = clazz.getMethod(methodName, (Class<?>[]) null);
+			} catch (NoSuchMethodException ex) {
+				throw new XMLMarshallerException("Method with name: " + methodName + " and no arguments does not exist in class: " + clazz.getCanonicalName());
+			}
+
+			/* accessor generated by other thread in the meantime wins */
+			accessor = MethodAccessorFactory.create(method);
+			IMethodAccessor previous = classAccessors.putIfAbsent(methodName, accessor);
+			if (previous != null) {
+				accessor = previous;
+			}
+		}
+		return accessor;
 	}
 
 
 
 	/*
-	 * Count mapping depth in a mapping tree.
+	 * Convert given Object having its mapping and partally converted children
+	 * to IXMLTag
 	 */
-	private String getMappingTreeLabelsPath(IMapping<?> mapping) {
-		IMapping<?> tmpMapping = mapping;
-		StringBuffer pathMethodLabel = new StringBuffer();
-		while (tmpMapping != null) {
-			String pathMethodName = tmpMapping.getMappedMethodName();
-			pathMethodLabel.insert(0, pathMethodName + "<-->");
-			tmpMapping = tmpMapping.getParentMapping();
+	private IXMLTag convertObjectToTag(Object objectToConvert, IMarshallerConverter<Object> converter, Map<String, IXMLTag> convertedChildren) {
+		if (converter == null) {
+			throw new XMLMarshallerException("Converter in mapping for object type: " + objectToConvert.getClass().getCanonicalName() + "can not be null");
+		}
+		IXMLTag tag = null;
+		try {
+			tag = converter.convert(objectToConvert, convertedChildren);
+		} catch (ClassCastException e) {
+			throw new XMLMarshallerException("Object type: " + objectToConvert.getClass().getCanonicalName() + " and registered converter: " + converter.getClass().getCanonicalName() + " are not compatible." + "It might be the case that converter on Convertable annotation has is inappropriate or if mapping" + "was given by user *manually*, converter in mapping is inappropriate. Also it might be internal converter error", e);
 		}
 
-		return pathMethodLabel.toString();
+		return tag;
 	}
 
 
@@ -758,201 +1039,158 @@ class XMLStaXAdaptiveMarshaller implements IXMLAdaptiveMarshaller {
 
 
 	/*
-	 * 
-	 * Returns true if object from container was added to parentsList.
+	 * Create writer of chosen backend. UTF-8 writer writes only UTF-8
+	 * documents, others are written by StaX writer.
 	 */
-	private boolean pushNewObjectFromContainer(Object objectToConvert, IMapping<?> mapping, LinkedList<Object> parentsList, Map<String, Map<String, IXMLTag>> tmpConvertedChildrenObjs) {
-		MappingType type = mapping.getMappingType();
-		Collection<?> collection = null;
-		Map<?, ?> mapObj = null;
-		switch (type) {
-		case Collection:
-			collection = ((Collection<?>) objectToConvert);
-			break;
-		case Map:
-			mapObj = ((Map<?, ?>) objectToConvert);
-			break;
+	private XMLStreamWriter createWriter(OutputStream out, String encoding) throws XMLStreamException {
+		if (this.writerBackend.equals(XMLWriterBackend.UTF8) && (encoding.equalsIgnoreCase("UTF-8") || encoding.equalsIgnoreCase("UTF8"))) {
+			return new UTF8XMLStreamWriter(out, this.staxConfiguration.isRepairingNamespaces());
 		}
 
-		boolean wasAdded = false;
-		if ((mapObj != null && !(mapObj.isEmpty())) || (collection != null && !(collection.isEmpty()))) {
-			this.handleNotEmptyContainer(parentsList, type, collection, mapObj);
-
-			this.checkIfObjectIsNull(parentsList.getFirst(), parentsList, mapping.getMappedMethodName());
-			wasAdded = true;
-		}
-
-		return wasAdded;
+		XMLOutputFactory factory = this.staxConfiguration.getOutputFactory();
+		return factory.createXMLStreamWriter(out, encoding);
 	}
 
 
 
 	/*
-	 * It takes care of situation where container is empty. Also if this was
-	 * last conversion it updates the result.
+	 * Writes given elements to a file.
+	 * 
+	 * Children of every composite tag are written in order of its IOrder.
+	 * Position of next child is kept by frame of composite tag on stack, so
+	 * every tag is visited once and tags with the same names do not share
+	 * any state.
 	 */
-	private void handleEmptyContainer(Object objectToConvert, IMapping<?> mapping, LinkedList<Object> parentsList, Map<String, Map<String, IXMLTag>> tmpConvertedChildrenObjs, IXMLTag[] result) {
-		String currentMappedMethod = mapping.getMappedMethodName();
-		String currentKey = this.getMappingKey(mapping, objectToConvert);
-		/*
-		 * Remove container if empty also there is key to handle if this mapping
-		 * is Map
-		 */
-		parentsList.removeFirst();
-		String primitiveKey = "";
-		IMapping<?> parentMapping = mapping.getParentMapping();
-		if (parentMapping != null && parentMapping.getMappingType().equals(MappingType.Map)) {
-			/* remove also a key for value map of map */
-			primitiveKey = parentsList.removeFirst().toString();
+	private void writeTreeModel(XMLStreamWriter writer, IXMLTag root, String encoding, String version) throws XMLStreamException {
+		writer.writeStartDocument(encoding, version);
+		if (root.isSimpleTag()) {
+			this.writeSimpleTag(writer, (ISimpleTag) root);
+			return;
 		}
 
-		Map<String, IXMLTag> convertedTagsForContainer = tmpConvertedChildrenObjs.get(currentKey);
-		IXMLTag tag = convertedTagsForContainer.get(currentMappedMethod);
-		if (!(parentsList.isEmpty())) {
-			this.updateParentsConvertedChildren(tmpConvertedChildrenObjs, parentsList.getFirst(), mapping, primitiveKey, tag);
-			/* remove entry for reuse */
-			convertedTagsForContainer.remove(currentMappedMethod);
-		} else { /* this container is the last to convert */
-			result[0] = tag;
+		ArrayDeque<WriteFrame> stack = new ArrayDeque<WriteFrame>();
+		this.writeXMLTag(writer, root);
+		stack.push(new WriteFrame((ICompositeTag) root));
+		while (!(stack.isEmpty())) {
+			WriteFrame frame = stack.peek();
+			IOrder order = frame.tag.getOrder();
+			if (frame.nextChild >= order.size()) {
+				writer.writeEndElement();
+				stack.pop();
+				continue;
+			}
+
+			IXMLTag tag = order.getTagAt(frame.nextChild++);
+			if (tag.isSimpleTag()) {
+				this.writeSimpleTag(writer, (ISimpleTag) tag);
+			} else {
+				/* move "down the tree" */
+				this.writeXMLTag(writer, tag);
+				stack.push(new WriteFrame((ICompositeTag) tag));
+			}
 		}
 	}
 
 
 
 	/*
-	 * Helper method for processContainerObject method. It takes care of
-	 * situation where container is not empty
+	 * Write tag converting its deferred tags. Every container element is
+	 * written as soon as it is converted and then it is dropped. Objects of
+	 * streaming converters are written by converters.
 	 */
-	private void handleNotEmptyContainer(LinkedList<Object> parentsList, MappingType type, Collection<?> collection, Map<?, ?> mapObj) {
+	private void writeStreamedTag(StreamingContext context, IXMLTag root) throws XMLStreamException {
 
-		Iterator<?> iter = null;
-		Object value = null;
-		if (type.equals(MappingType.Map)) {
-			iter = mapObj.keySet().iterator();
-			Object mapKey = iter.next();
-			value = mapObj.get(mapKey);
-			parentsList.addFirst(mapKey);
-		} else {
-			iter = collection.iterator();
-			value = iter.next();
-		}
+		ArrayDeque<WriteFrame> stack = new ArrayDeque<WriteFrame>();
+		this.startStreamedTag(context, root, stack);
 
-		parentsList.addFirst(value);
-		iter.remove();
+		while (!(stack.isEmpty())) {
+			WriteFrame frame = stack.peek();
+
+			IXMLTag next = null;
+			if (frame.placeholder != null) {
+				/* previous element is written */
+				if (frame.elementPending) {
+					frame.elementPending = false;
+					this.countWrittenElement(context);
+				}
+				if (frame.iterator.hasNext()) {
+					next = this.convertNextElement(context.plan, frame.placeholder, frame.iterator);
+					frame.elementPending = true;
+				}
+			} else if (frame.nextChild < frame.tag.getChildrenCount()) {
+				next = frame.tag.getChild(frame.nextChild++);
+			}
+
+			if (next == null) {
+				context.writer.writeEndElement();
+				stack.pop();
+				continue;
+			}
+
+			this.startStreamedTag(context, next, stack);
+		}
 	}
 
 
 
 	/*
-	 * Writes given elements to a file.
+	 * Write simple tag, object of streaming converter or start of composite
+	 * tag which is pushed on stack.
 	 */
-	private void writeTreeModel(XMLStreamWriter writer, IXMLTag root, String encoding, String version) throws XMLStreamException {
-		writer.writeStartDocument(encoding, version);
-		if (root.isSimpleTag()) {
-			this.writeSimpleTag(writer, (ISimpleTag) root);
+	private void startStreamedTag(StreamingContext context, IXMLTag tag, ArrayDeque<WriteFrame> stack) throws XMLStreamException {
+
+		XMLStreamWriter writer = context.writer;
+		if (tag.isSimpleTag()) {
+			this.writeSimpleTag(writer, (ISimpleTag) tag);
 			return;
 		}
 
-		/*
-		 * These maps are used for: remember current list of composite and
-		 * simple tags children to write and order counter - which element to
-		 * write first
-		 */
-		Map<IXMLQName, List<ICompositeTag>> compositeTagsToWrite = new HashMap<IXMLQName, List<ICompositeTag>>();
-		Map<IXMLQName, List<ISimpleTag>> simpleTagsToWrite = new HashMap<IXMLQName, List<ISimpleTag>>();
-		Map<IXMLQName, Integer> currentElementToWrite = new HashMap<IXMLQName, Integer>();
-
-		ICompositeTag currentCompositeRoot = (ICompositeTag) root;
-		while (currentCompositeRoot != null) {
-			IXMLQName currentCompositeName = currentCompositeRoot.getName();
-			List<ICompositeTag> currentCompositeTags = compositeTagsToWrite.get(currentCompositeName);
-			List<ISimpleTag> currentSimpleTags = simpleTagsToWrite.get(currentCompositeName);
+		if (tag instanceof StreamedObjectPlaceholder) {
+			this.writeStreamedObject(context, (StreamedObjectPlaceholder) tag);
+			return;
+		}
 
-			if (currentCompositeTags == null && currentSimpleTags == null) {
-				/*
-				 * here we are starting so init current compositeTag "context"
-				 */
-				this.writeXMLTag(writer, currentCompositeRoot);
-
-				currentCompositeTags = currentCompositeRoot.getAllCompositeTags();
-				currentSimpleTags = currentCompositeRoot.getAllSimpleTags();
-
-				compositeTagsToWrite.put(currentCompositeName, currentCompositeTags);
-				simpleTagsToWrite.put(currentCompositeName, currentSimpleTags);
-				currentElementToWrite.put(currentCompositeName, 0);
-			}
-
-			/*
-			 * write tags according to ordering
-			 */
-			int elemToWrite = currentElementToWrite.get(currentCompositeName);
-			IOrder order = currentCompositeRoot.getOrder();
-			while (elemToWrite < order.size()) {
-				IXMLTag tag = order.getTagAt(elemToWrite);
-				if (tag.isSimpleTag()) {
-					this.writeSimpleTag(writer, (ISimpleTag) tag);
-					currentSimpleTags.remove(0);
-					elemToWrite++;
-				} else {
-					/*
-					 * save where did we stopped
-					 */
-					currentElementToWrite.put(currentCompositeName, elemToWrite);
-					break;
-				}
+		this.writeXMLTag(writer, tag);
+		WriteFrame frame = new WriteFrame((ICompositeTag) tag);
+		if (tag instanceof ContainerPlaceholder) {
+			frame.placeholder = (ContainerPlaceholder) tag;
+			if (frame.placeholder.node.getType().equals(MappingType.Map)) {
+				frame.iterator = ((Map<?, ?>) frame.placeholder.container).entrySet().iterator();
+			} else {
+				frame.iterator = ((Collection<?>) frame.placeholder.container).iterator();
 			}
+		}
+		stack.push(frame);
+	}
 
-			/*
-			 * At this point we should ask if we are done with this composite
-			 * tag. If yes, we should end tag, move "up the tree"(change to tag
-			 * parent if not root) and move forward order counter since we have
-			 * written composite element.
-			 */
-			if (currentCompositeTags.isEmpty()) {
-				writer.writeEndElement();
 
-				ICompositeTag parent = currentCompositeRoot.getParent();
-				if (parent == null) {
-					break;
-				}
 
-				compositeTagsToWrite.put(currentCompositeName, null);
-				simpleTagsToWrite.put(currentCompositeName, null);
+	/*
+	 * Write object by its streaming converter. Converter has to write one
+	 * balanced element.
+	 */
+	@SuppressWarnings("unchecked")
+	private void writeStreamedObject(StreamingContext context, StreamedObjectPlaceholder placeholder) {
+
+		IStreamingMarshallerConverter<Object> converter = (IStreamingMarshallerConverter<Object>) placeholder.node.getConverter();
+		StreamedObjectWriter elementWriter = new StreamedObjectWriter(context, placeholder);
+		converter.write(placeholder.object, elementWriter);
+
+		if (elementWriter.depth != 0 || elementWriter.elementsNr != 1) {
+			throw new XMLMarshallerException("Streaming converter: " + converter.getClass().getCanonicalName() + " has to write one balanced element");
+		}
+	}
 
-				int parentCounter = currentElementToWrite.get(parent.getName());
-				currentElementToWrite.put(parent.getName(), parentCounter + 1);
 
-				currentCompositeRoot = parent;
-				continue;
-			}
 
-			/*
-			 * Change to first composite tag child in current composite tag
-			 * root. We are moving "down the tree".
-			 * 
-			 * Implementation Note:
-			 * 
-			 * We can do this because we know that composite tag list is not
-			 * null and not empty removing ensures that it will end. Remember
-			 * also that all continues(without holes) simple tags are written in
-			 * "one go". That is if there only remain simple tags children at
-			 * "back" of order list they will be "drained" from simple tags list
-			 * before hitting this place.
-			 * 
-			 * For ex. S - simple tag C - composite tag R - current root
-			 * composite tag
-			 * 
-			 * Lets say we have this ordering: R-CCCSSSSCSS-R
-			 * 
-			 * After writing 3rd composite tag, "control" returns to current
-			 * root tag. Then all simple tags are written (4 of them) in
-			 * "one go", and so on.
-			 * 
-			 * In other words simple tags list will be empty just after
-			 * composite tags list have became empty.
-			 */
-			currentCompositeRoot = currentCompositeTags.remove(0);
-		} /* end inner while loop */
+	/*
+	 * Count written element and flush writer according to flush policy.
+	 */
+	private void countWrittenElement(StreamingContext context) throws XMLStreamException {
+		context.writtenElementsNr++;
+		if (context.flushPolicy.shouldFlush(context.writtenElementsNr)) {
+			context.writer.flush();
+		}
 	}
 
 
@@ -1001,4 +1239,318 @@ class XMLStaXAdaptiveMarshaller implements IXMLAdaptiveMarshaller {
 		}
 	}
 
-}
\ No newline at end of file
+
+
+	/*
+	 * Private Classes ***^_^***
+	 */
+
+	
+	
+	/*
+	 * Object or container being converted. Object frame collects converted
+	 * tags of mapped methods, container frame collects converted elements in
+	 * wrapper tag.
+	 */
+	private static class Frame {
+
+		private MarshallingPlan.Node node;
+
+		private Object object;
+
+		/* key of map value, null if parent is not a Map */
+		private String mapKey;
+
+		/* next mapped method of object */
+		private int nextChild = 0;
+
+		private Map<String, IXMLTag> convertedChildren;
+
+		private Iterator<?> iterator;
+
+		private ICompositeTag wrapper;
+
+
+
+		Frame(MarshallingPlan.Node node, Object object, String mapKey) {
+			this.node = node;
+			this.object = object;
+			this.mapKey = mapKey;
+		}
+
+	}
+
+
+
+	/*
+	 * Tag taking place of Collection or Map in tree model during streaming
+	 * marshal. Container elements are converted while placeholder is written,
+	 * its own children are not written.
+	 */
+	private static class ContainerPlaceholder extends CompositeTag {
+
+		private MarshallingPlan.Node node;
+
+		private Object container;
+
+		/* object which returned container */
+		private Object owner;
+
+
+
+		ContainerPlaceholder(IXMLQName name, MarshallingPlan.Node node, Object container, Object owner) {
+			super(name);
+			this.node = node;
+			this.container = container;
+			this.owner = owner;
+		}
+
+	}
+
+
+
+	/*
+	 * Tag taking place of object of streaming converter in tree model during
+	 * streaming marshal. Its dependent objects are converted when converter
+	 * writes them.
+	 */
+	private static class StreamedObjectPlaceholder extends CompositeTag {
+
+		private MarshallingPlan.Node node;
+
+		private Object object;
+
+
+
+		StreamedObjectPlaceholder(IXMLQName name, MarshallingPlan.Node node, Object object) {
+			super(name);
+			this.node = node;
+			this.object = object;
+		}
+
+	}
+
+
+
+	/*
+	 * State of one streaming marshal.
+	 */
+	private static class StreamingContext {
+
+		private XMLStreamWriter writer;
+
+		private MarshallingPlan plan;
+
+		private FlushPolicy flushPolicy;
+
+		private long writtenElementsNr = 0;
+
+
+
+		StreamingContext(XMLStreamWriter writer, MarshallingPlan plan, FlushPolicy flushPolicy) {
+			this.writer = writer;
+			this.plan = plan;
+			this.flushPolicy = flushPolicy;
+		}
+
+	}
+
+
+
+	/*
+	 * Element writer given to streaming converter, it writes directly to
+	 * stream writer of marshal.
+	 */
+	private class StreamedObjectWriter implements IXMLElementWriter {
+
+		private StreamingContext context;
+
+		private StreamedObjectPlaceholder placeholder;
+
+		/* number of started and not ended elements */
+		private int depth = 0;
+
+		/* number of top most elements */
+		private int elementsNr = 0;
+
+
+
+		StreamedObjectWriter(StreamingContext context, StreamedObjectPlaceholder placeholder) {
+			this.context = context;
+			this.placeholder = placeholder;
+		}
+
+
+
+		@Override
+		public void startElement(IXMLQName name) {
+			if (name == null) {
+				throw new IllegalArgumentException("Name can't be null");
+			}
+			this.checkStart();
+			try {
+				this.context.writer.writeStartElement(name.getPrefix(), name.getLocalPart(), name.getNamespaceURI());
+			} catch (XMLStreamException e) {
+				throw new XMLMarshallerException(e);
+			}
+		}
+
+
+
+		@Override
+		public void startElement(String localPart) {
+			this.checkStart();
+			try {
+				/* explicit empty namespace as in tree model, default namespace of parent is not inherited */
+				this.context.writer.writeStartElement("", localPart, "");
+			} catch (XMLStreamException e) {
+				throw new XMLMarshallerException(e);
+			}
+		}
+
+
+
+		@Override
+		public void writeNamespace(String prefix, String namespaceURI) {
+			this.checkStarted();
+			try {
+				this.context.writer.writeNamespace(prefix, namespaceURI);
+			} catch (XMLStreamException e) {
+				throw new XMLMarshallerException(e);
+			}
+		}
+
+
+
+		@Override
+		public void writeAttribute(IXMLQName name, String value) {
+			if (name == null) {
+				throw new IllegalArgumentException("Name can't be null");
+			}
+			this.checkStarted();
+			try {
+				this.context.writer.writeAttribute(name.getPrefix(), name.getNamespaceURI(), name.getLocalPart(), value);
+			} catch (XMLStreamException e) {
+				throw new XMLMarshallerException(e);
+			}
+		}
+
+
+
+		@Override
+		public void writeAttribute(String localPart, String value) {
+			this.checkStarted();
+			try {
+				this.context.writer.writeAttribute(localPart, value);
+			} catch (XMLStreamException e) {
+				throw new XMLMarshallerException(e);
+			}
+		}
+
+
+
+		@Override
+		public void writeText(String text) {
+			this.checkStarted();
+			try {
+				this.context.writer.writeCharacters(text);
+			} catch (XMLStreamException e) {
+				throw new XMLMarshallerException(e);
+			}
+		}
+
+
+
+		@Override
+		public void endElement() {
+			this.checkStarted();
+			try {
+				this.context.writer.writeEndElement();
+			} catch (XMLStreamException e) {
+				throw new XMLMarshallerException(e);
+			}
+			this.depth--;
+		}
+
+
+
+		@Override
+		public void writeChild(String methodName) {
+			this.checkStarted();
+			MarshallingPlan plan = this.context.plan;
+			MarshallingPlan.Node childNode = plan.getChild(this.placeholder.node, methodName);
+			if (childNode == null) {
+				throw new XMLMarshallerException("Method: " + methodName + " is not mapped in mapping of class: " + this.placeholder.object.getClass().getCanonicalName());
+			}
+
+			Object owner = this.placeholder.object;
+			Object child = XMLStaXAdaptiveMarshaller.this.getObjectFromMethod(owner, childNode);
+			XMLStaXAdaptiveMarshaller.this.checkIfObjectIsNull(child, methodName, owner);
+
+			IXMLTag childTag = null;
+			if (XMLStaXAdaptiveMarshaller.this.isDeferred(childNode)) {
+				childTag = XMLStaXAdaptiveMarshaller.this.createDeferredTag(childNode, child, owner);
+			} else {
+				childTag = XMLStaXAdaptiveMarshaller.this.createTreeModelFromObject(plan, childNode, child, true);
+			}
+
+			try {
+				XMLStaXAdaptiveMarshaller.this.writeStreamedTag(this.context, childTag);
+			} catch (XMLStreamException e) {
+				throw new XMLMarshallerException(e);
+			}
+		}
+
+
+
+		/*
+		 * Only one top most element can be written.
+		 */
+		private void checkStart() {
+			if (this.depth == 0 && this.elementsNr > 0) {
+				throw new XMLMarshallerException("Streaming converter can write only one element");
+			}
+			if (this.depth == 0) {
+				this.elementsNr++;
+			}
+			this.depth++;
+		}
+
+
+
+		private void checkStarted() {
+			if (this.depth == 0) {
+				throw new XMLMarshallerException("There is no started element");
+			}
+		}
+
+	}
+
+
+
+	/*
+	 * Composite tag being written. Placeholder frame of streaming marshal
+	 * iterates container instead of children.
+	 */
+	private static class WriteFrame {
+
+		private ICompositeTag tag;
+
+		private int nextChild = 0;
+
+		private ContainerPlaceholder placeholder;
+
+		private Iterator<?> iterator;
+
+		/* true if element of container was started and not counted */
+		private boolean elementPending = false;
+
+
+
+		WriteFrame(ICompositeTag tag) {
+			this.tag = tag;
+		}
+
+	}
+
+}
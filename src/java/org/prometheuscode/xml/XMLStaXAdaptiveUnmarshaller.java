@@ -19,36 +19,33 @@ package org.prometheuscode.xml;
 
 import java.io.File;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-
 import java.io.IOException;
 
 import java.io.InputStream;
 
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 import java.util.HashMap;
 
 import java.util.ArrayList;
 
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
-import javassist.ClassPool;
-import javassist.CtClass;
-import javassist.NotFoundException;
-
-import javax.xml.namespace.QName;
-
-import javax.xml.stream.XMLInputFactory;
 import static javax.xml.stream.XMLStreamConstants.*;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
-import org.prometheuscode.utils.Utils;
 import org.prometheuscode.xml.annotation.AnnotationException;
-import org.prometheuscode.xml.annotation.TagToJavaConverter;
-import org.prometheuscode.xml.annotation.TagToJavaConverter.XMLQualifiedName;
 import org.prometheuscode.xml.treemodel.CompositeTag;
 import org.prometheuscode.xml.treemodel.ICompositeTag;
 import org.prometheuscode.xml.treemodel.ISimpleTag;
@@ -86,7 +83,30 @@ class XMLStaXAdaptiveUnmarshaller implements IXMLAdaptiveUnmarshaller {
 
 	private IXMLTreeModelFactory treeModelFactory;
 
-	private Map<IXMLQName, IUnmarshallerConverter> converters = new HashMap<IXMLQName, IUnmarshallerConverter>();
+	private IXMLQNameSymbolTable symbolTable = new XMLQNameSymbolTable();
+
+	/* registered converters compiled for symbol table */
+	private ConverterDispatchTable converters = new ConverterDispatchTable(new HashMap<IXMLQName, IUnmarshallerConverter>(), this.symbolTable);
+
+	private ConcurrentConversionConfig concurrentConversionConfig;
+
+	private FileReadStrategy fileReadStrategy = FileReadStrategy.BUFFERED;
+
+	private StaXConfiguration staxConfiguration = new StaXConfiguration();
+
+	private IXMLParserBackend parserBackend = new StaXParserBackend();
+
+	private int maxRetainedTags = TagsCache.DEFAULT_MAX_RETAINED_TAGS;
+
+	private boolean threadLocalTagsCache = false;
+
+	/* tags cache of thread, it is taken out while it is used */
+	private ThreadLocal<TagsCache> threadTagsCache = new ThreadLocal<TagsCache>();
+
+	/* read when mapping is created first time */
+	private ConverterIndex converterIndex;
+
+	private ConverterClassScanner classScanner = new ConverterClassScanner(this.getClass().getClassLoader());
 
 
 
@@ -122,8 +142,7 @@ class XMLStaXAdaptiveUnmarshaller implements IXMLAdaptiveUnmarshaller {
 
 		boolean getCompleteTreeModel = true;
 
-		ParsingResult result = this.unmarshalXML(fileStream, getCompleteTreeModel);
-		return result.getTreeModel();
+		return this.unmarshalXML(fileStream, getCompleteTreeModel, null);
 	}
 
 
@@ -136,289 +155,963 @@ class XMLStaXAdaptiveUnmarshaller implements IXMLAdaptiveUnmarshaller {
 	 */
 	@Override
 	public IXMLRoot getTreeModel(String xmlFilePath) {
+		return this.getTreeModel(this.toPath(xmlFilePath));
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if file could not be opened.
+	 * 
+	 */
+	@Override
+	public IXMLRoot getTreeModel(Path xmlFilePath) {
+
+		InputStream in = this.openFile(xmlFilePath);
+
+		boolean getCompleteTreeModel = true;
+
+		return this.unmarshalXML(in, getCompleteTreeModel, null);
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if file input stream is null.
+	 * 
+	 * @throws XMLUnmarshallerException
+	 *             if error occured during unmarshalling.
+	 * 
+	 */
+	@Override
+	public Map<IXMLQName, List<Object>> unmarshal(InputStream xmlFileStream) {
+
+		ConvertedObjectsCollector collector = new ConvertedObjectsCollector();
+		this.unmarshal(xmlFileStream, collector);
+		return collector.getConvertedObjs();
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if file could not be found.
+	 * 
+	 */
+	@Override
+	public Map<IXMLQName, List<Object>> unmarshal(String xmlFilePath) {
+		return this.unmarshal(this.toPath(xmlFilePath));
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if file could not be opened.
+	 * 
+	 */
+	@Override
+	public Map<IXMLQName, List<Object>> unmarshal(Path xmlFilePath) {
+
+		ConvertedObjectsCollector collector = new ConvertedObjectsCollector();
+		this.unmarshal(xmlFilePath, collector);
+		return collector.getConvertedObjs();
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if file input stream or handler is null.
+	 * 
+	 * @throws XMLUnmarshallerException
+	 *             if error occured during unmarshalling.
+	 * 
+	 */
+	@Override
+	public void unmarshal(InputStream xmlFileStream, IUnmarshallerHandler handler) {
 
-		InputStream in = null;
+		if (handler == null) {
+			throw new IllegalArgumentException("Handler can't be null");
+		}
+
+		boolean getCompleteTreeModel = false;
+
+		this.unmarshalXML(xmlFileStream, getCompleteTreeModel, handler);
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if file could not be found or handler is null.
+	 * 
+	 */
+	@Override
+	public void unmarshal(String xmlFilePath, IUnmarshallerHandler handler) {
+		this.unmarshal(this.toPath(xmlFilePath), handler);
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if file could not be opened or handler is null.
+	 * 
+	 */
+	@Override
+	public void unmarshal(Path xmlFilePath, IUnmarshallerHandler handler) {
+
+		if (handler == null) {
+			throw new IllegalArgumentException("Handler can't be null");
+		}
+
+		InputStream in = this.openFile(xmlFilePath);
+
+		boolean getCompleteTreeModel = false;
+
+		this.unmarshalXML(in, getCompleteTreeModel, handler);
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if file input stream is null.
+	 * 
+	 * @throws XMLUnmarshallerException
+	 *             if parser could not be created.
+	 * 
+	 */
+	@Override
+	public IUnmarshallerIterator unmarshalIterator(InputStream xmlFileStream) {
+
+		XMLStreamReader reader = this.createXMLStreamReader(xmlFileStream);
+		return new LazyUnmarshallerIterator(reader, xmlFileStream);
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if file could not be found.
+	 * 
+	 */
+	@Override
+	public IUnmarshallerIterator unmarshalIterator(String xmlFilePath) {
+		return this.unmarshalIterator(this.toPath(xmlFilePath));
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if file could not be opened.
+	 * 
+	 */
+	@Override
+	public IUnmarshallerIterator unmarshalIterator(Path xmlFilePath) {
+		return this.unmarshalIterator(this.openFile(xmlFilePath));
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if any argument is null, number of chunks is not positive,
+	 *             file could not be found or its encoding is not ASCII
+	 *             compatible.
+	 * 
+	 * @throws XMLUnmarshallerException
+	 *             if error occured during unmarshalling.
+	 * 
+	 */
+	@Override
+	public Map<IXMLQName, List<Object>> unmarshalInChunks(String xmlFilePath, IXMLQName recordTagName, int chunksNr, Executor executor) {
+		return this.unmarshalInChunks(this.toPath(xmlFilePath), recordTagName, chunksNr, executor);
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if any argument is null, number of chunks is not positive,
+	 *             file could not be found or its encoding is not ASCII
+	 *             compatible.
+	 * 
+	 * @throws XMLUnmarshallerException
+	 *             if error occured during unmarshalling.
+	 * 
+	 */
+	@Override
+	public Map<IXMLQName, List<Object>> unmarshalInChunks(Path xmlFilePath, IXMLQName recordTagName, int chunksNr, final Executor executor) {
+
+		if (xmlFilePath == null || recordTagName == null || executor == null) {
+			throw new IllegalArgumentException("Arguments can't be null");
+		}
+
+		if (chunksNr <= 0) {
+			throw new IllegalArgumentException("Number of chunks must be positive");
+		}
+
+		File file = xmlFilePath.toFile();
+		if (!(file.isFile())) {
+			throw new IllegalArgumentException("File not found: " + xmlFilePath);
+		}
+
+		String prefix = recordTagName.getPrefix();
+		String recordQualifiedName = (prefix == null || prefix.isEmpty()) ? recordTagName.getLocalPart() : prefix + ":" + recordTagName.getLocalPart();
+
+		/* chunk is parsed as soon as it is found, while the rest of file is split */
+		final List<FutureTask<Map<IXMLQName, List<Object>>>> tasks = new ArrayList<FutureTask<Map<IXMLQName, List<Object>>>>();
 		try {
-			in = new FileInputStream(xmlFilePath);
-		} catch (FileNotFoundException exp) {
-			throw new IllegalArgumentException(exp);
+			new XMLFileSplitter(file, recordQualifiedName).split(chunksNr, new XMLFileSplitter.IChunkHandler() {
+
+				@Override
+				public void chunkFound(final XMLFileSplitter.FileChunk chunk) {
+					FutureTask<Map<IXMLQName, List<Object>>> task = new FutureTask<Map<IXMLQName, List<Object>>>(new Callable<Map<IXMLQName, List<Object>>>() {
+
+						@Override
+						public Map<IXMLQName, List<Object>> call() throws Exception {
+							return XMLStaXAdaptiveUnmarshaller.this.unmarshalChunk(chunk);
+						}
+
+					});
+
+					tasks.add(task);
+					executor.execute(task);
+				}
+
+			});
+		} catch (IOException e) {
+			this.cancelAll(tasks);
+			throw new XMLUnmarshallerException(e);
+		} catch (RuntimeException e) {
+			this.cancelAll(tasks);
+			throw e;
 		}
 
-		boolean getCompleteTreeModel = true;
+		/* merge results in file order */
+		Map<IXMLQName, List<Object>> convertedObjs = new HashMap<IXMLQName, List<Object>>();
+		for (FutureTask<Map<IXMLQName, List<Object>>> task : tasks) {
+			Map<IXMLQName, List<Object>> chunkObjs = this.getChunkResult(task, tasks);
+
+			for (Map.Entry<IXMLQName, List<Object>> entry : chunkObjs.entrySet()) {
+				List<Object> list = convertedObjs.get(entry.getKey());
+				if (list == null) {
+					convertedObjs.put(entry.getKey(), entry.getValue());
+				} else {
+					list.addAll(entry.getValue());
+				}
+			}
+		}
+
+		return convertedObjs;
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             argument is null.
+	 */
+	@Override
+	public void setFileReadStrategy(FileReadStrategy strategy) {
+
+		if (strategy == null) {
+			throw new IllegalArgumentException("Strategy can't be null");
+		}
+
+		this.fileReadStrategy = strategy;
+	}
+
+
+
+	@Override
+	public FileReadStrategy getFileReadStrategy() {
+		return this.fileReadStrategy;
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             argument is null.
+	 */
+	@Override
+	public void setSymbolTable(IXMLQNameSymbolTable symbolTable) {
+
+		if (symbolTable == null) {
+			throw new IllegalArgumentException("Symbol table can't be null");
+		}
+
+		this.symbolTable = symbolTable;
+		this.converters = new ConverterDispatchTable(this.converters.getConverters(), symbolTable);
+	}
+
+
+
+	@Override
+	public IXMLQNameSymbolTable getSymbolTable() {
+		return this.symbolTable;
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if argument is negative.
+	 */
+	@Override
+	public void setMaxRetainedTags(int maxRetainedTags) {
+
+		if (maxRetainedTags < 0) {
+			throw new IllegalArgumentException("Max number of retained tags can't be negative");
+		}
+
+		this.maxRetainedTags = maxRetainedTags;
+	}
+
+
+
+	@Override
+	public int getMaxRetainedTags() {
+		return this.maxRetainedTags;
+	}
+
+
+
+	@Override
+	public void setThreadLocalTagsCache(boolean threadLocal) {
+		this.threadLocalTagsCache = threadLocal;
+		if (!(threadLocal)) {
+			this.threadTagsCache.remove();
+		}
+	}
+
+
+
+	@Override
+	public boolean isThreadLocalTagsCache() {
+		return this.threadLocalTagsCache;
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             argument is null.
+	 */
+	@Override
+	public void setStaXConfiguration(StaXConfiguration configuration) {
+
+		if (configuration == null) {
+			throw new IllegalArgumentException("Configuration can't be null");
+		}
+
+		this.staxConfiguration = configuration;
+	}
+
 
-		ParsingResult result = this.unmarshalXML(in, getCompleteTreeModel);
-		return result.getTreeModel();
+
+	@Override
+	public StaXConfiguration getStaXConfiguration() {
+		return this.staxConfiguration;
 	}
 
 
 
-	/**
-	 * 
-	 * @throws IllegalArgumentException
-	 *             if file input stream is null.
-	 * 
-	 * @throws XMLUnmarshallerException
-	 *             if error occured during unmarshalling.
-	 * 
-	 */
-	@Override
-	public Map<IXMLQName, List<Object>> unmarshal(InputStream xmlFileStream) {
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             argument is null.
+	 */
+	@Override
+	public void setParserBackend(IXMLParserBackend backend) {
+
+		if (backend == null) {
+			throw new IllegalArgumentException("Parser backend can't be null");
+		}
+
+		this.parserBackend = backend;
+	}
+
+
+
+	@Override
+	public IXMLParserBackend getParserBackend() {
+		return this.parserBackend;
+	}
+
+
+
+	@Override
+	public String getBackendDescription() {
+		return "parser: " + this.parserBackend + ", StaX: " + this.staxConfiguration.getImplementation() + " (" + this.staxConfiguration.getInputFactory().getClass().getName() + ")";
+	}
+
+
+
+	@Override
+	public void setConcurrentConversion(ConcurrentConversionConfig config) {
+		this.concurrentConversionConfig = config;
+	}
+
+
+
+	@Override
+	public ConcurrentConversionConfig getConcurrentConversion() {
+		return this.concurrentConversionConfig;
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             argument is null.
+	 */
+	@Override
+	public void registerMapping(Map<IXMLQName, IUnmarshallerConverter> converters) {
+
+		if (converters == null) {
+			throw new IllegalArgumentException("Converts can't be null");
+		}
+
+		this.converters = new ConverterDispatchTable(converters, this.symbolTable);
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             argument is null.
+	 * 
+	 * @throws AnnotationException
+	 *             if annotation has incorrect state.
+	 */
+	@Override
+	public Map<IXMLQName, IUnmarshallerConverter> createMapping(Set<String> packages) {
+
+		if (packages == null) {
+			throw new IllegalArgumentException("Argument can not be null");
+		}
+		Map<IXMLQName, IUnmarshallerConverter> newConverters = new HashMap<IXMLQName, IUnmarshallerConverter>();
+		List<ConverterIndex.TagConverterEntry> entries = new ArrayList<ConverterIndex.TagConverterEntry>();
+
+		/* locations compiled with index processor are not scanned */
+		if (!(packages.isEmpty())) {
+			entries.addAll(this.classScanner.scan(packages, this.getConverterIndex()));
+		}
+
+		for (ConverterIndex.TagConverterEntry entry : entries) {
+			IXMLQName tagToBindName = this.createTagName(entry.getNamespaceURI(), entry.getLocalPart());
+			newConverters.put(tagToBindName, this.createUserConverter(entry.getClassName()));
+		}
+
+		return newConverters;
+	}
+
+
+
+	@Override
+	public void setScanCacheFile(Path cacheFile) {
+		this.classScanner.setCacheFile(cacheFile);
+	}
+
+
+
+	@Override
+	public Path getScanCacheFile() {
+		return this.classScanner.getCacheFile();
+	}
+
+
+
+	@Override
+	public Map<IXMLQName, IUnmarshallerConverter> getRegisteredMapping() {
+		return this.converters.getConverters();
+	};
+
+	
+	
+	/*
+	 * Private Clasess ***^_^***
+	 */
+
+	
+	
+	/*
+	 * Handler collecting converted objects per tag name. It is used when user
+	 * wants all converted objects at once.
+	 */
+	private static class ConvertedObjectsCollector implements IUnmarshallerHandler {
+
+		private Map<IXMLQName, List<Object>> convertedObjs = new HashMap<IXMLQName, List<Object>>();
+
+
+
+		ConvertedObjectsCollector() {
+		}
+
+
+
+		@Override
+		public void handle(IXMLQName tagName, Object convertedObj) {
+			List<Object> list = this.convertedObjs.get(tagName);
+			if (list == null) {
+				list = new ArrayList<Object>();
+				this.convertedObjs.put(tagName, list);
+			}
+
+			list.add(convertedObj);
+		}
+
+
+
+		Map<IXMLQName, List<Object>> getConvertedObjs() {
+			return this.convertedObjs;
+		}
+
+	}
+
+
+
+	/*
+	 * Class holds state of parsing, so parsing can be stopped after top most
+	 * converted tag and resumed later.
+	 */
+	private static class ParsingState {
+
+		private XMLStreamReader reader;
+
+		private boolean getAllModelWithoutConversion;
+
+		private IUnmarshallerHandler handler;
+
+		/* converters registered when parsing has started */
+		private ConverterDispatchTable converters;
+
+		/* null if tags are converted by parsing thread */
+		private ConcurrentConversion concurrentConversion;
+
+		/* cache for tags, null if complete tree model is created */
+		private TagsCache tagsCache;
+
+		/*
+		 * This temporary map holds converted children of composite tags for
+		 * which converter was registered.
+		 */
+		private Map<IXMLQName, Map<IXMLQName, List<Object>>> tmpConvertedChildren = new HashMap<IXMLQName, Map<IXMLQName, List<Object>>>();
+
+		/*
+		 * Vars for XML tree tag depth. They indicate if we should build tree
+		 * model objects for composite tag for which converter was registered.
+		 */
+		private boolean shouldCreateTreeModel = false;
+
+		private boolean useCache = true;
+
+		/* relative to current tag for which converter is registered */
+		private int relativeCurrentDepth = 0;
+
+		/*
+		 * NOTE: tmp root simplifies code and handle one simple tag case
+		 */
+		private ICompositeTag currentParent = new CompositeTag(new XMLQName("root", "", ""));
+
+		/* null if complete tree model is created, user may change its names */
+		private IXMLQNameSymbolTable symbolTable;
+
+		private IXMLQName tmpName = new XMLQName();
 
-		boolean getCompleteTreeModel = false;
+		private Map<IXMLQName, String> tmpAttributes = new HashMap<IXMLQName, String>();
 
-		ParsingResult result = this.unmarshalXML(xmlFileStream, getCompleteTreeModel);
-		return result.getConvertedObjs();
-	}
+		private Map<String, String> tmpNamespaces = new HashMap<String, String>();
 
 
 
-	/**
-	 * 
-	 * @throws IllegalArgumentException
-	 *             if file could not be found.
-	 * 
-	 */
-	@Override
-	public Map<IXMLQName, List<Object>> unmarshal(String xmlFilePath) {
+		ParsingState(XMLStreamReader reader, boolean getAllModelWithoutConversion, IUnmarshallerHandler handler, ConverterDispatchTable converters) {
+			this.reader = reader;
+			this.getAllModelWithoutConversion = getAllModelWithoutConversion;
+			this.handler = handler;
+			this.converters = converters;
 
-		InputStream in = null;
-		try {
-			in = new FileInputStream(xmlFilePath);
-		} catch (FileNotFoundException exp) {
-			throw new IllegalArgumentException(exp);
+			if (getAllModelWithoutConversion) {
+				this.shouldCreateTreeModel = true;
+				this.useCache = false;
+			} else {
+				this.symbolTable = converters.getSymbolTable();
+			}
 		}
 
-		boolean getCompleteTreeModel = false;
-
-		ParsingResult result = this.unmarshalXML(in, getCompleteTreeModel);
-		return result.getConvertedObjs();
 	}
 
 
 
-	/**
-	 * 
-	 * @throws IllegalArgumentException
-	 *             argument is null.
+	/*
+	 * Iterator resumes parsing every time it needs next converted object. It
+	 * is also a handler for converted objects of its own parsing state.
 	 */
-	@Override
-	public void registerMapping(Map<IXMLQName, IUnmarshallerConverter> converters) {
+	private class LazyUnmarshallerIterator implements IUnmarshallerIterator, IUnmarshallerHandler {
 
-		if (converters == null) {
-			throw new IllegalArgumentException("Converts can't be null");
-		}
+		private InputStream fileStream;
 
-		this.converters = new HashMap<IXMLQName, IUnmarshallerConverter>(converters);
-	}
+		private ParsingState state;
 
+		private LinkedList<Object> convertedObjs = new LinkedList<Object>();
 
+		private boolean closed = false;
 
-	/**
-	 * 
-	 * @throws IllegalArgumentException
-	 *             argument is null.
-	 * 
-	 * @throws AnnotationException
-	 *             if annotation has incorrect state.
-	 */
-	@Override
-	public Map<IXMLQName, IUnmarshallerConverter> createMapping(Set<String> packages) {
 
-		if (packages == null) {
-			throw new IllegalArgumentException("Argument can not be null");
+
+		LazyUnmarshallerIterator(XMLStreamReader reader, InputStream fileStream) {
+			this.fileStream = fileStream;
+			this.state = XMLStaXAdaptiveUnmarshaller.this.createParsingState(reader, false, this);
 		}
-		/* TODO cache */
-		Map<IXMLQName, IUnmarshallerConverter> newConverters = new HashMap<IXMLQName, IUnmarshallerConverter>();
-		Class<TagToJavaConverter> annotationClass = TagToJavaConverter.class;
-		Class<?> converterInterface = IUnmarshallerConverter.class;
 
-		ClassPool pool = ClassPool.getDefault();
-		for (String packageName : packages) {
-			File[] packageFiles = Utils.getClassFilesFromPackage(packageName);
 
-			/* inspect class files */
-			for (File file : packageFiles) {
-				if (file.isDirectory()) {
-					continue;
-				}
 
-				CtClass clazzToCheck = null;
-				try {
-					clazzToCheck = pool.makeClass(new FileInputStream(file));
-				} catch (IOException e) {
-					e.printStackTrace();
+		/**
+		 * 
+		 * @throws XMLUnmarshallerException
+		 *             if error occured during unmarshalling.
+		 */
+		@Override
+		public boolean hasNext() {
+			try {
+				while (this.convertedObjs.isEmpty() && !(this.closed)) {
+					if (!(XMLStaXAdaptiveUnmarshaller.this.parseNextElements(this.state))) {
+						this.close();
+					}
 				}
+			} catch (XMLStreamException e) {
+				this.close();
+				throw new XMLUnmarshallerException(e);
+			} catch (RuntimeException e) {
+				this.close();
+				throw e;
+			}
+
+			return !(this.convertedObjs.isEmpty());
+		}
 
-				/* check if it implements interface */
-				if (!(this.isImplementingInterface(clazzToCheck, converterInterface))) {
-					continue;
-				}
 
-				/* process annotations */
-				if (clazzToCheck.hasAnnotation(annotationClass)) {
-					this.processAnnotations(clazzToCheck, annotationClass, newConverters);
-				}
 
+		@Override
+		public Object next() {
+			if (!(this.hasNext())) {
+				throw new NoSuchElementException("There are no more converted objects");
 			}
 
+			return this.convertedObjs.removeFirst();
 		}
 
-		return newConverters;
-	}
 
 
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("Converted objects can not be removed");
+		}
 
-	@Override
-	public Map<IXMLQName, IUnmarshallerConverter> getRegisteredMapping() {
-		Map<IXMLQName, IUnmarshallerConverter> converters = new HashMap<IXMLQName, IUnmarshallerConverter>();
-		if (this.converters != null) {
-			converters.putAll(this.converters);
+
+
+		@Override
+		public void close() {
+			if (!(this.closed)) {
+				this.closed = true;
+				XMLStaXAdaptiveUnmarshaller.this.releaseTagsCache(this.state);
+				XMLStaXAdaptiveUnmarshaller.this.closeQuietly(this.state.reader, this.fileStream);
+			}
 		}
 
-		return converters;
-	};
 
-	
-	
+
+		@Override
+		public void handle(IXMLQName tagName, Object convertedObj) {
+			this.convertedObjs.addLast(convertedObj);
+		}
+
+	}
+
+
+
 	/*
-	 * Private Clasess ***^_^***
+	 * Private Methods ***^_^***
 	 */
 
 	
 	
+	private IXMLQName createTagName(String namespaceURI, String localPart) {
+		IXMLQName tagName = this.treeModelFactory.createXMLQName();
+		tagName.setLocalPart(localPart);
+		tagName.setNamespaceURI(namespaceURI);
+		return tagName;
+	}
+
+
+
 	/*
-	 * Class helps in handling multi-return from parsing.
+	 * Create instance of annoted user converter class.
 	 */
-	private static class ParsingResult {
-
-		private IXMLRoot treeModelRoot;
+	private IUnmarshallerConverter createUserConverter(String className) {
 
-		private Map<IXMLQName, List<Object>> convertedObjs;
+		IUnmarshallerConverter userConverter = null;
+		Class<?> userClazz = null;
+		try {
+			userClazz = this.getClass().getClassLoader().loadClass(className);
+			userConverter = (IUnmarshallerConverter) userClazz.newInstance();
+		} catch (InstantiationException e) {
+			throw new AnnotationException("Annotation was put on: " + userClazz.getCanonicalName() + " which might not have no-arg constructor", e);
+		} catch (IllegalAccessException e) {
+			throw new AnnotationException("Annotation was put on: " + userClazz.getCanonicalName() + " might not have proper access rights for no-arg constructor", e);
+		} catch (ClassNotFoundException e) {
+			throw new AnnotationException("Annoted class: " + className + " could not be loaded", e);
+		} catch (ClassCastException e) {
+			throw new AnnotationException("Annotation was put on: " + className + " which does not implement " + IUnmarshallerConverter.class.getCanonicalName(), e);
+		}
+		return userConverter;
+	}
 
 
 
-		ParsingResult() {
+	/*
+	 * Converters index is read once, when mapping is created first time.
+	 */
+	private synchronized ConverterIndex getConverterIndex() {
+		if (this.converterIndex == null) {
+			this.converterIndex = ConverterIndex.load(this.getClass().getClassLoader());
 		}
+		return this.converterIndex;
+	}
 
 
 
-		ParsingResult(IXMLRoot treeModelRoot, Map<IXMLQName, List<Object>> convertedObjs) {
-			this.treeModelRoot = treeModelRoot;
-			this.convertedObjs = convertedObjs;
+	/*
+	 * Helps in creating StaX parser.
+	 */
+	private IXMLRoot unmarshalXML(InputStream fileStream, boolean getCompleteTreeModel, IUnmarshallerHandler handler) {
+
+		XMLStreamReader reader = this.createXMLStreamReader(fileStream);
+		ParsingState state = null;
+		try {
+			state = this.createParsingState(reader, getCompleteTreeModel, handler);
+			return this.parseElements(state);
+		} catch (XMLStreamException e) {
+			throw new XMLUnmarshallerException(e);
+		} finally {
+			this.releaseTagsCache(state);
+			this.closeQuietly(reader, fileStream);
 		}
+	}
+
 
 
+	/*
+	 * Converts file path given by user.
+	 */
+	private Path toPath(String xmlFilePath) {
 
-		IXMLRoot getTreeModel() {
-			return this.treeModelRoot;
+		if (xmlFilePath == null) {
+			throw new IllegalArgumentException("File path can't be null");
 		}
 
+		try {
+			return Paths.get(xmlFilePath);
+		} catch (InvalidPathException exp) {
+			throw new IllegalArgumentException(exp);
+		}
+	}
 
 
-		Map<IXMLQName, List<Object>> getConvertedObjs() {
-			return this.convertedObjs;
+
+	/*
+	 * Opens file according to read strategy.
+	 */
+	private InputStream openFile(Path xmlFilePath) {
+
+		if (xmlFilePath == null) {
+			throw new IllegalArgumentException("File path can't be null");
 		}
 
+		try {
+			return FileInputStreamFactory.open(xmlFilePath, this.fileReadStrategy);
+		} catch (IOException exp) {
+			throw new IllegalArgumentException(exp);
+		}
 	}
 
 
 
 	/*
-	 * Private Methods ***^_^***
+	 * Parse and convert one chunk of file. Tags are always converted by
+	 * calling thread, because chunks are parsed by executor already.
 	 */
+	private Map<IXMLQName, List<Object>> unmarshalChunk(XMLFileSplitter.FileChunk chunk) throws IOException {
+
+		ConvertedObjectsCollector collector = new ConvertedObjectsCollector();
+		InputStream chunkStream = chunk.openStream(this.fileReadStrategy);
+		XMLStreamReader reader = this.createXMLStreamReader(chunkStream);
+		ParsingState state = new ParsingState(reader, false, collector, this.converters);
+		state.tagsCache = this.acquireTagsCache(state.symbolTable);
+		try {
+			this.parseElements(state);
+		} catch (XMLStreamException e) {
+			throw new XMLUnmarshallerException("Error in chunk of file at bytes " + chunk.getStart() + "-" + chunk.getEnd(), e);
+		} finally {
+			this.releaseTagsCache(state);
+			this.closeQuietly(reader, chunkStream);
+		}
+
+		return collector.getConvertedObjs();
+	}
+
+
 
-	
-	
 	/*
-	 * Does class implements specified interface?
+	 * Wait for result of chunk. Other chunks are cancelled when any chunk
+	 * fails.
 	 */
-	private boolean isImplementingInterface(CtClass clazzToCheck, Class<?> interfeceClazz) {
-		CtClass[] interfaces = null;
+	private Map<IXMLQName, List<Object>> getChunkResult(FutureTask<Map<IXMLQName, List<Object>>> task, List<FutureTask<Map<IXMLQName, List<Object>>>> tasks) {
 		try {
-			interfaces = clazzToCheck.getInterfaces();
-		} catch (NotFoundException e1) {
-			/* interfaces on class could not be found? */
-			e1.printStackTrace();
+			return task.get();
+		} catch (InterruptedException e) {
+			this.cancelAll(tasks);
+			Thread.currentThread().interrupt();
+			throw new XMLUnmarshallerException(e);
+		} catch (ExecutionException e) {
+			this.cancelAll(tasks);
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new XMLUnmarshallerException(cause);
 		}
+	}
 
-		String unmarshallerInterfaceName = interfeceClazz.getCanonicalName();
-		boolean found = false;
-		for (CtClass interf : interfaces) {
-			if (interf.getName().equals(unmarshallerInterfaceName)) {
-				found = true;
-				break;
-			}
+
+
+	private void cancelAll(List<FutureTask<Map<IXMLQName, List<Object>>>> tasks) {
+		for (FutureTask<Map<IXMLQName, List<Object>>> task : tasks) {
+			task.cancel(true);
 		}
-		return found;
 	}
 
 
 
 	/*
-	 * Process user specified annotations to register mappings.
+	 * Creates parsing state. Concurrent conversion is used only if there is
+	 * conversion at all.
 	 */
-	private void processAnnotations(CtClass clazzToCheck, Class<?> annotationType, Map<IXMLQName, IUnmarshallerConverter> newConverters) {
+	private ParsingState createParsingState(XMLStreamReader reader, boolean getCompleteTreeModel, IUnmarshallerHandler handler) {
+		ParsingState state = new ParsingState(reader, getCompleteTreeModel, handler, this.converters);
+
+		ConcurrentConversionConfig config = this.concurrentConversionConfig;
+		if (config != null && !(getCompleteTreeModel)) {
+			state.concurrentConversion = new ConcurrentConversion(config, state.converters, handler, this.maxRetainedTags);
+		} else if (!(getCompleteTreeModel)) {
+			state.tagsCache = this.acquireTagsCache(state.symbolTable);
+		}
 
-		TagToJavaConverter annot = null;
-		try {
-			annot = (TagToJavaConverter) clazzToCheck.getAnnotation(annotationType);
-		} catch (ClassNotFoundException e) {
-			e.printStackTrace();
+		return state;
+	}
+
+
+
+	/*
+	 * Get tags cache of this thread if it should be reused and it is not used
+	 * already, otherwise create new one.
+	 */
+	private TagsCache acquireTagsCache(IXMLQNameSymbolTable symbolTable) {
+		if (this.threadLocalTagsCache) {
+			TagsCache tagsCache = this.threadTagsCache.get();
+			if (tagsCache != null && tagsCache.getSymbolTable() == symbolTable && tagsCache.getMaxRetainedTags() == this.maxRetainedTags) {
+				this.threadTagsCache.set(null);
+				tagsCache.releaseAllTags();
+				return tagsCache;
+			}
 		}
 
-		/* get IXMLQName from annotation */
-		IXMLQName tagToBindName = this.treeModelFactory.createXMLQName();
-		XMLQualifiedName name = annot.value();
-		tagToBindName.setLocalPart(name.localPart());
-		tagToBindName.setNamespaceURI(name.namespaceURI());
+		return new TagsCache(symbolTable, this.maxRetainedTags);
+	}
 
-		IUnmarshallerConverter userConverter = null;
-		Class<?> userClazz = null;
-		/* get converter from annotation */
-		try {
-			userClazz = this.getClass().getClassLoader().loadClass(clazzToCheck.getName());
-			userConverter = (IUnmarshallerConverter) userClazz.newInstance();
-		} catch (InstantiationException e) {
-			throw new AnnotationException("Annotation was put on: " + userClazz.getCanonicalName() + " which might not have no-arg constructor", e);
-		} catch (IllegalAccessException e) {
-			throw new AnnotationException("Annotation was put on: " + userClazz.getCanonicalName() + " might not have proper access rights for no-arg constructor", e);
-		} catch (ClassNotFoundException e) {
-			e.printStackTrace();
+
+
+	/*
+	 * Give tags cache back to thread when parsing is done. Caches of
+	 * concurrent conversion are not given back.
+	 */
+	private void releaseTagsCache(ParsingState state) {
+		if (state == null || state.tagsCache == null || state.concurrentConversion != null) {
+			return;
+		}
+
+		TagsCache tagsCache = state.tagsCache;
+		state.tagsCache = null;
+		if (this.threadLocalTagsCache) {
+			tagsCache.releaseAllTags();
+			this.threadTagsCache.set(tagsCache);
 		}
-		 /* update current mappings */
-		newConverters.put(tagToBindName, userConverter); 
 	}
 
 
 
 	/*
-	 * Helps in creating StaX parser.
+	 * Creates parser of backend for given stream. Stream is closed if parser
+	 * could not be created.
 	 */
-	private ParsingResult unmarshalXML(InputStream fileStream, boolean getCompleteTreeModel) {
+	private XMLStreamReader createXMLStreamReader(InputStream fileStream) {
 
 		if (fileStream == null) {
 			throw new IllegalArgumentException("Null InputStream is not a valid argument");
 		}
 
-		XMLInputFactory factory = XMLInputFactory.newInstance();
-		XMLStreamReader reader = null;
 		try {
-			reader = factory.createXMLStreamReader(fileStream);
-			return this.parseElements(reader, getCompleteTreeModel);
+			return this.parserBackend.createReader(fileStream, this.staxConfiguration);
 		} catch (XMLStreamException e) {
+			this.closeQuietly(null, fileStream);
 			throw new XMLUnmarshallerException(e);
-		} finally {
-			try {
-				if (reader != null) {
-					reader.close();
-				}
-				fileStream.close();
-			} catch (Exception e) {
-				/*
-				 * usually this should be omitted
-				 */
-				e.printStackTrace();
+		}
+	}
+
+
+
+	/*
+	 * Close parser and underlying stream.
+	 */
+	private void closeQuietly(XMLStreamReader reader, InputStream fileStream) {
+		try {
+			if (reader != null) {
+				reader.close();
 			}
+			fileStream.close();
+		} catch (Exception e) {
+			/*
+			 * usually this should be omitted
+			 */
+			e.printStackTrace();
 		}
 	}
 
@@ -427,50 +1120,35 @@ class XMLStaXAdaptiveUnmarshaller implements IXMLAdaptiveUnmarshaller {
 	/*
 	 * This function process XML file and creates XML tree model. Also if
 	 * converters was registered and parameter getAllModelWithoutConversion is
-	 * false, it does conversion of XML tree model tags.
+	 * false, it does conversion of XML tree model tags and passes top most
+	 * converted objects to the handler.
 	 * 
 	 * It does not create tree model if it is not necessary.
 	 * 
 	 */
-	private ParsingResult parseElements(XMLStreamReader reader, boolean getAllModelWithoutConversion) throws XMLStreamException {
+	private IXMLRoot parseElements(ParsingState state) throws XMLStreamException {
 
-		/* cache for tags */
-		ITagsCache tagsCache = new TagsCache();
+		while (this.parseNextElements(state)) {
+			/* handler got converted object, continue to the end of document */
+		}
 
-		/*
-		 * This temporary map holds converted children of composite tags for
-		 * which converter was registered.
-		 */
-		Map<IXMLQName, Map<IXMLQName, List<Object>>> tmpConvertedChildren = new HashMap<IXMLQName, Map<IXMLQName, List<Object>>>();
+		return this.createTreeModelRoot(state.currentParent, state.reader);
+	}
 
-		/*
-		 * Map holds highest in tree converted composite tags. Composite Tags
-		 * for which there does not exist composite tag parent having registered
-		 * converter.
-		 */
-		Map<IXMLQName, List<Object>> rootConvertedTags = new HashMap<IXMLQName, List<Object>>();
 
-		/*
-		 * Vars for XML tree tag depth. They indicate if we should build tree
-		 * model objects for composite tag for which converter was registered.
-		 */
-		boolean shouldCreateTreeModel = false;
-		boolean useCache = true;
-		/* relative to current tag for which converter is registered */
-		int relativeCurrentDepth = 0; 
-		if (getAllModelWithoutConversion) {
-			shouldCreateTreeModel = true;
-			useCache = false;
-		}
 
-		/*
-		 * NOTE: tmp root simplifies code and handle one simple tag case
-		 */
-		ICompositeTag currentParent = new CompositeTag(new XMLQName("root", "", ""));
+	/*
+	 * Process XML file until top most composite tag for which converter was
+	 * registered is done or until end of document. The state of parsing is
+	 * kept in given state so processing can be resumed.
+	 * 
+	 * @return true if top most composite tag was processed, false if end of
+	 * document was reached
+	 */
+	private boolean parseNextElements(ParsingState state) throws XMLStreamException {
 
-		IXMLQName tmpName = this.treeModelFactory.createXMLQName();
-		Map<IXMLQName, String> tmpAttributes = new HashMap<IXMLQName, String>();
-		Map<String, String> tmpNamespaces = new HashMap<String, String>();
+		XMLStreamReader reader = state.reader;
+		boolean getAllModelWithoutConversion = state.getAllModelWithoutConversion;
 		while (!(this.moveToNextTag(reader) == END_DOCUMENT)) {
 			/*
 			 * If processing of current composite tag is done change current
@@ -488,11 +1166,12 @@ class XMLStaXAdaptiveUnmarshaller implements IXMLAdaptiveUnmarshaller {
 			 * 		... 
 			 * </composite-parent>
 			 */
-			if (this.isThisEndTagOfCurrentParent(reader, currentParent)) {
+			boolean topMostTagDone = false;
+			if (this.isThisEndTagOfCurrentParent(reader, state.currentParent)) {
 
-				relativeCurrentDepth--;
-				if (!(getAllModelWithoutConversion)) {
-					this.processConvertableTag(currentParent, rootConvertedTags, tmpConvertedChildren, relativeCurrentDepth);
+				state.relativeCurrentDepth--;
+				if (!(getAllModelWithoutConversion) && state.concurrentConversion == null) {
+					this.processConvertableTag(state.currentParent, state.converters, state.handler, state.tmpConvertedChildren, state.relativeCurrentDepth);
 				}
 
 				/*
@@ -500,19 +1179,37 @@ class XMLStaXAdaptiveUnmarshaller implements IXMLAdaptiveUnmarshaller {
 				 * converter at highest deep(for the most top composite tag). If
 				 * yes we can stop creating tree model.
 				 * 
-				 * Also we can update cache free slots.
+				 * Also we can update cache free slots. If conversion is
+				 * concurrent, whole tag tree is converted at once and its
+				 * cache is reused when conversion is done.
 				 */
-				if (relativeCurrentDepth == 0) {
-					shouldCreateTreeModel = false;
-					tagsCache.updateCompositeTagsFreeSlots();
-					tagsCache.updateSimpleTagsFreeSlots();
+				if (state.relativeCurrentDepth == 0) {
+					topMostTagDone = true;
+					state.shouldCreateTreeModel = false;
+					if (state.concurrentConversion != null) {
+						state.concurrentConversion.submit(state.currentParent, state.tagsCache);
+					} else if (state.tagsCache != null) {
+						state.tagsCache.releaseAllTags();
+					}
 				}
 
-				currentParent = currentParent.getParent();
+				ICompositeTag parent = state.currentParent.getParent();
+				if (topMostTagDone && !(getAllModelWithoutConversion)) {
+					/*
+					 * converted tag is already passed to handler so do not
+					 * keep it under tmp root
+					 */
+					parent.removeAllTags();
+				}
+
+				state.currentParent = parent;
 			}
 
 			if (reader.isEndElement()) {
 				reader.next();
+				if (topMostTagDone) {
+					return true;
+				}
 				continue;
 			}
 
@@ -520,30 +1217,58 @@ class XMLStaXAdaptiveUnmarshaller implements IXMLAdaptiveUnmarshaller {
 			 * here we should have Start Element
 			 */
 
-			IXMLQName tagName = this.convertQName(reader.getName(), tmpName);
+			IXMLQName tagName = this.convertQName(reader, state);
+
+			/*
+			 * Streaming converter reads its element from parser, tree model is
+			 * not created for it. Converted tags are converted by parsing
+			 * thread only.
+			 */
+			if (!(getAllModelWithoutConversion) && state.concurrentConversion == null) {
+				IUnmarshallerConverter converter = state.converters.get(tagName);
+				if (converter instanceof IStreamingUnmarshallerConverter) {
+					Object convertedObj = this.readStreamedElement(reader, tagName, (IStreamingUnmarshallerConverter) converter, state.symbolTable);
+					reader.next();
+					if (!(state.shouldCreateTreeModel)) {
+						state.handler.handle(tagName, convertedObj);
+						return true;
+					}
+
+					this.addConvertedChild(state.currentParent.getName(), tagName, convertedObj, state.converters, state.tmpConvertedChildren);
+					continue;
+				}
+			}
 
 			/*
 			 * Don't create tree model for a tag if there is no converter for it
 			 * unless composite tag ancestor has converter.
 			 */
-			if (!(shouldCreateTreeModel) && !(this.converters.containsKey(tagName))) {
+			if (!(state.shouldCreateTreeModel) && !(state.converters.containsKey(tagName))) {
 				reader.next();
 				continue;
-			} else if (!(shouldCreateTreeModel)) {
-				shouldCreateTreeModel = true; /* set if there is converter */
+			} else if (!(state.shouldCreateTreeModel)) {
+				state.shouldCreateTreeModel = true; /* set if there is converter */
+				if (state.concurrentConversion != null) {
+					/* it can wait for conversions if there is too many of them */
+					state.tagsCache = state.concurrentConversion.acquireTagsCache();
+				}
 			}
 
-			IXMLTag tagCreated = this.createTreeNodeTag(reader, tmpName, tmpAttributes, tmpNamespaces, tagsCache, useCache);
-			currentParent.addTag(tagCreated);
+			IXMLTag tagCreated = this.createTreeNodeTag(reader, tagName, state);
+			state.currentParent.addTag(tagCreated);
 			if (!(tagCreated.isSimpleTag())) {
 				/* move "down the tree" */
-				currentParent = (ICompositeTag) tagCreated;
-				relativeCurrentDepth++;
+				state.currentParent = (ICompositeTag) tagCreated;
+				state.relativeCurrentDepth++;
 			}
 
 		} /* end while loop */
 
-		return this.createParsingResult(currentParent, reader, rootConvertedTags);
+		if (state.concurrentConversion != null) {
+			state.concurrentConversion.finish();
+		}
+
+		return false;
 	}
 
 
@@ -552,9 +1277,9 @@ class XMLStaXAdaptiveUnmarshaller implements IXMLAdaptiveUnmarshaller {
 	 * Helper method to check if given composite tag can be converted and update
 	 * state of parent.
 	 */
-	private void processConvertableTag(ICompositeTag compositeTag, Map<IXMLQName, List<Object>> rootConvertedTags, Map<IXMLQName, Map<IXMLQName, List<Object>>> tmpConvertedChildren, int currentDepth) {
+	private void processConvertableTag(ICompositeTag compositeTag, ConverterDispatchTable converters, IUnmarshallerHandler handler, Map<IXMLQName, Map<IXMLQName, List<Object>>> tmpConvertedChildren, int currentDepth) {
 		IXMLQName compositeTagName = compositeTag.getName();
-		IUnmarshallerConverter converter = this.converters.get(compositeTagName);
+		IUnmarshallerConverter converter = converters.get(compositeTagName);
 		Object convertedObj = null;
 		if (converter != null) {
 			Map<IXMLQName, List<Object>> convertedObjs = tmpConvertedChildren.get(compositeTagName);
@@ -571,16 +1296,10 @@ class XMLStaXAdaptiveUnmarshaller implements IXMLAdaptiveUnmarshaller {
 
 			/*
 			 * if we have just converted top most composite tag for which
-			 * converter was registered, update "root" map
+			 * converter was registered, pass it to the handler
 			 */
 			if (currentDepth == 0) {
-				List<Object> list = rootConvertedTags.get(compositeTagName);
-				if (list == null) {
-					list = new ArrayList<Object>();
-					rootConvertedTags.put(compositeTagName, list);
-				}
-
-				list.add(convertedObj);
+				handler.handle(compositeTagName, convertedObj);
 				return; /* we don't have anything more to do */
 			}
 
@@ -601,28 +1320,49 @@ class XMLStaXAdaptiveUnmarshaller implements IXMLAdaptiveUnmarshaller {
 			 * 
 			 * Converter can return null obj.
 			 */
-			IXMLQName parentName = compositeTag.getParent().getName();
-			if (convertedObj != null && this.converters.containsKey(parentName)) {
-				Map<IXMLQName, List<Object>> map = tmpConvertedChildren.get(parentName);
-				if (map == null) {
-					map = new HashMap<IXMLQName, List<Object>>();
-					tmpConvertedChildren.put(parentName, map);
-				}
+			this.addConvertedChild(compositeTag.getParent().getName(), compositeTagName, convertedObj, converters, tmpConvertedChildren);
+		}
+	}
 
-				List<Object> objs = map.get(compositeTagName);
-				if (objs == null) {
-					objs = new ArrayList<Object>();
-					map.put(compositeTagName, objs);
-				}
 
-				objs.add(convertedObj);
+
+	/*
+	 * Add converted object to converted children of parent tag, if parent
+	 * has converter.
+	 */
+	private void addConvertedChild(IXMLQName parentName, IXMLQName tagName, Object convertedObj, ConverterDispatchTable converters, Map<IXMLQName, Map<IXMLQName, List<Object>>> tmpConvertedChildren) {
+		if (convertedObj != null && converters.containsKey(parentName)) {
+			Map<IXMLQName, List<Object>> map = tmpConvertedChildren.get(parentName);
+			if (map == null) {
+				map = new HashMap<IXMLQName, List<Object>>();
+				tmpConvertedChildren.put(parentName, map);
+			}
+
+			List<Object> objs = map.get(tagName);
+			if (objs == null) {
+				objs = new ArrayList<Object>();
+				map.put(tagName, objs);
 			}
 
+			objs.add(convertedObj);
 		}
 	}
 
 
 
+	/*
+	 * Convert current element by streaming converter. Parser is left at end
+	 * of element, also if converter did not read all of it.
+	 */
+	private Object readStreamedElement(XMLStreamReader reader, IXMLQName tagName, IStreamingUnmarshallerConverter converter, IXMLQNameSymbolTable symbolTable) throws XMLStreamException {
+		StaXElementReader elementReader = new StaXElementReader(reader, tagName, symbolTable);
+		Object convertedObj = converter.read(elementReader);
+		elementReader.finish();
+		return convertedObj;
+	}
+
+
+
 	/*
 	 * Create node of the tree.
 	 * 
@@ -637,11 +1377,15 @@ class XMLStaXAdaptiveUnmarshaller implements IXMLAdaptiveUnmarshaller {
 	 * 
 	 * @return tag created
 	 */
-	private IXMLTag createTreeNodeTag(XMLStreamReader reader, IXMLQName tagName, Map<IXMLQName, String> attributes, Map<String, String> namespaces, ITagsCache tagsCache, boolean useCache) throws XMLStreamException {
+	private IXMLTag createTreeNodeTag(XMLStreamReader reader, IXMLQName tagName, ParsingState state) throws XMLStreamException {
 
 		IXMLTag tagToReturn = null;
+		Map<IXMLQName, String> attributes = state.tmpAttributes;
+		Map<String, String> namespaces = state.tmpNamespaces;
+		TagsCache tagsCache = state.tagsCache;
+		boolean useCache = state.useCache;
 
-		this.processTagProperites(reader, attributes, namespaces);
+		this.processTagProperites(reader, attributes, namespaces, state.symbolTable);
 
 		if (this.isThisEventSimpleTag(reader)) {
 			/*
@@ -682,10 +1426,15 @@ class XMLStaXAdaptiveUnmarshaller implements IXMLAdaptiveUnmarshaller {
 	 * Init IXMLTag ( common ) properties.
 	 */
 	private void initXMLTag(IXMLTag tag, IXMLQName tagName, Map<IXMLQName, String> attributes, Map<String, String> namespaces) {
-		IXMLQName name = tag.getName();
-		name.setLocalPart(tagName.getLocalPart());
-		name.setNamespaceURI(tagName.getNamespaceURI());
-		name.setPrefix(tagName.getPrefix());
+		if (tagName instanceof InternedXMLQName) {
+			/* immutable, so it can be shared */
+			tag.setName(tagName);
+		} else {
+			IXMLQName name = tag.getName();
+			name.setLocalPart(tagName.getLocalPart());
+			name.setNamespaceURI(tagName.getNamespaceURI());
+			name.setPrefix(tagName.getPrefix());
+		}
 
 		if (!(attributes.isEmpty())) {
 			tag.setAttributes(attributes);
@@ -710,10 +1459,9 @@ class XMLStaXAdaptiveUnmarshaller implements IXMLAdaptiveUnmarshaller {
 	 */
 	private boolean isThisEndTagOfCurrentParent(XMLStreamReader reader, ICompositeTag currentParent) throws XMLStreamException {
 		if (reader.isEndElement()) {
-			QName qname = reader.getName();
 			IXMLQName currentParentName = currentParent.getName();
 
-			if (qname.getLocalPart().equals(currentParentName.getLocalPart()) && qname.getNamespaceURI().equals(currentParentName.getNamespaceURI())) {
+			if (reader.getLocalName().equals(currentParentName.getLocalPart()) && this.nullToEmpty(reader.getNamespaceURI()).equals(currentParentName.getNamespaceURI())) {
 				return true;
 			}
 		}
@@ -723,17 +1471,37 @@ class XMLStaXAdaptiveUnmarshaller implements IXMLAdaptiveUnmarshaller {
 
 
 	/*
-	 * Converts <code>javax.xml.namespace.Qname</code> to <code>IXMLQName</code>
+	 * Converts name of current element to <code>IXMLQName</code>. It is
+	 * interned name if there is symbol table, otherwise it is tmp name of
+	 * parsing state.
 	 */
-	private IXMLQName convertQName(QName qname, IXMLQName tagName) {
-		tagName.setLocalPart(qname.getLocalPart());
-		tagName.setNamespaceURI(qname.getNamespaceURI());
-		tagName.setPrefix(qname.getPrefix());
+	private IXMLQName convertQName(XMLStreamReader reader, ParsingState state) {
+		if (state.symbolTable != null && reader instanceof XMLTokenizer) {
+			return ((XMLTokenizer) reader).getName(state.symbolTable);
+		}
+
+		String namespaceURI = this.nullToEmpty(reader.getNamespaceURI());
+		String prefix = this.nullToEmpty(reader.getPrefix());
+
+		if (state.symbolTable != null) {
+			return state.symbolTable.getName(namespaceURI, reader.getLocalName(), prefix);
+		}
+
+		IXMLQName tagName = state.tmpName;
+		tagName.setLocalPart(reader.getLocalName());
+		tagName.setNamespaceURI(namespaceURI);
+		tagName.setPrefix(prefix);
 		return tagName;
 	}
 
 
 
+	private String nullToEmpty(String str) {
+		return (str == null) ? "" : str;
+	}
+
+
+
 	/*
 	 * 
 	 * <p> Helper function for SimpleTag Content. </p>SimpleTag might be
@@ -856,16 +1624,23 @@ class XMLStaXAdaptiveUnmarshaller implements IXMLAdaptiveUnmarshaller {
 	 * <pre> PRECONDITION: - current element is XMLStreamConstants.START_ELEMENT
 	 * </pre>
 	 */
-	private void processTagProperites(XMLStreamReader reader, Map<IXMLQName, String> attributes, Map<String, String> namespaces) {
+	private void processTagProperites(XMLStreamReader reader, Map<IXMLQName, String> attributes, Map<String, String> namespaces, IXMLQNameSymbolTable symbolTable) {
 		/*
-		 * get Attributes
+		 * get Attributes, names are interned if there is symbol table
 		 */
 		int attrsNr = reader.getAttributeCount();
 		for (int i = 0; i < attrsNr; i++) {
-			IXMLQName qname = this.treeModelFactory.createXMLQName();
-			qname.setNamespaceURI(reader.getAttributeNamespace(i));
-			qname.setLocalPart(reader.getAttributeLocalName(i));
-			qname.setPrefix(reader.getAttributePrefix(i));
+			IXMLQName qname = null;
+			if (symbolTable != null && reader instanceof XMLTokenizer) {
+				qname = ((XMLTokenizer) reader).getAttributeName(i, symbolTable);
+			} else if (symbolTable != null) {
+				qname = symbolTable.getName(reader.getAttributeNamespace(i), reader.getAttributeLocalName(i), reader.getAttributePrefix(i));
+			} else {
+				qname = this.treeModelFactory.createXMLQName();
+				qname.setNamespaceURI(this.nullToEmpty(reader.getAttributeNamespace(i)));
+				qname.setLocalPart(reader.getAttributeLocalName(i));
+				qname.setPrefix(this.nullToEmpty(reader.getAttributePrefix(i)));
+			}
 
 			attributes.put(qname, reader.getAttributeValue(i));
 		}
@@ -875,7 +1650,7 @@ class XMLStaXAdaptiveUnmarshaller implements IXMLAdaptiveUnmarshaller {
 		 */
 		int namespacesNr = reader.getNamespaceCount();
 		for (int i = 0; i < namespacesNr; i++) {
-			namespaces.put(reader.getNamespacePrefix(i), reader.getNamespaceURI(i));
+			namespaces.put(this.nullToEmpty(reader.getNamespacePrefix(i)), reader.getNamespaceURI(i));
 		}
 
 	} /* end of method */
@@ -883,10 +1658,10 @@ class XMLStaXAdaptiveUnmarshaller implements IXMLAdaptiveUnmarshaller {
 
 
 	/*
-	 * Returns proper Parsing result. It also handles situation when there is
+	 * Returns proper tree model root. It also handles situation when there is
 	 * only one simple tag in XML file.
 	 */
-	private ParsingResult createParsingResult(ICompositeTag currentRoot, XMLStreamReader reader, Map<IXMLQName, List<Object>> rootConvertedTags) {
+	private IXMLRoot createTreeModelRoot(ICompositeTag currentRoot, XMLStreamReader reader) {
 		/*
 		 * to simplify code we have used tmp root so clean up at the end and get
 		 * proper root
@@ -911,7 +1686,7 @@ class XMLStaXAdaptiveUnmarshaller implements IXMLAdaptiveUnmarshaller {
 		documentRoot.setVersion(reader.getVersion());
 		documentRoot.setXMLRoot(root);
 
-		return new ParsingResult(documentRoot, rootConvertedTags);
+		return documentRoot;
 	}
 
 }
@@ -0,0 +1,1818 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.prometheuscode.xml.treemodel.IXMLQName;
+
+/**
+ * <p>
+ * Pull tokenizer of well-formed UTF-8 XML documents without DTD. It reads
+ * bytes of stream into buffer and decodes only what is reported: names are
+ * decoded once per tokenizer and they are interned in symbol table once per
+ * namespace, text is decoded into char buffer which is handed out as slice.
+ * </p>
+ * 
+ * <p>
+ * {@link #readProlog()} checks if document can be read by tokenizer. Document
+ * with DTD, other encoding or other XML version than 1.0 should be read by
+ * StaX parser from {@link #getUnreadInput()}.
+ * </p>
+ * 
+ * <p>
+ * Events are reported as by woodstox: white space outside root element is
+ * not reported, text between markup is reported at once. CDATA section is
+ * reported as CHARACTERS joined with surrounding text if parser is
+ * coalescing.
+ * </p>
+ * 
+ * <p>
+ * Well-formedness is checked less strictly than by woodstox. Tags nesting,
+ * UTF-8 sequences, characters and char references, entities, attributes
+ * uniqueness and values, namespace declarations, comments and XML
+ * declaration position are checked. Name characters other than the first
+ * ASCII one are not checked.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+final class XMLTokenizer implements XMLStreamReader {
+
+	private final static Charset UTF8 = Charset.forName("UTF-8");
+
+	private final static int BUFFER_SIZE = 16384;
+
+	/* kinds of ASCII bytes in decoded text */
+
+	private final static byte PLAIN = 0;
+
+	private final static byte WHITE_SPACE = 1;
+
+	private final static byte CARRIAGE_RETURN = 2;
+
+	private final static byte REFERENCE = 3;
+
+	private final static byte INVALID = 4;
+
+	private final static byte BRACKET = 5;
+
+	private final static byte[] ASCII_KINDS = new byte[128];
+
+	/* decoding modes */
+
+	private final static int TEXT = 0;
+
+	private final static int ATTRIBUTE = 1;
+
+	private final static int RAW = 2;
+
+	private final static byte[] XML_DECLARATION = ascii("<?xml");
+
+	private final static byte[] COMMENT_START = ascii("<!--");
+
+	private final static byte[] COMMENT_END = ascii("-->");
+
+	private final static byte[] CDATA_START = ascii("<![CDATA[");
+
+	private final static byte[] CDATA_END = ascii("]]>");
+
+	private final static byte[] PI_START = ascii("<?");
+
+	private final static byte[] PI_END = ascii("?>");
+
+	private final static byte[] DECLARATION_START = ascii("<!");
+
+	static {
+		for (int c = 0; c < 0x20; c++) {
+			ASCII_KINDS[c] = INVALID;
+		}
+		ASCII_KINDS[' '] = WHITE_SPACE;
+		ASCII_KINDS['\t'] = WHITE_SPACE;
+		ASCII_KINDS['\n'] = WHITE_SPACE;
+		ASCII_KINDS['\r'] = CARRIAGE_RETURN;
+		ASCII_KINDS['&'] = REFERENCE;
+		ASCII_KINDS[']'] = BRACKET;
+	}
+
+	private InputStream in;
+
+	private boolean coalescing;
+
+	private byte[] buffer = new byte[BUFFER_SIZE];
+
+	private int position = 0;
+
+	private int limit = 0;
+
+	private boolean endOfInput = false;
+
+	/* bytes dropped from buffer, prolog is kept to be read again */
+	private long droppedBytes = 0;
+
+	private boolean keepingInput = false;
+
+	private int eventType = START_DOCUMENT;
+
+	private String version;
+
+	private String encodingScheme;
+
+	private String standalone;
+
+	/* decoded text of current event */
+	private char[] text = new char[256];
+
+	private int textLength = 0;
+
+	private boolean whiteSpace = false;
+
+	private String piTarget;
+
+	/* names decoded by tokenizer */
+	private NameEntry[] names = new NameEntry[256];
+
+	private int namesNr = 0;
+
+	/* open elements, current START_ELEMENT or END_ELEMENT is the last one */
+	private NameEntry[] elementNames = new NameEntry[16];
+
+	private String[] elementURIs = new String[16];
+
+	/* number of namespace bindings before element */
+	private int[] scopeStarts = new int[16];
+
+	private int depth = 0;
+
+	private boolean rootRead = false;
+
+	/* current START_ELEMENT is empty, its END_ELEMENT is next */
+	private boolean emptyElement = false;
+
+	private String[] boundPrefixes = new String[16];
+
+	private String[] boundURIs = new String[16];
+
+	private int bindingsNr = 0;
+
+	private NameEntry[] attributeNames = new NameEntry[8];
+
+	private String[] attributeURIs = new String[8];
+
+	private String[] attributeValues = new String[8];
+
+	private int attributesNr = 0;
+
+
+
+	/**
+	 * 
+	 * @param in
+	 *            stream which is not closed by tokenizer
+	 * @param coalescing
+	 *            should CDATA be joined with text?
+	 */
+	XMLTokenizer(InputStream in, boolean coalescing) {
+		this.in = in;
+		this.coalescing = coalescing;
+	}
+
+
+
+	/* Public Methods ***^_^*** */
+
+	/**
+	 * Read XML declaration and check if document can be tokenized. Prolog is
+	 * kept in buffer, so stream can be read again from start.
+	 * 
+	 * @return true if document can be tokenized, false if it has DTD, other
+	 *         encoding than UTF-8 or other version than 1.0
+	 * @throws XMLStreamException
+	 *             if stream can not be read
+	 */
+	public boolean readProlog() throws XMLStreamException {
+		this.keepingInput = true;
+		boolean supported = this.isPrologSupported();
+		this.keepingInput = !(supported);
+		return supported;
+	}
+
+
+
+	/**
+	 * Get stream reading document from start, if it was not tokenized.
+	 * 
+	 * @return
+	 */
+	public InputStream getUnreadInput() {
+		return new SequenceInputStream(new ByteArrayInputStream(this.buffer, 0, this.limit), this.in);
+	}
+
+
+
+	/**
+	 * Get interned name of current element.
+	 * 
+	 * @param symbolTable
+	 * @return
+	 */
+	public IXMLQName getName(IXMLQNameSymbolTable symbolTable) {
+		this.checkElement();
+		return this.elementNames[this.depth - 1].intern(symbolTable, this.elementURIs[this.depth - 1]);
+	}
+
+
+
+	/**
+	 * Get interned name of attribute of current element.
+	 * 
+	 * @param index
+	 * @param symbolTable
+	 * @return
+	 */
+	public IXMLQName getAttributeName(int index, IXMLQNameSymbolTable symbolTable) {
+		this.checkAttribute(index);
+		return this.attributeNames[index].intern(symbolTable, this.attributeURIs[index]);
+	}
+
+
+
+	@Override
+	public int next() throws XMLStreamException {
+		if (this.eventType == END_DOCUMENT) {
+			throw new NoSuchElementException("End of document was reached");
+		}
+
+		if (this.eventType == START_ELEMENT && this.emptyElement) {
+			this.emptyElement = false;
+			this.eventType = END_ELEMENT;
+			return this.eventType;
+		}
+
+		if (this.eventType == END_ELEMENT) {
+			this.depth--;
+			this.bindingsNr = this.scopeStarts[this.depth];
+		}
+
+		this.attributesNr = 0;
+		this.eventType = this.readEvent();
+		return this.eventType;
+	}
+
+
+
+	@Override
+	public boolean hasNext() throws XMLStreamException {
+		return this.eventType != END_DOCUMENT;
+	}
+
+
+
+	@Override
+	public int getEventType() {
+		return this.eventType;
+	}
+
+
+
+	@Override
+	public void require(int type, String namespaceURI, String localName) throws XMLStreamException {
+		if (type != this.eventType) {
+			throw new XMLStreamException("Expected event " + type + ", current event is " + this.eventType);
+		}
+		if (namespaceURI != null && !(namespaceURI.equals(this.getNamespaceURI()))) {
+			throw new XMLStreamException("Expected namespace " + namespaceURI + ", current namespace is " + this.getNamespaceURI());
+		}
+		if (localName != null && !(localName.equals(this.getLocalName()))) {
+			throw new XMLStreamException("Expected name " + localName + ", current name is " + this.getLocalName());
+		}
+	}
+
+
+
+	@Override
+	public String getElementText() throws XMLStreamException {
+		if (this.eventType != START_ELEMENT) {
+			throw new XMLStreamException("Current event is not START_ELEMENT");
+		}
+
+		StringBuilder content = new StringBuilder();
+		while (true) {
+			int event = this.next();
+			if (event == END_ELEMENT) {
+				return content.toString();
+			}
+			if (event == CHARACTERS || event == CDATA || event == SPACE) {
+				content.append(this.text, 0, this.textLength);
+			} else if (event == START_ELEMENT) {
+				throw new XMLStreamException("Element text can not contain element: " + this.getLocalName());
+			} else if (event == END_DOCUMENT) {
+				throw new XMLStreamException("Unexpected end of document in element text");
+			}
+		}
+	}
+
+
+
+	@Override
+	public int nextTag() throws XMLStreamException {
+		while (true) {
+			int event = this.next();
+			if (event == START_ELEMENT || event == END_ELEMENT) {
+				return event;
+			}
+			if ((event == CHARACTERS || event == CDATA) && !(this.whiteSpace)) {
+				throw new XMLStreamException("Text found while looking for tag");
+			}
+			if (event == END_DOCUMENT) {
+				throw new XMLStreamException("End of document found while looking for tag");
+			}
+		}
+	}
+
+
+
+	@Override
+	public void close() throws XMLStreamException {
+		this.eventType = END_DOCUMENT;
+	}
+
+
+
+	@Override
+	public boolean isStartElement() {
+		return this.eventType == START_ELEMENT;
+	}
+
+
+
+	@Override
+	public boolean isEndElement() {
+		return this.eventType == END_ELEMENT;
+	}
+
+
+
+	@Override
+	public boolean isCharacters() {
+		return this.eventType == CHARACTERS;
+	}
+
+
+
+	@Override
+	public boolean isWhiteSpace() {
+		return (this.eventType == CHARACTERS || this.eventType == CDATA || this.eventType == SPACE) && this.whiteSpace;
+	}
+
+
+
+	@Override
+	public String getAttributeValue(String namespaceURI, String localName) {
+		this.checkStartElement();
+		for (int i = 0; i < this.attributesNr; i++) {
+			if (this.attributeNames[i].localPart.equals(localName) && (namespaceURI == null || namespaceURI.equals(this.attributeURIs[i]))) {
+				return this.attributeValues[i];
+			}
+		}
+		return null;
+	}
+
+
+
+	@Override
+	public int getAttributeCount() {
+		this.checkStartElement();
+		return this.attributesNr;
+	}
+
+
+
+	@Override
+	public QName getAttributeName(int index) {
+		this.checkAttribute(index);
+		NameEntry name = this.attributeNames[index];
+		return new QName(this.attributeURIs[index], name.localPart, name.prefix);
+	}
+
+
+
+	@Override
+	public String getAttributeNamespace(int index) {
+		this.checkAttribute(index);
+		return this.attributeURIs[index];
+	}
+
+
+
+	@Override
+	public String getAttributeLocalName(int index) {
+		this.checkAttribute(index);
+		return this.attributeNames[index].localPart;
+	}
+
+
+
+	@Override
+	public String getAttributePrefix(int index) {
+		this.checkAttribute(index);
+		return this.attributeNames[index].prefix;
+	}
+
+
+
+	@Override
+	public String getAttributeType(int index) {
+		this.checkAttribute(index);
+		return "CDATA";
+	}
+
+
+
+	@Override
+	public String getAttributeValue(int index) {
+		this.checkAttribute(index);
+		return this.attributeValues[index];
+	}
+
+
+
+	@Override
+	public boolean isAttributeSpecified(int index) {
+		this.checkAttribute(index);
+		return true;
+	}
+
+
+
+	@Override
+	public int getNamespaceCount() {
+		this.checkElement();
+		return this.bindingsNr - this.scopeStarts[this.depth - 1];
+	}
+
+
+
+	@Override
+	public String getNamespacePrefix(int index) {
+		return this.boundPrefixes[this.getBindingIndex(index)];
+	}
+
+
+
+	@Override
+	public String getNamespaceURI(int index) {
+		return this.boundURIs[this.getBindingIndex(index)];
+	}
+
+
+
+	@Override
+	public String getNamespaceURI(String prefix) {
+		if (prefix == null) {
+			throw new IllegalArgumentException("Prefix can't be null");
+		}
+		return this.getBinding(prefix);
+	}
+
+
+
+	@Override
+	public NamespaceContext getNamespaceContext() {
+		return new BindingsContext();
+	}
+
+
+
+	@Override
+	public String getText() {
+		this.checkText();
+		return new String(this.text, 0, this.textLength);
+	}
+
+
+
+	@Override
+	public char[] getTextCharacters() {
+		this.checkText();
+		return this.text;
+	}
+
+
+
+	@Override
+	public int getTextCharacters(int sourceStart, char[] target, int targetStart, int length) throws XMLStreamException {
+		this.checkText();
+		int copied = Math.min(length, this.textLength - sourceStart);
+		if (copied <= 0) {
+			return 0;
+		}
+		System.arraycopy(this.text, sourceStart, target, targetStart, copied);
+		return copied;
+	}
+
+
+
+	@Override
+	public int getTextStart() {
+		this.checkText();
+		return 0;
+	}
+
+
+
+	@Override
+	public int getTextLength() {
+		this.checkText();
+		return this.textLength;
+	}
+
+
+
+	@Override
+	public boolean hasText() {
+		return this.eventType == CHARACTERS || this.eventType == CDATA || this.eventType == SPACE || this.eventType == COMMENT;
+	}
+
+
+
+	@Override
+	public String getEncoding() {
+		return "UTF-8";
+	}
+
+
+
+	@Override
+	public Location getLocation() {
+		final long offset = this.droppedBytes + this.position;
+		return new Location() {
+
+			@Override
+			public int getLineNumber() {
+				return -1;
+			}
+
+
+
+			@Override
+			public int getColumnNumber() {
+				return -1;
+			}
+
+
+
+			@Override
+			public int getCharacterOffset() {
+				return (int) offset;
+			}
+
+
+
+			@Override
+			public String getPublicId() {
+				return null;
+			}
+
+
+
+			@Override
+			public String getSystemId() {
+				return null;
+			}
+		};
+	}
+
+
+
+	@Override
+	public QName getName() {
+		this.checkElement();
+		NameEntry name = this.elementNames[this.depth - 1];
+		return new QName(this.elementURIs[this.depth - 1], name.localPart, name.prefix);
+	}
+
+
+
+	@Override
+	public String getLocalName() {
+		this.checkElement();
+		return this.elementNames[this.depth - 1].localPart;
+	}
+
+
+
+	@Override
+	public boolean hasName() {
+		return this.eventType == START_ELEMENT || this.eventType == END_ELEMENT;
+	}
+
+
+
+	@Override
+	public String getNamespaceURI() {
+		if (!(this.hasName())) {
+			return null;
+		}
+		return this.elementURIs[this.depth - 1];
+	}
+
+
+
+	@Override
+	public String getPrefix() {
+		if (!(this.hasName())) {
+			return null;
+		}
+		return this.elementNames[this.depth - 1].prefix;
+	}
+
+
+
+	@Override
+	public String getVersion() {
+		return this.version;
+	}
+
+
+
+	@Override
+	public boolean isStandalone() {
+		return "yes".equals(this.standalone);
+	}
+
+
+
+	@Override
+	public boolean standaloneSet() {
+		return this.standalone != null;
+	}
+
+
+
+	@Override
+	public String getCharacterEncodingScheme() {
+		return this.encodingScheme;
+	}
+
+
+
+	@Override
+	public String getPITarget() {
+		return (this.eventType == PROCESSING_INSTRUCTION) ? this.piTarget : null;
+	}
+
+
+
+	@Override
+	public String getPIData() {
+		return (this.eventType == PROCESSING_INSTRUCTION) ? new String(this.text, 0, this.textLength) : null;
+	}
+
+
+
+	@Override
+	public Object getProperty(String name) {
+		if (name == null) {
+			throw new IllegalArgumentException("Property name can't be null");
+		}
+		return null;
+	}
+
+
+
+	/* Private Methods ***^_^*** */
+
+	private static byte[] ascii(String text) {
+		return text.getBytes(UTF8);
+	}
+
+
+
+	/*
+	 * Check if document has UTF-8 encoding, version 1.0 and no DTD.
+	 */
+	private boolean isPrologSupported() throws XMLStreamException {
+		this.ensure(4);
+		byte[] buffer = this.buffer;
+		int available = this.limit - this.position;
+		if (available >= 2 && ((buffer[0] == (byte) 0xFE && buffer[1] == (byte) 0xFF) || (buffer[0] == (byte) 0xFF && buffer[1] == (byte) 0xFE))) {
+			return false;
+		}
+		for (int i = 0; i < available && i < 4; i++) {
+			if (buffer[i] == 0) {
+				return false;
+			}
+		}
+
+		if (available >= 3 && buffer[0] == (byte) 0xEF && buffer[1] == (byte) 0xBB && buffer[2] == (byte) 0xBF) {
+			this.position = 3;
+		}
+
+		if (this.startsWith(this.position, XML_DECLARATION) && this.isWhiteSpace(this.position + XML_DECLARATION.length) && !(this.readXMLDeclaration())) {
+			return false;
+		}
+
+		/* look for DTD before root element */
+		int i = this.position;
+		while (true) {
+			i = this.skipWhiteSpace(i);
+			if (i == this.limit || this.buffer[i] != '<') {
+				return true;
+			}
+
+			byte[] end;
+			if (this.startsWith(i, COMMENT_START)) {
+				end = COMMENT_END;
+			} else if (this.startsWith(i, PI_START)) {
+				end = PI_END;
+			} else if (this.startsWith(i, DECLARATION_START)) {
+				return false;
+			} else {
+				return true;
+			}
+
+			i = this.indexOf(end, i + 2);
+			if (i == -1) {
+				return true;
+			}
+			i += end.length;
+		}
+	}
+
+
+
+	/*
+	 * Read bytes into buffer. Buffer is grown if it is full and its start
+	 * can not be dropped, otherwise bytes before position are dropped.
+	 * 
+	 * Returns false at end of input.
+	 */
+	private boolean fill() throws XMLStreamException {
+		if (this.endOfInput) {
+			return false;
+		}
+
+		if (this.limit == this.buffer.length) {
+			if (this.keepingInput || this.position == 0) {
+				this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+			} else {
+				System.arraycopy(this.buffer, this.position, this.buffer, 0, this.limit - this.position);
+				this.droppedBytes += this.position;
+				this.limit -= this.position;
+				this.position = 0;
+			}
+		}
+
+		try {
+			int read = 0;
+			while (read == 0) {
+				read = this.in.read(this.buffer, this.limit, this.buffer.length - this.limit);
+			}
+			if (read == -1) {
+				this.endOfInput = true;
+				return false;
+			}
+			this.limit += read;
+			return true;
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+
+
+	/*
+	 * Make given number of bytes after position available, if there is so
+	 * many.
+	 */
+	private boolean ensure(int bytesNr) throws XMLStreamException {
+		while (this.limit - this.position < bytesNr) {
+			if (!(this.fill())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+
+	/*
+	 * Make byte at given index available. Index is moved with bytes, when
+	 * buffer start is dropped.
+	 * 
+	 * Returns index of byte or -1 if there is no such byte.
+	 */
+	private int available(int index) throws XMLStreamException {
+		int offset = index - this.position;
+		if (!(this.ensure(offset + 1))) {
+			return -1;
+		}
+		return this.position + offset;
+	}
+
+
+
+	/*
+	 * Check if bytes at index are the same as given ones. Index has to be
+	 * position or it has to be kept in buffer.
+	 */
+	private boolean startsWith(int index, byte[] prefix) throws XMLStreamException {
+		int offset = index - this.position;
+		if (!(this.ensure(offset + prefix.length))) {
+			return false;
+		}
+
+		int start = this.position + offset;
+		for (int i = 0; i < prefix.length; i++) {
+			if (this.buffer[start + i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+
+	private boolean isWhiteSpace(int index) throws XMLStreamException {
+		int i = this.available(index);
+		return i != -1 && this.isWhiteSpace(this.buffer[i]);
+	}
+
+
+
+	private boolean isWhiteSpace(byte b) {
+		return b == ' ' || b == '\n' || b == '\t' || b == '\r';
+	}
+
+
+
+	/*
+	 * Returns index of first not white space byte or limit at end of input.
+	 */
+	private int skipWhiteSpace(int index) throws XMLStreamException {
+		int i = index;
+		while (true) {
+			i = this.available(i);
+			if (i == -1) {
+				return this.limit;
+			}
+			if (!(this.isWhiteSpace(this.buffer[i]))) {
+				return i;
+			}
+			i++;
+		}
+	}
+
+
+
+	/*
+	 * Returns index of given bytes or -1 if they were not found.
+	 */
+	private int indexOf(byte[] bytes, int from) throws XMLStreamException {
+		int i = from;
+		while (true) {
+			i = this.available(i + bytes.length - 1);
+			if (i == -1) {
+				return -1;
+			}
+			i -= bytes.length - 1;
+
+			int j = 0;
+			while (j < bytes.length && this.buffer[i + j] == bytes[j]) {
+				j++;
+			}
+			if (j == bytes.length) {
+				return i;
+			}
+			i++;
+		}
+	}
+
+
+
+	/*
+	 * Returns index of '>' ending tag, '>' in attribute values is skipped.
+	 */
+	private int indexOfTagEnd(int from) throws XMLStreamException {
+		int i = from;
+		byte quote = 0;
+		while (true) {
+			i = this.available(i);
+			if (i == -1) {
+				throw new XMLStreamException("Unexpected end of document in tag at " + (this.droppedBytes + this.position));
+			}
+
+			byte b = this.buffer[i];
+			if (quote != 0) {
+				if (b == quote) {
+					quote = 0;
+				}
+			} else if (b == '"' || b == '\'') {
+				quote = b;
+			} else if (b == '>') {
+				return i;
+			}
+			i++;
+		}
+	}
+
+
+
+	/*
+	 * Read version, encoding and standalone of XML declaration.
+	 * 
+	 * Returns false if encoding or version is not supported.
+	 */
+	private boolean readXMLDeclaration() throws XMLStreamException {
+		int end = this.indexOf(PI_END, this.position);
+		if (end == -1) {
+			throw new XMLStreamException("XML declaration is not closed");
+		}
+
+		String declaration = new String(this.buffer, this.position, end - this.position, UTF8);
+		this.version = this.getPseudoAttribute(declaration, "version");
+		this.encodingScheme = this.getPseudoAttribute(declaration, "encoding");
+		this.standalone = this.getPseudoAttribute(declaration, "standalone");
+		this.position = end + PI_END.length;
+
+		if (this.version != null && !(this.version.equals("1.0"))) {
+			return false;
+		}
+		return this.encodingScheme == null || this.encodingScheme.equalsIgnoreCase("UTF-8") || this.encodingScheme.equalsIgnoreCase("UTF8");
+	}
+
+
+
+	private String getPseudoAttribute(String declaration, String name) {
+		int index = declaration.indexOf(name);
+		if (index == -1) {
+			return null;
+		}
+
+		int i = declaration.indexOf('=', index + name.length());
+		while (i != -1 && ++i < declaration.length()) {
+			char quote = declaration.charAt(i);
+			if (quote == '"' || quote == '\'') {
+				int end = declaration.indexOf(quote, i + 1);
+				return (end != -1) ? declaration.substring(i + 1, end) : null;
+			}
+		}
+		return null;
+	}
+
+
+
+	/*
+	 * Read next event. White space outside root element is skipped.
+	 */
+	private int readEvent() throws XMLStreamException {
+		if (this.depth == 0) {
+			this.position = this.skipWhiteSpace(this.position);
+		}
+
+		if (!(this.ensure(1))) {
+			if (this.depth != 0) {
+				throw new XMLStreamException("Unexpected end of document in element: " + this.elementNames[this.depth - 1].localPart);
+			}
+			if (!(this.rootRead)) {
+				throw new XMLStreamException("Document has no root element");
+			}
+			return END_DOCUMENT;
+		}
+
+		if (this.buffer[this.position] != '<') {
+			if (this.depth == 0) {
+				throw new XMLStreamException("Text is not allowed outside root element at " + (this.droppedBytes + this.position));
+			}
+			return this.readCharacters(false);
+		}
+
+		if (this.startsWith(this.position, COMMENT_START)) {
+			return this.readComment();
+		}
+		if (this.startsWith(this.position, CDATA_START)) {
+			if (this.depth == 0) {
+				throw new XMLStreamException("CDATA is not allowed outside root element");
+			}
+			return this.readCharacters(true);
+		}
+
+		if (!(this.ensure(2))) {
+			throw new XMLStreamException("Unexpected end of document in tag");
+		}
+		byte second = this.buffer[this.position + 1];
+		if (second == '?') {
+			return this.readProcessingInstruction();
+		}
+		if (second == '!') {
+			throw new XMLStreamException("DTD is not supported at " + (this.droppedBytes + this.position));
+		}
+		if (second == '/') {
+			return this.readEndTag();
+		}
+		return this.readStartTag();
+	}
+
+
+
+	/*
+	 * Read text or CDATA. If parser is coalescing, following CDATA sections
+	 * and text are joined.
+	 */
+	private int readCharacters(boolean cdata) throws XMLStreamException {
+		this.textLength = 0;
+		this.whiteSpace = true;
+		int event = (cdata && !(this.coalescing)) ? CDATA : CHARACTERS;
+
+		boolean atCData = cdata;
+		while (true) {
+			if (atCData) {
+				int start = this.position + CDATA_START.length;
+				int end = this.indexOf(CDATA_END, start);
+				if (end == -1) {
+					throw new XMLStreamException("CDATA section is not closed");
+				}
+				this.decode(this.position + CDATA_START.length, end, RAW);
+				this.position = end + CDATA_END.length;
+			} else {
+				int end = this.indexOf((byte) '<', this.position);
+				this.decode(this.position, end, TEXT);
+				this.position = end;
+			}
+
+			if (!(this.coalescing) || !(this.ensure(1))) {
+				return event;
+			}
+			if (this.buffer[this.position] == '<') {
+				atCData = this.startsWith(this.position, CDATA_START);
+				if (!(atCData)) {
+					return event;
+				}
+			} else {
+				atCData = false;
+			}
+		}
+	}
+
+
+
+	/*
+	 * Returns index of given byte or limit at end of input.
+	 */
+	private int indexOf(byte b, int from) throws XMLStreamException {
+		int i = from;
+		while (true) {
+			i = this.available(i);
+			if (i == -1) {
+				return this.limit;
+			}
+
+			byte[] buffer = this.buffer;
+			int limit = this.limit;
+			while (i < limit && buffer[i] != b) {
+				i++;
+			}
+			if (i < limit) {
+				return i;
+			}
+		}
+	}
+
+
+
+	private int readComment() throws XMLStreamException {
+		int start = this.position + COMMENT_START.length;
+		int end = this.indexOf(COMMENT_END, start);
+		if (end == -1) {
+			throw new XMLStreamException("Comment is not closed");
+		}
+
+		/* comment can not contain "--" nor end with "-" */
+		byte[] buffer = this.buffer;
+		for (int i = start; i < end; i++) {
+			if (buffer[i] == '-' && (i + 1 == end || buffer[i + 1] == '-')) {
+				throw new XMLStreamException("String \"--\" is not allowed in comment at " + (this.droppedBytes + i));
+			}
+		}
+
+		this.textLength = 0;
+		this.decode(start, end, RAW);
+		this.position = end + COMMENT_END.length;
+		return COMMENT;
+	}
+
+
+
+	private int readProcessingInstruction() throws XMLStreamException {
+		int end = this.indexOf(PI_END, this.position + 2);
+		if (end == -1) {
+			throw new XMLStreamException("Processing instruction is not closed");
+		}
+
+		int start = this.position + 2;
+		int targetEnd = start;
+		while (targetEnd < end && !(this.isWhiteSpace(this.buffer[targetEnd]))) {
+			targetEnd++;
+		}
+		this.piTarget = new String(this.buffer, start, targetEnd - start, UTF8);
+		if (this.piTarget.length() == 0) {
+			throw new XMLStreamException("Processing instruction has no target at " + (this.droppedBytes + this.position));
+		}
+		/* XML declaration at start of document was read by readProlog */
+		if (this.piTarget.equalsIgnoreCase("xml")) {
+			throw new XMLStreamException("XML declaration is allowed only at start of document, found at " + (this.droppedBytes + this.position));
+		}
+
+		int dataStart = targetEnd;
+		while (dataStart < end && this.isWhiteSpace(this.buffer[dataStart])) {
+			dataStart++;
+		}
+		this.textLength = 0;
+		this.decode(dataStart, end, RAW);
+		this.position = end + PI_END.length;
+		return PROCESSING_INSTRUCTION;
+	}
+
+
+
+	private int readStartTag() throws XMLStreamException {
+		if (this.depth == 0 && this.rootRead) {
+			throw new XMLStreamException("Document can have only one root element");
+		}
+
+		int end = this.indexOfTagEnd(this.position + 1);
+		byte[] buffer = this.buffer;
+
+		int i = this.position + 1;
+		int nameEnd = this.nameEnd(i, end);
+		NameEntry name = this.getNameEntry(i, nameEnd);
+		this.pushElement(name);
+
+		i = nameEnd;
+		while (true) {
+			while (i < end && this.isWhiteSpace(buffer[i])) {
+				i++;
+			}
+			if (i == end) {
+				break;
+			}
+			if (buffer[i] == '/' && i + 1 == end) {
+				this.emptyElement = true;
+				break;
+			}
+
+			nameEnd = this.nameEnd(i, end);
+			NameEntry attributeName = this.getNameEntry(i, nameEnd);
+			i = nameEnd;
+			while (i < end && this.isWhiteSpace(buffer[i])) {
+				i++;
+			}
+			if (i == end || buffer[i] != '=') {
+				throw new XMLStreamException("Attribute: " + attributeName.localPart + " has no value");
+			}
+			i++;
+			while (i < end && this.isWhiteSpace(buffer[i])) {
+				i++;
+			}
+
+			byte quote = (i < end) ? buffer[i] : 0;
+			if (quote != '"' && quote != '\'') {
+				throw new XMLStreamException("Value of attribute: " + attributeName.localPart + " is not quoted");
+			}
+			int valueEnd = i + 1;
+			while (buffer[valueEnd] != quote) {
+				if (buffer[valueEnd] == '<') {
+					throw new XMLStreamException("Character '<' is not allowed in value of attribute: " + attributeName.localPart);
+				}
+				valueEnd++;
+			}
+
+			this.textLength = 0;
+			this.decode(i + 1, valueEnd, ATTRIBUTE);
+			String value = new String(this.text, 0, this.textLength);
+			i = valueEnd + 1;
+
+			if (attributeName.declaredPrefix != null) {
+				this.checkBinding(attributeName.declaredPrefix, value);
+				this.addBinding(attributeName.declaredPrefix, value);
+			} else {
+				this.addAttribute(attributeName, value);
+			}
+		}
+
+		this.position = end + 1;
+		this.resolveNamespaces();
+		this.rootRead = true;
+		return START_ELEMENT;
+	}
+
+
+
+	private int readEndTag() throws XMLStreamException {
+		int end = this.indexOfTagEnd(this.position + 2);
+		int start = this.position + 2;
+		int nameEnd = this.nameEnd(start, end);
+		NameEntry name = this.getNameEntry(start, nameEnd);
+
+		if (this.depth == 0 || name != this.elementNames[this.depth - 1]) {
+			String expected = (this.depth == 0) ? "no end tag" : "</" + new String(this.elementNames[this.depth - 1].bytes, UTF8) + ">";
+			throw new XMLStreamException("Unexpected end tag: </" + new String(name.bytes, UTF8) + ">, expected " + expected);
+		}
+
+		this.position = end + 1;
+		return END_ELEMENT;
+	}
+
+
+
+	private int nameEnd(int start, int end) throws XMLStreamException {
+		byte[] buffer = this.buffer;
+		int i = start;
+		while (i < end) {
+			byte b = buffer[i];
+			if (b == '=' || b == '/' || this.isWhiteSpace(b)) {
+				break;
+			}
+			i++;
+		}
+
+		if (i == start) {
+			throw new XMLStreamException("Name expected at " + (this.droppedBytes + start));
+		}
+		/* only ASCII start characters are checked, other ones are decoded later */
+		byte first = buffer[start];
+		if (first >= 0 && !((first >= 'a' && first <= 'z') || (first >= 'A' && first <= 'Z') || first == '_' || first == ':')) {
+			throw new XMLStreamException("Name can not start with: '" + (char) first + "' at " + (this.droppedBytes + start));
+		}
+		return i;
+	}
+
+
+
+	/*
+	 * Get entry of name given by bytes, entry is created when name is read
+	 * first time.
+	 */
+	private NameEntry getNameEntry(int start, int end) {
+		byte[] buffer = this.buffer;
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + buffer[i];
+		}
+
+		NameEntry[] names = this.names;
+		int index = hash & (names.length - 1);
+		for (NameEntry entry = names[index]; entry != null; entry = entry.next) {
+			if (entry.hash == hash && entry.matches(buffer, start, end)) {
+				return entry;
+			}
+		}
+
+		NameEntry entry = new NameEntry(Arrays.copyOfRange(buffer, start, end), hash);
+		entry.next = names[index];
+		names[index] = entry;
+		if (++this.namesNr > names.length * 3 / 4) {
+			this.rehashNames();
+		}
+		return entry;
+	}
+
+
+
+	private void rehashNames() {
+		NameEntry[] names = new NameEntry[this.names.length * 2];
+		for (NameEntry first : this.names) {
+			NameEntry entry = first;
+			while (entry != null) {
+				NameEntry next = entry.next;
+				int index = entry.hash & (names.length - 1);
+				entry.next = names[index];
+				names[index] = entry;
+				entry = next;
+			}
+		}
+		this.names = names;
+	}
+
+
+
+	private void pushElement(NameEntry name) {
+		if (this.depth == this.elementNames.length) {
+			int length = this.depth * 2;
+			this.elementNames = Arrays.copyOf(this.elementNames, length);
+			this.elementURIs = Arrays.copyOf(this.elementURIs, length);
+			this.scopeStarts = Arrays.copyOf(this.scopeStarts, length);
+		}
+
+		this.elementNames[this.depth] = name;
+		this.scopeStarts[this.depth] = this.bindingsNr;
+		this.depth++;
+	}
+
+
+
+	/*
+	 * Check namespace declaration of current element.
+	 */
+	private void checkBinding(String prefix, String uri) throws XMLStreamException {
+		if (prefix.length() != 0 && uri.length() == 0) {
+			throw new XMLStreamException("Prefix: " + prefix + " can not be bound to empty namespace");
+		}
+		if (prefix.equals(XMLConstants.XMLNS_ATTRIBUTE) || uri.equals(XMLConstants.XMLNS_ATTRIBUTE_NS_URI)) {
+			throw new XMLStreamException("Prefix: " + XMLConstants.XMLNS_ATTRIBUTE + " and its namespace can not be declared");
+		}
+		if (prefix.equals(XMLConstants.XML_NS_PREFIX) != uri.equals(XMLConstants.XML_NS_URI)) {
+			throw new XMLStreamException("Prefix: " + XMLConstants.XML_NS_PREFIX + " can be bound only to: " + XMLConstants.XML_NS_URI);
+		}
+
+		for (int i = this.scopeStarts[this.depth - 1]; i < this.bindingsNr; i++) {
+			if (this.boundPrefixes[i].equals(prefix)) {
+				throw new XMLStreamException("Duplicate namespace declaration of prefix: " + prefix);
+			}
+		}
+	}
+
+
+
+	private void addBinding(String prefix, String uri) {
+		if (this.bindingsNr == this.boundPrefixes.length) {
+			int length = this.bindingsNr * 2;
+			this.boundPrefixes = Arrays.copyOf(this.boundPrefixes, length);
+			this.boundURIs = Arrays.copyOf(this.boundURIs, length);
+		}
+
+		this.boundPrefixes[this.bindingsNr] = prefix;
+		this.boundURIs[this.bindingsNr] = uri;
+		this.bindingsNr++;
+	}
+
+
+
+	private void addAttribute(NameEntry name, String value) {
+		if (this.attributesNr == this.attributeNames.length) {
+			int length = this.attributesNr * 2;
+			this.attributeNames = Arrays.copyOf(this.attributeNames, length);
+			this.attributeURIs = Arrays.copyOf(this.attributeURIs, length);
+			this.attributeValues = Arrays.copyOf(this.attributeValues, length);
+		}
+
+		this.attributeNames[this.attributesNr] = name;
+		this.attributeValues[this.attributesNr] = value;
+		this.attributesNr++;
+	}
+
+
+
+	/*
+	 * Resolve namespaces of current element and its attributes, after its
+	 * namespace declarations were read.
+	 */
+	private void resolveNamespaces() throws XMLStreamException {
+		NameEntry name = this.elementNames[this.depth - 1];
+		this.elementURIs[this.depth - 1] = this.resolvePrefix(name, true);
+
+		for (int i = 0; i < this.attributesNr; i++) {
+			NameEntry attributeName = this.attributeNames[i];
+			String uri = this.resolvePrefix(attributeName, false);
+			for (int j = 0; j < i; j++) {
+				if (this.attributeNames[j].localPart.equals(attributeName.localPart) && this.attributeURIs[j].equals(uri)) {
+					throw new XMLStreamException("Duplicate attribute: " + new String(attributeName.bytes, UTF8) + " of element: " + name.localPart);
+				}
+			}
+			this.attributeURIs[i] = uri;
+		}
+	}
+
+
+
+	private String resolvePrefix(NameEntry name, boolean element) throws XMLStreamException {
+		if (name.prefix.length() == 0) {
+			/* attributes without prefix have no namespace */
+			return element ? this.getBinding("") : "";
+		}
+
+		String uri = this.getBinding(name.prefix);
+		if (uri.length() == 0) {
+			throw new XMLStreamException("Undeclared namespace prefix: " + name.prefix);
+		}
+		return uri;
+	}
+
+
+
+	/*
+	 * Get URI bound to prefix, empty string if prefix is not bound.
+	 */
+	private String getBinding(String prefix) {
+		for (int i = this.bindingsNr - 1; i >= 0; i--) {
+			if (this.boundPrefixes[i].equals(prefix)) {
+				return this.boundURIs[i];
+			}
+		}
+
+		if (prefix.equals(XMLConstants.XML_NS_PREFIX)) {
+			return XMLConstants.XML_NS_URI;
+		}
+		if (prefix.equals(XMLConstants.XMLNS_ATTRIBUTE)) {
+			return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+		}
+		return "";
+	}
+
+
+
+	/*
+	 * Decode given bytes and append them to text. References are replaced in
+	 * text and attribute values, line ends are normalized and white space of
+	 * attribute values is replaced by spaces.
+	 */
+	private void decode(int start, int end, int mode) throws XMLStreamException {
+		if (this.text.length - this.textLength < end - start) {
+			this.text = Arrays.copyOf(this.text, Math.max(this.text.length * 2, this.textLength + end - start));
+		}
+
+		byte[] buffer = this.buffer;
+		char[] text = this.text;
+		int length = this.textLength;
+		boolean whiteSpace = this.whiteSpace;
+		int i = start;
+		while (i < end) {
+			int b = buffer[i];
+			if (b >= 0) {
+				byte kind = ASCII_KINDS[b];
+				if (kind == PLAIN) {
+					text[length++] = (char) b;
+					whiteSpace = false;
+					i++;
+					continue;
+				}
+
+				if (kind == WHITE_SPACE) {
+					text[length++] = (mode == ATTRIBUTE) ? ' ' : (char) b;
+					i++;
+				} else if (kind == CARRIAGE_RETURN) {
+					text[length++] = (mode == ATTRIBUTE) ? ' ' : '\n';
+					i++;
+					if (i < end && buffer[i] == '\n') {
+						i++;
+					}
+				} else if (kind == REFERENCE && mode != RAW) {
+					i = this.decodeReference(i, end, length);
+					text = this.text;
+					/* reference of white space character keeps white space text */
+					whiteSpace = whiteSpace && this.textLength == length + 1 && text[length] < 0x80 && this.isWhiteSpace((byte) text[length]);
+					length = this.textLength;
+				} else if (kind == REFERENCE) {
+					text[length++] = '&';
+					whiteSpace = false;
+					i++;
+				} else if (kind == BRACKET) {
+					if (mode == TEXT && i + 2 < end && buffer[i + 1] == ']' && buffer[i + 2] == '>') {
+						throw new XMLStreamException("String \"]]>\" is not allowed in text at " + (this.droppedBytes + i));
+					}
+					text[length++] = ']';
+					whiteSpace = false;
+					i++;
+				} else {
+					throw new XMLStreamException("Illegal character: 0x" + Integer.toHexString(b) + " at " + (this.droppedBytes + i));
+				}
+				continue;
+			}
+
+			i = this.decodeMultiByte(i, end, length);
+			text = this.text;
+			length = this.textLength;
+			whiteSpace = false;
+		}
+
+		this.textLength = length;
+		this.whiteSpace = whiteSpace;
+	}
+
+
+
+	/*
+	 * Decode UTF-8 sequence of more than one byte at given index. Text
+	 * length is updated. Returns index after sequence.
+	 */
+	private int decodeMultiByte(int index, int end, int length) throws XMLStreamException {
+		byte[] buffer = this.buffer;
+		int b = buffer[index] & 0xFF;
+		int bytesNr = 0;
+		int codePoint = 0;
+		if ((b & 0xE0) == 0xC0) {
+			bytesNr = 2;
+			codePoint = b & 0x1F;
+		} else if ((b & 0xF0) == 0xE0) {
+			bytesNr = 3;
+			codePoint = b & 0x0F;
+		} else if ((b & 0xF8) == 0xF0) {
+			bytesNr = 4;
+			codePoint = b & 0x07;
+		} else {
+			throw this.invalidUTF8(index);
+		}
+
+		if (index + bytesNr > end) {
+			throw this.invalidUTF8(index);
+		}
+		for (int i = index + 1; i < index + bytesNr; i++) {
+			int next = buffer[i];
+			if ((next & 0xC0) != 0x80) {
+				throw this.invalidUTF8(i);
+			}
+			codePoint = (codePoint << 6) | (next & 0x3F);
+		}
+
+		/* overlong sequences, surrogates and other not XML characters */
+		int minCodePoint = (bytesNr == 2) ? 0x80 : (bytesNr == 3) ? 0x800 : 0x10000;
+		if (codePoint < minCodePoint || !(this.isXMLChar(codePoint))) {
+			throw this.invalidUTF8(index);
+		}
+
+		this.appendCodePoint(codePoint, length);
+		return index + bytesNr;
+	}
+
+
+
+	private XMLStreamException invalidUTF8(int index) {
+		return new XMLStreamException("Invalid UTF-8 byte: 0x" + Integer.toHexString(this.buffer[index] & 0xFF) + " at " + (this.droppedBytes + index));
+	}
+
+
+
+	/*
+	 * Decode entity or char reference at given index. Text length is updated.
+	 * Returns index after reference.
+	 */
+	private int decodeReference(int index, int end, int length) throws XMLStreamException {
+		byte[] buffer = this.buffer;
+		int semicolon = index + 1;
+		while (semicolon < end && buffer[semicolon] != ';') {
+			semicolon++;
+		}
+		if (semicolon == end) {
+			throw new XMLStreamException("Reference is not closed at " + (this.droppedBytes + index));
+		}
+
+		String name = new String(buffer, index + 1, semicolon - index - 1, UTF8);
+		int codePoint = -1;
+		if (name.equals("lt")) {
+			codePoint = '<';
+		} else if (name.equals("gt")) {
+			codePoint = '>';
+		} else if (name.equals("amp")) {
+			codePoint = '&';
+		} else if (name.equals("apos")) {
+			codePoint = '\'';
+		} else if (name.equals("quot")) {
+			codePoint = '"';
+		} else if (name.startsWith("#x")) {
+			codePoint = this.parseCharReference(name.substring(2), 16);
+		} else if (name.startsWith("#")) {
+			codePoint = this.parseCharReference(name.substring(1), 10);
+		} else {
+			throw new XMLStreamException("Undeclared entity: " + name);
+		}
+
+		this.appendCodePoint(codePoint, length);
+		return semicolon + 1;
+	}
+
+
+
+	private int parseCharReference(String digits, int radix) throws XMLStreamException {
+		/* sign is not allowed */
+		if (digits.length() > 0 && Character.digit(digits.charAt(0), radix) != -1) {
+			try {
+				int codePoint = Integer.parseInt(digits, radix);
+				if (this.isXMLChar(codePoint)) {
+					return codePoint;
+				}
+			} catch (NumberFormatException e) {
+				/* reported below */
+			}
+		}
+		throw new XMLStreamException("Invalid char reference: " + digits);
+	}
+
+
+
+	/*
+	 * Check if code point is Char of XML 1.0.
+	 */
+	private boolean isXMLChar(int codePoint) {
+		if (codePoint < 0x20) {
+			return codePoint == 0x9 || codePoint == 0xA || codePoint == 0xD;
+		}
+		return codePoint <= 0xD7FF || (codePoint >= 0xE000 && codePoint <= 0xFFFD) || (codePoint >= 0x10000 && codePoint <= 0x10FFFF);
+	}
+
+
+
+	/*
+	 * Append code point at given text length, text is grown if two chars
+	 * do not fit.
+	 */
+	private void appendCodePoint(int codePoint, int length) {
+		if (length + 2 > this.text.length) {
+			this.text = Arrays.copyOf(this.text, this.text.length * 2);
+		}
+		this.textLength = length + Character.toChars(codePoint, this.text, length);
+	}
+
+
+
+	private int getBindingIndex(int index) {
+		this.checkElement();
+		int bindingIndex = this.scopeStarts[this.depth - 1] + index;
+		if (index < 0 || bindingIndex >= this.bindingsNr) {
+			throw new IndexOutOfBoundsException("Namespace index: " + index);
+		}
+		return bindingIndex;
+	}
+
+
+
+	private void checkElement() {
+		if (!(this.hasName())) {
+			throw new IllegalStateException("Current event is not START_ELEMENT or END_ELEMENT");
+		}
+	}
+
+
+
+	private void checkStartElement() {
+		if (this.eventType != START_ELEMENT) {
+			throw new IllegalStateException("Current event is not START_ELEMENT");
+		}
+	}
+
+
+
+	private void checkAttribute(int index) {
+		this.checkStartElement();
+		if (index < 0 || index >= this.attributesNr) {
+			throw new IndexOutOfBoundsException("Attribute index: " + index);
+		}
+	}
+
+
+
+	private void checkText() {
+		if (!(this.hasText()) && this.eventType != PROCESSING_INSTRUCTION) {
+			throw new IllegalStateException("Current event has no text");
+		}
+	}
+
+
+
+	/* Private Classes ***^_^*** */
+
+	/*
+	 * Name read by tokenizer. Interned name of last symbol table and
+	 * namespace is kept, so names are interned once per namespace.
+	 */
+	private static class NameEntry {
+
+		private byte[] bytes;
+
+		private int hash;
+
+		private String prefix;
+
+		private String localPart;
+
+		/* prefix declared by namespace declaration, "" for default namespace */
+		private String declaredPrefix;
+
+		private NameEntry next;
+
+		private IXMLQNameSymbolTable symbolTable;
+
+		private String namespaceURI;
+
+		private IXMLQName internedName;
+
+
+
+		NameEntry(byte[] bytes, int hash) {
+			this.bytes = bytes;
+			this.hash = hash;
+
+			String name = new String(bytes, UTF8);
+			int colon = name.indexOf(':');
+			this.prefix = (colon == -1) ? "" : name.substring(0, colon);
+			this.localPart = name.substring(colon + 1);
+
+			if (this.prefix.equals(XMLConstants.XMLNS_ATTRIBUTE)) {
+				this.declaredPrefix = this.localPart;
+			} else if (colon == -1 && this.localPart.equals(XMLConstants.XMLNS_ATTRIBUTE)) {
+				this.declaredPrefix = "";
+			}
+		}
+
+
+
+		boolean matches(byte[] buffer, int start, int end) {
+			if (end - start != this.bytes.length) {
+				return false;
+			}
+			for (int i = 0; i < this.bytes.length; i++) {
+				if (this.bytes[i] != buffer[start + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+
+
+		IXMLQName intern(IXMLQNameSymbolTable symbolTable, String namespaceURI) {
+			if (this.symbolTable != symbolTable || !(this.namespaceURI.equals(namespaceURI))) {
+				this.internedName = symbolTable.getName(namespaceURI, this.localPart, this.prefix);
+				this.symbolTable = symbolTable;
+				this.namespaceURI = namespaceURI;
+			}
+			return this.internedName;
+		}
+
+	}
+
+
+
+	/*
+	 * Namespace context of current element.
+	 */
+	private class BindingsContext implements NamespaceContext {
+
+		@Override
+		public String getNamespaceURI(String prefix) {
+			return XMLTokenizer.this.getNamespaceURI(prefix);
+		}
+
+
+
+		@Override
+		public String getPrefix(String namespaceURI) {
+			Iterator<String> prefixes = this.getPrefixes(namespaceURI);
+			return prefixes.hasNext() ? prefixes.next() : null;
+		}
+
+
+
+		@Override
+		public Iterator<String> getPrefixes(String namespaceURI) {
+			if (namespaceURI == null) {
+				throw new IllegalArgumentException("Namespace URI can't be null");
+			}
+
+			List<String> prefixes = new ArrayList<String>();
+			XMLTokenizer tokenizer = XMLTokenizer.this;
+			for (int i = tokenizer.bindingsNr - 1; i >= 0; i--) {
+				String prefix = tokenizer.boundPrefixes[i];
+				if (tokenizer.boundURIs[i].equals(namespaceURI) && tokenizer.getBinding(prefix).equals(namespaceURI) && !(prefixes.contains(prefix))) {
+					prefixes.add(prefix);
+				}
+			}
+			return prefixes.iterator();
+		}
+
+	}
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml;
+
+/**
+ * Backend writing XML of marshallers.
+ * 
+ * @author marta
+ * 
+ */
+public enum XMLWriterBackend {
+
+	/**
+	 * XML is written by StaX writer of output factory from
+	 * {@link StaXConfiguration}.
+	 */
+	STAX,
+
+	/**
+	 * XML is encoded by built-in writer straight into reusable byte buffer.
+	 * Output is the same as output of woodstox writer. Documents in other
+	 * encodings than UTF-8 are written by StaX writer.
+	 */
+	UTF8
+
+}
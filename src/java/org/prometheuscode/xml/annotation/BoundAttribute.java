@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * This annotation can be put over the field of class being {@link BoundTag}.
+ * Field is bound to attribute of the tag.
+ * </p>
+ * 
+ * <p>
+ * Field can not be private, static or final. Its type can be primitive type,
+ * its wrapper, String or enum. Null fields are not written.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface BoundAttribute {
+
+	/**
+	 * Local part of attribute name, field name if empty.
+	 * 
+	 * @return
+	 */
+	String localPart() default "";
+
+
+
+	String namespaceURI() default "";
+
+}
@@ -0,0 +1,562 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml.annotation;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+/**
+ * <p>
+ * Annotation processor generating converters of classes annoted with
+ * {@link BoundTag}. Generated converter extends
+ * {@link org.prometheuscode.xml.AbstractBoundConverter}, it reads and writes
+ * bound fields directly and parses their values by methods of their types,
+ * so no reflection is used at runtime.
+ * </p>
+ * 
+ * <p>
+ * Attributes are written before child tags, child tags are written in order
+ * of fields declaration. Only fields declared by the class are bound, child
+ * tags which are not bound are skipped when object is read. Class can not
+ * have {@link Dependee} methods.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+public class BoundConverterProcessor extends AbstractProcessor {
+
+	private final static String BOUND_CONVERTER_CLASS = "org.prometheuscode.xml.AbstractBoundConverter";
+
+	private final static String QNAME_INTERFACE = "org.prometheuscode.xml.treemodel.IXMLQName";
+
+	private final static String QNAME_CLASS = "org.prometheuscode.xml.treemodel.XMLQName";
+
+	private final static String TAG_PREFIX = "ns";
+
+
+
+	/* Public Methods ***^_^*** */
+
+	/**
+	 * Get binary name of converter generated for given class.
+	 * 
+	 * @param binaryClassName
+	 *            binary name of class annoted with {@link BoundTag}
+	 * @return
+	 */
+	public static String getConverterName(String binaryClassName) {
+		int packageEnd = binaryClassName.lastIndexOf('.');
+		String packagePrefix = binaryClassName.substring(0, packageEnd + 1);
+		String className = binaryClassName.substring(packageEnd + 1).replace('$', '_');
+		return packagePrefix + className + BoundTag.CONVERTER_SUFFIX;
+	}
+
+
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		Set<String> types = new HashSet<String>();
+		types.add(BoundTag.class.getCanonicalName());
+		types.add(BoundElement.class.getCanonicalName());
+		types.add(BoundAttribute.class.getCanonicalName());
+		return types;
+	}
+
+
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+
+		for (Element element : roundEnv.getElementsAnnotatedWith(BoundTag.class)) {
+			this.processBoundTag(element);
+		}
+
+		Set<Element> boundFields = new HashSet<Element>();
+		boundFields.addAll(roundEnv.getElementsAnnotatedWith(BoundElement.class));
+		boundFields.addAll(roundEnv.getElementsAnnotatedWith(BoundAttribute.class));
+		for (Element field : boundFields) {
+			if (field.getEnclosingElement().getAnnotation(BoundTag.class) == null) {
+				this.error(field, "Bound field has to be declared in class annoted with BoundTag");
+			}
+		}
+
+		return false;
+	}
+
+
+
+	/* Private Methods ***^_^*** */
+
+	private void processBoundTag(Element element) {
+
+		if (!(this.checkBoundClass(element))) {
+			return;
+		}
+
+		TypeElement type = (TypeElement) element;
+		List<BoundField> fields = new ArrayList<BoundField>();
+		boolean correct = true;
+
+		/* generated converter writes only bound fields, dependee objects would be lost */
+		for (ExecutableElement method : ElementFilter.methodsIn(this.processingEnv.getElementUtils().getAllMembers(type))) {
+			if (method.getAnnotation(Dependee.class) != null) {
+				Element errorElement = method.getEnclosingElement().equals(type) ? method : type;
+				this.error(errorElement, "Dependee method can not be used in class annoted with BoundTag: " + method.getSimpleName());
+				correct = false;
+			}
+		}
+		for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			BoundElement elementAnnot = field.getAnnotation(BoundElement.class);
+			BoundAttribute attributeAnnot = field.getAnnotation(BoundAttribute.class);
+			if (elementAnnot == null && attributeAnnot == null) {
+				continue;
+			}
+
+			BoundField boundField = this.createBoundField(field, elementAnnot, attributeAnnot);
+			if (boundField == null) {
+				correct = false;
+			} else {
+				fields.add(boundField);
+			}
+		}
+
+		if (correct) {
+			this.writeConverter(type, fields);
+		}
+	}
+
+
+
+	/*
+	 * Check if generated converter can create and read objects of class.
+	 */
+	private boolean checkBoundClass(Element element) {
+
+		if (element.getKind() != ElementKind.CLASS) {
+			this.error(element, "BoundTag annotation can be put only on class");
+			return false;
+		}
+
+		TypeElement type = (TypeElement) element;
+		if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+			this.error(element, "BoundTag annotation class can not be abstract");
+			return false;
+		}
+
+		Element current = type;
+		while (current.getKind().isClass() || current.getKind().isInterface()) {
+			TypeElement currentType = (TypeElement) current;
+			if (currentType.getModifiers().contains(Modifier.PRIVATE)) {
+				this.error(element, "BoundTag annotation class can not be private");
+				return false;
+			}
+			if (currentType.getNestingKind().isNested() && !(currentType.getModifiers().contains(Modifier.STATIC))) {
+				this.error(element, "BoundTag annotation class can not be inner class");
+				return false;
+			}
+			current = current.getEnclosingElement();
+		}
+
+		boolean hasNoArgConstructor = false;
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty() && !(constructor.getModifiers().contains(Modifier.PRIVATE))) {
+				hasNoArgConstructor = true;
+				break;
+			}
+		}
+		if (!hasNoArgConstructor) {
+			this.error(element, "BoundTag annotation class has to have no-arg constructor which is not private");
+			return false;
+		}
+
+		return true;
+	}
+
+
+
+	/*
+	 * Create bound field or return null if field can not be bound.
+	 */
+	private BoundField createBoundField(VariableElement field, BoundElement elementAnnot, BoundAttribute attributeAnnot) {
+
+		if (elementAnnot != null && attributeAnnot != null) {
+			this.error(field, "Field can not be bound to tag and attribute");
+			return null;
+		}
+
+		Set<Modifier> modifiers = field.getModifiers();
+		if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL)) {
+			this.error(field, "Bound field can not be private, static or final");
+			return null;
+		}
+
+		BoundField boundField = new BoundField();
+		boundField.fieldName = field.getSimpleName().toString();
+		boundField.attribute = (attributeAnnot != null);
+		String localPart = boundField.attribute ? attributeAnnot.localPart() : elementAnnot.localPart();
+		boundField.localPart = localPart.equals("") ? boundField.fieldName : localPart;
+		boundField.namespaceURI = boundField.attribute ? attributeAnnot.namespaceURI() : elementAnnot.namespaceURI();
+
+		if (!(this.initFieldType(boundField, field.asType()))) {
+			this.error(field, "Bound field has to be primitive type, its wrapper, String or enum");
+			return null;
+		}
+
+		return boundField;
+	}
+
+
+
+	/*
+	 * Set expressions parsing and formatting value of field.
+	 */
+	private boolean initFieldType(BoundField boundField, TypeMirror fieldType) {
+
+		TypeKind kind = fieldType.getKind();
+		if (kind.isPrimitive()) {
+			boundField.nullable = false;
+			boundField.format = "String.valueOf(%s)";
+			boundField.parse = (kind == TypeKind.CHAR) ? "this.parseChar(%s, %s)" : this.getWrapperName(kind) + ".parse" + this.getParsedTypeName(kind) + "(%s.trim())";
+			return true;
+		}
+
+		if (kind != TypeKind.DECLARED) {
+			return false;
+		}
+
+		boundField.nullable = true;
+		TypeElement typeElement = (TypeElement) ((DeclaredType) fieldType).asElement();
+		if (typeElement.getQualifiedName().contentEquals(String.class.getCanonicalName())) {
+			boundField.format = "%s";
+			boundField.parse = "%s";
+			return true;
+		}
+
+		if (typeElement.getKind() == ElementKind.ENUM) {
+			boundField.format = "%s.name()";
+			boundField.parse = typeElement.getQualifiedName() + ".valueOf(%s.trim())";
+			return true;
+		}
+
+		PrimitiveType primitiveType = null;
+		try {
+			primitiveType = this.processingEnv.getTypeUtils().unboxedType(fieldType);
+		} catch (IllegalArgumentException e) {
+			/* it is not wrapper of primitive type */
+			return false;
+		}
+
+		boundField.format = "%s.toString()";
+		boundField.parse = (primitiveType.getKind() == TypeKind.CHAR) ? "Character.valueOf(this.parseChar(%s, %s))" : this.getWrapperName(primitiveType.getKind()) + ".valueOf(%s.trim())";
+		return true;
+	}
+
+
+
+	private String getWrapperName(TypeKind kind) {
+		switch (kind) {
+		case INT:
+			return "Integer";
+		case CHAR:
+			return "Character";
+		default:
+			return this.getParsedTypeName(kind);
+		}
+	}
+
+
+
+	/*
+	 * Get name of type in name of wrapper parse method, for ex. Int for
+	 * Integer.parseInt().
+	 */
+	private String getParsedTypeName(TypeKind kind) {
+		String name = kind.name().toLowerCase();
+		return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+	}
+
+
+
+	private void writeConverter(TypeElement type, List<BoundField> fields) {
+
+		String binaryName = this.processingEnv.getElementUtils().getBinaryName(type).toString();
+		String converterName = getConverterName(binaryName);
+		int packageEnd = converterName.lastIndexOf('.');
+		String packageName = (packageEnd < 0) ? "" : converterName.substring(0, packageEnd);
+		String converterSimpleName = converterName.substring(packageEnd + 1);
+		String className = type.getQualifiedName().toString();
+		BoundTag boundTag = type.getAnnotation(BoundTag.class);
+
+		StringBuilder source = new StringBuilder();
+		if (!(packageName.equals(""))) {
+			source.append("package ").append(packageName).append(";\n\n");
+		}
+		source.append("/**\n * Converter of {@link ").append(className).append("} generated from its binding annotations.\n */\n");
+		source.append("@org.prometheuscode.xml.annotation.TagToJavaConverter(@org.prometheuscode.xml.annotation.TagToJavaConverter.XMLQualifiedName(localPart = ");
+		source.append(this.toLiteral(boundTag.localPart())).append(", namespaceURI = ").append(this.toLiteral(boundTag.namespaceURI())).append("))\n");
+		source.append("public class ").append(converterSimpleName).append(" extends ").append(BOUND_CONVERTER_CLASS).append("<").append(className).append("> {\n\n");
+
+		/*
+		 * names are created once, namespace of tag is bound to prefix, so
+		 * children without namespace do not have to declare it
+		 */
+		String tagPrefix = boundTag.namespaceURI().equals("") ? "" : TAG_PREFIX;
+		source.append("\tprivate final static ").append(QNAME_INTERFACE).append(" TAG_NAME = new ").append(QNAME_CLASS).append("(");
+		source.append(this.toLiteral(boundTag.localPart())).append(", ").append(this.toLiteral(boundTag.namespaceURI())).append(", ").append(this.toLiteral(tagPrefix)).append(");\n");
+		for (int i = 0; i < fields.size(); i++) {
+			BoundField field = fields.get(i);
+			if (field.namespaceURI.equals("")) {
+				field.prefix = "";
+			} else if (field.namespaceURI.equals(boundTag.namespaceURI())) {
+				field.prefix = TAG_PREFIX;
+			} else {
+				field.prefix = field.attribute ? TAG_PREFIX + i : "";
+			}
+			source.append("\n\tprivate final static ").append(QNAME_INTERFACE).append(" NAME_").append(i).append(" = new ").append(QNAME_CLASS).append("(");
+			source.append(this.toLiteral(field.localPart)).append(", ").append(this.toLiteral(field.namespaceURI)).append(", ").append(this.toLiteral(field.prefix)).append(");\n");
+		}
+
+		this.appendWrite(source, className, boundTag, fields);
+		this.appendRead(source, className, fields);
+		source.append("\n}\n");
+
+		Writer writer = null;
+		try {
+			JavaFileObject file = this.processingEnv.getFiler().createSourceFile(converterName, type);
+			writer = file.openWriter();
+			writer.write(source.toString());
+		} catch (IOException e) {
+			this.error(type, "Converter could not be generated: " + e.getMessage());
+		} finally {
+			if (writer != null) {
+				try {
+					writer.close();
+				} catch (IOException e) {
+					this.error(type, "Converter could not be generated: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+
+
+	private void appendWrite(StringBuilder source, String className, BoundTag boundTag, List<BoundField> fields) {
+
+		source.append("\n\n\n\t@Override\n\tpublic void write(").append(className).append(" object, org.prometheuscode.xml.IXMLElementWriter writer) {\n");
+		source.append("\t\twriter.startElement(TAG_NAME);\n");
+		if (!(boundTag.namespaceURI().equals(""))) {
+			source.append("\t\twriter.writeNamespace(").append(this.toLiteral(TAG_PREFIX)).append(", ").append(this.toLiteral(boundTag.namespaceURI())).append(");\n");
+		}
+
+		/* attributes are written just after tag is started */
+		for (int i = 0; i < fields.size(); i++) {
+			BoundField field = fields.get(i);
+			if (field.attribute && !(field.prefix.equals("")) && !(field.prefix.equals(TAG_PREFIX))) {
+				source.append("\t\twriter.writeNamespace(").append(this.toLiteral(field.prefix)).append(", ").append(this.toLiteral(field.namespaceURI)).append(");\n");
+			}
+		}
+		for (int i = 0; i < fields.size(); i++) {
+			BoundField field = fields.get(i);
+			if (!(field.attribute)) {
+				continue;
+			}
+			String value = String.format(field.format, "object." + field.fieldName);
+			String statement = "writer.writeAttribute(NAME_" + i + ", " + value + ");\n";
+			this.appendNullCheck(source, field, statement);
+		}
+
+		for (int i = 0; i < fields.size(); i++) {
+			BoundField field = fields.get(i);
+			if (field.attribute) {
+				continue;
+			}
+			StringBuilder statement = new StringBuilder();
+			statement.append("writer.startElement(NAME_").append(i).append(");\n");
+			/* default namespace of tag is not changed, it has to be declared only for other namespaces */
+			if (!(field.namespaceURI.equals("")) && !(field.namespaceURI.equals(boundTag.namespaceURI()))) {
+				statement.append("writer.writeNamespace(\"\", ").append(this.toLiteral(field.namespaceURI)).append(");\n");
+			}
+			statement.append("writer.writeText(").append(String.format(field.format, "object." + field.fieldName)).append(");\n");
+			statement.append("writer.endElement();\n");
+			this.appendNullCheck(source, field, statement.toString());
+		}
+
+		source.append("\t\twriter.endElement();\n\t}\n");
+	}
+
+
+
+	private void appendRead(StringBuilder source, String className, List<BoundField> fields) {
+
+		source.append("\n\n\n\t@Override\n\tpublic Object read(org.prometheuscode.xml.IXMLElementReader reader) {\n");
+		source.append("\t\t").append(className).append(" object = new ").append(className).append("();\n");
+		source.append("\t\t").append(QNAME_INTERFACE).append(" name = null;\n");
+		source.append("\t\tString text = null;\n");
+
+		boolean hasAttributes = false;
+		for (BoundField field : fields) {
+			hasAttributes |= field.attribute;
+		}
+		if (hasAttributes) {
+			source.append("\t\tint attributesNr = reader.getAttributeCount();\n");
+			source.append("\t\tfor (int i = 0; i < attributesNr; i++) {\n");
+			source.append("\t\t\tname = reader.getAttributeName(i);\n");
+			source.append("\t\t\ttext = reader.getAttributeValue(i);\n");
+			this.appendAssignments(source, fields, true, "");
+			source.append("\t\t}\n");
+		}
+
+		/* every child tag is read or skipped, so cursor stays at depth 1 */
+		source.append("\t\twhile (reader.nextElement()) {\n");
+		source.append("\t\t\tname = reader.getName();\n");
+		this.appendAssignments(source, fields, false, "\t\t\t\treader.skipElement();\n");
+		source.append("\t\t}\n");
+		source.append("\t\treturn object;\n\t}\n");
+	}
+
+
+
+	private void appendAssignments(StringBuilder source, List<BoundField> fields, boolean attributes, String otherwise) {
+
+		String keyword = "if";
+		for (int i = 0; i < fields.size(); i++) {
+			BoundField field = fields.get(i);
+			if (field.attribute != attributes) {
+				continue;
+			}
+			source.append("\t\t\t").append(keyword.equals("if") ? "" : "} ").append(keyword).append(" (NAME_").append(i).append(".equals(name)) {\n");
+			if (!attributes) {
+				source.append("\t\t\t\ttext = reader.getElementText();\n");
+			}
+			source.append("\t\t\t\tobject.").append(field.fieldName).append(" = ").append(String.format(field.parse, "text", "NAME_" + i)).append(";\n");
+			keyword = "else if";
+		}
+
+		if (keyword.equals("if")) {
+			source.append(otherwise);
+			return;
+		}
+		if (!(otherwise.equals(""))) {
+			source.append("\t\t\t} else {\n").append(otherwise);
+		}
+		source.append("\t\t\t}\n");
+	}
+
+
+
+	private void appendNullCheck(StringBuilder source, BoundField field, String statement) {
+		String indent = field.nullable ? "\t\t\t" : "\t\t";
+		if (field.nullable) {
+			source.append("\t\tif (object.").append(field.fieldName).append(" != null) {\n");
+		}
+		for (String line : statement.split("\n")) {
+			source.append(indent).append(line).append("\n");
+		}
+		if (field.nullable) {
+			source.append("\t\t}\n");
+		}
+	}
+
+
+
+	/*
+	 * Java string literal of given value.
+	 */
+	private String toLiteral(String value) {
+		StringBuilder literal = new StringBuilder("\"");
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				literal.append('\\').append(c);
+			} else if (c < ' ' || c > '~') {
+				literal.append(String.format("\\u%04x", (int) c));
+			} else {
+				literal.append(c);
+			}
+		}
+		return literal.append('"').toString();
+	}
+
+
+
+	private void error(Element element, String msg) {
+		Messager messager = this.processingEnv.getMessager();
+		messager.printMessage(Kind.ERROR, msg, element);
+	}
+
+
+
+	/* Private Classes ***^_^*** */
+
+	/*
+	 * Field bound to child tag or attribute.
+	 */
+	private static class BoundField {
+
+		private String fieldName;
+
+		private boolean attribute;
+
+		private String localPart;
+
+		private String namespaceURI;
+
+		/* prefix of name with namespace, empty for element with other namespace than tag */
+		private String prefix = "";
+
+		private boolean nullable;
+
+		/* expressions with %s for field or text, parse can have %s for name too */
+		private String format;
+
+		private String parse;
+
+	}
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * This annotation can be specified on the top of user class whose fields are
+ * bound to child tags by {@link BoundElement} and to attributes by
+ * {@link BoundAttribute}.
+ * </p>
+ * 
+ * <p>
+ * {@link BoundConverterProcessor} generates converter of the class in both
+ * directions. Converter class is put to the same package, its name is class
+ * name with {@value #CONVERTER_SUFFIX} suffix (names of nested classes are
+ * joined by '_'). Converter is annoted with {@link TagToJavaConverter}, so it
+ * is registered by IXMLAdaptiveUnmarshaller, and it is used by
+ * IXMLAdaptiveMarshaller when class has no {@link Convertable} annotation.
+ * </p>
+ * 
+ * <p>
+ * Class has to have no-arg constructor, it can not be abstract or private.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface BoundTag {
+
+	String CONVERTER_SUFFIX = "XMLConverter";
+
+
+
+	String localPart();
+
+
+
+	String namespaceURI() default "";
+
+}
@@ -0,0 +1,395 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml.annotation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import org.prometheuscode.xml.IMarshallerConverter;
+import org.prometheuscode.xml.IUnmarshallerConverter;
+
+/**
+ * <p>
+ * Annotation processor writing index of classes annoted with
+ * {@link TagToJavaConverter} and {@link Convertable}. Index is read by
+ * unmarshaller when mapping is created for indexed package, so package
+ * classes do not have to be scanned.
+ * </p>
+ * 
+ * <p>
+ * Index is text file {@value #INDEX_RESOURCE} in class output directory.
+ * Every line has fields separated by tab:
+ * </p>
+ * 
+ * <pre>
+ * package     [package name]
+ * tag         [package name] [class name] [namespace URI] [local part]
+ * convertable [package name] [class name] [converter class name]
+ * </pre>
+ * 
+ * <p>
+ * Package line is written for every package which had classes compiled, also
+ * for packages without annoted classes. When only some classes are compiled,
+ * index lines of other classes are kept, unless their class files were
+ * deleted.
+ * </p>
+ * 
+ * <p>
+ * Processor also checks annoted classes, converter class must be concrete,
+ * must implement converter interface and must have public no-arg
+ * constructor.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+public class ConverterIndexProcessor extends AbstractProcessor {
+
+	public final static String INDEX_RESOURCE = "META-INF/prometheuscode/xml-converters.index";
+
+	public final static String PACKAGE_ENTRY = "package";
+
+	public final static String TAG_ENTRY = "tag";
+
+	public final static String CONVERTABLE_ENTRY = "convertable";
+
+	public final static String SEPARATOR = "\t";
+
+	private final static Charset INDEX_CHARSET = Charset.forName("UTF-8");
+
+	private Set<String> packages = new LinkedHashSet<String>();
+
+	private Set<String> entries = new LinkedHashSet<String>();
+
+	/* binary names of classes compiled in this compilation */
+	private Set<String> compiledClasses = new HashSet<String>();
+
+
+
+	/* Public Methods ***^_^*** */
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		/* all root elements are needed to know compiled packages */
+		Set<String> types = new HashSet<String>();
+		types.add("*");
+		return types;
+	}
+
+
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+
+		if (roundEnv.processingOver()) {
+			this.writeIndex();
+			return false;
+		}
+
+		Elements elements = this.processingEnv.getElementUtils();
+		for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+			this.packages.add(elements.getPackageOf(type).getQualifiedName().toString());
+			this.addCompiledClasses(type);
+		}
+
+		for (Element element : roundEnv.getElementsAnnotatedWith(TagToJavaConverter.class)) {
+			this.processTagToJavaConverter(element);
+		}
+
+		for (Element element : roundEnv.getElementsAnnotatedWith(Convertable.class)) {
+			this.processConvertable(element);
+		}
+
+		/* annotations are not claimed, other processors can see them */
+		return false;
+	}
+
+
+
+	/* Private Methods ***^_^*** */
+
+	private void addCompiledClasses(TypeElement type) {
+		this.compiledClasses.add(this.getBinaryName(type));
+		for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+			this.addCompiledClasses(nested);
+		}
+	}
+
+
+
+	private void processTagToJavaConverter(Element element) {
+
+		if (!(this.checkConverterClass(element, IUnmarshallerConverter.class, TagToJavaConverter.class))) {
+			return;
+		}
+
+		TypeElement type = (TypeElement) element;
+		TagToJavaConverter annot = type.getAnnotation(TagToJavaConverter.class);
+		String namespaceURI = annot.value().namespaceURI();
+		String localPart = annot.value().localPart();
+		if (this.hasSpecialCharacters(namespaceURI) || this.hasSpecialCharacters(localPart)) {
+			this.error(element, "Name in TagToJavaConverter annotation can not have tabs or line breaks");
+			return;
+		}
+
+		String packageName = this.processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+		this.entries.add(TAG_ENTRY + SEPARATOR + packageName + SEPARATOR + this.getBinaryName(type) + SEPARATOR + namespaceURI + SEPARATOR + localPart);
+	}
+
+
+
+	private void processConvertable(Element element) {
+
+		if (!(element.getKind().isClass() || element.getKind().isInterface())) {
+			this.error(element, "Convertable annotation can be put only on class or interface");
+			return;
+		}
+
+		/* converter class can not be read from annotation, it might not be compiled yet */
+		TypeElement converterType = this.getConverterType(element);
+		if (converterType == null) {
+			this.error(element, "Converter class of Convertable annotation could not be found");
+			return;
+		}
+
+		if (!(this.checkConverterClass(converterType, IMarshallerConverter.class, Convertable.class))) {
+			return;
+		}
+
+		TypeElement type = (TypeElement) element;
+		String packageName = this.processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+		this.entries.add(CONVERTABLE_ENTRY + SEPARATOR + packageName + SEPARATOR + this.getBinaryName(type) + SEPARATOR + this.getBinaryName(converterType));
+	}
+
+
+
+	private TypeElement getConverterType(Element element) {
+
+		String annotationName = Convertable.class.getCanonicalName();
+		for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+			TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+			if (!(annotationType.getQualifiedName().contentEquals(annotationName))) {
+				continue;
+			}
+
+			for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : mirror.getElementValues().entrySet()) {
+				if (!(value.getKey().getSimpleName().contentEquals("converter"))) {
+					continue;
+				}
+				Object converter = value.getValue().getValue();
+				if (converter instanceof DeclaredType) {
+					return (TypeElement) ((DeclaredType) converter).asElement();
+				}
+			}
+		}
+		return null;
+	}
+
+
+
+	/*
+	 * Check if class can be instantiated by mapping and implements converter
+	 * interface. Errors are reported on given element.
+	 */
+	private boolean checkConverterClass(Element element, Class<?> converterInterface, Class<?> annotationType) {
+
+		String annotationName = annotationType.getSimpleName();
+		if (element.getKind() != ElementKind.CLASS) {
+			this.error(element, annotationName + " annotation converter has to be a class");
+			return false;
+		}
+
+		TypeElement type = (TypeElement) element;
+		if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+			this.error(element, annotationName + " annotation converter can not be abstract");
+			return false;
+		}
+
+		if (type.getNestingKind().isNested() && !(type.getModifiers().contains(Modifier.STATIC))) {
+			this.error(element, annotationName + " annotation converter can not be inner class");
+			return false;
+		}
+
+		Types types = this.processingEnv.getTypeUtils();
+		TypeMirror interfaceType = types.erasure(this.processingEnv.getElementUtils().getTypeElement(converterInterface.getCanonicalName()).asType());
+		if (!(types.isAssignable(types.erasure(type.asType()), interfaceType))) {
+			this.error(element, annotationName + " annotation converter has to implement " + converterInterface.getCanonicalName());
+			return false;
+		}
+
+		boolean hasNoArgConstructor = false;
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+				hasNoArgConstructor = true;
+				break;
+			}
+		}
+		if (!hasNoArgConstructor) {
+			this.error(element, annotationName + " annotation converter has to have public no-arg constructor");
+			return false;
+		}
+
+		return true;
+	}
+
+
+
+	private void writeIndex() {
+
+		if (this.packages.isEmpty()) {
+			return;
+		}
+
+		this.readPreviousIndex();
+
+		Filer filer = this.processingEnv.getFiler();
+		Writer writer = null;
+		try {
+			FileObject index = filer.createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE);
+			writer = new OutputStreamWriter(index.openOutputStream(), INDEX_CHARSET);
+			for (String packageName : this.packages) {
+				writer.write(PACKAGE_ENTRY + SEPARATOR + packageName + "\n");
+			}
+			for (String entry : this.entries) {
+				writer.write(entry + "\n");
+			}
+		} catch (IOException e) {
+			this.processingEnv.getMessager().printMessage(Kind.ERROR, "Converters index could not be written: " + e.getMessage());
+		} finally {
+			if (writer != null) {
+				try {
+					writer.close();
+				} catch (IOException e) {
+					this.processingEnv.getMessager().printMessage(Kind.ERROR, "Converters index could not be written: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+
+
+	/*
+	 * Keep lines of classes which were not compiled this time, so index is
+	 * correct when only some classes are compiled. Lines of classes deleted
+	 * or renamed since previous compilation are dropped.
+	 */
+	private void readPreviousIndex() {
+
+		BufferedReader reader = null;
+		try {
+			FileObject index = this.processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE);
+			reader = new BufferedReader(new InputStreamReader(index.openInputStream(), INDEX_CHARSET));
+			String line = null;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split(SEPARATOR, -1);
+				if (fields.length == 2 && fields[0].equals(PACKAGE_ENTRY)) {
+					this.packages.add(fields[1]);
+				} else if (fields.length > 2 && !(this.compiledClasses.contains(fields[2])) && this.isClassOutput(fields[2])) {
+					this.entries.add(line);
+				}
+			}
+		} catch (IOException e) {
+			/* there is no previous index */
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					/* nothing to do */
+				}
+			}
+		}
+	}
+
+
+
+	/*
+	 * Check if class file of class not compiled this time is still in class
+	 * output directory.
+	 */
+	private boolean isClassOutput(String binaryName) {
+
+		int dot = binaryName.lastIndexOf('.');
+		String packageName = dot < 0 ? "" : binaryName.substring(0, dot);
+		String fileName = binaryName.substring(dot + 1) + ".class";
+		try {
+			FileObject classFile = this.processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, packageName, fileName);
+			classFile.openInputStream().close();
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+
+
+	private String getBinaryName(TypeElement type) {
+		return this.processingEnv.getElementUtils().getBinaryName(type).toString();
+	}
+
+
+
+	private boolean hasSpecialCharacters(String value) {
+		return value.indexOf('\t') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+	}
+
+
+
+	private void error(Element element, String msg) {
+		Messager messager = this.processingEnv.getMessager();
+		messager.printMessage(Kind.ERROR, msg, element);
+	}
+
+}
@@ -19,6 +19,7 @@
 package org.prometheuscode.xml.treemodel;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +31,11 @@ import org.prometheuscode.xml.XMLTreeModelConstrainException;
  * Implementation of ICompositeTag
  * </p>
  * 
+ * <p>
+ * Lists returned by this class are unmodifiable live views, they are not
+ * copied on every call.
+ * </p>
+ * 
  * 
  * @author marta
  * 
@@ -37,15 +43,27 @@ import org.prometheuscode.xml.XMLTreeModelConstrainException;
 public class CompositeTag extends XMLTag implements ICompositeTag {
 
 	/*
-	 * These maps holds list of elements with given name or one element if there
-	 * is only one element with given name.
+	 * These maps holds list of elements with given name. Lists are kept when
+	 * all tags are removed, so reused tag does not create them again.
+	 */
+
+	private Map<IXMLQName, TagsWithName<ICompositeTag>> compositeTags = new LinkedHashMap<IXMLQName, TagsWithName<ICompositeTag>>();
+
+	private Map<IXMLQName, TagsWithName<ISimpleTag>> simpleTags = new LinkedHashMap<IXMLQName, TagsWithName<ISimpleTag>>();
+
+	/*
+	 * All children of given type in order of addition.
 	 */
 
-	private Map<IXMLQName, List<ICompositeTag>> compositeTags = new LinkedHashMap<IXMLQName, List<ICompositeTag>>();
+	private List<ICompositeTag> allCompositeTags = new ArrayList<ICompositeTag>();
+
+	private List<ICompositeTag> allCompositeTagsView = Collections.unmodifiableList(this.allCompositeTags);
+
+	private List<ISimpleTag> allSimpleTags = new ArrayList<ISimpleTag>();
 
-	private Map<IXMLQName, List<ISimpleTag>> simpleTags = new LinkedHashMap<IXMLQName, List<ISimpleTag>>();
+	private List<ISimpleTag> allSimpleTagsView = Collections.unmodifiableList(this.allSimpleTags);
 
-	private Order order = new Order();
+	private IndexedOrder order = new IndexedOrder();
 
 
 
@@ -68,7 +86,7 @@ public class CompositeTag extends XMLTag implements ICompositeTag {
 	@Override
 	public List<ICompositeTag> getAllCompositeTags() {
 
-		return this.<ICompositeTag> getTags(this.compositeTags);
+		return this.allCompositeTagsView;
 	}
 
 
@@ -76,7 +94,28 @@ public class CompositeTag extends XMLTag implements ICompositeTag {
 	@Override
 	public List<ISimpleTag> getAllSimpleTags() {
 
-		return this.<ISimpleTag> getTags(this.simpleTags);
+		return this.allSimpleTagsView;
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if index is out of range.
+	 */
+	@Override
+	public IXMLTag getChild(int index) {
+
+		return this.order.getTagAt(index);
+	}
+
+
+
+	@Override
+	public int getChildrenCount() {
+
+		return this.order.size();
 	}
 
 
@@ -114,8 +153,10 @@ public class CompositeTag extends XMLTag implements ICompositeTag {
 
 		boolean wasAdded = false;
 		if (tag.isSimpleTag()) {
+			this.allSimpleTags.add((ISimpleTag) tag);
 			wasAdded = this.<ISimpleTag> addTagWithType(tag, this.simpleTags);
 		} else {
+			this.allCompositeTags.add((ICompositeTag) tag);
 			wasAdded = this.<ICompositeTag> addTagWithType(tag, this.compositeTags);
 		}
 
@@ -136,9 +177,15 @@ public class CompositeTag extends XMLTag implements ICompositeTag {
 			throw new IllegalArgumentException("A Name should be given. Null argument");
 		}
 
-		List<? extends IXMLTag> tagsWithName = this.getTagsListByName(tagName);
-
-		if (tagsWithName == null || tagsWithName.isEmpty()) {
+		List<? extends IXMLTag> tagsWithName = null;
+		List<? extends IXMLTag> allTags = null;
+		if (this.hasTags(this.compositeTags, tagName)) {
+			tagsWithName = this.compositeTags.get(tagName).tags;
+			allTags = this.allCompositeTags;
+		} else if (this.hasTags(this.simpleTags, tagName)) {
+			tagsWithName = this.simpleTags.get(tagName).tags;
+			allTags = this.allSimpleTags;
+		} else {
 			return 0;
 		}
 
@@ -147,23 +194,18 @@ public class CompositeTag extends XMLTag implements ICompositeTag {
 		int start = 0;
 		int end = tagsSize;
 		if (nrToRemove < 0) {
-			start = correctNrToRemove;
+			start = tagsSize - correctNrToRemove;
 		} else {
 			end = correctNrToRemove;
 		}
 
-		/*
-		 * NOTE: start and end are are applicable to ordering
-		 */
-		this.order.removeElementsByName(tagName, start, end - start);
-
-		/*
-		 * it might be not efficient
-		 */
-		for (int i = start; i < end; i++) {
-			IXMLTag tag = tagsWithName.remove(i);
+		List<? extends IXMLTag> tagsToRemove = tagsWithName.subList(start, end);
+		this.order.removeTags(tagsToRemove);
+		for (IXMLTag tag : tagsToRemove) {
+			this.removeByIdentity(allTags, tag);
 			tag.setParent(null);
 		}
+		tagsToRemove.clear();
 
 		return correctNrToRemove;
 	}
@@ -178,15 +220,7 @@ public class CompositeTag extends XMLTag implements ICompositeTag {
 	@Override
 	public ICompositeTag getCompositeTagByName(IXMLQName name) {
 
-		if (name == null || name.getLocalPart().equals("")) {
-			throw new IllegalArgumentException("A Name should be given with none empty local part");
-		}
-
-		List<ICompositeTag> tags = this.compositeTags.get(name);
-		if (tags == null || tags.isEmpty()) {
-			return null;
-		}
-		return tags.get(0);
+		return this.<ICompositeTag> getFirstTagByName(name, this.compositeTags);
 	}
 
 
@@ -199,7 +233,7 @@ public class CompositeTag extends XMLTag implements ICompositeTag {
 	@Override
 	public List<ICompositeTag> getAllCompositeTagsByName(IXMLQName name) {
 
-		return this.<ICompositeTag> getTagsByName(name, this.compositeTags, 0);
+		return this.<ICompositeTag> getTagsByName(name, this.compositeTags);
 	}
 
 
@@ -212,15 +246,7 @@ public class CompositeTag extends XMLTag implements ICompositeTag {
 	@Override
 	public ISimpleTag getSimpleTagByName(IXMLQName name) {
 
-		if (name == null || name.getLocalPart().equals("")) {
-			throw new IllegalArgumentException("A Name should be given with none empty local part");
-		}
-
-		List<ISimpleTag> tags = this.simpleTags.get(name);
-		if (tags == null || tags.isEmpty()) {
-			return null;
-		}
-		return tags.get(0);
+		return this.<ISimpleTag> getFirstTagByName(name, this.simpleTags);
 	}
 
 
@@ -233,7 +259,7 @@ public class CompositeTag extends XMLTag implements ICompositeTag {
 	@Override
 	public List<ISimpleTag> getAllSimpleTagsByName(IXMLQName name) {
 
-		return this.getTagsByName(name, this.simpleTags, 0);
+		return this.<ISimpleTag> getTagsByName(name, this.simpleTags);
 	}
 
 
@@ -254,8 +280,16 @@ public class CompositeTag extends XMLTag implements ICompositeTag {
 
 	@Override
 	public void removeAllTags() {
-		this.compositeTags.clear();
-		this.simpleTags.clear();
+		for (TagsWithName<ICompositeTag> tagsWithName : this.compositeTags.values()) {
+			tagsWithName.tags.clear();
+		}
+
+		for (TagsWithName<ISimpleTag> tagsWithName : this.simpleTags.values()) {
+			tagsWithName.tags.clear();
+		}
+
+		this.allCompositeTags.clear();
+		this.allSimpleTags.clear();
 		this.order.removeAll();
 	}
 
@@ -277,83 +311,78 @@ public class CompositeTag extends XMLTag implements ICompositeTag {
 
 
 	/*
-	 * Private Methods ***^_^***
+	 * Private Classes ***^_^***
 	 */
 
+
+
 	/*
-	 * Helper method to get list of tags ICompositeTag or ISimpleTag. List
-	 * created depends on argument "tags".
-	 * 
-	 * @param tagsMap
-	 * 
-	 * @return
+	 * Tags with the same name and unmodifiable view of them.
 	 */
-	private <T> List<T> getTags(Map<IXMLQName, List<T>> tags) {
+	private static class TagsWithName<T> {
 
-		List<T> tagsToReturn = new ArrayList<T>();
+		private List<T> tags = new ArrayList<T>();
 
-		if (!(tags.isEmpty())) {
+		private List<T> view = Collections.unmodifiableList(this.tags);
 
-			for (List<T> elem : tags.values()) {
-				tagsToReturn.addAll(elem);
-			}
-		}
-
-		return tagsToReturn;
 	}
 
 
 
+	/*
+	 * Private Methods ***^_^***
+	 */
+
 	/*
 	 * Add given Tag.
 	 */
 	@SuppressWarnings("unchecked")
-	private <T> boolean addTagWithType(IXMLTag tag, Map<IXMLQName, List<T>> tags) {
+	private <T> boolean addTagWithType(IXMLTag tag, Map<IXMLQName, TagsWithName<T>> tags) {
 
-		boolean result = false;
-		List<T> tagsList = tags.get(tag.getName());
-		if (tagsList == null) {
-			tagsList = new ArrayList<T>();
-			tags.put(tag.getName(), tagsList);
+		TagsWithName<T> tagsWithName = tags.get(tag.getName());
+		if (tagsWithName == null) {
+			tagsWithName = new TagsWithName<T>();
+			tags.put(tag.getName(), tagsWithName);
 		}
 
-		result = tagsList.add((T) tag);
-		return result;
+		return tagsWithName.tags.add((T) tag);
 	}
 
 
 
 	/*
-	 * Get given number of tags with given name.
+	 * Get view of tags with given name.
 	 */
-	private <T> List<T> getTagsByName(IXMLQName tagName, Map<IXMLQName, List<T>> tags, int nrToGet) {
+	private <T> List<T> getTagsByName(IXMLQName tagName, Map<IXMLQName, TagsWithName<T>> tags) {
 
 		if (tagName == null || tagName.getLocalPart().equals("")) {
 			throw new IllegalArgumentException("A Name should be given with none empty local part");
 		}
 
-		List<T> tagsWithName = tags.get(tagName);
-		List<T> tagsToReturn = new ArrayList<T>();
-		if (tagsWithName == null || tagsWithName.isEmpty()) {
-			return tagsToReturn;
+		TagsWithName<T> tagsWithName = tags.get(tagName);
+		if (tagsWithName == null) {
+			return Collections.emptyList();
 		}
 
-		int tagsWithNameSize = tagsWithName.size();
-		int correctNrToGet = this.getCorrectNumber(tagsWithNameSize, nrToGet);
-		int start = 0;
-		int end = tagsWithNameSize;
+		return tagsWithName.view;
+	}
 
-		if (nrToGet < 0) {
-			start = correctNrToGet;
-		} else {
-			end = correctNrToGet;
-		}
 
-		for (int i = start; i < end; i++) {
-			tagsToReturn.add(tagsWithName.get(i));
+
+	/*
+	 * Get first tag with given name.
+	 */
+	private <T> T getFirstTagByName(IXMLQName tagName, Map<IXMLQName, TagsWithName<T>> tags) {
+
+		if (tagName == null || tagName.getLocalPart().equals("")) {
+			throw new IllegalArgumentException("A Name should be given with none empty local part");
 		}
 
-		return tagsToReturn;
+		TagsWithName<T> tagsWithName = tags.get(tagName);
+		if (tagsWithName == null || tagsWithName.tags.isEmpty()) {
+			return null;
+		}
+		return tagsWithName.tags.get(0);
 	}
 
 
@@ -380,21 +409,25 @@ public class CompositeTag extends XMLTag implements ICompositeTag {
 
 
 	/*
-	 * Get tag list with given tag name.
+	 * Are there tags with given name?
 	 */
-	private List<? extends IXMLTag> getTagsListByName(IXMLQName tagName) {
+	private <T> boolean hasTags(Map<IXMLQName, TagsWithName<T>> tags, IXMLQName tagName) {
+		TagsWithName<T> tagsWithName = tags.get(tagName);
+		return tagsWithName != null && !(tagsWithName.tags.isEmpty());
+	}
 
-		List<? extends IXMLTag> list = null;
-		if (this.compositeTags.containsKey(tagName)) {
 
-			list = this.compositeTags.get(tagName);
-		} else if (this.simpleTags.containsKey(tagName)) {
 
-			list = this.simpleTags.get(tagName);
+	/*
+	 * Remove tag from list, tags equal by name are different elements.
+	 */
+	private void removeByIdentity(List<? extends IXMLTag> tags, IXMLTag tag) {
+		for (int i = tags.size() - 1; i >= 0; i--) {
+			if (tags.get(i) == tag) {
+				tags.remove(i);
+				return;
+			}
 		}
-
-		return list;
-
 	}
 
 
@@ -404,7 +437,7 @@ public class CompositeTag extends XMLTag implements ICompositeTag {
 	 */
 	private void checkNamingConstrain(IXMLTag tag) {
 
-		if ((!(tag.isSimpleTag()) && this.simpleTags.containsKey(tag.getName())) || (tag.isSimpleTag() && this.compositeTags.containsKey(tag.getName()))) {
+		if ((!(tag.isSimpleTag()) && this.hasTags(this.simpleTags, tag.getName())) || (tag.isSimpleTag() && this.hasTags(this.compositeTags, tag.getName()))) {
 			throw new XMLTreeModelConstrainException("Constrain invalidation. One can't have simple and composite tag with the same qualified name.");
 		}
 
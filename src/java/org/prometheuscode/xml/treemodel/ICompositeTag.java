@@ -63,7 +63,7 @@ public interface ICompositeTag extends IXMLTag {
 	 * Get all Composite Tags with given name.
 	 * 
 	 * @param name
-	 * @return List of composite tags with given name
+	 * @return unmodifiable List of composite tags with given name
 	 */
 	List<ICompositeTag> getAllCompositeTagsByName(IXMLQName name);
 
@@ -83,30 +83,49 @@ public interface ICompositeTag extends IXMLTag {
 	 * Get all Simple Tags with given name.
 	 * 
 	 * @param name
-	 * @return List of simple tags with given name
+	 * @return unmodifiable List of simple tags with given name
 	 */
 	List<ISimpleTag> getAllSimpleTagsByName(IXMLQName name);
 
 
 
 	/**
-	 * Get this element all Composite Tags children.
+	 * Get this element all Composite Tags children in order of addition.
 	 * 
-	 * @return list of {@link ICompositeTag} children
+	 * @return unmodifiable list of {@link ICompositeTag} children
 	 */
 	List<ICompositeTag> getAllCompositeTags();
 
 
 
 	/**
-	 * Get this element all Simple Tags children.
+	 * Get this element all Simple Tags children in order of addition.
 	 * 
-	 * @return list of {@link ISimpleTag} children
+	 * @return unmodifiable list of {@link ISimpleTag} children
 	 */
 	List<ISimpleTag> getAllSimpleTags();
 
 
 
+	/**
+	 * Get child at given position of ordering.
+	 * 
+	 * @param index
+	 * @return child tag
+	 */
+	IXMLTag getChild(int index);
+
+
+
+	/**
+	 * Get number of all children.
+	 * 
+	 * @return
+	 */
+	int getChildrenCount();
+
+
+
 	/**
 	 * Remove all children tags.
 	 * 
@@ -38,6 +38,14 @@ package org.prometheuscode.xml.treemodel;
  * methods.
  * </p>
  * 
+ * <p>
+ * Names can be immutable, their setters throw
+ * <code>UnsupportedOperationException</code>. Unmarshaller with symbol table
+ * gives immutable interned names to converters, also names of tags and
+ * attributes. Converters which change names should copy them, for ex. to
+ * {@link XMLQName}, or set new name of tag.
+ * </p>
+ * 
  * 
  * @author marta
  * 
@@ -77,6 +85,8 @@ public interface IXMLQName {
 	 * 
 	 * @param localPart
 	 *            XML Qualified Name local part
+	 * @throws UnsupportedOperationException
+	 *             if name is immutable.
 	 */
 	void setLocalPart(String localPart);
 
@@ -87,6 +97,8 @@ public interface IXMLQName {
 	 * 
 	 * @param namespaceURI
 	 *            XML Qualified Name namespace URI
+	 * @throws UnsupportedOperationException
+	 *             if name is immutable.
 	 */
 	void setNamespaceURI(String namespaceURI);
 
@@ -97,6 +109,8 @@ public interface IXMLQName {
 	 * 
 	 * @param prefix
 	 *            XML Qualified Name prefix
+	 * @throws UnsupportedOperationException
+	 *             if name is immutable.
 	 */
 	void setPrefix(String prefix);
 
@@ -50,7 +50,7 @@ public interface IXMLTag {
 
 	/**
 	 * <p>
-	 * Get a copy of Namespaces on this Tag.
+	 * Get unmodifiable view of Namespaces on this Tag.
 	 * </p>
 	 * 
 	 * 
@@ -69,6 +69,25 @@ public interface IXMLTag {
 
 
 
+	/**
+	 * Get namespace URI with given prefix declared on this tag.
+	 * 
+	 * @param prefix
+	 * @return namespace URI or null if there is no such namespace
+	 */
+	String getNamespace(String prefix);
+
+
+
+	/**
+	 * Get number of namespaces declared on this tag.
+	 * 
+	 * @return
+	 */
+	int getNamespaceCount();
+
+
+
 	/**
 	 * Set namespaces.
 	 * 
@@ -80,7 +99,7 @@ public interface IXMLTag {
 
 	/**
 	 * <p>
-	 * Get a copy of tag attributes
+	 * Get unmodifiable view of tag attributes
 	 * </p>
 	 * 
 	 * 
@@ -91,6 +110,25 @@ public interface IXMLTag {
 
 
 
+	/**
+	 * Get value of attribute with given name.
+	 * 
+	 * @param attrName
+	 * @return value or null if there is no such attribute
+	 */
+	String getAttribute(IXMLQName attrName);
+
+
+
+	/**
+	 * Get number of attributes.
+	 * 
+	 * @return
+	 */
+	int getAttributeCount();
+
+
+
 	/**
 	 * 
 	 * 
@@ -0,0 +1,414 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+
+package org.prometheuscode.xml.treemodel;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * Implementation of {@link IOrder} keeping tags in growable array, so getting
+ * tag at position is constant time and adding tag at the end is amortized
+ * constant time.
+ * </p>
+ * 
+ * <p>
+ * Positions of tags are indexed by tag names. Index is updated when tag is
+ * added at the end, other changes make it stale and it is rebuilt when it is
+ * needed again. Positions are found in index by binary search, tags removed by
+ * name are dropped in one pass over array. Names of added tags should not be
+ * changed.
+ * </p>
+ * 
+ * @author marta
+ * 
+ */
+public class IndexedOrder implements IOrder {
+
+	private final static int INITIAL_CAPACITY = 8;
+
+	private IXMLTag[] tags = new IXMLTag[INITIAL_CAPACITY];
+
+	private int size = 0;
+
+	/*
+	 * Positions of tags with given name in ascending order. Names are dropped
+	 * when index is rebuilt or all tags are removed, so names of removed tags
+	 * are not kept.
+	 */
+	private Map<IXMLQName, Positions> positionsByName = new HashMap<IXMLQName, Positions>();
+
+	private boolean indexStale = false;
+
+
+
+	public IndexedOrder() {
+	}
+
+
+
+	/* Public Methods ***^_^*** */
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if position is out of range.
+	 */
+	@Override
+	public void move(int from, int to) {
+
+		this.checkRange("From", from);
+		this.checkRange("To", to);
+
+		IXMLTag elem = this.tags[from];
+		if (from < to) {
+			System.arraycopy(this.tags, from + 1, this.tags, from, to - from);
+		} else if (from > to) {
+			System.arraycopy(this.tags, to, this.tags, to + 1, from - to);
+		}
+		this.tags[to] = elem;
+		this.indexStale = true;
+	}
+
+
+
+	/**
+	 * 
+	 * @return position or -1 if there is no tag with the same name
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if position is out of range.
+	 */
+	@Override
+	public int getPosition(IXMLTag tag, int startFrom) {
+
+		this.checkRange("Start from", startFrom);
+
+		Positions positions = this.getPositions(tag.getName());
+		if (positions == null) {
+			return -1;
+		}
+
+		int index = positions.indexOfFirstNotLess(startFrom);
+		return (index < positions.size) ? positions.values[index] : -1;
+	}
+
+
+
+	/**
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if position is out of range.
+	 */
+	@Override
+	public IXMLTag getTagAt(int position) {
+
+		this.checkRange("Position", position);
+		return this.tags[position];
+	}
+
+
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+
+
+	/**
+	 * Add element to ordering.
+	 * 
+	 * @param tag
+	 */
+	void addElement(IXMLTag tag) {
+		this.ensureCapacity(this.size + 1);
+		this.tags[this.size] = tag;
+		if (!(this.indexStale)) {
+			this.getOrCreatePositions(tag.getName()).add(this.size);
+		}
+		this.size++;
+	}
+
+
+
+	/**
+	 * Add element at position.
+	 * 
+	 * @param tag
+	 * @param position
+	 */
+	void addElementAt(IXMLTag tag, int position) {
+
+		if (tag == null || tag.getName().getLocalPart().equals("")) {
+			throw new IllegalArgumentException("Name can't be null or without local part");
+		}
+
+		this.checkRange("Position", position);
+		this.ensureCapacity(this.size + 1);
+		System.arraycopy(this.tags, position, this.tags, position + 1, this.size - position);
+		this.tags[position] = tag;
+		this.size++;
+		this.indexStale = true;
+	}
+
+
+
+	/**
+	 * Removes "howMany" tags with given name, starting at "from" occurrence.
+	 */
+	void removeElementsByName(IXMLQName tagName, int from, int howMany) {
+
+		this.checkRange("From", from);
+
+		if (howMany <= 0 || howMany > this.size) {
+			throw new IllegalArgumentException("howMany argument is out of band: " + howMany + " where size is: " + this.size);
+		}
+
+		Positions positions = this.getPositions(tagName);
+		if (positions == null || from >= positions.size) {
+			return;
+		}
+
+		int end = Math.min(positions.size, from + howMany);
+		Set<IXMLTag> toRemove = Collections.newSetFromMap(new IdentityHashMap<IXMLTag, Boolean>());
+		for (int i = from; i < end; i++) {
+			toRemove.add(this.tags[positions.values[i]]);
+		}
+		this.removeAll(toRemove, positions.values[from]);
+	}
+
+
+
+	/**
+	 * Remove element at position
+	 * 
+	 * @param position
+	 * @return
+	 */
+	IXMLTag removeElementAt(int position) {
+
+		this.checkRange("Position", position);
+		IXMLTag removed = this.tags[position];
+		this.removeAt(position);
+		return removed;
+	}
+
+
+
+	/**
+	 * Remove first element with the same name.
+	 * 
+	 * @param name
+	 * @return
+	 */
+	boolean removeElement(IXMLTag name) {
+		int position = (this.size > 0) ? this.getPosition(name, 0) : -1;
+		if (position < 0) {
+			return false;
+		}
+		this.removeAt(position);
+		return true;
+	}
+
+
+
+	/**
+	 * Remove given tag, tags with the same name are not removed.
+	 * 
+	 * @param tag
+	 * @return true if tag was removed
+	 */
+	boolean removeTag(IXMLTag tag) {
+		Positions positions = this.getPositions(tag.getName());
+		if (positions == null) {
+			return false;
+		}
+
+		for (int i = 0; i < positions.size; i++) {
+			int position = positions.values[i];
+			if (this.tags[position] == tag) {
+				this.removeAt(position);
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+
+	/**
+	 * Remove given tags in one pass, tags with the same names are not
+	 * removed.
+	 * 
+	 * @param tagsToRemove
+	 */
+	void removeTags(List<? extends IXMLTag> tagsToRemove) {
+		if (tagsToRemove.isEmpty()) {
+			return;
+		}
+
+		Set<IXMLTag> toRemove = Collections.newSetFromMap(new IdentityHashMap<IXMLTag, Boolean>());
+		toRemove.addAll(tagsToRemove);
+		this.removeAll(toRemove, 0);
+	}
+
+
+
+	/**
+	 * Remove all elements.
+	 */
+	void removeAll() {
+		Arrays.fill(this.tags, 0, this.size, null);
+		this.size = 0;
+		this.positionsByName.clear();
+		this.indexStale = false;
+	}
+
+
+
+	/* Private Methods ***^_^*** */
+
+	/*
+	 * Get positions of tags with given name, index is rebuilt if it is stale.
+	 */
+	private Positions getPositions(IXMLQName name) {
+		if (this.indexStale) {
+			this.positionsByName.clear();
+			for (int i = 0; i < this.size; i++) {
+				this.getOrCreatePositions(this.tags[i].getName()).add(i);
+			}
+			this.indexStale = false;
+		}
+
+		Positions positions = this.positionsByName.get(name);
+		return (positions == null || positions.size == 0) ? null : positions;
+	}
+
+
+
+	private Positions getOrCreatePositions(IXMLQName name) {
+		Positions positions = this.positionsByName.get(name);
+		if (positions == null) {
+			positions = new Positions();
+			this.positionsByName.put(name, positions);
+		}
+		return positions;
+	}
+
+
+
+	private void removeAt(int position) {
+		System.arraycopy(this.tags, position + 1, this.tags, position, this.size - position - 1);
+		this.size--;
+		this.tags[this.size] = null;
+		this.indexStale = true;
+	}
+
+
+
+	/*
+	 * Drop given tags, tags before start position are not checked.
+	 */
+	private void removeAll(Set<IXMLTag> toRemove, int start) {
+		int kept = start;
+		for (int i = start; i < this.size; i++) {
+			IXMLTag tag = this.tags[i];
+			if (!(toRemove.contains(tag))) {
+				this.tags[kept++] = tag;
+			}
+		}
+
+		if (kept < this.size) {
+			Arrays.fill(this.tags, kept, this.size, null);
+			this.size = kept;
+			this.indexStale = true;
+		}
+	}
+
+
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > this.tags.length) {
+			this.tags = Arrays.copyOf(this.tags, Math.max(capacity, this.tags.length * 2));
+		}
+	}
+
+
+
+	/*
+	 * check if acces fall into range.
+	 */
+	private void checkRange(String msg, int access) {
+
+		if (access < 0 || access >= this.size) {
+			throw new IllegalArgumentException(msg + " argument is out of band: " + access + " where size is: " + this.size);
+		}
+
+	}
+
+
+
+	/* Private Classes ***^_^*** */
+
+	/*
+	 * Growable array of positions in ascending order.
+	 */
+	private static class Positions {
+
+		private int[] values = new int[2];
+
+		private int size = 0;
+
+
+
+		void add(int position) {
+			if (this.size == this.values.length) {
+				this.values = Arrays.copyOf(this.values, this.size * 2);
+			}
+			this.values[this.size++] = position;
+		}
+
+
+
+		/*
+		 * Binary search of the first position not less than given one.
+		 */
+		int indexOfFirstNotLess(int position) {
+			int low = 0;
+			int high = this.size;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (this.values[middle] < position) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+	}
+
+}
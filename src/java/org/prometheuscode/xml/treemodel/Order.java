@@ -182,6 +182,25 @@ public class Order implements IOrder {
 
 
 
+	/**
+	 * Remove given tag, tags with the same name are not removed.
+	 * 
+	 * @param tag
+	 * @return true if tag was removed
+	 */
+	boolean removeTag(IXMLTag tag) {
+		ListIterator<IXMLTag> iter = this.list.listIterator();
+		while (iter.hasNext()) {
+			if (iter.next() == tag) {
+				iter.remove();
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+
 	/**
 	 * Remove all elements.
 	 */
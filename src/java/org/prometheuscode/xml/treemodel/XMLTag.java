@@ -17,6 +17,7 @@
  */
 package org.prometheuscode.xml.treemodel;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -25,6 +26,11 @@ import java.util.Map;
  * Abstract implementation of IXMLTag.
  * </p>
  * 
+ * <p>
+ * Attributes and namespaces maps are created when they are needed. Maps
+ * returned by getters are unmodifiable live views.
+ * </p>
+ * 
  * @author marta
  * 
  */
@@ -34,8 +40,12 @@ public abstract class XMLTag implements IXMLTag {
 
 	private Map<String, String> namespaces;
 
+	private Map<String, String> namespacesView;
+
 	private Map<IXMLQName, String> attributes;
 
+	private Map<IXMLQName, String> attributesView;
+
 	private ICompositeTag parent;
 
 
@@ -81,14 +91,16 @@ public abstract class XMLTag implements IXMLTag {
 
 	@Override
 	public void putNamespace(String prefix, String nsUri) {
-		this.namespaces.put(prefix, nsUri);
+		this.getModifiableNamespaces().put(prefix, nsUri);
 	}
 
 
 
 	@Override
 	public void removeNamespace(String prefix) {
-		this.namespaces.remove(prefix);
+		if (this.namespaces != null) {
+			this.namespaces.remove(prefix);
+		}
 	}
 
 
@@ -104,12 +116,9 @@ public abstract class XMLTag implements IXMLTag {
 			throw new IllegalArgumentException("Argument attributes can not be null");
 		}
 
-		if (this.namespaces != null) {
-			this.namespaces.clear();
-			this.namespaces.putAll(namespaces);
-		} else {
-			this.namespaces = new HashMap<String, String>(namespaces);
-		}
+		Map<String, String> currentNamespaces = this.getModifiableNamespaces();
+		currentNamespaces.clear();
+		currentNamespaces.putAll(namespaces);
 
 	}
 
@@ -119,7 +128,7 @@ public abstract class XMLTag implements IXMLTag {
 	 * {@inheritDoc}
 	 * 
 	 * <p>
-	 * It returns null if there are no namespaces.
+	 * It returns empty map if there are no namespaces.
 	 * </p>
 	 * 
 	 * 
@@ -127,10 +136,27 @@ public abstract class XMLTag implements IXMLTag {
 	@Override
 	public Map<String, String> getNamespaces() {
 		if (this.namespaces == null) {
-			return new HashMap<String, String>();
+			return Collections.emptyMap();
+		}
+		return this.namespacesView;
+
+	}
+
+
+
+	@Override
+	public String getNamespace(String prefix) {
+		if (this.namespaces == null) {
+			return null;
 		}
-		return new HashMap<String, String>(this.namespaces);
+		return this.namespaces.get(prefix);
+	}
+
+
 
+	@Override
+	public int getNamespaceCount() {
+		return (this.namespaces == null) ? 0 : this.namespaces.size();
 	}
 
 
@@ -145,7 +171,7 @@ public abstract class XMLTag implements IXMLTag {
 		if (attrName == null) {
 			throw new IllegalArgumentException("Attribute name can not be null");
 		}
-		this.attributes.put(attrName, value);
+		this.getModifiableAttributes().put(attrName, value);
 	}
 
 
@@ -160,7 +186,10 @@ public abstract class XMLTag implements IXMLTag {
 		if (attrName == null) {
 			throw new IllegalArgumentException("Attribute name can not be null");
 		}
-		this.attributes.remove(attrName);
+
+		if (this.attributes != null) {
+			this.attributes.remove(attrName);
+		}
 	}
 
 
@@ -176,12 +205,9 @@ public abstract class XMLTag implements IXMLTag {
 			throw new IllegalArgumentException("Argument attributes can not be null");
 		}
 
-		if (this.attributes != null) {
-			this.attributes.clear();
-			this.attributes.putAll(attributes);
-		} else {
-			this.attributes = new HashMap<IXMLQName, String>(attributes);
-		}
+		Map<IXMLQName, String> currentAttributes = this.getModifiableAttributes();
+		currentAttributes.clear();
+		currentAttributes.putAll(attributes);
 
 	}
 
@@ -197,13 +223,30 @@ public abstract class XMLTag implements IXMLTag {
 	@Override
 	public Map<IXMLQName, String> getAttributes() {
 		if (this.attributes == null) {
-			return new HashMap<IXMLQName, String>();
+			return Collections.emptyMap();
 		}
-		return new HashMap<IXMLQName, String>(this.attributes);
+		return this.attributesView;
 	};
 
 
 
+	@Override
+	public String getAttribute(IXMLQName attrName) {
+		if (this.attributes == null) {
+			return null;
+		}
+		return this.attributes.get(attrName);
+	}
+
+
+
+	@Override
+	public int getAttributeCount() {
+		return (this.attributes == null) ? 0 : this.attributes.size();
+	}
+
+
+
 	/**
 	 * Semantics is the same to the QName.equals()
 	 * 
@@ -260,4 +303,28 @@ public abstract class XMLTag implements IXMLTag {
 	@Override
 	public abstract boolean isSimpleTag();
 
+
+
+	/*
+	 * Private Methods ***^_^***
+	 */
+
+	private Map<String, String> getModifiableNamespaces() {
+		if (this.namespaces == null) {
+			this.namespaces = new HashMap<String, String>();
+			this.namespacesView = Collections.unmodifiableMap(this.namespaces);
+		}
+		return this.namespaces;
+	}
+
+
+
+	private Map<IXMLQName, String> getModifiableAttributes() {
+		if (this.attributes == null) {
+			this.attributes = new HashMap<IXMLQName, String>();
+			this.attributesView = Collections.unmodifiableMap(this.attributes);
+		}
+		return this.attributes;
+	}
+
 }
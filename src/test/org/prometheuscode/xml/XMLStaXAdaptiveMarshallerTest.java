@@ -19,15 +19,25 @@ package org.prometheuscode.xml;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
@@ -42,6 +52,7 @@ import org.prometheuscode.xml.IXMLAdaptiveMarshaller;
 import org.prometheuscode.xml.Mapping;
 import org.prometheuscode.xml.MappingType;
 import org.prometheuscode.xml.XMLStaXAdaptiveMarshaller;
+import org.prometheuscode.xml.bound.SampleBoundClass;
 import org.prometheuscode.xml.treemodel.CompositeTag;
 import org.prometheuscode.xml.treemodel.ICompositeTag;
 import org.prometheuscode.xml.treemodel.ISimpleTag;
@@ -386,4 +397,675 @@ public class XMLStaXAdaptiveMarshallerTest {
 
 	}
 
+
+
+	@Test
+	public void testMethodAccessors() throws Exception {
+
+		IXMLAdaptiveMarshaller testMarshaller = new XMLStaXAdaptiveMarshaller();
+
+		/* accessor bound by createMapping */
+		IMapping<SampleClassForMarshaller> createdMapping = testMarshaller.createMapping(SampleClassForMarshaller.class);
+		IMethodAccessor accessor = createdMapping.getMapping("getMapDependee").getMappedMethodAccessor();
+
+		assertNotNull("Dependee mapping should have accessor", accessor);
+		assertEquals("Wrong accessor method", "getMapDependee", accessor.getMethodName());
+		assertEquals("Wrong accessor target class", SampleClassForMarshaller.class, accessor.getTargetClass());
+		assertFalse("Accessor should not use reflection", accessor.getClass().getName().contains("Reflective"));
+		assertTrue("Accessor should return mapped object", accessor.invoke(new SampleClassForMarshaller()) instanceof Map);
+
+		/* anything thrown by method is wrapped */
+		IMethodAccessor throwingAccessor = MethodAccessorFactory.create(ThrowingGetterClass.class.getMethod("getValue"));
+		assertFalse("Accessor should not use reflection", throwingAccessor.getClass().getName().contains("Reflective"));
+		try {
+			throwingAccessor.invoke(new ThrowingGetterClass());
+			fail("Exception of method should be wrapped");
+		} catch (XMLMarshallerException e) {
+			assertEquals("Wrong cause", "getter", e.getCause().getMessage());
+		}
+
+		/* errors are not wrapped */
+		IMethodAccessor errorAccessor = MethodAccessorFactory.create(ThrowingGetterClass.class.getMethod("getError"));
+		try {
+			errorAccessor.invoke(new ThrowingGetterClass());
+			fail("Error of method should be propagated");
+		} catch (AssertionError e) {
+			assertEquals("Wrong error", "error", e.getMessage());
+		}
+
+		/* mapping created by user is not changed when it is used */
+		IMarshallerConverter<SampleClassForMarshaller> rootConverter = new IMarshallerConverter<SampleClassForMarshaller>() {
+
+			@Override
+			public IXMLTag convert(SampleClassForMarshaller objectToConvert, Map<String, IXMLTag> convertedObjects) {
+				ICompositeTag tag = new CompositeTag(new XMLQName("BaseClass", "", ""));
+				tag.addTag(convertedObjects.get("getDependent"));
+				return tag;
+			}
+		};
+
+		IMarshallerConverter<DependentSampleClassForMarshaller> dependentConverter = new IMarshallerConverter<DependentSampleClassForMarshaller>() {
+
+			@Override
+			public IXMLTag convert(DependentSampleClassForMarshaller objectToConvert, Map<String, IXMLTag> convertedObjects) {
+				return new SimpleTag(new XMLQName("DependentTag", "", ""));
+			}
+		};
+
+		IMapping<SampleClassForMarshaller> rootMapping = new Mapping<SampleClassForMarshaller>(rootConverter);
+		rootMapping.setMappingType(MappingType.Object);
+		IMapping<DependentSampleClassForMarshaller> dependent = new Mapping<DependentSampleClassForMarshaller>(dependentConverter);
+		dependent.setMappingType(MappingType.Object);
+		rootMapping.addMapping("getDependent", dependent);
+
+		testMarshaller.registerMapping(rootMapping);
+		ICompositeTag tag = (ICompositeTag) testMarshaller.getTreeModelFromObject(new SampleClassForMarshaller());
+
+		assertNotNull("There should be dependent tag", tag.getSimpleTagByName(new XMLQName("DependentTag", "", "")));
+		assertNull("Accessor should not be bound to user mapping", dependent.getMappedMethodAccessor());
+	}
+
+
+
+	@Test
+	public void testMarshallingPlan() {
+
+		IMarshallerConverter<SampleClassForMarshaller> rootConverter = new IMarshallerConverter<SampleClassForMarshaller>() {
+
+			@Override
+			public IXMLTag convert(SampleClassForMarshaller objectToConvert, Map<String, IXMLTag> convertedObjects) {
+				ICompositeTag tag = new CompositeTag(new XMLQName("BaseClass", "", ""));
+				tag.addTag(convertedObjects.get("getMapDependee"));
+				return tag;
+			}
+		};
+
+		IMapping<SampleClassForMarshaller> rootMapping = new Mapping<SampleClassForMarshaller>(rootConverter);
+		rootMapping.setMappingType(MappingType.Object);
+
+		IMapping<Map> mapMapping = new Mapping<Map>();
+		mapMapping.setMappingType(MappingType.Map);
+		IMapping<List> listMapping = new Mapping<List>();
+		listMapping.setMappingType(MappingType.Collection);
+		IMapping<DependentSampleClassForMarshaller> elementMapping = new Mapping<DependentSampleClassForMarshaller>();
+		elementMapping.setMappingType(MappingType.Object);
+
+		listMapping.setContainerMapping(elementMapping);
+		mapMapping.setContainerMapping(listMapping);
+		rootMapping.addMapping("getMapDependee", mapMapping);
+
+		MarshallingPlan plan = MarshallingPlan.compile(rootMapping);
+
+		assertEquals("Every mapping should be a node", 4, plan.size());
+		MarshallingPlan.Node root = plan.getRoot();
+		assertEquals("Root should have one mapped method", 1, root.getChildrenCount());
+		assertEquals("Root should not have parent", MarshallingPlan.NO_NODE, root.getParent());
+		assertSame("Root converter should be taken from mapping", rootConverter, root.getConverter());
+
+		MarshallingPlan.Node mapNode = plan.getNode(root.getChild(0));
+		assertEquals("Wrong node type", MappingType.Map, mapNode.getType());
+		assertEquals("Wrong node method", "getMapDependee", mapNode.getMethodName());
+		MarshallingPlan.Node listNode = plan.getNode(mapNode.getContainerNode());
+		assertEquals("Wrong node type", MappingType.Collection, listNode.getType());
+		assertEquals("Wrong parent node", mapNode.getIndex(), listNode.getParent());
+		assertEquals("Wrong node type", MappingType.Object, plan.getNode(listNode.getContainerNode()).getType());
+
+		/* empty container is converted to empty wrapper tag */
+		IXMLAdaptiveMarshaller testMarshaller = new XMLStaXAdaptiveMarshaller();
+		testMarshaller.registerMapping(rootMapping);
+		ICompositeTag tag = (ICompositeTag) testMarshaller.getTreeModelFromObject(new SampleClassForMarshaller());
+
+		ICompositeTag mapTag = tag.getCompositeTagByName(new XMLQName(MAP_TAG_NAME, "", ""));
+		assertNotNull("There should be map tag", mapTag);
+		assertEquals("Map tag should be empty", 0, mapTag.getChildrenCount());
+
+		/* container mapping without value mapping can not be registered */
+		IMapping<List> wrongMapping = new Mapping<List>();
+		wrongMapping.setMappingType(MappingType.Collection);
+		try {
+			testMarshaller.registerMapping(wrongMapping);
+			fail("Container mapping without value mapping should not be registered");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+
+
+	@Test
+	public void testContainersAreNotModified() throws Exception {
+
+		IMarshallerConverter<DependentSampleClassForMarshaller> elementConverter = new IMarshallerConverter<DependentSampleClassForMarshaller>() {
+
+			@Override
+			public IXMLTag convert(DependentSampleClassForMarshaller objectToConvert, Map<String, IXMLTag> convertedObjects) {
+				return new SimpleTag(new XMLQName("element", "", ""));
+			}
+		};
+
+		IMapping<Map> mapMapping = new Mapping<Map>();
+		mapMapping.setMappingType(MappingType.Map);
+		IMapping<List> listMapping = new Mapping<List>();
+		listMapping.setMappingType(MappingType.Collection);
+		IMapping<DependentSampleClassForMarshaller> elementMapping = new Mapping<DependentSampleClassForMarshaller>(elementConverter);
+		elementMapping.setMappingType(MappingType.Object);
+		listMapping.setContainerMapping(elementMapping);
+		mapMapping.setContainerMapping(listMapping);
+
+		final IXMLAdaptiveMarshaller testMarshaller = new XMLStaXAdaptiveMarshaller();
+		testMarshaller.registerMapping(mapMapping);
+
+		/* unmodifiable containers can not be emptied */
+		Map<String, List<DependentSampleClassForMarshaller>> map = new HashMap<String, List<DependentSampleClassForMarshaller>>();
+		for (int i = 0; i < 10; i++) {
+			List<DependentSampleClassForMarshaller> list = new ArrayList<DependentSampleClassForMarshaller>();
+			for (int j = 0; j < 100; j++) {
+				list.add(new DependentSampleClassForMarshaller());
+			}
+			map.put("key" + i, Collections.unmodifiableList(list));
+		}
+		final Map<String, List<DependentSampleClassForMarshaller>> objectToSave = Collections.unmodifiableMap(map);
+
+		ICompositeTag tag = (ICompositeTag) testMarshaller.getTreeModelFromObject(objectToSave);
+		assertEquals("Map tag should have all entries", 10, tag.getChildrenCount());
+		assertEquals("Map should not be modified", 10, objectToSave.size());
+		assertEquals("List should not be modified", 100, objectToSave.get("key0").size());
+
+		/* the same objects marshalled by many threads */
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+			for (int i = 0; i < 8; i++) {
+				results.add(executor.submit(new Callable<Integer>() {
+
+					@Override
+					public Integer call() throws Exception {
+						ByteArrayOutputStream out = new ByteArrayOutputStream();
+						testMarshaller.marshal(objectToSave, out);
+						String xml = out.toString("UTF-8");
+						return xml.split("<element").length - 1;
+					}
+				}));
+			}
+
+			for (Future<Integer> result : results) {
+				assertEquals("Every thread should write all elements", Integer.valueOf(1000), result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+
+
+	@Test
+	public void testStreamingMarshal() throws Exception {
+
+		IMarshallerConverter<DependentSampleClassForMarshaller> elementConverter = new IMarshallerConverter<DependentSampleClassForMarshaller>() {
+
+			@Override
+			public IXMLTag convert(DependentSampleClassForMarshaller objectToConvert, Map<String, IXMLTag> convertedObjects) {
+				return new SimpleTag(new XMLQName("element", "", ""));
+			}
+		};
+
+		IMapping<Collection> listMapping = new Mapping<Collection>();
+		listMapping.setMappingType(MappingType.Collection);
+		IMapping<DependentSampleClassForMarshaller> elementMapping = new Mapping<DependentSampleClassForMarshaller>(elementConverter);
+		elementMapping.setMappingType(MappingType.Object);
+		listMapping.setContainerMapping(elementMapping);
+
+		IXMLAdaptiveMarshaller testMarshaller = new XMLStaXAdaptiveMarshaller();
+		testMarshaller.registerMapping(listMapping);
+
+		/* elements are created while collection is iterated */
+		final ByteArrayOutputStream streamedOut = new ByteArrayOutputStream();
+		final List<Integer> writtenBytes = new ArrayList<Integer>();
+		final int elementsNr = 1000;
+		Collection<DependentSampleClassForMarshaller> records = new AbstractCollection<DependentSampleClassForMarshaller>() {
+
+			@Override
+			public Iterator<DependentSampleClassForMarshaller> iterator() {
+				return new Iterator<DependentSampleClassForMarshaller>() {
+
+					private int nr = 0;
+
+
+
+					@Override
+					public boolean hasNext() {
+						return this.nr < elementsNr;
+					}
+
+
+
+					@Override
+					public DependentSampleClassForMarshaller next() {
+						this.nr++;
+						writtenBytes.add(streamedOut.size());
+						return new DependentSampleClassForMarshaller();
+					}
+
+
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+
+
+			@Override
+			public int size() {
+				return elementsNr;
+			}
+		};
+
+		testMarshaller.setStreaming(true);
+		testMarshaller.setFlushPolicy(FlushPolicy.EVERY_ELEMENT);
+		testMarshaller.marshal(records, streamedOut);
+
+		assertEquals("All elements should be iterated", elementsNr, writtenBytes.size());
+		assertTrue("Elements should be written while collection is iterated", writtenBytes.get(elementsNr - 1) > writtenBytes.get(1));
+
+		/* streamed output is the same as output of tree model */
+		ByteArrayOutputStream treeOut = new ByteArrayOutputStream();
+		testMarshaller.setStreaming(false);
+		testMarshaller.marshal(records, treeOut);
+
+		String streamedXML = streamedOut.toString("UTF-8");
+		assertEquals("Every element should be written", elementsNr, streamedXML.split("<element").length - 1);
+		assertEquals("Streamed output should be the same", treeOut.toString("UTF-8"), streamedXML);
+	}
+
+
+
+	@Test
+	public void testMarshalAll() throws Exception {
+
+		IMarshallerConverter<DependentSampleClassForMarshaller> recordConverter = new IMarshallerConverter<DependentSampleClassForMarshaller>() {
+
+			@Override
+			public IXMLTag convert(DependentSampleClassForMarshaller objectToConvert, Map<String, IXMLTag> convertedObjects) {
+				ISimpleTag tag = new SimpleTag(new XMLQName("record", "", ""));
+				tag.setValue(objectToConvert.getHello());
+				return tag;
+			}
+		};
+
+		IMapping<DependentSampleClassForMarshaller> recordMapping = new Mapping<DependentSampleClassForMarshaller>(recordConverter);
+		recordMapping.setMappingType(MappingType.Object);
+
+		IXMLAdaptiveMarshaller testMarshaller = new XMLStaXAdaptiveMarshaller();
+		testMarshaller.registerMapping(recordMapping);
+
+		/* records are taken from cursor one at a time */
+		final int recordsNr = 500;
+		Iterator<DependentSampleClassForMarshaller> cursor = new Iterator<DependentSampleClassForMarshaller>() {
+
+			private int nr = 0;
+
+
+
+			@Override
+			public boolean hasNext() {
+				return this.nr < recordsNr;
+			}
+
+
+
+			@Override
+			public DependentSampleClassForMarshaller next() {
+				this.nr++;
+				return new DependentSampleClassForMarshaller();
+			}
+
+
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		testMarshaller.marshalAll(cursor, new XMLQName("records", "", ""), out);
+
+		XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(new ByteArrayInputStream(out.toByteArray()));
+		reader.nextTag();
+		assertEquals("Root should be wrapper element", "records", reader.getLocalName());
+
+		int readRecordsNr = 0;
+		while (reader.nextTag() == XMLStreamReader.START_ELEMENT) {
+			assertEquals("Wrapper children should be records", "record", reader.getLocalName());
+			assertEquals("Wrong record value", "HELLO!", reader.getElementText());
+			readRecordsNr++;
+		}
+		assertEquals("All records should be written", recordsNr, readRecordsNr);
+
+		/* empty iterable gives empty wrapper */
+		out = new ByteArrayOutputStream();
+		testMarshaller.marshalAll(new ArrayList<DependentSampleClassForMarshaller>(), new XMLQName("records", "", ""), out);
+		assertTrue("Wrapper should be written", out.toString("UTF-8").contains("records"));
+	}
+
+
+
+	@Test
+	public void testStreamingConverter() throws Exception {
+
+		IStreamingMarshallerConverter<SampleClassForMarshaller> sampleConverter = new AbstractStreamingMarshallerConverter<SampleClassForMarshaller>() {
+
+			@Override
+			public void write(SampleClassForMarshaller objectToConvert, IXMLElementWriter writer) {
+				writer.startElement("sample");
+				writer.writeAttribute("kind", "streamed");
+				writer.startElement("name");
+				writer.writeText("sample & name");
+				writer.endElement();
+				writer.writeChild("getDependent");
+				writer.endElement();
+			}
+		};
+
+		IMarshallerConverter<DependentSampleClassForMarshaller> dependentConverter = new IMarshallerConverter<DependentSampleClassForMarshaller>() {
+
+			@Override
+			public IXMLTag convert(DependentSampleClassForMarshaller objectToConvert, Map<String, IXMLTag> convertedObjects) {
+				ISimpleTag tag = new SimpleTag(new XMLQName("dependent", "", ""));
+				tag.setValue(objectToConvert.getHello());
+				return tag;
+			}
+		};
+
+		/* streaming and classic converters in one mapping */
+		IMapping<Collection> listMapping = new Mapping<Collection>();
+		listMapping.setMappingType(MappingType.Collection);
+		IMapping<SampleClassForMarshaller> sampleMapping = new Mapping<SampleClassForMarshaller>(sampleConverter);
+		sampleMapping.setMappingType(MappingType.Object);
+		IMapping<DependentSampleClassForMarshaller> dependentMapping = new Mapping<DependentSampleClassForMarshaller>(dependentConverter);
+		dependentMapping.setMappingType(MappingType.Object);
+		sampleMapping.addMapping("getDependent", dependentMapping);
+		listMapping.setContainerMapping(sampleMapping);
+
+		IXMLAdaptiveMarshaller testMarshaller = new XMLStaXAdaptiveMarshaller();
+		testMarshaller.registerMapping(listMapping);
+
+		List<SampleClassForMarshaller> samples = new ArrayList<SampleClassForMarshaller>();
+		for (int i = 0; i < 10; i++) {
+			samples.add(new SampleClassForMarshaller());
+		}
+
+		ByteArrayOutputStream streamedOut = new ByteArrayOutputStream();
+		testMarshaller.setStreaming(true);
+		testMarshaller.marshal(samples, streamedOut);
+
+		/* tree model is created by converter writing to tags */
+		ByteArrayOutputStream treeOut = new ByteArrayOutputStream();
+		testMarshaller.setStreaming(false);
+		testMarshaller.marshal(samples, treeOut);
+
+		String streamedXML = streamedOut.toString("UTF-8");
+		assertEquals("Every object should be written", samples.size(), streamedXML.split("<sample").length - 1);
+		assertTrue("Dependent object should be written in streamed element", streamedXML.contains("<dependent>HELLO!</dependent></sample>"));
+		assertEquals("Streamed output should be the same", treeOut.toString("UTF-8"), streamedXML);
+
+		/* element written by local part does not inherit default namespace of wrapper */
+		StaXConfiguration repairing = new StaXConfiguration();
+		repairing.setRepairingNamespaces(true);
+		testMarshaller.setStaXConfiguration(repairing);
+		testMarshaller.registerMapping(sampleMapping);
+		for (XMLWriterBackend writerBackend : XMLWriterBackend.values()) {
+			testMarshaller.setWriterBackend(writerBackend);
+			ByteArrayOutputStream wrappedOut = new ByteArrayOutputStream();
+			testMarshaller.marshalAll(samples, new XMLQName("samples", "http://zlo.org", ""), wrappedOut);
+			assertTrue("Element should have empty namespace with " + writerBackend, wrappedOut.toString("UTF-8").contains("<sample xmlns=\"\""));
+		}
+		testMarshaller.setStaXConfiguration(new StaXConfiguration());
+		testMarshaller.setWriterBackend(XMLWriterBackend.STAX);
+
+		/* converter has to write one balanced element */
+		IStreamingMarshallerConverter<SampleClassForMarshaller> wrongConverter = new AbstractStreamingMarshallerConverter<SampleClassForMarshaller>() {
+
+			@Override
+			public void write(SampleClassForMarshaller objectToConvert, IXMLElementWriter writer) {
+				writer.startElement("sample");
+			}
+		};
+
+		IMapping<SampleClassForMarshaller> wrongMapping = new Mapping<SampleClassForMarshaller>(wrongConverter);
+		wrongMapping.setMappingType(MappingType.Object);
+		testMarshaller.registerMapping(wrongMapping);
+		testMarshaller.setStreaming(true);
+		try {
+			testMarshaller.marshal(new SampleClassForMarshaller(), new ByteArrayOutputStream());
+			fail("Unbalanced element should not be written");
+		} catch (XMLMarshallerException e) {
+		}
+
+		testMarshaller.setStreaming(false);
+		try {
+			testMarshaller.getTreeModelFromObject(new SampleClassForMarshaller());
+			fail("Unbalanced element should not be converted");
+		} catch (XMLMarshallerException e) {
+		}
+	}
+
+
+
+	@Test
+	public void testBoundConverter() throws Exception {
+
+		SampleBoundClass bound = new SampleBoundClass();
+		bound.id = "007";
+		bound.level = 3;
+		bound.age = 42;
+		bound.name = "Lars <Vogel>";
+		bound.active = true;
+		bound.kind = SampleBoundClass.Kind.EVIL;
+		bound.grade = 'B';
+		bound.comment = "not bound";
+
+		/* converter generated at compile time is used by both mappings */
+		IXMLAdaptiveMarshaller testMarshaller = new XMLStaXAdaptiveMarshaller();
+		testMarshaller.registerMapping(testMarshaller.createMapping(SampleBoundClass.class));
+
+		IXMLAdaptiveUnmarshaller testUnmarshaller = new XMLStaXAdaptiveUnmarshaller();
+		testUnmarshaller.registerMapping(testUnmarshaller.createMapping(Collections.singleton("org.prometheuscode.xml.bound")));
+		IXMLQName boundName = new XMLQName("bound", "http://zlo.org", "");
+
+		for (boolean streaming : new boolean[] { false, true }) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			testMarshaller.setStreaming(streaming);
+			testMarshaller.marshal(bound, out);
+			assertFalse("Children without namespace should not declare it", out.toString("UTF-8").contains("xmlns=\"\""));
+
+			List<Object> objs = testUnmarshaller.unmarshal(new ByteArrayInputStream(out.toByteArray())).get(boundName);
+			assertEquals("One object should be unmarshalled", 1, objs.size());
+
+			SampleBoundClass result = (SampleBoundClass) objs.get(0);
+			assertEquals("Wrong attribute", "007", result.id);
+			assertEquals("Wrong attribute with namespace", Integer.valueOf(3), result.level);
+			assertEquals("Wrong element", 42, result.age);
+			assertEquals("Wrong element", "Lars <Vogel>", result.name);
+			assertTrue("Wrong element", result.active);
+			assertNull("Null element should not be written", result.salary);
+			assertEquals("Wrong element", SampleBoundClass.Kind.EVIL, result.kind);
+			assertEquals("Wrong element with namespace", 'B', result.grade);
+			assertNull("Not bound field should not be written", result.comment);
+		}
+
+		/* empty tag bound to char field */
+		String emptyChar = "<ns:bound xmlns:ns=\"http://zlo.org\"><grade xmlns=\"http://zlo.org/grade\"/></ns:bound>";
+		try {
+			testUnmarshaller.unmarshal(new ByteArrayInputStream(emptyChar.getBytes("UTF-8")));
+			fail("Empty char should not be read");
+		} catch (XMLUnmarshallerException e) {
+		}
+	}
+
+
+
+	@Test
+	public void testSaveTreeModelWithNestedNames() throws Exception {
+
+		/* composite tags with the same names are nested */
+		ICompositeTag root = new CompositeTag(new XMLQName("node", "", ""));
+		ICompositeTag inner = new CompositeTag(new XMLQName("node", "", ""));
+		ICompositeTag innermost = new CompositeTag(new XMLQName("node", "", ""));
+		ISimpleTag leaf = new SimpleTag(new XMLQName("leaf", "", ""));
+		leaf.setValue("1");
+		innermost.addTag(leaf);
+		inner.addTag(new SimpleTag(new XMLQName("before", "", "")));
+		inner.addTag(innermost);
+		inner.addTag(new SimpleTag(new XMLQName("after", "", "")));
+		root.addTag(inner);
+		root.addTag(new SimpleTag(new XMLQName("last", "", "")));
+
+		IXMLRoot document = new XMLRoot();
+		document.setXMLRoot(root);
+
+		IXMLAdaptiveMarshaller testMarshaller = new XMLStaXAdaptiveMarshaller();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		testMarshaller.saveTreeModel(document, out);
+
+		String xml = out.toString("UTF-8");
+		assertTrue("Nested tags should be written in order", xml.endsWith("<node><node><before></before><node><leaf>1</leaf></node><after></after></node><last></last></node>"));
+
+		/* wide composite tag is written in order */
+		ICompositeTag wide = new CompositeTag(new XMLQName("wide", "", ""));
+		int childrenNr = 100000;
+		for (int i = 0; i < childrenNr; i++) {
+			if (i % 2 == 0) {
+				wide.addTag(new CompositeTag(new XMLQName("c", "", "")));
+			} else {
+				wide.addTag(new SimpleTag(new XMLQName("s", "", "")));
+			}
+		}
+		document.setXMLRoot(wide);
+		out = new ByteArrayOutputStream();
+		testMarshaller.saveTreeModel(document, out);
+
+		xml = out.toString("UTF-8");
+		assertEquals("All children should be written", childrenNr / 2, xml.split("<c[>/]").length - 1);
+		assertTrue("Children should be written in order", xml.replace("<c/>", "<c></c>").contains("<wide><c></c><s></s><c></c>"));
+	}
+
+
+
+	@Test
+	public void testUTF8WriterBackend() throws Exception {
+
+		ICompositeTag root = new CompositeTag(new XMLQName("root", "urn:root", ""));
+		root.putNamespace("p", "urn:p");
+		root.putAttribute(new XMLQName("plain", "", ""), "x<&>\"'\t\n\r\u00e9\ufffe");
+		root.putAttribute(new XMLQName("other", "urn:other", ""), "1");
+
+		ICompositeTag prefixed = new CompositeTag(new XMLQName("prefixed", "urn:p", "p"));
+		prefixed.putAttribute(new XMLQName("attr", "urn:p", "p"), "2");
+		prefixed.putAttribute(new XMLQName("attr", "urn:q", "p"), "3");
+		root.addTag(prefixed);
+
+		ISimpleTag text = new SimpleTag(new XMLQName("text", "", ""));
+		text.setValue("t<&>]>\r\n\u00e9\u20ac\ud83d\ude00\uffff");
+		prefixed.addTag(text);
+		ISimpleTag shortText = new SimpleTag(new XMLQName("short", "urn:root", ""));
+		shortText.setValue("&>]>");
+		prefixed.addTag(shortText);
+		prefixed.addTag(new CompositeTag(new XMLQName("empty", "urn:q", "q")));
+
+		/* '>' is escaped differently at chunk boundaries of long text */
+		StringBuilder longValue = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			longValue.append((i % 7 == 0) ? '>' : (i % 11 == 0) ? '&' : 'a');
+		}
+		ISimpleTag longText = new SimpleTag(new XMLQName("long", "", ""));
+		longText.setValue(longValue.toString());
+		root.addTag(longText);
+
+		IXMLRoot document = new XMLRoot();
+		document.setXMLRoot(root);
+
+		for (boolean repairing : new boolean[] { true, false }) {
+			StaXConfiguration configuration = new StaXConfiguration();
+			configuration.setRepairingNamespaces(repairing);
+
+			IXMLAdaptiveMarshaller testMarshaller = new XMLStaXAdaptiveMarshaller();
+			testMarshaller.setStaXConfiguration(configuration);
+			assertEquals("StaX backend should be default", XMLWriterBackend.STAX, testMarshaller.getWriterBackend());
+			ByteArrayOutputStream staxOut = new ByteArrayOutputStream();
+			testMarshaller.saveTreeModel(document, staxOut);
+
+			testMarshaller.setWriterBackend(XMLWriterBackend.UTF8);
+			ByteArrayOutputStream utf8Out = new ByteArrayOutputStream();
+			testMarshaller.saveTreeModel(document, utf8Out);
+
+			assertEquals("Output should be the same", staxOut.toString("UTF-8"), utf8Out.toString("UTF-8"));
+			assertArrayEquals("Output should be byte identical", staxOut.toByteArray(), utf8Out.toByteArray());
+		}
+
+		/* invalid chars are not written */
+		text.setValue("\u0001");
+		IXMLAdaptiveMarshaller testMarshaller = new XMLStaXAdaptiveMarshaller();
+		testMarshaller.setWriterBackend(XMLWriterBackend.UTF8);
+		try {
+			testMarshaller.saveTreeModel(document, new ByteArrayOutputStream());
+			fail("Invalid char should not be written");
+		} catch (XMLMarshallerException e) {
+		}
+	}
+
+
+
+	@Test
+	public void testUTF8WriterBackendStreaming() throws Exception {
+
+		IMarshallerConverter<DependentSampleClassForMarshaller> elementConverter = new IMarshallerConverter<DependentSampleClassForMarshaller>() {
+
+			@Override
+			public IXMLTag convert(DependentSampleClassForMarshaller objectToConvert, Map<String, IXMLTag> convertedObjects) {
+				SimpleTag tag = new SimpleTag(new XMLQName("element", "urn:element", "e"));
+				tag.setValue("a < b");
+				return tag;
+			}
+		};
+
+		IMapping<DependentSampleClassForMarshaller> elementMapping = new Mapping<DependentSampleClassForMarshaller>(elementConverter);
+		elementMapping.setMappingType(MappingType.Object);
+
+		List<DependentSampleClassForMarshaller> records = new ArrayList<DependentSampleClassForMarshaller>();
+		for (int i = 0; i < 5000; i++) {
+			records.add(new DependentSampleClassForMarshaller());
+		}
+
+		IXMLAdaptiveMarshaller testMarshaller = new XMLStaXAdaptiveMarshaller();
+		testMarshaller.registerMapping(elementMapping);
+		testMarshaller.setFlushPolicy(FlushPolicy.everyElements(100));
+		ByteArrayOutputStream staxOut = new ByteArrayOutputStream();
+		testMarshaller.marshalAll(records, new XMLQName("records", "", ""), staxOut);
+
+		testMarshaller.setWriterBackend(XMLWriterBackend.UTF8);
+		ByteArrayOutputStream utf8Out = new ByteArrayOutputStream();
+		testMarshaller.marshalAll(records, new XMLQName("records", "", ""), utf8Out);
+
+		assertArrayEquals("Streamed output should be byte identical", staxOut.toByteArray(), utf8Out.toByteArray());
+	}
+
+
+
+	public static class ThrowingGetterClass {
+
+		public Object getValue() throws Exception {
+			throw new Exception("getter");
+		}
+
+
+
+		public Object getError() {
+			throw new AssertionError("error");
+		}
+
+	}
+
 }
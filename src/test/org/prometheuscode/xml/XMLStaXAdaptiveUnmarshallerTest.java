@@ -19,14 +19,30 @@ package org.prometheuscode.xml;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import javax.xml.stream.FactoryConfigurationError;
 
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -35,6 +51,7 @@ import org.junit.Test;
 import org.prometheuscode.xml.IUnmarshallerConverter;
 import org.prometheuscode.xml.IXMLAdaptiveUnmarshaller;
 import org.prometheuscode.xml.XMLStaXAdaptiveUnmarshaller;
+import org.prometheuscode.xml.annotation.ConverterIndexProcessor;
 import org.prometheuscode.xml.treemodel.ICompositeTag;
 import org.prometheuscode.xml.treemodel.ISimpleTag;
 import org.prometheuscode.xml.treemodel.IXMLQName;
@@ -223,7 +240,157 @@ public class XMLStaXAdaptiveUnmarshallerTest {
 
 
 	@Test
-	@Ignore
+	public void testUnmarshalWithHandler() {
+
+		IUnmarshallerConverter employeeConverter = new IUnmarshallerConverter() {
+
+			@Override
+			public Object convert(ICompositeTag tag, Map<IXMLQName, List<Object>> convertedObjs) {
+
+				IXMLQName name = new XMLQName("id", "", "");
+
+				return tag.getSimpleTagByName(name).getValue();
+			}
+		};
+
+		Map<IXMLQName, IUnmarshallerConverter> converters = new HashMap<IXMLQName, IUnmarshallerConverter>();
+		final IXMLQName employeeTagName = new XMLQName("employee", "", "");
+		converters.put(employeeTagName, employeeConverter);
+
+		testAdaptiveUnmarshaller.registerMapping(converters);
+
+		final List<Object> handledObjs = new ArrayList<Object>();
+		IUnmarshallerHandler handler = new IUnmarshallerHandler() {
+
+			@Override
+			public void handle(IXMLQName tagName, Object convertedObj) {
+				assertEquals("Handled tag name should be: employee", employeeTagName, tagName);
+				handledObjs.add(convertedObj);
+			}
+		};
+
+		InputStream testInputStream = XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(fullPathToXMLTestFile);
+		testAdaptiveUnmarshaller.unmarshal(testInputStream, handler);
+
+		assertEquals("Number of handled employee objects should be: 4", 4, handledObjs.size());
+
+		assertEquals("Objects should be handled in document order", "2", handledObjs.get(0));
+		assertEquals("Objects should be handled in document order", "4", handledObjs.get(2));
+	}
+
+
+
+	@Test
+	public void testUnmarshalIterator() {
+
+		IUnmarshallerConverter employeeConverter = new IUnmarshallerConverter() {
+
+			@Override
+			public Object convert(ICompositeTag tag, Map<IXMLQName, List<Object>> convertedObjs) {
+
+				IXMLQName name = new XMLQName("id", "", "");
+
+				return tag.getSimpleTagByName(name).getValue();
+			}
+		};
+
+		Map<IXMLQName, IUnmarshallerConverter> converters = new HashMap<IXMLQName, IUnmarshallerConverter>();
+		converters.put(new XMLQName("employee", "", ""), employeeConverter);
+
+		testAdaptiveUnmarshaller.registerMapping(converters);
+
+		InputStream testInputStream = XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(fullPathToXMLTestFile);
+		IUnmarshallerIterator iter = testAdaptiveUnmarshaller.unmarshalIterator(testInputStream);
+
+		List<Object> iteratedObjs = new ArrayList<Object>();
+		while (iter.hasNext()) {
+			iteratedObjs.add(iter.next());
+		}
+
+		assertEquals("Number of iterated employee objects should be: 4", 4, iteratedObjs.size());
+		assertEquals("Objects should be iterated in document order", "3", iteratedObjs.get(1));
+		assertFalse("Iterator should stay at the end", iter.hasNext());
+
+		/*
+		 * stop before end of document
+		 */
+		testInputStream = XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(fullPathToXMLTestFile);
+		iter = testAdaptiveUnmarshaller.unmarshalIterator(testInputStream);
+
+		assertEquals("First iterated object should be: 2", "2", iter.next());
+		iter.close();
+
+		assertFalse("Closed iterator should have no more objects", iter.hasNext());
+	}
+
+
+
+	@Test
+	public void testConcurrentConversion() {
+
+		IUnmarshallerConverter employeeConverter = new IUnmarshallerConverter() {
+
+			@Override
+			public Object convert(ICompositeTag tag, Map<IXMLQName, List<Object>> convertedObjs) {
+
+				IXMLQName name = new XMLQName("id", "", "");
+				IXMLQName positionName = new XMLQName("position", "", "");
+
+				return tag.getSimpleTagByName(name).getValue() + convertedObjs.get(positionName).get(0);
+			}
+		};
+
+		IUnmarshallerConverter positionConverter = new IUnmarshallerConverter() {
+
+			@Override
+			public Object convert(ICompositeTag tag, Map<IXMLQName, List<Object>> convertedObjs) {
+
+				IXMLQName name = new XMLQName("id", "", "");
+
+				return tag.getSimpleTagByName(name).getValue();
+			}
+		};
+
+		Map<IXMLQName, IUnmarshallerConverter> converters = new HashMap<IXMLQName, IUnmarshallerConverter>();
+		IXMLQName employeeTagName = new XMLQName("employee", "", "");
+		converters.put(employeeTagName, employeeConverter);
+		converters.put(new XMLQName("position", "", ""), positionConverter);
+
+		testAdaptiveUnmarshaller.registerMapping(converters);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			ConcurrentConversionConfig config = new ConcurrentConversionConfig(executor);
+			config.setMaxInFlightTags(2);
+			testAdaptiveUnmarshaller.setConcurrentConversion(config);
+
+			InputStream testInputStream = XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(fullPathToXMLTestFile);
+			Map<IXMLQName, List<Object>> convertedObjs = testAdaptiveUnmarshaller.unmarshal(testInputStream);
+
+			List<Object> employeeObjs = convertedObjs.get(employeeTagName);
+			assertEquals("Number of converted employee objects should be: 4", 4, employeeObjs.size());
+			assertEquals("Objects should be in document order", "2DIS_2", employeeObjs.get(0));
+			assertEquals("Objects should be in document order", "3DIS_3", employeeObjs.get(1));
+
+			/*
+			 * iterator gets objects of concurrent conversion too
+			 */
+			testInputStream = XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(fullPathToXMLTestFile);
+			IUnmarshallerIterator iter = testAdaptiveUnmarshaller.unmarshalIterator(testInputStream);
+			int iteratedNr = 0;
+			while (iter.hasNext()) {
+				assertEquals("Iterated objects should be the same", employeeObjs.get(iteratedNr), iter.next());
+				iteratedNr++;
+			}
+			assertEquals("Number of iterated employee objects should be: 4", 4, iteratedNr);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+
+
+	@Test
 	public void testAutomaticRegistration() {
 
 		Set<String> testPackageList = new HashSet<String>();
@@ -246,4 +413,662 @@ public class XMLStaXAdaptiveUnmarshallerTest {
 
 	}
 
+
+
+	@Test
+	public void testUnmarshalInChunks() throws Exception {
+
+		IUnmarshallerConverter employeeConverter = new IUnmarshallerConverter() {
+
+			@Override
+			public Object convert(ICompositeTag tag, Map<IXMLQName, List<Object>> convertedObjs) {
+
+				IXMLQName name = new XMLQName("id", "", "");
+
+				return tag.getSimpleTagByName(name).getValue();
+			}
+		};
+
+		Map<IXMLQName, IUnmarshallerConverter> converters = new HashMap<IXMLQName, IUnmarshallerConverter>();
+		IXMLQName employeeTagName = new XMLQName("employee", "", "");
+		converters.put(employeeTagName, employeeConverter);
+
+		testAdaptiveUnmarshaller.registerMapping(converters);
+
+		String muuFilePath = "/" + XMLStaXAdaptiveUnmarshallerTest.class.getPackage().getName().replace(".", "/") + "/files/muu.xml";
+		String xmlPath = new File(XMLStaXAdaptiveUnmarshallerTest.class.getResource(muuFilePath).toURI()).getPath();
+
+		List<Object> expectedObjs = testAdaptiveUnmarshaller.unmarshal(xmlPath).get(employeeTagName);
+		assertEquals("Number of converted employee objects should be: 500", 500, expectedObjs.size());
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Map<IXMLQName, List<Object>> convertedObjs = testAdaptiveUnmarshaller.unmarshalInChunks(xmlPath, employeeTagName, 7, executor);
+			assertEquals("Chunks should give the same objects in the same order", expectedObjs, convertedObjs.get(employeeTagName));
+
+			/*
+			 * more chunks than records in small file
+			 */
+			convertedObjs = testAdaptiveUnmarshaller.unmarshalInChunks(xmlPath, employeeTagName, 1000, executor);
+			assertEquals("Chunks should give the same objects in the same order", expectedObjs, convertedObjs.get(employeeTagName));
+
+			/*
+			 * tags with record name which are not children of root, in
+			 * comments and in CDATA are not record starts
+			 */
+			StringBuilder xml = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?>\n<list>\n");
+			for (int i = 0; i < 200; i++) {
+				xml.append("<employee><id>").append(i).append("</id><team a='>employee /employee>'><employee><id>n").append(i).append("</id></employee></team>");
+				xml.append("<!-- <employee> --><note><![CDATA[<employee>]]></note><empty/></employee>\n");
+			}
+			xml.append("</list>");
+
+			Path nestedPath = Files.createTempFile("nested", ".xml");
+			try {
+				Files.write(nestedPath, xml.toString().getBytes("UTF-8"));
+				expectedObjs = testAdaptiveUnmarshaller.unmarshal(nestedPath).get(employeeTagName);
+				convertedObjs = testAdaptiveUnmarshaller.unmarshalInChunks(nestedPath, employeeTagName, 13, executor);
+				assertEquals("Nested tags should stay in their records", expectedObjs, convertedObjs.get(employeeTagName));
+			} finally {
+				Files.delete(nestedPath);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+
+
+	@Test
+	public void testFileReadStrategies() throws Exception {
+
+		String muuFilePath = "/" + XMLStaXAdaptiveUnmarshallerTest.class.getPackage().getName().replace(".", "/") + "/files/muu.xml";
+		Path xmlPath = Paths.get(XMLStaXAdaptiveUnmarshallerTest.class.getResource(muuFilePath).toURI());
+
+		IXMLQName employeeTagName = new XMLQName("employee", "", "");
+		int expectedEmployeesNr = testAdaptiveUnmarshaller.getTreeModel(XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(muuFilePath)).getXMLRoot().getAllCompositeTagsByName(employeeTagName).size();
+		assertEquals("Number of employee tags should be: 500", 500, expectedEmployeesNr);
+
+		for (FileReadStrategy strategy : FileReadStrategy.values()) {
+			testAdaptiveUnmarshaller.setFileReadStrategy(strategy);
+			assertEquals("Strategy should be set", strategy, testAdaptiveUnmarshaller.getFileReadStrategy());
+
+			IXMLRoot root = testAdaptiveUnmarshaller.getTreeModel(xmlPath);
+			assertEquals("Every strategy should read the whole file", expectedEmployeesNr, root.getXMLRoot().getAllCompositeTagsByName(employeeTagName).size());
+
+			root = testAdaptiveUnmarshaller.getTreeModel(xmlPath.toString());
+			assertEquals("Every strategy should read the whole file", expectedEmployeesNr, root.getXMLRoot().getAllCompositeTagsByName(employeeTagName).size());
+		}
+	}
+
+
+
+	@Test
+	public void testInternedNames() {
+
+		final List<IXMLQName> names = new ArrayList<IXMLQName>();
+		IUnmarshallerConverter employeeConverter = new IUnmarshallerConverter() {
+
+			@Override
+			public Object convert(ICompositeTag tag, Map<IXMLQName, List<Object>> convertedObjs) {
+				names.add(tag.getName());
+				return tag.getName();
+			}
+		};
+
+		Map<IXMLQName, IUnmarshallerConverter> converters = new HashMap<IXMLQName, IUnmarshallerConverter>();
+		IXMLQName employeeTagName = new XMLQName("employee", "", "");
+		converters.put(employeeTagName, employeeConverter);
+
+		IXMLQNameSymbolTable symbolTable = new XMLQNameSymbolTable();
+		testAdaptiveUnmarshaller.setSymbolTable(symbolTable);
+		testAdaptiveUnmarshaller.registerMapping(converters);
+
+		InputStream testInputStream = XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(fullPathToXMLTestFile);
+		testAdaptiveUnmarshaller.unmarshal(testInputStream);
+
+		assertEquals("Number of converted employee tags should be: 4", 4, names.size());
+		assertSame("Names should be interned", names.get(0), names.get(1));
+		assertSame("Names should be interned", names.get(0), symbolTable.getName(employeeTagName));
+		assertEquals("Interned name should be equal to other names", employeeTagName, names.get(0));
+		assertEquals("Interned name should have the same hash", employeeTagName.hashCode(), names.get(0).hashCode());
+		assertTrue("Name should have id", symbolTable.getId(employeeTagName) >= 0);
+		assertEquals("Name with other prefix should have the same id", symbolTable.getId(employeeTagName), symbolTable.getId(new XMLQName("employee", "", "pre")));
+
+		/*
+		 * names of complete tree model can be changed
+		 */
+		testInputStream = XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(fullPathToXMLTestFile);
+		IXMLRoot root = testAdaptiveUnmarshaller.getTreeModel(testInputStream);
+		root.getXMLRoot().getName().setLocalPart("renamed");
+		assertEquals("Name should be changed", "renamed", root.getXMLRoot().getName().getLocalPart());
+
+		try {
+			names.get(0).setLocalPart("renamed");
+			fail("Interned name should be immutable");
+		} catch (UnsupportedOperationException e) {
+		}
+
+		/*
+		 * full symbol table does not keep new names, converters are still
+		 * found
+		 */
+		symbolTable = new XMLQNameSymbolTable(2);
+		testAdaptiveUnmarshaller.setSymbolTable(symbolTable);
+		names.clear();
+		for (int i = 0; i < 2; i++) {
+			testInputStream = XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(fullPathToXMLTestFile);
+			testAdaptiveUnmarshaller.unmarshal(testInputStream);
+		}
+		assertEquals("Number of converted employee tags should be: 8", 8, names.size());
+		assertSame("Names of converters should be kept", names.get(0), symbolTable.getName(employeeTagName));
+		assertTrue("Number of names should be limited", symbolTable.size() <= 2);
+		assertEquals("Name which is not kept should have no id", -1, symbolTable.getId(new XMLQName("not-kept", "", "")));
+		assertEquals("Name with new prefix should have id of kept name", symbolTable.getId(employeeTagName), symbolTable.getId(symbolTable.getName(employeeTagName.getNamespaceURI(), employeeTagName.getLocalPart(), "x")));
+		assertEquals("Name of new namespace should have no id", -1, symbolTable.getId(symbolTable.getName("urn:not-kept", "a", "")));
+		assertEquals("Names which are not kept should be equal by value", symbolTable.getName(new XMLQName("a", "", "")), symbolTable.getName(new XMLQName("a", "", "")));
+		assertFalse("Names which are not kept should be equal by value", symbolTable.getName(new XMLQName("a", "", "")).equals(symbolTable.getName(new XMLQName("b", "", ""))));
+	}
+
+
+
+	@Test
+	public void testConvertersAfterSymbolTableChange() {
+
+		IUnmarshallerConverter employeeConverter = new IUnmarshallerConverter() {
+
+			@Override
+			public Object convert(ICompositeTag tag, Map<IXMLQName, List<Object>> convertedObjs) {
+				return tag.getSimpleTagByName(new XMLQName("id", "", "")).getValue();
+			}
+		};
+
+		Map<IXMLQName, IUnmarshallerConverter> converters = new HashMap<IXMLQName, IUnmarshallerConverter>();
+		IXMLQName employeeTagName = new XMLQName("employee", "", "");
+		converters.put(employeeTagName, employeeConverter);
+
+		testAdaptiveUnmarshaller.registerMapping(converters);
+		testAdaptiveUnmarshaller.setSymbolTable(new XMLQNameSymbolTable());
+
+		assertEquals("Registered converters should be kept", converters, testAdaptiveUnmarshaller.getRegisteredMapping());
+
+		InputStream testInputStream = XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(fullPathToXMLTestFile);
+		Map<IXMLQName, List<Object>> convertedObjs = testAdaptiveUnmarshaller.unmarshal(testInputStream);
+		assertEquals("Number of converted employee objects should be: 4", 4, convertedObjs.get(employeeTagName).size());
+	}
+
+
+
+	@Test
+	public void testThreadLocalTagsCache() {
+
+		final List<ICompositeTag> tags = new ArrayList<ICompositeTag>();
+		IUnmarshallerConverter employeeConverter = new IUnmarshallerConverter() {
+
+			@Override
+			public Object convert(ICompositeTag tag, Map<IXMLQName, List<Object>> convertedObjs) {
+				tags.add(tag);
+				return tag.getSimpleTagByName(new XMLQName("id", "", "")).getValue();
+			}
+		};
+
+		Map<IXMLQName, IUnmarshallerConverter> converters = new HashMap<IXMLQName, IUnmarshallerConverter>();
+		IXMLQName employeeTagName = new XMLQName("employee", "", "");
+		converters.put(employeeTagName, employeeConverter);
+
+		testAdaptiveUnmarshaller.registerMapping(converters);
+		testAdaptiveUnmarshaller.setThreadLocalTagsCache(true);
+
+		InputStream testInputStream = XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(fullPathToXMLTestFile);
+		List<Object> firstObjs = testAdaptiveUnmarshaller.unmarshal(testInputStream).get(employeeTagName);
+		ICompositeTag firstTag = tags.get(tags.size() - 1);
+
+		testInputStream = XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(fullPathToXMLTestFile);
+		List<Object> secondObjs = testAdaptiveUnmarshaller.unmarshal(testInputStream).get(employeeTagName);
+
+		assertEquals("Converted objects should be the same", firstObjs, secondObjs);
+		assertSame("Tags should be reused by next unmarshal call", firstTag, tags.get(tags.size() - 1));
+
+		/*
+		 * nothing retained, tags are created every time
+		 */
+		testAdaptiveUnmarshaller.setMaxRetainedTags(0);
+		testInputStream = XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(fullPathToXMLTestFile);
+		assertEquals("Converted objects should be the same", firstObjs, testAdaptiveUnmarshaller.unmarshal(testInputStream).get(employeeTagName));
+		assertNotSame("Tags should not be reused", tags.get(tags.size() - 2), tags.get(tags.size() - 1));
+
+		/*
+		 * bound of retained tags, deprecated release methods
+		 */
+		TagsCache tagsCache = new TagsCache(new XMLQNameSymbolTable(), 3);
+		ISimpleTag simpleTag = tagsCache.getSimpleTag(new XMLQName("a", "", ""));
+		ICompositeTag compositeTag = tagsCache.getCompositeTag(new XMLQName("b", "", ""));
+		tagsCache.getCompositeTag(new XMLQName("b", "", ""));
+		tagsCache.getCompositeTag(new XMLQName("c", "", ""));
+		assertEquals("Used tags should be retained", 4, tagsCache.getRetainedTagsNr());
+
+		tagsCache.updateSimpleTagsFreeSlots();
+		assertSame("Released simple tag should be reused", simpleTag, tagsCache.getSimpleTag(new XMLQName("a", "", "")));
+		assertNotSame("Composite tag should not be released", compositeTag, tagsCache.getCompositeTag(new XMLQName("b", "", "")));
+		tagsCache.updateSimpleTagsFreeSlots();
+		tagsCache.updateCompositeTagsFreeSlots();
+		assertTrue("Number of retained tags should be limited", tagsCache.getRetainedTagsNr() <= 3);
+		assertSame("Tags of the most used name should be retained", compositeTag, tagsCache.getCompositeTag(new XMLQName("b", "", "")));
+
+		tagsCache = new TagsCache(new XMLQNameSymbolTable(), 0);
+		tagsCache.getCompositeTag(new XMLQName("b", "", ""));
+		tagsCache.releaseAllTags();
+		assertEquals("Tags should not be pooled", 0, tagsCache.getRetainedTagsNr());
+	}
+
+
+
+	@Test
+	public void testStaXConfigurationProfiles() {
+
+		IXMLQName employeeTagName = new XMLQName("employee", "", "");
+		String muuFilePath = "/" + XMLStaXAdaptiveUnmarshallerTest.class.getPackage().getName().replace(".", "/") + "/files/muu.xml";
+
+		for (StaXConfiguration config : new StaXConfiguration[] { StaXConfiguration.maxThroughput(), StaXConfiguration.strict() }) {
+			testAdaptiveUnmarshaller.setStaXConfiguration(config);
+
+			InputStream testInputStream = XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(muuFilePath);
+			IXMLRoot root = testAdaptiveUnmarshaller.getTreeModel(testInputStream);
+			assertEquals("Number of employee tags should be: 500", 500, root.getXMLRoot().getAllCompositeTagsByName(employeeTagName).size());
+
+			assertSame("Factory should be shared", config.getInputFactory(), config.getInputFactory());
+		}
+
+		StaXConfiguration config = testAdaptiveUnmarshaller.getStaXConfiguration();
+		Object factory = config.getInputFactory();
+		config.setCoalescing(!(config.isCoalescing()));
+		assertNotSame("Factory should be created again when property is changed", factory, config.getInputFactory());
+	}
+
+
+
+	@Test
+	public void testTokenizerParserBackend() throws Exception {
+
+		assertTrue("StaX backend should be default", testAdaptiveUnmarshaller.getParserBackend() instanceof StaXParserBackend);
+
+		IUnmarshallerConverter employeeConverter = new IUnmarshallerConverter() {
+
+			@Override
+			public Object convert(ICompositeTag tag, Map<IXMLQName, List<Object>> convertedObjs) {
+				StringBuilder values = new StringBuilder(tag.getName().toString());
+				for (ISimpleTag simpleTag : tag.getAllSimpleTags()) {
+					values.append(simpleTag.getName()).append('=').append(simpleTag.getValue()).append(simpleTag.getAttributes());
+				}
+				return values.toString();
+			}
+		};
+
+		Map<IXMLQName, IUnmarshallerConverter> converters = new HashMap<IXMLQName, IUnmarshallerConverter>();
+		IXMLQName employeeTagName = new XMLQName("employee", "", "");
+		IXMLQName evilEmployeeTagName = new XMLQName("employee", "http://zlo.org/evil", "");
+		converters.put(employeeTagName, employeeConverter);
+		converters.put(evilEmployeeTagName, employeeConverter);
+		testAdaptiveUnmarshaller.registerMapping(converters);
+
+		InputStream testInputStream = XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(fullPathToXMLTestFile);
+		Map<IXMLQName, List<Object>> expectedObjs = testAdaptiveUnmarshaller.unmarshal(testInputStream);
+
+		testAdaptiveUnmarshaller.setParserBackend(new TokenizerParserBackend());
+		testInputStream = XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(fullPathToXMLTestFile);
+		assertEquals("Tokenizer should give the same objects as StaX parser", expectedObjs, testAdaptiveUnmarshaller.unmarshal(testInputStream));
+
+		/*
+		 * references, coalesced CDATA and namespaces of tree model
+		 */
+		String xml = "<?xml version='1.0' encoding='UTF-8'?>\n<!-- list -->\n<list xmlns:p='urn:p'>\r\n"
+				+ "<p:item p:kind='a&amp;b' size=\"2\">x &lt; y &#x41;&#66; <![CDATA[<c>]]> \u00e9\u20ac</p:item>\n<empty/></list>";
+		testAdaptiveUnmarshaller.getStaXConfiguration().setCoalescing(true);
+		IXMLRoot root = testAdaptiveUnmarshaller.getTreeModel(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+		assertEquals("Version should be read", "1.0", root.getVersion());
+		ISimpleTag item = root.getXMLRoot().getSimpleTagByName(new XMLQName("item", "urn:p", "p"));
+		assertEquals("Text and CDATA should be decoded", "x < y AB <c> \u00e9\u20ac", item.getValue());
+		assertEquals("Attribute should be decoded", "a&b", item.getAttributes().get(new XMLQName("kind", "urn:p", "p")));
+		assertEquals("Attribute without prefix has no namespace", "2", item.getAttributes().get(new XMLQName("size", "", "")));
+		assertEquals("Namespace should be read", "urn:p", root.getXMLRoot().getNamespaces().get("p"));
+		assertNotNull("Empty element should be read", root.getXMLRoot().getSimpleTagByName(new XMLQName("empty", "", "")));
+
+		/*
+		 * document with DTD is read by StaX parser
+		 */
+		xml = "<!DOCTYPE list [<!ENTITY e 'entity'>]><list><item>&e;</item></list>";
+		root = testAdaptiveUnmarshaller.getTreeModel(new ByteArrayInputStream(xml.getBytes("UTF-8")));
+		assertEquals("Entity should be replaced by fallback parser", "entity", root.getXMLRoot().getSimpleTagByName(new XMLQName("item", "", "")).getValue());
+
+		xml = "<?xml version='1.0' encoding='ISO-8859-1'?><list><item>\u00e9</item></list>";
+		root = testAdaptiveUnmarshaller.getTreeModel(new ByteArrayInputStream(xml.getBytes("ISO-8859-1")));
+		assertEquals("Other encoding should be read by fallback parser", "\u00e9", root.getXMLRoot().getSimpleTagByName(new XMLQName("item", "", "")).getValue());
+
+		/*
+		 * documents rejected by StaX parser are rejected by tokenizer
+		 */
+		String[] malformed = { "<a>&#0;</a>", "<a>&#xD800;</a>", "<a x='1' x='2'/>", "<a xmlns:p='u' xmlns:q='u' p:x='1' q:x='2'/>", "<a x='<'/>", "<a>]]></a>", "<1a/>",
+				"<a xmlns:p=''/>", "<a><!-- a -- b --></a>", "<a/><?xml version='1.0'?>" };
+		for (String document : malformed) {
+			try {
+				testAdaptiveUnmarshaller.getTreeModel(new ByteArrayInputStream(document.getBytes("UTF-8")));
+				fail("Document should not be read: " + document);
+			} catch (XMLUnmarshallerException e) {
+			}
+		}
+
+		/*
+		 * references of white space characters are white space as for StaX
+		 * parser
+		 */
+		xml = "<list><a>&#10;<b/></a><c>&#xD;&#10;</c><d> &#9;<b/>&#32;</d></list>";
+		testAdaptiveUnmarshaller.setParserBackend(new StaXParserBackend());
+		ICompositeTag expectedList = testAdaptiveUnmarshaller.getTreeModel(new ByteArrayInputStream(xml.getBytes("UTF-8"))).getXMLRoot();
+		testAdaptiveUnmarshaller.setParserBackend(new TokenizerParserBackend());
+		ICompositeTag list = testAdaptiveUnmarshaller.getTreeModel(new ByteArrayInputStream(xml.getBytes("UTF-8"))).getXMLRoot();
+		for (String name : new String[] { "a", "c", "d" }) {
+			IXMLQName tagName = new XMLQName(name, "", "");
+			assertEquals("Tag: " + name + " should be read as by StaX parser", expectedList.getSimpleTagByName(tagName) == null, list.getSimpleTagByName(tagName) == null);
+		}
+		assertEquals("White space text should be read as by StaX parser", expectedList.getSimpleTagByName(new XMLQName("c", "", "")).getValue(), list.getSimpleTagByName(new XMLQName("c", "", "")).getValue());
+	}
+
+
+
+	@Test
+	public void testBackendSelection() {
+
+		IXMLQName employeeTagName = new XMLQName("employee", "", "");
+		for (StaXImplementation implementation : StaXImplementation.values()) {
+			IXMLAdaptiveUnmarshaller unmarshaller = AdaptiveXMLMappingsFactory.createAdaptiveUnmarshaller(implementation);
+			IXMLAdaptiveMarshaller marshaller = AdaptiveXMLMappingsFactory.createAdaptiveMarshaller(implementation);
+			assertEquals("Implementation should be set", implementation, unmarshaller.getStaXConfiguration().getImplementation());
+
+			InputStream testInputStream = XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(fullPathToXMLTestFile);
+			if (!(implementation.isAvailable())) {
+				try {
+					unmarshaller.getTreeModel(testInputStream);
+					fail("Implementation which is not on class path should not be used");
+				} catch (FactoryConfigurationError e) {
+				}
+				continue;
+			}
+
+			IXMLRoot root = unmarshaller.getTreeModel(testInputStream);
+			assertEquals("Number of employee tags should be: 4", 4, root.getXMLRoot().getAllCompositeTagsByName(employeeTagName).size());
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			marshaller.saveTreeModel(root, out);
+			root = unmarshaller.getTreeModel(new ByteArrayInputStream(out.toByteArray()));
+			assertEquals("Written tree model should be read again", 4, root.getXMLRoot().getAllCompositeTagsByName(employeeTagName).size());
+
+			assertTrue("Implementation should be described", unmarshaller.getBackendDescription().contains(implementation.toString()));
+			assertTrue("Implementation should be described", marshaller.getBackendDescription().contains(implementation.toString()));
+			if (implementation.getInputFactoryClassName() != null && !(implementation.equals(StaXImplementation.SJSXP))) {
+				assertTrue("Factory should be described", unmarshaller.getBackendDescription().contains(implementation.getInputFactoryClassName()));
+			}
+		}
+		assertTrue("Woodstox should be available", StaXImplementation.WOODSTOX.isAvailable());
+
+		StaXConfiguration configuration = StaXConfiguration.maxThroughput();
+		configuration.setImplementation(StaXImplementation.WOODSTOX);
+		IXMLAdaptiveUnmarshaller unmarshaller = AdaptiveXMLMappingsFactory.createAdaptiveUnmarshaller(configuration, new TokenizerParserBackend());
+		assertSame("Configuration should be set", configuration, unmarshaller.getStaXConfiguration());
+		assertTrue("Parser backend should be described", unmarshaller.getBackendDescription().startsWith("parser: TokenizerParserBackend[fallback=StaXParserBackend]"));
+
+		IXMLAdaptiveMarshaller marshaller = AdaptiveXMLMappingsFactory.createAdaptiveMarshaller(configuration, XMLWriterBackend.UTF8);
+		assertEquals("Writer backend should be set", XMLWriterBackend.UTF8, marshaller.getWriterBackend());
+		assertTrue("Writer backend should be described", marshaller.getBackendDescription().startsWith("writer: UTF8"));
+	}
+
+
+
+	@Test
+	public void testScanningJarWithCacheFile() throws Exception {
+
+		Path tmpDir = Files.createTempDirectory("scan");
+		Path jar = tmpDir.resolve("converters.jar");
+		Path cacheFile = tmpDir.resolve("scan.cache");
+		String packageName = "org.prometheuscode.xml";
+
+		try {
+			writeJar(jar, true, null, SampleUnmarshallerConverter.class, SampleClassForMarshaller.class);
+			ClassLoader jarLoader = new URLClassLoader(new URL[] { jar.toUri().toURL() }, null);
+
+			ConverterClassScanner scanner = new ConverterClassScanner(jarLoader);
+			scanner.setCacheFile(cacheFile);
+			List<ConverterIndex.TagConverterEntry> converters = scanner.scan(Collections.singleton(packageName));
+
+			assertEquals("Only one converter should be found", 1, converters.size());
+			assertEquals("Wrong converter class", SampleUnmarshallerConverter.class.getName(), converters.get(0).getClassName());
+			assertEquals("Wrong local part", "zlo", converters.get(0).getLocalPart());
+			assertEquals("Wrong namespace URI", "http://zlo.org", converters.get(0).getNamespaceURI());
+			assertTrue("Cache file should be written", Files.isRegularFile(cacheFile));
+
+			/*
+			 * jar changed without changing modification time, cached result is
+			 * used by new scanner
+			 */
+			long modificationTime = Files.getLastModifiedTime(jar).toMillis();
+			writeJar(jar, true, null, SampleClassForMarshaller.class);
+			Files.setLastModifiedTime(jar, FileTime.fromMillis(modificationTime));
+
+			scanner = new ConverterClassScanner(jarLoader);
+			scanner.setCacheFile(cacheFile);
+			assertEquals("Cached converter should be found", 1, scanner.scan(Collections.singleton(packageName)).size());
+
+			/* modified jar is scanned again */
+			Files.setLastModifiedTime(jar, FileTime.fromMillis(modificationTime + 10000));
+			assertTrue("Converter should not be found", scanner.scan(Collections.singleton(packageName)).isEmpty());
+		} finally {
+			Files.deleteIfExists(jar);
+			Files.deleteIfExists(cacheFile);
+			Files.deleteIfExists(tmpDir);
+		}
+	}
+
+
+
+	@Test
+	public void testScanningWithPartialIndex() throws Exception {
+
+		Path tmpDir = Files.createTempDirectory("scan");
+		Path indexedJar = tmpDir.resolve("indexed.jar");
+		Path jar = tmpDir.resolve("converters.jar");
+		String packageName = "org.prometheuscode.xml";
+
+		try {
+			String index = "package\t" + packageName + "\ntag\t" + packageName + "\t" + packageName + ".IndexedConverter\thttp://idx.org\tidx\n";
+			writeJar(indexedJar, true, index, SampleClassForMarshaller.class);
+			writeJar(jar, false, null, SampleUnmarshallerConverter.class);
+			ClassLoader jarLoader = new URLClassLoader(new URL[] { indexedJar.toUri().toURL(), jar.toUri().toURL() }, null);
+
+			/*
+			 * indexed jar is not scanned, jar without index and without
+			 * directory entries is scanned
+			 */
+			ConverterClassScanner scanner = new ConverterClassScanner(jarLoader);
+			List<ConverterIndex.TagConverterEntry> converters = scanner.scan(Collections.singleton(packageName), ConverterIndex.load(jarLoader));
+
+			assertEquals("Indexed and scanned converters should be found", 2, converters.size());
+			assertEquals("Wrong indexed converter", packageName + ".IndexedConverter", converters.get(0).getClassName());
+			assertEquals("Wrong scanned converter", SampleUnmarshallerConverter.class.getName(), converters.get(1).getClassName());
+		} finally {
+			Files.deleteIfExists(indexedJar);
+			Files.deleteIfExists(jar);
+			Files.deleteIfExists(tmpDir);
+		}
+	}
+
+
+
+	@Test
+	public void testScanningUnreadableClassFile() throws Exception {
+
+		Path classesDir = Files.createTempDirectory("scan");
+		String packageName = "org.prometheuscode.xml";
+		Path packageDir = classesDir.resolve(packageName.replace('.', '/'));
+		Path converterFile = packageDir.resolve(SampleUnmarshallerConverter.class.getSimpleName() + ".class");
+		Path unreadableFile = packageDir.resolve("Unreadable.class");
+
+		try {
+			Files.createDirectories(packageDir);
+			InputStream classStream = SampleUnmarshallerConverter.class.getResourceAsStream(SampleUnmarshallerConverter.class.getSimpleName() + ".class");
+			try {
+				Files.copy(classStream, converterFile);
+			} finally {
+				classStream.close();
+			}
+
+			/* constant of invokedynamic (tag 18) is not known by javassist 3.12 */
+			byte[] unreadable = { (byte) 0xca, (byte) 0xfe, (byte) 0xba, (byte) 0xbe, 0, 0, 0, 52, 0, 3, 18, 0, 0, 0, 1 };
+			Files.write(unreadableFile, unreadable);
+
+			ClassLoader dirLoader = new URLClassLoader(new URL[] { classesDir.toUri().toURL() }, null);
+			List<ConverterIndex.TagConverterEntry> converters = new ConverterClassScanner(dirLoader).scan(Collections.singleton(packageName));
+
+			assertEquals("Unreadable class should be skipped", 1, converters.size());
+			assertEquals("Wrong converter class", SampleUnmarshallerConverter.class.getName(), converters.get(0).getClassName());
+		} finally {
+			Files.deleteIfExists(converterFile);
+			Files.deleteIfExists(unreadableFile);
+			for (Path dir = packageDir; dir.startsWith(classesDir); dir = dir.getParent()) {
+				Files.deleteIfExists(dir);
+			}
+		}
+	}
+
+
+
+	private static void writeJar(Path jar, boolean directories, String index, Class<?>... classes) throws Exception {
+
+		JarOutputStream jarStream = new JarOutputStream(Files.newOutputStream(jar));
+		try {
+			if (index != null) {
+				jarStream.putNextEntry(new JarEntry(ConverterIndexProcessor.INDEX_RESOURCE));
+				jarStream.write(index.getBytes("UTF-8"));
+				jarStream.closeEntry();
+			}
+
+			/* without directory entries package is found by scanner, not by class loader */
+			String dirName = "";
+			for (String part : classes[0].getPackage().getName().split("\\.")) {
+				dirName += part + "/";
+				if (directories) {
+					jarStream.putNextEntry(new JarEntry(dirName));
+					jarStream.closeEntry();
+				}
+			}
+
+			for (Class<?> clazz : classes) {
+				String entryName = clazz.getName().replace('.', '/') + ".class";
+				jarStream.putNextEntry(new JarEntry(entryName));
+				InputStream classStream = clazz.getResourceAsStream("/" + entryName);
+				try {
+					byte[] buffer = new byte[4096];
+					int read = 0;
+					while ((read = classStream.read(buffer)) != -1) {
+						jarStream.write(buffer, 0, read);
+					}
+				} finally {
+					classStream.close();
+				}
+				jarStream.closeEntry();
+			}
+		} finally {
+			jarStream.close();
+		}
+	}
+
+
+
+	@Test
+	public void testStreamingConverter() {
+
+		IUnmarshallerConverter employeeConverter = new IUnmarshallerConverter() {
+
+			@Override
+			public Object convert(ICompositeTag tag, Map<IXMLQName, List<Object>> convertedObjs) {
+
+				IXMLQName name = new XMLQName("id", "", "");
+				IXMLQName positionName = new XMLQName("position", "", "");
+
+				return tag.getSimpleTagByName(name).getValue() + convertedObjs.get(positionName).get(0);
+			}
+		};
+
+		final List<String> idTypes = Collections.synchronizedList(new ArrayList<String>());
+		IUnmarshallerConverter positionConverter = new AbstractStreamingUnmarshallerConverter() {
+
+			@Override
+			public Object read(IXMLElementReader reader) {
+				String id = null;
+				while (reader.nextElement()) {
+					if (reader.getDepth() == 1 && reader.getName().getLocalPart().equals("id")) {
+						idTypes.add(reader.getAttributeValue("type"));
+						id = reader.getElementText();
+					} else {
+						reader.skipElement();
+					}
+				}
+				return id;
+			}
+		};
+
+		/* streaming and classic converters in one mapping */
+		Map<IXMLQName, IUnmarshallerConverter> converters = new HashMap<IXMLQName, IUnmarshallerConverter>();
+		IXMLQName employeeTagName = new XMLQName("employee", "", "");
+		converters.put(employeeTagName, employeeConverter);
+		converters.put(new XMLQName("position", "", ""), positionConverter);
+		testAdaptiveUnmarshaller.registerMapping(converters);
+
+		InputStream testInputStream = XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(fullPathToXMLTestFile);
+		List<Object> employeeObjs = testAdaptiveUnmarshaller.unmarshal(testInputStream).get(employeeTagName);
+		assertEquals("Number of converted employee objects should be: 4", 4, employeeObjs.size());
+		assertEquals("Position should be read by streaming converter", "2DIS_2", employeeObjs.get(0));
+		assertEquals("Position should be read by streaming converter", "3DIS_3", employeeObjs.get(1));
+		assertEquals("Attributes should be read", "String", idTypes.get(0));
+
+		/* tags of concurrent conversion are read from tree model */
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			testAdaptiveUnmarshaller.setConcurrentConversion(new ConcurrentConversionConfig(executor));
+			testInputStream = XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(fullPathToXMLTestFile);
+			assertEquals("Tree model should be read the same way", employeeObjs, testAdaptiveUnmarshaller.unmarshal(testInputStream).get(employeeTagName));
+			testAdaptiveUnmarshaller.setConcurrentConversion(null);
+		} finally {
+			executor.shutdown();
+		}
+
+		/* top most streaming converter does not have to read whole element */
+		IUnmarshallerConverter streamingEmployeeConverter = new AbstractStreamingUnmarshallerConverter() {
+
+			@Override
+			public Object read(IXMLElementReader reader) {
+				String employee = "";
+				while (reader.nextElement()) {
+					if (reader.getName().getLocalPart().equals("id")) {
+						employee += reader.getElementText();
+						if (reader.getDepth() == 2) {
+							return employee;
+						}
+					}
+				}
+				return employee;
+			}
+		};
+
+		converters.put(employeeTagName, streamingEmployeeConverter);
+		testAdaptiveUnmarshaller.registerMapping(converters);
+
+		testInputStream = XMLStaXAdaptiveUnmarshallerTest.class.getResourceAsStream(fullPathToXMLTestFile);
+		IUnmarshallerIterator iter = testAdaptiveUnmarshaller.unmarshalIterator(testInputStream);
+		int iteratedNr = 0;
+		while (iter.hasNext()) {
+			assertEquals("Streamed objects should be the same", employeeObjs.get(iteratedNr), iter.next());
+			iteratedNr++;
+		}
+		assertEquals("Number of iterated employee objects should be: 4", 4, iteratedNr);
+	}
+
 }
@@ -0,0 +1,41 @@
+package org.prometheuscode.xml.bound;
+
+import org.prometheuscode.xml.annotation.BoundAttribute;
+import org.prometheuscode.xml.annotation.BoundElement;
+import org.prometheuscode.xml.annotation.BoundTag;
+
+@BoundTag(localPart = "bound", namespaceURI = "http://zlo.org")
+public class SampleBoundClass {
+
+	public enum Kind {
+		GOOD, EVIL
+	}
+
+	@BoundAttribute
+	public String id;
+
+	@BoundAttribute(localPart = "level", namespaceURI = "http://zlo.org/level")
+	public Integer level;
+
+	@BoundElement
+	public int age;
+
+	@BoundElement(localPart = "full-name")
+	public String name;
+
+	@BoundElement
+	public boolean active;
+
+	@BoundElement
+	public Double salary;
+
+	@BoundElement
+	public Kind kind;
+
+	@BoundElement(namespaceURI = "http://zlo.org/grade")
+	public char grade;
+
+	/* not bound */
+	public String comment;
+
+}
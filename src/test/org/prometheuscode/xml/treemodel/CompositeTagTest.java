@@ -18,6 +18,9 @@
 package org.prometheuscode.xml.treemodel;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -111,6 +114,52 @@ public class CompositeTagTest {
 
 
 
+	@Test
+	public void testCompositeTagViewsInterface() {
+
+		List<ICompositeTag> compositeTags = this.tagToTest.getAllCompositeTags();
+		assertSame("Composite tags list should not be copied", compositeTags, this.tagToTest.getAllCompositeTags());
+		assertEquals("Composite tags should be in order of addition", "someTag", compositeTags.get(2).getName().getLocalPart());
+
+		assertEquals("Tag should have 6 children", 6, this.tagToTest.getChildrenCount());
+		assertEquals("Fourth child should be: simpleTag", "simpleTag", this.tagToTest.getChild(3).getName().getLocalPart());
+
+		/*
+		 * views are live
+		 */
+		IXMLQName testName = new XMLQName("collisionTag", "", "");
+		List<ICompositeTag> collisionTags = this.tagToTest.getAllCompositeTagsByName(testName);
+		this.tagToTest.removeTagsByName(testName, 0);
+		assertEquals("There should be 1 composite tag", 1, compositeTags.size());
+		assertEquals("There should be no composite tags with name: collisionTag", 0, collisionTags.size());
+
+		this.tagToTest.addTag(new CompositeTag(new XMLQName("collisionTag", "", "")));
+		assertEquals("There should be 1 composite tag with name: collisionTag", 1, collisionTags.size());
+
+		/*
+		 * attributes
+		 */
+		ISimpleTag simpleTag = new SimpleTag(new XMLQName("attrTag", "", ""));
+		assertEquals("There should be no attributes", 0, simpleTag.getAttributeCount());
+
+		IXMLQName attrName = new XMLQName("type", "", "");
+		simpleTag.putAttribute(attrName, "String");
+		simpleTag.putNamespace("", "http://zlo.org/evil");
+		assertEquals("There should be 1 attribute", 1, simpleTag.getAttributeCount());
+		assertEquals("Attribute value should be: String", "String", simpleTag.getAttribute(attrName));
+		assertEquals("Namespace should be: http://zlo.org/evil", "http://zlo.org/evil", simpleTag.getNamespace(""));
+		assertSame("Attributes map should not be copied", simpleTag.getAttributes(), simpleTag.getAttributes());
+	}
+
+
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testCompositeTagViewsAreUnmodifiable() {
+		this.tagToTest.getAllSimpleTags().clear();
+	}
+
+
+
 	@Test(expected = XMLTreeModelConstrainException.class)
 	public void testTreeConstrainExceptionCheck() {
 		this.tagToTest.addTag(new CompositeTag(new XMLQName("simpleTag", "", "")));
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2011 Marta Spodymek
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ */
+package org.prometheuscode.xml.treemodel;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.prometheuscode.xml.treemodel.ISimpleTag;
+import org.prometheuscode.xml.treemodel.IXMLQName;
+import org.prometheuscode.xml.treemodel.IXMLTag;
+import org.prometheuscode.xml.treemodel.IndexedOrder;
+import org.prometheuscode.xml.treemodel.SimpleTag;
+import org.prometheuscode.xml.treemodel.XMLQName;
+
+public class IndexedOrderTest {
+
+	private IndexedOrder orderTest;
+
+
+
+	@Before
+	public void setUp() {
+		this.orderTest = new IndexedOrder();
+		this.orderTest.addElement(new SimpleTag(new XMLQName("evil", "", "")));
+		this.orderTest.addElement(new SimpleTag(new XMLQName("evil", "", "")));
+		this.orderTest.addElement(new SimpleTag(new XMLQName("pink", "", "")));
+		this.orderTest.addElement(new SimpleTag(new XMLQName("evil", "", "")));
+		this.orderTest.addElement(new SimpleTag(new XMLQName("green", "", "")));
+		this.orderTest.addElement(new SimpleTag(new XMLQName("shaman", "", "")));
+		this.orderTest.addElement(new SimpleTag(new XMLQName("good", "", "")));
+	}
+
+
+
+	@Test
+	public void testOrderGetInterface() {
+
+		assertEquals("Elment at position 2 should be named: pink", "pink", this.orderTest.getTagAt(2).getName().getLocalPart());
+
+		assertEquals("Elment at position 6 should be named: pink", "good", this.orderTest.getTagAt(6).getName().getLocalPart());
+
+		ISimpleTag tag = new SimpleTag(new XMLQName("green", "", ""));
+		int greenPosition = this.orderTest.getPosition(tag, 0);
+		assertEquals("Elment green should be at position: 4", 4, greenPosition);
+
+		tag.getName().setLocalPart("evil");
+		int evilPosition = this.orderTest.getPosition(tag, 2);
+		assertEquals("Elment green should be at position: 3", 3, evilPosition);
+		assertEquals("There should be no element evil after position: 3", -1, this.orderTest.getPosition(tag, 4));
+
+		this.orderTest.move(0, 6);
+		assertEquals("Elment at position 0 should be moved to 6: evil --> good ", "evil", this.orderTest.getTagAt(6).getName().getLocalPart());
+		assertEquals("Elment good should be moved to 5", "good", this.orderTest.getTagAt(5).getName().getLocalPart());
+		assertEquals("Positions should be updated after move", 6, this.orderTest.getPosition(tag, 3));
+
+		this.orderTest.addElementAt(new SimpleTag(new XMLQName("black", "", "")), 1);
+		assertEquals("Elment at position 1 should be named: black", "black", this.orderTest.getTagAt(1).getName().getLocalPart());
+		assertEquals("Positions should be updated after insert", 3, this.orderTest.getPosition(tag, 1));
+
+	}
+
+
+
+	@Test
+	public void testOrderRemoveInterface() {
+
+		IXMLQName name = new XMLQName("evil", "", "");
+		this.orderTest.removeElementsByName(name, 0, 3);
+		assertEquals("# of elements after remove should be: 4", 4, this.orderTest.size());
+
+		ISimpleTag tag = new SimpleTag(name);
+		assertEquals("There should be no element with name evil after remove", -1, this.orderTest.getPosition(tag, 0));
+		assertEquals("Elment at position 0 should be named: pink", "pink", this.orderTest.getTagAt(0).getName().getLocalPart());
+
+		/* tags with the same name are not removed */
+		IXMLTag green = this.orderTest.getTagAt(1);
+		this.orderTest.addElement(new SimpleTag(new XMLQName("green", "", "")));
+		assertTrue("Tag should be removed", this.orderTest.removeTag(green));
+		assertEquals("Other green tag should stay", 3, this.orderTest.getPosition(green, 0));
+
+		this.orderTest.removeAll();
+		assertEquals("Order should be empty", 0, this.orderTest.size());
+		this.orderTest.addElement(tag);
+		assertEquals("Positions should be indexed after remove all", 0, this.orderTest.getPosition(tag, 0));
+
+	}
+
+
+
+	@Test
+	public void testOrderRangeException() {
+
+		IXMLQName name = new XMLQName("floor", "", "");
+		ISimpleTag tag = new SimpleTag(name);
+		try {
+			this.orderTest.addElementAt(tag, 666);
+			fail("Illegal argument exception should be throw");
+		} catch (IllegalArgumentException e) {
+
+		}
+
+		try {
+			this.orderTest.getTagAt(7);
+			fail("Illegal argument exception should be throw");
+		} catch (IllegalArgumentException e) {
+
+		}
+
+		try {
+			this.orderTest.move(-666, -666);
+			fail("Illegal argument exception should be throw");
+		} catch (IllegalArgumentException e) {
+
+		}
+
+	}
+
+
+
+	@Test
+	public void testWideOrder() {
+
+		IndexedOrder wideOrder = new IndexedOrder();
+		int tagsNr = 200000;
+		List<IXMLTag> odd = new ArrayList<IXMLTag>();
+		for (int i = 0; i < tagsNr; i++) {
+			IXMLTag tag = new SimpleTag(new XMLQName((i % 2 == 0) ? "even" : "odd", "", ""));
+			wideOrder.addElement(tag);
+			if (i % 2 == 1) {
+				odd.add(tag);
+			}
+		}
+
+		for (int i = 0; i < tagsNr; i++) {
+			assertEquals("Wrong tag at position: " + i, (i % 2 == 0) ? "even" : "odd", wideOrder.getTagAt(i).getName().getLocalPart());
+		}
+
+		IXMLTag oddTag = odd.get(0);
+		for (int i = 0; i < tagsNr - 1; i += 2) {
+			assertEquals("Wrong position of next odd tag", i + 1, wideOrder.getPosition(oddTag, i));
+		}
+
+		/* all odd tags are removed in one pass */
+		wideOrder.removeTags(odd);
+		assertEquals("Only even tags should stay", tagsNr / 2, wideOrder.size());
+		assertEquals("There should be no odd tags", -1, wideOrder.getPosition(oddTag, 0));
+		assertEquals("Even tags should be moved", "even", wideOrder.getTagAt(tagsNr / 2 - 1).getName().getLocalPart());
+	}
+
+}